@@ -0,0 +1,131 @@
+package com.bookbuddy.bookbuddy.benchmark;
+
+import com.bookbuddy.bookbuddy.model.Book;
+import com.bookbuddy.bookbuddy.model.Chat;
+import com.bookbuddy.bookbuddy.model.Request;
+import com.bookbuddy.bookbuddy.model.User;
+import com.bookbuddy.bookbuddy.repository.UserRepository;
+import com.bookbuddy.bookbuddy.service.BookService;
+import com.bookbuddy.bookbuddy.service.ChatService;
+import com.bookbuddy.bookbuddy.service.RequestService;
+import org.springframework.context.ApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeds a running application with a reproducible dataset through the services, so the indexes,
+ * caches and counters are in the state production would leave them in.
+ * <p>
+ * Books are spread around a city centre. The first user ("the owner") owns requestCount books that
+ * all get a request; every other one is accepted, which opens a chat with messagesPerChat messages.
+ */
+final class BenchmarkDataset {
+
+    static final double CENTER_LAT = 53.3498;
+    static final double CENTER_LNG = -6.2603;
+    // Books are placed up to about 25 km from the centre
+    private static final double SPREAD_DEGREES = 0.25;
+
+    private static final String[] WORDS = {
+            "shadow", "river", "garden", "winter", "empire", "silent", "golden", "night",
+            "ocean", "journey", "secret", "forest", "kingdom", "broken", "little", "history"};
+    private static final String[] AUTHORS = {
+            "Austen", "Tolkien", "Herbert", "Gaiman", "Le Guin", "Morrison", "Ishiguro", "Atwood"};
+    private static final String[] PLACES = {
+            "City Centre", "Rathmines", "Drumcondra", "Ranelagh", "Phibsborough", "Clontarf", "Dun Laoghaire"};
+
+    private final List<Long> userIds = new ArrayList<>();
+    private Long ownerId;
+
+    private BenchmarkDataset() {
+    }
+
+    /**
+     * The user with all the requests and chats
+     */
+    Long getOwnerId() {
+        return ownerId;
+    }
+
+    List<Long> getUserIds() {
+        return userIds;
+    }
+
+    static BenchmarkDataset seed(ApplicationContext context, int userCount, int bookCount,
+                                 int requestCount, int messagesPerChat) {
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        BookService bookService = context.getBean(BookService.class);
+        RequestService requestService = context.getBean(RequestService.class);
+        ChatService chatService = context.getBean(ChatService.class);
+
+        BenchmarkDataset dataset = new BenchmarkDataset();
+        Random random = new Random(42);
+
+        // Saved directly: registering hashes every password, which would dominate the setup
+        String password = context.getBean(PasswordEncoder.class).encode("password123");
+        for (int i = 0; i < userCount; i++) {
+            User user = new User("reader" + i + "@example.com", password, "Reader", "No. " + i);
+            dataset.userIds.add(userRepository.save(user).getId());
+        }
+        dataset.ownerId = dataset.userIds.get(0);
+
+        List<Book> ownerBooks = new ArrayList<>();
+        for (int i = 0; i < bookCount; i++) {
+            boolean owned = i < requestCount;
+            Long bookOwner = owned ? dataset.ownerId : dataset.userIds.get(1 + random.nextInt(userCount - 1));
+            // Only give away and lend books: a swap request needs an offered book from the requester
+            Book.SharingType type = owned
+                    ? (i % 2 == 0 ? Book.SharingType.GIVE_AWAY : Book.SharingType.LEND)
+                    : Book.SharingType.values()[random.nextInt(Book.SharingType.values().length)];
+            Book template = locatedBook(random, title(random, i), bookOwner);
+            Book book = bookService.listBook(template.getTitle(), template.getAuthor(), template.getGenre(), null,
+                    "Good", null, template.getPickupLocation(), template.getPickupLatitude(),
+                    template.getPickupLongitude(), bookOwner, type, type == Book.SharingType.LEND ? 14 : null);
+            if (owned) {
+                ownerBooks.add(book);
+            }
+        }
+
+        for (int i = 0; i < ownerBooks.size(); i++) {
+            Book book = ownerBooks.get(i);
+            Long requesterId = dataset.userIds.get(1 + i % (userCount - 1));
+            Request request = book.getSharingType() == Book.SharingType.LEND
+                    ? requestService.createLendRequest(book.getId(), requesterId, "Could I borrow this?", 14)
+                    : requestService.createGiveAwayRequest(book.getId(), requesterId, "I'd love this one");
+            if (i % 2 == 0) {
+                requestService.acceptRequest(request.getId(), dataset.ownerId);
+                Chat chat = chatService.findByRequestId(request.getId()).orElseThrow();
+                for (int m = 0; m < messagesPerChat; m++) {
+                    Long sender = m % 2 == 0 ? requesterId : dataset.ownerId;
+                    chatService.sendMessage(chat.getId(), sender, "Message " + m + " about " + book.getTitle());
+                }
+            }
+        }
+        return dataset;
+    }
+
+    /**
+     * A detached available book near the centre; every other one has a place name instead of
+     * only coordinates
+     */
+    static Book locatedBook(Random random, String title, Long ownerId) {
+        Book book = new Book(title, AUTHORS[random.nextInt(AUTHORS.length)], "Good", ownerId, Book.SharingType.GIVE_AWAY);
+        book.setGenre("Fiction");
+        book.setStatus(Book.BookStatus.AVAILABLE);
+        book.setPickupLatitude(CENTER_LAT + (random.nextDouble() * 2 - 1) * SPREAD_DEGREES);
+        book.setPickupLongitude(CENTER_LNG + (random.nextDouble() * 2 - 1) * SPREAD_DEGREES);
+        if (random.nextBoolean()) {
+            book.setPickupLocation(PLACES[random.nextInt(PLACES.length)]);
+        }
+        return book;
+    }
+
+    private static String title(Random random, int i) {
+        String first = WORDS[random.nextInt(WORDS.length)];
+        return Character.toUpperCase(first.charAt(0)) + first.substring(1) + " "
+                + WORDS[random.nextInt(WORDS.length)] + " " + i;
+    }
+}
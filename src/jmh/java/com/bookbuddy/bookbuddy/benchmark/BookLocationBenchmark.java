@@ -0,0 +1,52 @@
+package com.bookbuddy.bookbuddy.benchmark;
+
+import com.bookbuddy.bookbuddy.model.Book;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Distance and display location of a book, computed once per result row in every location search.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BookLocationBenchmark {
+
+    private static final int BOOKS = 1000;
+
+    private final Book[] books = new Book[BOOKS];
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < BOOKS; i++) {
+            books[i] = BenchmarkDataset.locatedBook(random, "Book " + i, 1L);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BOOKS)
+    public void distanceTo(Blackhole blackhole) {
+        for (Book book : books) {
+            blackhole.consume(book.distanceTo(BenchmarkDataset.CENTER_LAT, BenchmarkDataset.CENTER_LNG));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BOOKS)
+    public void displayLocationWithDistance(Blackhole blackhole) {
+        for (Book book : books) {
+            blackhole.consume(book.getDisplayLocationWithDistance(BenchmarkDataset.CENTER_LAT, BenchmarkDataset.CENTER_LNG));
+        }
+    }
+}
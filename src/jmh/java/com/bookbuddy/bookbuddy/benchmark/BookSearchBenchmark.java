@@ -0,0 +1,42 @@
+package com.bookbuddy.bookbuddy.benchmark;
+
+import com.bookbuddy.bookbuddy.controller.BookController;
+import com.bookbuddy.bookbuddy.model.Book;
+import com.bookbuddy.bookbuddy.service.BookService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Location search: the closest books from BookService, and the full /books/api/search response
+ * (search plus owner lookup and one map per book) from BookController.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BookSearchBenchmark {
+
+    private static final double RADIUS_KM = 10;
+    private static final int LIMIT = 50;
+
+    @Benchmark
+    public List<Book> findBooksNearby(SeededApplication app) {
+        return app.bean(BookService.class).findBooksNearby(BenchmarkDataset.CENTER_LAT, BenchmarkDataset.CENTER_LNG,
+                RADIUS_KM, LIMIT);
+    }
+
+    @Benchmark
+    public Object searchBooksNearby(SeededApplication app) {
+        return app.bean(BookController.class).searchBooks(null, BenchmarkDataset.CENTER_LAT,
+                BenchmarkDataset.CENTER_LNG, RADIUS_KM, LIMIT, null, null).getBody();
+    }
+
+    @Benchmark
+    public Object searchBooksByText(SeededApplication app) {
+        return app.bean(BookController.class).searchBooks("garden", BenchmarkDataset.CENTER_LAT,
+                BenchmarkDataset.CENTER_LNG, null, LIMIT, null, null).getBody();
+    }
+}
@@ -0,0 +1,31 @@
+package com.bookbuddy.bookbuddy.benchmark;
+
+import com.bookbuddy.bookbuddy.model.RequestWithBookInfo;
+import com.bookbuddy.bookbuddy.service.ChatService;
+import com.bookbuddy.bookbuddy.service.RequestService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The "my requests" and "my chats" pages of the busiest user in the dataset.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RequestChatBenchmark {
+
+    @Benchmark
+    public List<RequestWithBookInfo> requestsWithBookInfo(SeededApplication app) {
+        return app.bean(RequestService.class).findRequestsByOwnerWithBookInfo(app.getOwnerId());
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> enhancedActiveChats(SeededApplication app) {
+        return app.bean(ChatService.class).getEnhancedActiveChatsForUser(app.getOwnerId());
+    }
+}
@@ -0,0 +1,66 @@
+package com.bookbuddy.bookbuddy.benchmark;
+
+import com.bookbuddy.bookbuddy.BookbuddyApplication;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * The application on the test profile (H2 in memory), started once per fork and seeded with a
+ * BenchmarkDataset. Feature flags reach the forks as JVM arguments, e.g.
+ * mvn -Pjmh verify -Djmh.jvmArgs="-Xmx1g -Dbookbuddy.chat.unread-counters.enabled=true"
+ */
+@State(Scope.Benchmark)
+public class SeededApplication {
+
+    @Param({"200"})
+    public int users;
+
+    @Param({"5000"})
+    public int books;
+
+    @Param({"200"})
+    public int requests;
+
+    @Param({"30"})
+    public int messagesPerChat;
+
+    private ConfigurableApplicationContext context;
+    private BenchmarkDataset dataset;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(BookbuddyApplication.class)
+                .profiles("test")
+                .properties("spring.datasource.url=jdbc:h2:mem:benchmark",
+                        "server.port=0",
+                        "spring.main.banner-mode=off",
+                        // The dev SQL logging would be most of what the service benchmarks measure
+                        "logging.level.root=WARN",
+                        "logging.level.org.hibernate.SQL=WARN",
+                        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN")
+                .run();
+        dataset = BenchmarkDataset.seed(context, users, books, requests, messagesPerChat);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * The user with all the requests and chats
+     */
+    public Long getOwnerId() {
+        return dataset.getOwnerId();
+    }
+}
@@ -0,0 +1,480 @@
+package com.bookbuddy.bookbuddy.loadtest;
+
+import com.bookbuddy.bookbuddy.model.Book;
+import com.bookbuddy.bookbuddy.model.Chat;
+import com.bookbuddy.bookbuddy.model.Message;
+import com.bookbuddy.bookbuddy.model.Request;
+import com.bookbuddy.bookbuddy.util.GeoHash;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Seeds a BookBuddy database with a production-sized synthetic dataset:
+ * <ul>
+ * <li>users living around a handful of cities, weighted by population</li>
+ * <li>books listed near their owner's home over the past year, a few heavy listers owning many</li>
+ * <li>requests in every status, with book statuses left as the services would leave them</li>
+ * <li>a chat for every accepted or completed request, with a long-tailed number of messages</li>
+ * </ul>
+ * Rows are written with JDBC batches, not through the services, so millions of rows take minutes.
+ * Run it against a migrated but stopped instance: the in-memory indexes, caches and counters are
+ * built from the database when the application starts.
+ * <p>
+ * The database defaults to spring.datasource.* from application.properties. Every generated user
+ * signs in as {email-prefix}{n}@bookbuddy.test with the same password, which is what LoadDriver uses.
+ */
+public final class DatasetGenerator {
+
+    private static final Set<String> OPTIONS = Set.of("url", "username", "password", "users", "books",
+            "requests", "messages-per-chat", "email-prefix", "user-password", "seed");
+
+    private static final int BATCH_SIZE = 1000;
+
+    // allocationSize of the pooled id sequences on Book, Request, Chat and Message
+    private static final int ID_ALLOCATION_SIZE = 50;
+
+    // name, latitude, longitude, weight
+    private static final Object[][] CITIES = {
+            {"Dublin", 53.3498, -6.2603, 40},
+            {"Cork", 51.8985, -8.4756, 15},
+            {"Belfast", 54.5973, -5.9301, 12},
+            {"Galway", 53.2707, -9.0568, 10},
+            {"Limerick", 52.6638, -8.6267, 8},
+            {"Waterford", 52.2593, -7.1101, 5},
+            {"Kilkenny", 52.6541, -7.2448, 5},
+            {"Sligo", 54.2766, -8.4761, 5}};
+    private static final String[] AREAS = {"Centre", "North", "South", "East", "West", "Village", "Station"};
+    private static final String[] FIRST_NAMES = {"Aoife", "Sean", "Niamh", "Conor", "Ciara", "Liam", "Emma",
+            "Jack", "Saoirse", "Oisin", "Grace", "Cian", "Orla", "Darragh", "Sophie", "Eoin"};
+    private static final String[] LAST_NAMES = {"Murphy", "Kelly", "Byrne", "Ryan", "O'Brien", "Walsh",
+            "O'Sullivan", "McCarthy", "Doyle", "Kennedy", "Lynch", "Murray", "Quinn", "Moore"};
+    private static final String[] WORDS = {"shadow", "river", "garden", "winter", "empire", "silent", "golden",
+            "night", "ocean", "journey", "secret", "forest", "kingdom", "broken", "little", "history",
+            "mountain", "stranger", "letters", "island", "machine", "summer", "city", "glass"};
+    private static final String[] AUTHORS = {"Austen", "Tolkien", "Herbert", "Gaiman", "Le Guin", "Morrison",
+            "Ishiguro", "Atwood", "Pratchett", "Murakami", "Christie", "Orwell", "Rooney", "Joyce", "Binchy"};
+    private static final String[] GENRES = {"Fantasy", "Science Fiction", "Mystery", "Romance", "History",
+            "Biography", "Poetry", "Thriller", "Classic", "Children"};
+    private static final String[] CONDITIONS = {"New", "Like New", "Good", "Fair", "Poor"};
+    private static final String[] CHAT_LINES = {"Hi! Is it still available?", "Yes, it is.",
+            "Great, when could I pick it up?", "Would Saturday morning work?", "Saturday works for me.",
+            "Where should we meet?", "Outside the library?", "Perfect, see you then.",
+            "Running five minutes late, sorry!", "No problem.", "Thanks so much, enjoy the book!",
+            "How are you finding it so far?", "Loving it, nearly finished."};
+
+    private final Random random;
+    private final LocalDateTime now = LocalDateTime.now().withNano(0);
+
+    private final List<GeneratedUser> users = new ArrayList<>();
+    private final List<GeneratedBook> books = new ArrayList<>();
+    private final List<GeneratedRequest> requests = new ArrayList<>();
+
+    private DatasetGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args, OPTIONS);
+        Properties application = applicationProperties();
+        String url = options.get("url", application.getProperty("spring.datasource.url"));
+        String username = options.get("username", application.getProperty("spring.datasource.username"));
+        String password = options.get("password", application.getProperty("spring.datasource.password"));
+
+        DatasetGenerator generator = new DatasetGenerator(options.getInt("seed", 42));
+        long start = System.nanoTime();
+        try (Connection connection = DriverManager.getConnection(url, username, password)) {
+            connection.setAutoCommit(false);
+            String emailPrefix = options.get("email-prefix", "loadtest");
+            generator.insertUsers(connection, options.getInt("users", 1000), emailPrefix,
+                    options.get("user-password", "loadtest123"));
+            generator.insertBooks(connection, options.getInt("books", 20000));
+            generator.insertRequests(connection, options.getInt("requests", 5000));
+            long messages = generator.insertChats(connection, options.getInt("messages-per-chat", 40));
+            advanceIdSequences(connection);
+            connection.commit();
+            System.out.printf("Seeded %d users, %d books, %d requests, %d messages in %d s%n",
+                    generator.users.size(), generator.books.size(), generator.requests.size(), messages,
+                    (System.nanoTime() - start) / 1_000_000_000);
+            System.out.printf("Users sign in as %s0@bookbuddy.test .. %s%d@bookbuddy.test%n",
+                    emailPrefix, emailPrefix, generator.users.size() - 1);
+        }
+    }
+
+    private static Properties applicationProperties() throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = DatasetGenerator.class.getResourceAsStream("/application.properties")) {
+            if (in != null) {
+                properties.load(in);
+            }
+        }
+        return properties;
+    }
+
+    private void insertUsers(Connection connection, int count, String emailPrefix, String userPassword) throws SQLException {
+        try (PreparedStatement existing = connection.prepareStatement("SELECT COUNT(*) FROM users WHERE email = ?")) {
+            existing.setString(1, emailPrefix + "0@bookbuddy.test");
+            try (ResultSet rs = existing.executeQuery()) {
+                rs.next();
+                if (rs.getLong(1) > 0) {
+                    throw new IllegalStateException("Users " + emailPrefix + "*@bookbuddy.test already exist; "
+                            + "pass another --email-prefix");
+                }
+            }
+        }
+        // Hashed once: BCrypt per user would take longer than the rest of the run
+        String hash = new BCryptPasswordEncoder().encode(userPassword);
+        List<Object[]> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            GeneratedUser user = new GeneratedUser();
+            Object[] city = pickCity();
+            user.latitude = gaussian((Double) city[1], 0.06);
+            user.longitude = gaussian((Double) city[2], 0.09);
+            user.area = city[0] + " " + AREAS[random.nextInt(AREAS.length)];
+            user.joinedAt = now.minusMinutes(random.nextInt(2 * 365 * 24 * 60));
+            users.add(user);
+            rows.add(new Object[]{emailPrefix + i + "@bookbuddy.test", hash, pick(FIRST_NAMES), pick(LAST_NAMES),
+                    ts(user.joinedAt), ts(user.joinedAt)});
+        }
+        List<Long> ids = insert(connection, "INSERT INTO users (email, password, first_name, last_name, "
+                + "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?)", rows);
+        for (int i = 0; i < count; i++) {
+            users.get(i).id = ids.get(i);
+        }
+    }
+
+    private void insertBooks(Connection connection, int count) throws SQLException {
+        List<Object[]> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // Squaring skews ownership: a few heavy listers, a long tail with one or two books
+            GeneratedUser owner = users.get((int) (users.size() * Math.pow(random.nextDouble(), 2)));
+            GeneratedBook book = new GeneratedBook();
+            book.owner = owner;
+            int type = random.nextInt(100);
+            book.sharingType = type < 40 ? Book.SharingType.GIVE_AWAY : type < 75 ? Book.SharingType.LEND : Book.SharingType.SWAP;
+            book.createdAt = owner.joinedAt.plusMinutes((long) (random.nextDouble()
+                    * Duration.between(owner.joinedAt, now).toMinutes()));
+            Double latitude = null;
+            Double longitude = null;
+            String location = null;
+            // One in ten listings has no pickup location
+            if (random.nextInt(10) > 0) {
+                latitude = gaussian(owner.latitude, 0.01);
+                longitude = gaussian(owner.longitude, 0.015);
+                location = owner.area;
+            }
+            String first = pick(WORDS);
+            String title = Character.toUpperCase(first.charAt(0)) + first.substring(1) + " " + pick(WORDS)
+                    + (random.nextBoolean() ? " " + pick(WORDS) : "");
+            books.add(book);
+            rows.add(new Object[]{title, pick(AUTHORS), pick(GENRES), pick(CONDITIONS),
+                    "Listed by a generated user", location, latitude, longitude,
+                    latitude == null ? null : GeoHash.encode(latitude, longitude, GeoHash.MAX_PRECISION),
+                    owner.id, book.sharingType.name(), Book.BookStatus.AVAILABLE.name(),
+                    book.sharingType == Book.SharingType.LEND ? 7 * (1 + random.nextInt(4)) : null,
+                    ts(book.createdAt), ts(book.createdAt)});
+        }
+        List<Long> ids = insert(connection, "INSERT INTO books (title, author, genre, book_condition, description, "
+                + "pickup_location, pickup_latitude, pickup_longitude, pickup_geohash, owner_id, sharing_type, "
+                + "status, lending_duration_days, created_at, updated_at) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+        for (int i = 0; i < count; i++) {
+            books.get(i).id = ids.get(i);
+            books.get(i).owner.availableBooks.add(books.get(i));
+        }
+    }
+
+    /**
+     * Requests on distinct books, in every status; book statuses end up as the services leave them
+     */
+    private void insertRequests(Connection connection, int count) throws SQLException {
+        List<GeneratedBook> candidates = new ArrayList<>(books);
+        Collections.shuffle(candidates, random);
+        List<Object[]> rows = new ArrayList<>(count);
+        for (GeneratedBook book : candidates) {
+            if (requests.size() == count) {
+                break;
+            }
+            if (book.status != Book.BookStatus.AVAILABLE) {
+                continue;
+            }
+            GeneratedUser requester = users.get(random.nextInt(users.size()));
+            if (requester == book.owner) {
+                continue;
+            }
+            GeneratedBook offered = null;
+            if (book.sharingType == Book.SharingType.SWAP) {
+                offered = requester.availableBooks.stream()
+                        .filter(candidate -> candidate.status == Book.BookStatus.AVAILABLE)
+                        .findAny().orElse(null);
+                if (offered == null) {
+                    continue;
+                }
+            }
+
+            GeneratedRequest request = new GeneratedRequest();
+            request.book = book;
+            request.requester = requester;
+            request.offered = offered;
+            request.status = pickStatus();
+            request.createdAt = later(book.createdAt, 30 * 24 * 60);
+            request.answeredAt = later(request.createdAt, 3 * 24 * 60);
+            book.status = bookStatusAfter(request);
+            if (offered != null) {
+                offered.status = book.status;
+            }
+            requests.add(request);
+            rows.add(new Object[]{book.id, requester.id, book.owner.id, book.sharingType.name(), request.status.name(),
+                    "Hi, I'd love this book!", offered == null ? null : offered.id,
+                    book.sharingType == Book.SharingType.LEND ? 14 : null,
+                    ts(request.createdAt), ts(request.status == Request.RequestStatus.PENDING
+                            ? request.createdAt : request.answeredAt)});
+        }
+        List<Long> ids = insert(connection, "INSERT INTO requests (book_id, requester_id, owner_id, request_type, "
+                + "status, message, offered_book_id, requested_duration_days, created_at, updated_at) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+        for (int i = 0; i < requests.size(); i++) {
+            requests.get(i).id = ids.get(i);
+        }
+
+        List<Object[]> statuses = new ArrayList<>();
+        for (GeneratedBook book : books) {
+            if (book.status != Book.BookStatus.AVAILABLE) {
+                statuses.add(new Object[]{book.status.name(), book.id});
+            }
+        }
+        update(connection, "UPDATE books SET status = ? WHERE id = ?", statuses);
+    }
+
+    /**
+     * A chat per accepted or completed request, with a long-tailed number of messages
+     * (exponential, mean messagesPerChat, capped at 20x the mean)
+     */
+    private long insertChats(Connection connection, int messagesPerChat) throws SQLException {
+        List<GeneratedRequest> withChat = new ArrayList<>();
+        List<Object[]> chatRows = new ArrayList<>();
+        for (GeneratedRequest request : requests) {
+            if (request.status != Request.RequestStatus.ACCEPTED && request.status != Request.RequestStatus.COMPLETED) {
+                continue;
+            }
+            Chat.ChatStatus status = request.status == Request.RequestStatus.ACCEPTED
+                    ? Chat.ChatStatus.ACTIVE : Chat.ChatStatus.COMPLETED;
+            withChat.add(request);
+            chatRows.add(new Object[]{request.book.id, request.id, request.requester.id, request.book.owner.id,
+                    status.name(), ts(request.answeredAt), ts(request.answeredAt)});
+        }
+        List<Long> chatIds = insert(connection, "INSERT INTO chats (book_id, request_id, user1_id, user2_id, status, "
+                + "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?)", chatRows);
+
+        long total = 0;
+        List<Object[]> messageRows = new ArrayList<>(BATCH_SIZE);
+        for (int c = 0; c < withChat.size(); c++) {
+            GeneratedRequest request = withChat.get(c);
+            Long chatId = chatIds.get(c);
+            boolean active = request.status == Request.RequestStatus.ACCEPTED;
+            int count = (int) Math.min(20L * messagesPerChat, Math.round(-messagesPerChat * Math.log(1 - random.nextDouble())));
+            // The latest few messages of an active chat are still unread
+            int unreadFrom = active ? count - random.nextInt(Math.min(count, 3) + 1) : count;
+
+            LocalDateTime at = request.answeredAt;
+            messageRows.add(message(chatId, 0L, "Request accepted! You can now arrange the details.",
+                    Message.MessageType.SYSTEM, at, true));
+            for (int m = 0; m < count; m++) {
+                at = at.plusSeconds(30 + random.nextInt(4 * 60 * 60));
+                Long sender = m % 2 == 0 || random.nextInt(5) == 0 ? request.requester.id : request.book.owner.id;
+                messageRows.add(message(chatId, sender, pick(CHAT_LINES), Message.MessageType.TEXT, at, m < unreadFrom));
+                if (messageRows.size() >= BATCH_SIZE) {
+                    total += flushMessages(connection, messageRows);
+                }
+            }
+            if (!active) {
+                messageRows.add(message(chatId, 0L, "Exchange completed successfully!",
+                        Message.MessageType.EXCHANGE_COMPLETED, at.plusMinutes(1), true));
+            }
+        }
+        return total + flushMessages(connection, messageRows);
+    }
+
+    private Object[] message(Long chatId, Long senderId, String content, Message.MessageType type,
+                             LocalDateTime at, boolean read) {
+        // Long histories may run past now; keep every timestamp in the past
+        return new Object[]{chatId, senderId, content, type.name(), at.isAfter(now) ? ts(now) : ts(at), read};
+    }
+
+    private static int flushMessages(Connection connection, List<Object[]> rows) throws SQLException {
+        int count = rows.size();
+        insert(connection, "INSERT INTO messages (chat_id, sender_id, content, message_type, created_at, is_read) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", rows);
+        rows.clear();
+        return count;
+    }
+
+    /**
+     * The rows above took database-generated ids, but the application takes its ids from pooled
+     * sequences (single-row tables on MySQL): move each one past the highest id now in use
+     */
+    private static void advanceIdSequences(Connection connection) throws SQLException {
+        boolean postgres = connection.getMetaData().getDatabaseProductName().toLowerCase().contains("postgres");
+        try (Statement statement = connection.createStatement()) {
+            for (String table : List.of("books", "requests", "chats", "messages")) {
+                String next = "(SELECT COALESCE(MAX(id), 0) + " + ID_ALLOCATION_SIZE + " FROM " + table + ")";
+                statement.execute(postgres
+                        ? "SELECT setval('" + table + "_seq', " + next + ", false)"
+                        : "UPDATE " + table + "_seq SET next_val = " + next);
+            }
+        }
+    }
+
+    /**
+     * Insert the rows in batches; returns the generated ids in row order
+     */
+    private static List<Long> insert(Connection connection, String sql, List<Object[]> rows) throws SQLException {
+        List<Long> ids = new ArrayList<>(rows.size());
+        try (PreparedStatement statement = connection.prepareStatement(sql, new String[]{"id"})) {
+            execute(connection, statement, rows, ids);
+        }
+        return ids;
+    }
+
+    private static void update(Connection connection, String sql, List<Object[]> rows) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            execute(connection, statement, rows, null);
+        }
+    }
+
+    private static void execute(Connection connection, PreparedStatement statement, List<Object[]> rows,
+                                List<Long> ids) throws SQLException {
+        for (int i = 0; i < rows.size(); i++) {
+            Object[] row = rows.get(i);
+            for (int p = 0; p < row.length; p++) {
+                if (row[p] == null) {
+                    statement.setNull(p + 1, Types.NULL);
+                } else {
+                    statement.setObject(p + 1, row[p]);
+                }
+            }
+            statement.addBatch();
+            if ((i + 1) % BATCH_SIZE == 0 || i == rows.size() - 1) {
+                statement.executeBatch();
+                if (ids != null) {
+                    try (ResultSet keys = statement.getGeneratedKeys()) {
+                        while (keys.next()) {
+                            ids.add(keys.getLong(1));
+                        }
+                    }
+                }
+                connection.commit();
+            }
+        }
+    }
+
+    private Request.RequestStatus pickStatus() {
+        int roll = random.nextInt(100);
+        if (roll < 25) {
+            return Request.RequestStatus.PENDING;
+        } else if (roll < 40) {
+            return Request.RequestStatus.ACCEPTED;
+        } else if (roll < 60) {
+            return Request.RequestStatus.REJECTED;
+        } else if (roll < 90) {
+            return Request.RequestStatus.COMPLETED;
+        }
+        return Request.RequestStatus.CANCELLED;
+    }
+
+    /**
+     * The status RequestService leaves the requested (and offered) book in
+     */
+    private static Book.BookStatus bookStatusAfter(GeneratedRequest request) {
+        Book.SharingType type = request.book.sharingType;
+        switch (request.status) {
+            case PENDING:
+                return Book.BookStatus.UNAVAILABLE;
+            case ACCEPTED:
+                return type == Book.SharingType.LEND ? Book.BookStatus.CURRENTLY_LENT_OUT : Book.BookStatus.EXCHANGE_IN_PROGRESS;
+            case COMPLETED:
+                if (type == Book.SharingType.GIVE_AWAY) {
+                    return Book.BookStatus.GIVEN_AWAY;
+                }
+                return type == Book.SharingType.SWAP ? Book.BookStatus.SWAPPED : Book.BookStatus.AVAILABLE;
+            default:
+                return Book.BookStatus.AVAILABLE;
+        }
+    }
+
+    private Object[] pickCity() {
+        int total = 0;
+        for (Object[] city : CITIES) {
+            total += (Integer) city[3];
+        }
+        int roll = random.nextInt(total);
+        for (Object[] city : CITIES) {
+            roll -= (Integer) city[3];
+            if (roll < 0) {
+                return city;
+            }
+        }
+        return CITIES[0];
+    }
+
+    private LocalDateTime later(LocalDateTime from, int maxMinutes) {
+        LocalDateTime at = from.plusMinutes(1 + random.nextInt(maxMinutes));
+        return at.isAfter(now) ? now : at;
+    }
+
+    private double gaussian(double mean, double deviation) {
+        return mean + random.nextGaussian() * deviation;
+    }
+
+    private String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static Timestamp ts(LocalDateTime time) {
+        return Timestamp.valueOf(time);
+    }
+
+    private static final class GeneratedUser {
+        private Long id;
+        private double latitude;
+        private double longitude;
+        private String area;
+        private LocalDateTime joinedAt;
+        private final List<GeneratedBook> availableBooks = new ArrayList<>();
+    }
+
+    private static final class GeneratedBook {
+        private Long id;
+        private GeneratedUser owner;
+        private Book.SharingType sharingType;
+        private Book.BookStatus status = Book.BookStatus.AVAILABLE;
+        private LocalDateTime createdAt;
+    }
+
+    private static final class GeneratedRequest {
+        private Long id;
+        private GeneratedBook book;
+        private GeneratedUser requester;
+        private GeneratedBook offered;
+        private Request.RequestStatus status;
+        private LocalDateTime createdAt;
+        private LocalDateTime answeredAt;
+    }
+}
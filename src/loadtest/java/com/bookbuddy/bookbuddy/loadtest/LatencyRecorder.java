@@ -0,0 +1,103 @@
+package com.bookbuddy.bookbuddy.loadtest;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latency samples and error counts per operation. Nothing is kept until start(), so the
+ * warm-up doesn't count towards the report.
+ */
+final class LatencyRecorder {
+
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+    private volatile long startedAt;
+    private volatile long stoppedAt;
+
+    void start() {
+        startedAt = System.nanoTime();
+    }
+
+    void stop() {
+        stoppedAt = System.nanoTime();
+    }
+
+    void record(String operation, long nanos) {
+        if (startedAt != 0 && stoppedAt == 0) {
+            series.computeIfAbsent(operation, name -> new Series()).add(nanos);
+        }
+    }
+
+    void error(String operation) {
+        if (startedAt != 0 && stoppedAt == 0) {
+            series.computeIfAbsent(operation, name -> new Series()).failed();
+        }
+    }
+
+    /**
+     * One line per operation: count, errors, throughput over the measured window, p50/p99/max in ms
+     */
+    void report(PrintStream out) {
+        double seconds = (stoppedAt - startedAt) / 1e9;
+        out.printf("%-36s %8s %7s %9s %9s %9s %9s%n", "operation", "count", "errors", "ops/s", "p50 ms", "p99 ms", "max ms");
+        long[] all = new long[0];
+        long errors = 0;
+        for (Map.Entry<String, Series> entry : new TreeMap<>(series).entrySet()) {
+            long[] samples = entry.getValue().sorted();
+            print(out, entry.getKey(), samples, entry.getValue().errors(), seconds);
+            all = concat(all, samples);
+            errors += entry.getValue().errors();
+        }
+        Arrays.sort(all);
+        print(out, "total", all, errors, seconds);
+    }
+
+    private static void print(PrintStream out, String operation, long[] sorted, long errors, double seconds) {
+        out.printf("%-36s %8d %7d %9.1f %9.2f %9.2f %9.2f%n", operation, sorted.length, errors,
+                sorted.length / seconds, percentile(sorted, 0.50), percentile(sorted, 0.99),
+                sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6);
+    }
+
+    private static long[] concat(long[] first, long[] second) {
+        long[] joined = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, joined, first.length, second.length);
+        return joined;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static final class Series {
+        private long[] samples = new long[1024];
+        private int size;
+        private long errors;
+
+        synchronized void add(long nanos) {
+            if (size == samples.length) {
+                samples = Arrays.copyOf(samples, size * 2);
+            }
+            samples[size++] = nanos;
+        }
+
+        synchronized void failed() {
+            errors++;
+        }
+
+        synchronized long errors() {
+            return errors;
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(samples, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
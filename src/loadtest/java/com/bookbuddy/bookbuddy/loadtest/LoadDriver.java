@@ -0,0 +1,335 @@
+package com.bookbuddy.bookbuddy.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.lang.reflect.Type;
+import java.net.CookieManager;
+import java.net.HttpCookie;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Drives a running instance with the users DatasetGenerator created, then prints p50/p99 latency
+ * and throughput per operation.
+ * <p>
+ * Each worker signs in a pair of users (HTTP session plus STOMP over SockJS on /ws) and loops over
+ * a weighted mix: text search, nearby search, recent listings, chat inbox and (one time in ten by default) a
+ * full lend lifecycle. The lifecycle requests the partner's book, accepts it, exchanges chat
+ * messages over STOMP (timed from send until the partner receives it) and completes the request,
+ * which makes the book available again for the next round.
+ * <p>
+ * --mix search drops the inbox and lifecycle (read-heavy, mostly SQL and the in-memory indexes);
+ * --mix chat is mostly lifecycles and inbox reads (writes, STOMP fan-out). Running the same mix
+ * against the app on platform threads and on virtual threads compares the two.
+ */
+public final class LoadDriver {
+
+    private static final Set<String> OPTIONS = Set.of("base-url", "users", "pairs", "email-prefix",
+            "user-password", "duration-seconds", "warmup-seconds", "chat-messages", "seed", "mix");
+
+    // Cumulative weights out of 100: text search, nearby search, recent, inbox; the rest is lend lifecycles
+    private static final Map<String, int[]> MIXES = Map.of(
+            "mixed", new int[]{35, 70, 80, 90},
+            "search", new int[]{45, 90, 100, 100},
+            "chat", new int[]{0, 0, 0, 30});
+
+    private static final String[] QUERIES = {"shadow", "river garden", "tolkien", "winter", "history",
+            "atwood", "golden night", "island", "rooney", "machine"};
+    // Search centres: where most generated books are
+    private static final double[][] CENTRES = {{53.3498, -6.2603}, {51.8985, -8.4756}, {54.5973, -5.9301},
+            {53.2707, -9.0568}};
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private final String baseUrl;
+    private final int[] mix;
+    private final LatencyRecorder recorder;
+    private final WebSocketStompClient stompClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private volatile boolean running = true;
+
+    private LoadDriver(String baseUrl, int[] mix, LatencyRecorder recorder) {
+        this.baseUrl = baseUrl;
+        this.mix = mix;
+        this.recorder = recorder;
+        this.stompClient = new WebSocketStompClient(new SockJsClient(
+                List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+        this.stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args, OPTIONS);
+        int users = options.getInt("users", 100);
+        int pairs = options.getInt("pairs", 10);
+        if (users < 2 * pairs) {
+            throw new IllegalArgumentException("Need two generated users per pair: --users must be at least " + 2 * pairs);
+        }
+        String emailPrefix = options.get("email-prefix", "loadtest");
+        String password = options.get("user-password", "loadtest123");
+        int chatMessages = options.getInt("chat-messages", 5);
+        long seed = options.getInt("seed", 42);
+        int[] mix = MIXES.get(options.get("mix", "mixed"));
+        if (mix == null) {
+            throw new IllegalArgumentException("Unknown --mix, expected one of " + MIXES.keySet());
+        }
+
+        LatencyRecorder recorder = new LatencyRecorder();
+        LoadDriver driver = new LoadDriver(options.get("base-url", "http://localhost:8080"), mix, recorder);
+        ExecutorService workers = Executors.newFixedThreadPool(pairs);
+        for (int p = 0; p < pairs; p++) {
+            String requester = emailPrefix + (2 * p) + "@bookbuddy.test";
+            String owner = emailPrefix + (2 * p + 1) + "@bookbuddy.test";
+            Random random = new Random(seed + p);
+            workers.submit(() -> driver.runPair(requester, owner, password, chatMessages, random));
+        }
+
+        TimeUnit.SECONDS.sleep(options.getInt("warmup-seconds", 10));
+        recorder.start();
+        TimeUnit.SECONDS.sleep(options.getInt("duration-seconds", 60));
+        recorder.stop();
+        driver.running = false;
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.MINUTES);
+        recorder.report(System.out);
+        System.exit(0);
+    }
+
+    private void runPair(String requesterEmail, String ownerEmail, String password, int chatMessages, Random random) {
+        try {
+            User requester = new User("requester");
+            User owner = new User("owner");
+            requester.login(requesterEmail, password);
+            owner.login(ownerEmail, password);
+            requester.connectStomp();
+            owner.connectStomp();
+
+            Map<String, String> listing = new LinkedHashMap<>();
+            listing.put("title", "Load test copy " + UUID.randomUUID());
+            listing.put("author", "Load Driver");
+            listing.put("condition", "Good");
+            listing.put("sharingType", "LEND");
+            listing.put("lendingDurationDays", "14");
+            listing.put("latitude", String.valueOf(CENTRES[0][0]));
+            listing.put("longitude", String.valueOf(CENTRES[0][1]));
+            JsonNode listed = owner.post("POST /books/api/list", "/books/api/list", listing);
+            if (listed == null) {
+                throw new IllegalStateException("Could not list the pair's book");
+            }
+            long bookId = listed.get("bookId").asLong();
+
+            while (running) {
+                int roll = random.nextInt(100);
+                User user = random.nextBoolean() ? requester : owner;
+                if (roll < mix[0]) {
+                    user.get("GET /books/api/search?q", "/books/api/search?q="
+                            + encode(QUERIES[random.nextInt(QUERIES.length)]));
+                } else if (roll < mix[1]) {
+                    double[] centre = CENTRES[random.nextInt(CENTRES.length)];
+                    user.get("GET /books/api/search?lat&lng&radius", String.format("/books/api/search?lat=%.5f&lng=%.5f&radius=5",
+                            centre[0] + (random.nextDouble() - 0.5) * 0.1, centre[1] + (random.nextDouble() - 0.5) * 0.1));
+                } else if (roll < mix[2]) {
+                    user.get("GET /books/api/recent", "/books/api/recent");
+                } else if (roll < mix[3]) {
+                    user.get("GET /api/chats", "/api/chats");
+                } else {
+                    lendLifecycle(requester, owner, bookId, chatMessages);
+                }
+            }
+            requester.disconnect();
+            owner.disconnect();
+        } catch (Exception e) {
+            recorder.error("pair setup");
+            System.err.println("Pair " + requesterEmail + " / " + ownerEmail + " stopped: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Request, accept, chat, complete. A failed step is undone so the book is available next round.
+     */
+    private void lendLifecycle(User requester, User owner, long bookId, int chatMessages) throws Exception {
+        JsonNode request = requester.post("POST /requests/api/lend", "/requests/api/lend",
+                Map.of("bookId", String.valueOf(bookId), "requestedDurationDays", "14", "message", "Load test"));
+        if (request == null) {
+            return;
+        }
+        long requestId = request.get("id").asLong();
+        if (owner.post("POST /requests/api/{id}/accept", "/requests/api/" + requestId + "/accept", Map.of()) == null) {
+            requester.post("POST /requests/api/{id}/cancel", "/requests/api/" + requestId + "/cancel", Map.of());
+            return;
+        }
+
+        JsonNode chats = owner.get("GET /api/chats", "/api/chats");
+        Long chatId = null;
+        if (chats != null) {
+            for (JsonNode chat : chats) {
+                if (chat.path("requestId").asLong() == requestId) {
+                    chatId = chat.get("id").asLong();
+                }
+            }
+        }
+        if (chatId != null) {
+            Map<String, CompletableFuture<Void>> pending = new ConcurrentHashMap<>();
+            StompSession.Subscription requesterSubscription = requester.subscribe(chatId, pending);
+            StompSession.Subscription ownerSubscription = owner.subscribe(chatId, pending);
+            for (int m = 0; m < chatMessages && running; m++) {
+                User sender = m % 2 == 0 ? requester : owner;
+                chat(sender, m % 2 == 0 ? owner : requester, chatId, pending);
+            }
+            requesterSubscription.unsubscribe();
+            ownerSubscription.unsubscribe();
+        } else {
+            recorder.error("STOMP /app/chat.sendMessage");
+        }
+        owner.post("POST /requests/api/{id}/complete", "/requests/api/" + requestId + "/complete", Map.of());
+    }
+
+    /**
+     * Send one chat message and wait until the recipient's subscription delivers it
+     */
+    private void chat(User sender, User recipient, long chatId, Map<String, CompletableFuture<Void>> pending) {
+        String content = "Load test " + UUID.randomUUID();
+        CompletableFuture<Void> delivered = new CompletableFuture<>();
+        pending.put(recipient.label + content, delivered);
+        long start = System.nanoTime();
+        try {
+            sender.stomp.send("/app/chat.sendMessage", Map.of("chatId", chatId, "content", content));
+            delivered.get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            recorder.record("STOMP /app/chat.sendMessage", System.nanoTime() - start);
+        } catch (Exception e) {
+            pending.remove(recipient.label + content);
+            recorder.error("STOMP /app/chat.sendMessage");
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * One signed-in user: an HTTP client with its session cookie and a STOMP session
+     */
+    private final class User {
+        private final String label;
+        private final CookieManager cookies = new CookieManager();
+        private final HttpClient http = HttpClient.newBuilder()
+                .cookieHandler(cookies)
+                .connectTimeout(TIMEOUT)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        private StompSession stomp;
+
+        private User(String label) {
+            this.label = label;
+        }
+
+        void login(String email, String password) throws Exception {
+            HttpResponse<String> response = http.send(form("/login", Map.of("username", email, "password", password)),
+                    HttpResponse.BodyHandlers.ofString());
+            String location = response.headers().firstValue("Location").orElse("");
+            if (response.statusCode() != 302 || location.contains("error")) {
+                throw new IllegalStateException("Login failed for " + email);
+            }
+        }
+
+        void connectStomp() throws Exception {
+            String sessionId = cookies.getCookieStore().get(URI.create(baseUrl)).stream()
+                    .filter(cookie -> cookie.getName().equals("JSESSIONID"))
+                    .map(HttpCookie::getValue)
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("No session cookie after login"));
+            WebSocketHttpHeaders headers = new WebSocketHttpHeaders();
+            headers.add("Cookie", "JSESSIONID=" + sessionId);
+            stomp = stompClient.connectAsync(baseUrl + "/ws", headers, new StompSessionHandlerAdapter() {
+            }).get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        StompSession.Subscription subscribe(long chatId, Map<String, CompletableFuture<Void>> pending) {
+            return stomp.subscribe("/topic/chat/" + chatId, new StompFrameHandler() {
+                @Override
+                public Type getPayloadType(StompHeaders headers) {
+                    return Map.class;
+                }
+
+                @Override
+                public void handleFrame(StompHeaders headers, Object payload) {
+                    CompletableFuture<Void> delivered = pending.remove(label + ((Map<?, ?>) payload).get("content"));
+                    if (delivered != null) {
+                        delivered.complete(null);
+                    }
+                }
+            });
+        }
+
+        void disconnect() {
+            if (stomp != null) {
+                stomp.disconnect();
+            }
+        }
+
+        JsonNode get(String operation, String path) {
+            return timed(operation, HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(TIMEOUT).GET().build());
+        }
+
+        JsonNode post(String operation, String path, Map<String, String> fields) {
+            return timed(operation, form(path, fields));
+        }
+
+        /**
+         * Send and record the latency; null (and an error) unless the response is a 2xx
+         */
+        private JsonNode timed(String operation, HttpRequest request) {
+            long start = System.nanoTime();
+            try {
+                HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+                long elapsed = System.nanoTime() - start;
+                if (response.statusCode() / 100 != 2) {
+                    recorder.error(operation);
+                    return null;
+                }
+                recorder.record(operation, elapsed);
+                return response.body().isEmpty() ? objectMapper.nullNode() : objectMapper.readTree(response.body());
+            } catch (Exception e) {
+                recorder.error(operation);
+                return null;
+            }
+        }
+
+        private HttpRequest form(String path, Map<String, String> fields) {
+            String body = fields.entrySet().stream()
+                    .map(field -> encode(field.getKey()) + "=" + encode(field.getValue()))
+                    .collect(Collectors.joining("&"));
+            return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .timeout(TIMEOUT)
+                    .header("Content-Type", "application/x-www-form-urlencoded")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+        }
+    }
+}
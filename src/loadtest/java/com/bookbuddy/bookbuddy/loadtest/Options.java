@@ -0,0 +1,51 @@
+package com.bookbuddy.bookbuddy.loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * "--name value" / "--name=value" command line options with defaults
+ */
+final class Options {
+
+    private final Map<String, String> values = new HashMap<>();
+
+    private Options() {
+    }
+
+    static Options parse(String[] args, Set<String> known) {
+        Options options = new Options();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Expected an option, got: " + arg);
+            }
+            String name = arg.substring(2);
+            String value;
+            int equals = name.indexOf('=');
+            if (equals >= 0) {
+                value = name.substring(equals + 1);
+                name = name.substring(0, equals);
+            } else if (i + 1 < args.length) {
+                value = args[++i];
+            } else {
+                throw new IllegalArgumentException("Missing value for --" + name);
+            }
+            if (!known.contains(name)) {
+                throw new IllegalArgumentException("Unknown option --" + name + ", expected one of " + known);
+            }
+            options.values.put(name, value);
+        }
+        return options;
+    }
+
+    String get(String name, String defaultValue) {
+        return values.getOrDefault(name, defaultValue);
+    }
+
+    int getInt(String name, int defaultValue) {
+        String value = values.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.bookbuddy.bookbuddy.config;
+
+import com.bookbuddy.bookbuddy.service.BookImporter;
+import com.bookbuddy.bookbuddy.service.UserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Command-line book import: with bookbuddy.import.file set, the application imports that CSV or
+ * NDJSON file for the user bookbuddy.import.owner (an email) and exits, with status 1 if any row
+ * was rejected. Run it without the web server:
+ * <pre>
+ * java -jar bookbuddy-0.0.1-SNAPSHOT.jar --spring.main.web-application-type=none \
+ *      --bookbuddy.import.file=books.csv --bookbuddy.import.owner=library@example.com
+ * </pre>
+ * @author holiday
+ */
+@Component
+@ConditionalOnProperty("bookbuddy.import.file")
+public class BookImportRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookImportRunner.class);
+
+    private final BookImporter bookImporter;
+    private final UserService userService;
+    private final ConfigurableApplicationContext context;
+    private final Path file;
+    private final String ownerEmail;
+
+    @Autowired
+    public BookImportRunner(BookImporter bookImporter, UserService userService, ConfigurableApplicationContext context,
+                            @Value("${bookbuddy.import.file}") String file,
+                            @Value("${bookbuddy.import.owner:}") String ownerEmail) {
+        this.bookImporter = bookImporter;
+        this.userService = userService;
+        this.context = context;
+        this.file = Path.of(file);
+        this.ownerEmail = ownerEmail;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        BookImporter.Format format = BookImporter.Format.fromFileName(file.getFileName().toString());
+        if (format == null) {
+            throw new IllegalStateException("Can't tell the format of " + file + ": name it .csv, .ndjson or .jsonl");
+        }
+        Long ownerId = userService.findUserIdByEmail(ownerEmail)
+                .orElseThrow(() -> new IllegalStateException("No user with email '" + ownerEmail
+                        + "': set bookbuddy.import.owner to the account the books are listed under"));
+
+        BookImporter.ImportReport report;
+        try (InputStream in = Files.newInputStream(file)) {
+            report = bookImporter.importBooks(in, format, ownerId, progress -> logger.info(
+                    "{} rows read, {} imported, {} rejected ({} rows/s)", progress.getRowsRead(),
+                    progress.getImported(), progress.getRejected(), rate(progress)));
+        }
+
+        for (BookImporter.RowError error : report.getErrors()) {
+            logger.warn("Rejected {}", error);
+        }
+        if (report.getRejected() > report.getErrors().size()) {
+            logger.warn("... and {} more rejected rows", report.getRejected() - report.getErrors().size());
+        }
+        if (!report.isComplete()) {
+            logger.warn("Stopped at line {}: the rest of {} was not read", report.getStoppedAtLine(), file);
+        }
+        logger.info("Imported {} books from {} for {}, rejected {} rows, in {} s ({} rows/s)", report.getImported(),
+                file, ownerEmail, report.getRejected(), report.getElapsedMs() / 1000, rate(report));
+
+        int status = report.getRejected() == 0 ? 0 : 1;
+        System.exit(SpringApplication.exit(context, () -> status));
+    }
+
+    private static long rate(BookImporter.ImportReport report) {
+        return report.getRowsRead() * 1000 / Math.max(1, report.getElapsedMs());
+    }
+}
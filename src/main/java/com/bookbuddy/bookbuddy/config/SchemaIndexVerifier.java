@@ -0,0 +1,162 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.bookbuddy.bookbuddy.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Checks at startup that the hot query paths are backed by an index, since the schema now
+ * comes from migrations rather than from the entity annotations. An index counts when its
+ * leading columns match the required ones, in order.
+ * <p>
+ * Mode: fail (refuse to start), warn (log the missing indexes) or off.
+ * @author holiday
+ */
+@Component
+public class SchemaIndexVerifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaIndexVerifier.class);
+
+    // table -> leading columns of an index it must have
+    static final List<RequiredIndex> REQUIRED_INDEXES = List.of(
+            new RequiredIndex("messages", "chat_id", "created_at"),
+            new RequiredIndex("requests", "owner_id", "status", "created_at"),
+            new RequiredIndex("requests", "owner_id", "created_at"),
+            new RequiredIndex("requests", "requester_id", "created_at"),
+            new RequiredIndex("requests", "lend_notice_at"),
+            new RequiredIndex("books", "status", "sharing_type"),
+            new RequiredIndex("books", "status", "created_at"),
+            new RequiredIndex("books", "owner_id", "status"),
+            new RequiredIndex("books", "owner_id", "created_at"),
+            new RequiredIndex("books", "pickup_geohash"),
+            new RequiredIndex("chats", "user1_id"),
+            new RequiredIndex("chats", "user2_id"),
+            new RequiredIndex("chats", "request_id"));
+
+    private final DataSource dataSource;
+    private final String mode;
+
+    @Autowired
+    public SchemaIndexVerifier(DataSource dataSource,
+                               @Value("${bookbuddy.schema.verify-indexes:warn}") String mode) {
+        this.dataSource = dataSource;
+        this.mode = mode.trim().toLowerCase(Locale.ROOT);
+        if (!List.of("fail", "warn", "off").contains(this.mode)) {
+            throw new IllegalArgumentException("bookbuddy.schema.verify-indexes must be fail, warn or off: " + mode);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void verifyOnStartup() throws SQLException {
+        if ("off".equals(mode)) {
+            return;
+        }
+        List<RequiredIndex> missing = findMissingIndexes();
+        if (missing.isEmpty()) {
+            logger.info("All {} required indexes are present", REQUIRED_INDEXES.size());
+            return;
+        }
+        if ("fail".equals(mode)) {
+            throw new IllegalStateException("Missing database indexes: " + missing
+                    + " (run the migrations or set bookbuddy.schema.verify-indexes=warn)");
+        }
+        logger.warn("Missing database indexes, queries on these columns will scan: {}", missing);
+    }
+
+    /**
+     * Required indexes the connected database doesn't have
+     */
+    public List<RequiredIndex> findMissingIndexes() throws SQLException {
+        List<RequiredIndex> missing = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            Map<String, List<List<String>>> indexesByTable = new TreeMap<>();
+            for (RequiredIndex required : REQUIRED_INDEXES) {
+                List<List<String>> indexes = indexesByTable.computeIfAbsent(required.getTable(),
+                        table -> readIndexes(metaData, connection, table));
+                if (indexes.stream().noneMatch(required::isCoveredBy)) {
+                    missing.add(required);
+                }
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Column lists of every index on a table, in index order
+     */
+    private static List<List<String>> readIndexes(DatabaseMetaData metaData, Connection connection, String table) {
+        try {
+            // Unquoted identifiers are stored upper case by some databases
+            String storedName = metaData.storesUpperCaseIdentifiers() ? table.toUpperCase(Locale.ROOT) : table;
+            Map<String, TreeMap<Short, String>> columnsByIndex = new TreeMap<>();
+            try (ResultSet rs = metaData.getIndexInfo(connection.getCatalog(), connection.getSchema(),
+                    storedName, false, false)) {
+                while (rs.next()) {
+                    String indexName = rs.getString("INDEX_NAME");
+                    String column = rs.getString("COLUMN_NAME");
+                    if (indexName == null || column == null) {
+                        continue;
+                    }
+                    columnsByIndex.computeIfAbsent(indexName, name -> new TreeMap<>())
+                            .put(rs.getShort("ORDINAL_POSITION"), column.toLowerCase(Locale.ROOT));
+                }
+            }
+            return columnsByIndex.values().stream()
+                    .map(columns -> (List<String>) new ArrayList<>(columns.values()))
+                    .toList();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not read indexes of " + table + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * An index the schema must provide: these columns must lead some index on the table
+     */
+    public static final class RequiredIndex {
+        private final String table;
+        private final List<String> columns;
+
+        RequiredIndex(String table, String... columns) {
+            this.table = table;
+            this.columns = List.of(columns);
+        }
+
+        public String getTable() {
+            return table;
+        }
+
+        public List<String> getColumns() {
+            return columns;
+        }
+
+        boolean isCoveredBy(List<String> indexColumns) {
+            return indexColumns.size() >= columns.size()
+                    && indexColumns.subList(0, columns.size()).equals(columns);
+        }
+
+        @Override
+        public String toString() {
+            return table + "(" + String.join(", ", columns) + ")";
+        }
+    }
+}
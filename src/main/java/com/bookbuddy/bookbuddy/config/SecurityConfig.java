@@ -5,12 +5,20 @@
 
 package com.bookbuddy.bookbuddy.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
@@ -28,6 +36,36 @@ import java.util.Arrays;
 @EnableWebSecurity
 public class SecurityConfig{
 
+    /**
+     * A Prometheus scraper can't fill in the login form: the metrics endpoints take HTTP Basic
+     * and never create a session. Anyone can sign up, so BookBuddy accounts don't count here:
+     * only the configured scrape credential is checked, and it is refused while no password is set.
+     */
+    @Bean
+    @Order(1)
+    public SecurityFilterChain prometheusFilterChain(HttpSecurity http,
+            @Value("${bookbuddy.metrics.scrape-username:prometheus}") String scrapeUsername,
+            @Value("${bookbuddy.metrics.scrape-password:}") String scrapePassword) throws Exception{
+        InMemoryUserDetailsManager scrapers = new InMemoryUserDetailsManager();
+        if (!scrapePassword.isBlank()) {
+            scrapers.createUser(User.withUsername(scrapeUsername)
+                .password(passwordEncoder().encode(scrapePassword))
+                .roles("METRICS")
+                .build());
+        }
+        DaoAuthenticationProvider scrapeAuthentication = new DaoAuthenticationProvider(scrapers);
+        scrapeAuthentication.setPasswordEncoder(passwordEncoder());
+        
+        http
+            .securityMatcher("/actuator/prometheus", "/actuator/metrics", "/actuator/metrics/**")
+            .authenticationManager(new ProviderManager(scrapeAuthentication))
+            .authorizeHttpRequests(auth->auth.anyRequest().hasRole("METRICS"))
+            .httpBasic(Customizer.withDefaults())
+            .sessionManagement(session->session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+            .csrf(csrf->csrf.disable());
+        return http.build();
+    }
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception{
         http
@@ -38,6 +76,7 @@ public class SecurityConfig{
                 // Authentication endpoints - public access
                 .requestMatchers("/register", "/login", "/logout").permitAll()
                 .requestMatchers("/api/check-email", "/api/current-user").permitAll()
+                .requestMatchers("/actuator/health").permitAll()
                 
                 // Static resources - allow all
                 .requestMatchers("/static/**", "/css/**", "/js/**", "/images/**", "/fonts/**", "/favicon.ico").permitAll()
@@ -45,7 +84,7 @@ public class SecurityConfig{
                 // Public search functionality 
                 .requestMatchers("/pages/search-books.html", "/pages/user-profile.html").permitAll()
                 .requestMatchers("/search/**", "/api/books/search/**", "/api/books/nearby").permitAll()
-                .requestMatchers("/books/api/search", "/books/api/user/**").permitAll()
+                .requestMatchers("/books/api/search", "/books/api/recent", "/books/api/user/**").permitAll()
                 
                 // Protected pages - require authentication
                 .requestMatchers("/pages/dashboard.html", "/pages/list-book.html", 
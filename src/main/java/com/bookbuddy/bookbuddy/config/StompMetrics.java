@@ -0,0 +1,124 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.bookbuddy.bookbuddy.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * STOMP traffic metrics, hooked into the channels by WebSocketConfig:
+ * bookbuddy.stomp.messages counts frames per direction and type (rates come from the counter),
+ * bookbuddy.stomp.broadcast times the simple broker fanning one MESSAGE out to its subscribers.
+ * Queue depth of the channel pools is executor.queued, tagged name=clientInboundChannelExecutor,
+ * clientOutboundChannelExecutor or brokerChannelExecutor (with virtual threads the client channels never queue).
+ * @author holiday
+ */
+@Component
+public class StompMetrics {
+
+    public static final String MESSAGES = "bookbuddy.stomp.messages";
+    public static final String BROADCAST = "bookbuddy.stomp.broadcast";
+
+    private final ChannelInterceptor inbound;
+    private final ChannelInterceptor outbound;
+    private final ExecutorChannelInterceptor broker;
+
+    @Autowired
+    public StompMetrics(MeterRegistry registry) {
+        this.inbound = new MessageCounting(registry, "inbound");
+        this.outbound = new MessageCounting(registry, "outbound");
+        this.broker = new BroadcastTiming(Timer.builder(BROADCAST)
+                .description("Time for the simple broker to hand one message to every subscriber")
+                .publishPercentileHistogram()
+                .register(registry));
+    }
+
+    public ChannelInterceptor inboundInterceptor() {
+        return inbound;
+    }
+
+    public ChannelInterceptor outboundInterceptor() {
+        return outbound;
+    }
+
+    public ExecutorChannelInterceptor brokerInterceptor() {
+        return broker;
+    }
+
+    private static SimpMessageType typeOf(Message<?> message) {
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(message.getHeaders());
+        return type == null ? SimpMessageType.OTHER : type;
+    }
+
+    /**
+     * Counts frames by type; the counters are created up front so sends never look them up
+     */
+    private static final class MessageCounting implements ChannelInterceptor {
+
+        private final Map<SimpMessageType, Counter> counters = new EnumMap<>(SimpMessageType.class);
+
+        MessageCounting(MeterRegistry registry, String direction) {
+            for (SimpMessageType type : SimpMessageType.values()) {
+                counters.put(type, Counter.builder(MESSAGES)
+                        .description("STOMP frames through the client channels")
+                        .tag("direction", direction)
+                        .tag("type", type.name())
+                        .register(registry));
+            }
+        }
+
+        @Override
+        public Message<?> preSend(Message<?> message, MessageChannel channel) {
+            counters.get(typeOf(message)).increment();
+            return message;
+        }
+    }
+
+    /**
+     * Times the simple broker handling a MESSAGE. Both callbacks run on the thread that
+     * delivers to the handler, so the start time can live in a thread local.
+     */
+    private static final class BroadcastTiming implements ExecutorChannelInterceptor {
+
+        private final Timer timer;
+        private final ThreadLocal<Long> startedAt = new ThreadLocal<>();
+
+        BroadcastTiming(Timer timer) {
+            this.timer = timer;
+        }
+
+        @Override
+        public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+            if (handler instanceof SimpleBrokerMessageHandler && typeOf(message) == SimpMessageType.MESSAGE) {
+                startedAt.set(System.nanoTime());
+            }
+            return message;
+        }
+
+        @Override
+        public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+            Long started = startedAt.get();
+            if (started != null) {
+                startedAt.remove();
+                timer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
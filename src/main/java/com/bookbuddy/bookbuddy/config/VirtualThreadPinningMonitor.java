@@ -0,0 +1,123 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.bookbuddy.bookbuddy.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * With virtual threads on, watches the JFR jdk.VirtualThreadPinned event: a virtual thread that
+ * blocks (typically on JDBC) inside synchronized holds on to its carrier, and enough of them stall
+ * every request. Each pinning site is logged once with its stack; repeats are only counted
+ * (bookbuddy.threads.pinned).
+ * Off on platform threads and with bookbuddy.threads.pinning-threshold-ms=0.
+ * @author holiday
+ */
+@Component
+public class VirtualThreadPinningMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final String APPLICATION_PACKAGE = "com.bookbuddy.";
+    private static final int LOGGED_FRAMES = 12;
+
+    private final boolean enabled;
+    private final Duration threshold;
+    private final AtomicLong pinnedCount = new AtomicLong();
+    private final Set<String> reportedSites = ConcurrentHashMap.newKeySet();
+    private RecordingStream stream;
+
+    @Autowired
+    public VirtualThreadPinningMonitor(Environment environment, MeterRegistry meterRegistry,
+                                       @Value("${bookbuddy.threads.pinning-threshold-ms:20}") long thresholdMs) {
+        this.enabled = Threading.VIRTUAL.isActive(environment) && thresholdMs > 0;
+        this.threshold = Duration.ofMillis(Math.max(0, thresholdMs));
+        FunctionCounter.builder("bookbuddy.threads.pinned", pinnedCount, AtomicLong::get)
+                .description("Virtual threads pinned to their carrier longer than the threshold")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::pinned);
+        stream.startAsync();
+        logger.info("Watching for virtual threads pinned longer than {} ms", threshold.toMillis());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Pins longer than the threshold since startup
+     */
+    public long getPinnedCount() {
+        return pinnedCount.get();
+    }
+
+    private void pinned(RecordedEvent event) {
+        pinnedCount.incrementAndGet();
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        List<RecordedFrame> frames = stackTrace == null ? List.of() : stackTrace.getFrames();
+        String site = pinningSite(frames);
+        if (!reportedSites.add(site)) {
+            return;
+        }
+        StringBuilder stack = new StringBuilder();
+        for (RecordedFrame frame : frames.subList(0, Math.min(frames.size(), LOGGED_FRAMES))) {
+            stack.append("\n\tat ").append(describe(frame));
+        }
+        logger.warn("Virtual thread pinned its carrier for {} ms at {} (further pins here are only counted){}",
+                event.getDuration().toMillis(), site, stack);
+    }
+
+    /**
+     * The innermost application frame, or the top frame if the stack has none
+     */
+    private static String pinningSite(List<RecordedFrame> frames) {
+        for (RecordedFrame frame : frames) {
+            if (frame.isJavaFrame() && frame.getMethod().getType().getName().startsWith(APPLICATION_PACKAGE)) {
+                return describe(frame);
+            }
+        }
+        return frames.isEmpty() ? "unknown" : describe(frames.get(0));
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+}
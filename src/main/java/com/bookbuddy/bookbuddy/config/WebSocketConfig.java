@@ -4,30 +4,77 @@
  */
 package com.bookbuddy.bookbuddy.config;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
 
 /**
- * WebSocket configuration for real-time chat functionality
+ * WebSocket configuration for real-time chat functionality.
+ * With spring.threads.virtual.enabled on Java 21+, the inbound and outbound client channels run
+ * every message on its own virtual thread instead of a bounded pool; per-session order is then
+ * kept explicitly, since a pool with one thread per message no longer serializes anything.
+ * All three channels report to StompMetrics.
  * @author holiday
  */
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final boolean virtualThreads;
+    private final StompMetrics stompMetrics;
+
+    @Autowired
+    public WebSocketConfig(Environment environment, StompMetrics stompMetrics) {
+        this.virtualThreads = Threading.VIRTUAL.isActive(environment);
+        this.stompMetrics = stompMetrics;
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
+        if (virtualThreads) {
+            registry.setPreserveReceiveOrder(true);
+        }
     }
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
         registry.setApplicationDestinationPrefixes("/app");
         registry.enableSimpleBroker("/topic", "/queue");
+        registry.configureBrokerChannel().interceptors(stompMetrics.brokerInterceptor());
+        if (virtualThreads) {
+            registry.setPreservePublishOrder(true);
+        }
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(stompMetrics.inboundInterceptor());
+        if (virtualThreads) {
+            registration.executor(virtualThreadExecutor("ws-inbound-"));
+        }
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.interceptors(stompMetrics.outboundInterceptor());
+        if (virtualThreads) {
+            registration.executor(virtualThreadExecutor("ws-outbound-"));
+        }
+    }
+
+    private static SimpleAsyncTaskExecutor virtualThreadExecutor(String threadNamePrefix) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setVirtualThreads(true);
+        return executor;
     }
-} 
\ No newline at end of file
+}
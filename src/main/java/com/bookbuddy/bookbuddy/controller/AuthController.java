@@ -131,20 +131,19 @@ public class AuthController {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
             }
             
-            // Get user by email from authentication
-            String email = authentication.getName();
-            Optional<User> userOpt = userService.findByEmail(email);
-            if (userOpt.isEmpty()) {
+            // Get user id from the authenticated principal
+            Optional<Long> userIdOpt = userService.findUserId(authentication);
+            if (userIdOpt.isEmpty()) {
                 Map<String, Object> response = new HashMap<>();
                 response.put("success", false);
                 response.put("message", "User not found. Please log in again.");
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
             }
             
-            User user = userOpt.get();
+            Long userId = userIdOpt.get();
             
             // Update user information using the correct method signature
-            User updatedUser = userService.updateUser(user.getId(), firstName.trim(), lastName.trim());
+            User updatedUser = userService.updateUser(userId, firstName.trim(), lastName.trim());
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -189,20 +188,19 @@ public class AuthController {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
             }
             
-            // Get user by email from authentication
-            String email = authentication.getName();
-            Optional<User> userOpt = userService.findByEmail(email);
-            if (userOpt.isEmpty()) {
+            // Get user id from the authenticated principal
+            Optional<Long> userIdOpt = userService.findUserId(authentication);
+            if (userIdOpt.isEmpty()) {
                 Map<String, Object> response = new HashMap<>();
                 response.put("success", false);
                 response.put("message", "User not found. Please log in again.");
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
             }
             
-            User user = userOpt.get();
+            Long userId = userIdOpt.get();
             
             // Change password using service
-            userService.changePassword(user.getId(), currentPassword, newPassword);
+            userService.changePassword(userId, currentPassword, newPassword);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -7,10 +7,16 @@ package com.bookbuddy.bookbuddy.controller;
 import com.bookbuddy.bookbuddy.model.Book;
 import com.bookbuddy.bookbuddy.model.User;
 import com.bookbuddy.bookbuddy.model.Request;
+import com.bookbuddy.bookbuddy.service.BookImporter;
 import com.bookbuddy.bookbuddy.service.BookService;
 import com.bookbuddy.bookbuddy.service.UserService;
 import com.bookbuddy.bookbuddy.service.RequestService;
+import com.bookbuddy.bookbuddy.util.CursorPage;
+import com.bookbuddy.bookbuddy.util.DistanceCursor;
+import com.bookbuddy.bookbuddy.util.KeysetCursor;
 import jakarta.servlet.http.HttpSession;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashMap;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
@@ -24,7 +30,6 @@ import java.util.Map;
 import java.util.Optional;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.ArrayList;
 
@@ -39,12 +44,15 @@ public class BookController {
     private final BookService bookService;
     private final UserService userService;
     private final RequestService requestService;
+    private final BookImporter bookImporter;
     
     @Autowired
-    public BookController(BookService bookService, UserService userService, RequestService requestService) {
+    public BookController(BookService bookService, UserService userService, RequestService requestService,
+                          BookImporter bookImporter) {
         this.bookService = bookService;
         this.userService = userService;
         this.requestService = requestService;
+        this.bookImporter = bookImporter;
     }
     
 
@@ -78,17 +86,16 @@ public class BookController {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
             }
             
-            // Get user by email from authentication
-            String email = authentication.getName();
-            Optional<User> userOpt = userService.findByEmail(email);
-            if (userOpt.isEmpty()) {
+            // Get user id from the authenticated principal
+            Optional<Long> userIdOpt = userService.findUserId(authentication);
+            if (userIdOpt.isEmpty()) {
                 Map<String, Object> response = new HashMap<>();
                 response.put("success", false);
                 response.put("message", "User not found. Please log in again.");
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
             }
             
-            Long userId = userOpt.get().getId();
+            Long userId = userIdOpt.get();
             
             // Parse sharing type
             Book.SharingType sharingType;
@@ -180,6 +187,122 @@ public class BookController {
         }
     }
     
+    /**
+     * API: List several books at once (JSON array of listings with the same fields as /api/list,
+     * latitude/longitude as pickupLatitude/pickupLongitude). All or nothing.
+     */
+    @PostMapping("/api/bulk")
+    @ResponseBody
+    public ResponseEntity<?> listBooksBulk(@RequestBody List<Book> listings) {
+        // Get current user from Spring Security authentication
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated() || 
+            "anonymousUser".equals(authentication.getPrincipal())) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Not authenticated"));
+        }
+        
+        // Get user id from the authenticated principal
+        Optional<Long> userIdOpt = userService.findUserId(authentication);
+        if (userIdOpt.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "User not found"));
+        }
+        
+        try {
+            List<Book> books = bookService.listBooks(userIdOpt.get(), listings);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", books.size() + " books have been listed successfully!");
+            response.put("bookIds", books.stream().map(Book::getId).collect(Collectors.toList()));
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * API: Mark several of the current user's books available or unavailable
+     * (JSON body: {"bookIds": [..], "available": true|false})
+     */
+    @PostMapping("/api/bulk/availability")
+    @ResponseBody
+    public ResponseEntity<?> updateAvailabilityBulk(@RequestBody Map<String, Object> body) {
+        // Get current user from Spring Security authentication
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated() || 
+            "anonymousUser".equals(authentication.getPrincipal())) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Not authenticated"));
+        }
+        
+        // Get user id from the authenticated principal
+        Optional<Long> userIdOpt = userService.findUserId(authentication);
+        if (userIdOpt.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "User not found"));
+        }
+        
+        if (!(body.get("bookIds") instanceof List<?> ids) || !(body.get("available") instanceof Boolean available)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "bookIds and available are required"));
+        }
+        
+        try {
+            List<Long> bookIds = new ArrayList<>();
+            for (Object id : ids) {
+                bookIds.add(Long.valueOf(id.toString()));
+            }
+            List<Book> changed = bookService.updateAvailability(userIdOpt.get(), bookIds, available);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", changed.size() + (available ? " books marked as available" : " books marked as unavailable"));
+            response.put("updatedBookIds", changed.stream().map(Book::getId).collect(Collectors.toList()));
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException included
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * API: Import the current user's books from a file sent as the request body, streamed rather than
+     * loaded (Content-Type text/csv with a header line, or application/x-ndjson with one listing per line).
+     * Rows that fail the listing rules are skipped and reported with their line number.
+     */
+    @PostMapping(value = "/api/import", consumes = {"text/csv", "application/x-ndjson"})
+    @ResponseBody
+    public ResponseEntity<?> importBooks(@RequestHeader("Content-Type") String contentType, InputStream body) {
+        // Get current user from Spring Security authentication
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated() || 
+            "anonymousUser".equals(authentication.getPrincipal())) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Not authenticated"));
+        }
+        
+        // Get user id from the authenticated principal
+        Optional<Long> userIdOpt = userService.findUserId(authentication);
+        if (userIdOpt.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "User not found"));
+        }
+        
+        try {
+            BookImporter.ImportReport report = bookImporter.importBooks(body,
+                    BookImporter.Format.fromContentType(contentType), userIdOpt.get());
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", report.isComplete());
+            if (report.isComplete()) {
+                response.put("message", report.getImported() + " books imported, " + report.getRejected() + " rows rejected");
+            } else {
+                // The batches before the bad line are saved; say so rather than look like nothing happened
+                response.put("message", "Import stopped at line " + report.getStoppedAtLine() + ": "
+                        + report.getImported() + " books were imported before it, " + report.getRejected() + " rows rejected");
+            }
+            response.put("report", report);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException | IOException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
     // ... (keep all your existing API methods from the original controller)
     
 
@@ -188,6 +311,8 @@ public class BookController {
     
     /**
      * API: Search books
+     * Text search and "all books" are paged newest first: pass the X-Next-Cursor response header
+     * back as "cursor" for the next page. Radius search pages the same way, closest first.
      */
     @GetMapping("/api/search")
     @ResponseBody
@@ -195,107 +320,98 @@ public class BookController {
                                        @RequestParam(value = "lat", required = false) Double latitude,
                                        @RequestParam(value = "lng", required = false) Double longitude,
                                        @RequestParam(value = "radius", required = false) Double radius,
+                                       @RequestParam(value = "limit", required = false) Integer limit,
+                                       @RequestParam(value = "cursor", required = false) String cursor,
                                        @RequestParam(value = "sharingType", required = false) String sharingTypeStr) {
         
-        List<Book> books;
+        int pageSize = CursorPage.clampLimit(limit);
         
-        // If location parameters are provided, do location-based search
-        if (latitude != null && longitude != null) {
-            List<Book> nearbyBooks;
-            
-            // If radius is provided, do radius-based search
-            if (radius != null) {
-                nearbyBooks = bookService.findBooksNearby(latitude, longitude, radius);
-            } else {
-                // If no radius provided, get all books with location (for "all locations" option)
-                nearbyBooks = bookService.findAllAvailableBooks().stream()
-                    .filter(book -> book.hasLocation())
-                    .collect(Collectors.toList());
-            }
-            
-            // If there's also a text query, filter the nearby books
-            if (query != null && !query.trim().isEmpty()) {
-                List<Book> textSearchResults = bookService.searchBooks(query);
-                Set<Long> textSearchIds = textSearchResults.stream()
-                    .map(Book::getId)
-                    .collect(Collectors.toSet());
-                
-                books = nearbyBooks.stream()
-                    .filter(book -> textSearchIds.contains(book.getId()))
-                    .collect(Collectors.toList());
-            } else {
-                books = nearbyBooks;
-            }
-            
-            // Filter by sharing type if specified
-            if (sharingTypeStr != null && !sharingTypeStr.trim().isEmpty()) {
-                try {
-                    Book.SharingType sharingType = Book.SharingType.valueOf(sharingTypeStr.toUpperCase());
-                    books = books.stream()
-                        .filter(book -> book.getSharingType() == sharingType)
-                        .collect(Collectors.toList());
-                } catch (IllegalArgumentException e) {
-                    // Invalid sharing type, return empty list
-                    books = new ArrayList<>();
-                }
+        Book.SharingType sharingType = null;
+        if (sharingTypeStr != null && !sharingTypeStr.trim().isEmpty()) {
+            try {
+                sharingType = Book.SharingType.valueOf(sharingTypeStr.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                // Invalid sharing type, return empty list
+                return ResponseEntity.ok(new ArrayList<>());
             }
-            
-            // Create enhanced response with distance information and owner details
-            List<Map<String, Object>> enhancedBooks = books.stream()
-                .map(book -> {
-                    Map<String, Object> bookMap = new HashMap<>();
-                    bookMap.put("id", book.getId());
-                    bookMap.put("title", book.getTitle());
-                    bookMap.put("author", book.getAuthor());
-                    bookMap.put("genre", book.getGenre());
-                    bookMap.put("isbn", book.getIsbn());
-                    bookMap.put("condition", book.getCondition());
-                    bookMap.put("description", book.getDescription());
-                    bookMap.put("sharingType", book.getSharingType());
-                    bookMap.put("status", book.getStatus());
-                    bookMap.put("lendingDurationDays", book.getLendingDurationDays());
-                    bookMap.put("ownerId", book.getOwnerId());
-                    bookMap.put("createdAt", book.getCreatedAt());
-                    bookMap.put("updatedAt", book.getUpdatedAt());
-                    bookMap.put("displayLocation", book.getDisplayLocationWithDistance(latitude, longitude));
-                    
-                    // Add owner information
-                    Optional<User> ownerOpt = userService.findById(book.getOwnerId());
-                    if (ownerOpt.isPresent()) {
-                        User owner = ownerOpt.get();
-                        Map<String, Object> ownerInfo = new HashMap<>();
-                        ownerInfo.put("id", owner.getId());
-                        ownerInfo.put("firstName", owner.getFirstName());
-                        ownerInfo.put("lastName", owner.getLastName());
-                        ownerInfo.put("fullName", owner.getFullName());
-                        bookMap.put("owner", ownerInfo);
-                    }
-                    
-                    return bookMap;
-                })
-                .collect(Collectors.toList());
-            
-            return ResponseEntity.ok(enhancedBooks);
         }
         
-        // Otherwise, do regular text search with sharing type filter
-        books = bookService.searchBooks(query);
-        
-        // Filter by sharing type if specified
-        if (sharingTypeStr != null && !sharingTypeStr.trim().isEmpty()) {
+        // If location and radius are provided, do radius-based search (closest first)
+        if (latitude != null && longitude != null && radius != null) {
+            DistanceCursor nearbyAfter;
             try {
-                Book.SharingType sharingType = Book.SharingType.valueOf(sharingTypeStr.toUpperCase());
-                books = books.stream()
-                    .filter(book -> book.getSharingType() == sharingType)
-                    .collect(Collectors.toList());
+                nearbyAfter = DistanceCursor.decode(cursor);
             } catch (IllegalArgumentException e) {
-                // Invalid sharing type, return empty list
-                books = new ArrayList<>();
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
+            // Text and sharing type filter inside the search, so matches beyond the closest non-matching books count;
+            // one book more than the page tells whether there is a next one
+            List<Book> rows = bookService.findBooksNearby(latitude, longitude, radius, query, sharingType,
+                    nearbyAfter, pageSize + 1);
+            List<Book> books = rows.size() > pageSize ? rows.subList(0, pageSize) : rows;
+            
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (rows.size() > pageSize) {
+                Book last = books.get(pageSize - 1);
+                response.header(CursorPage.NEXT_CURSOR_HEADER,
+                        new DistanceCursor(last.distanceTo(latitude, longitude), last.getId()).encode());
             }
+            // Create enhanced response with distance information and owner details
+            return response.body(withOwners(books, latitude, longitude));
         }
         
+        // Otherwise, page through the text search (or all books); around a location ("all locations"),
+        // only books that have a pickup location, with their distance
+        KeysetCursor after;
+        try {
+            after = KeysetCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        boolean aroundLocation = latitude != null && longitude != null;
+        CursorPage<Book> page = bookService.searchBooks(query, sharingType, aroundLocation, after, pageSize);
+        
         // Add owner information to each book
-        List<Map<String, Object>> enhancedBooks = books.stream()
+        List<Map<String, Object>> enhancedBooks = withOwners(page.getItems(), latitude, longitude);
+        
+        return page.okWithNextCursor().body(enhancedBooks);
+    }
+    
+    /**
+     * API: Recently listed books, newest first, paged like search (X-Next-Cursor / cursor)
+     */
+    @GetMapping("/api/recent")
+    @ResponseBody
+    public ResponseEntity<?> getRecentBooks(@RequestParam(value = "limit", required = false) Integer limit,
+                                            @RequestParam(value = "cursor", required = false) String cursor) {
+        KeysetCursor after;
+        try {
+            after = KeysetCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        CursorPage<Book> page = bookService.getRecentBooks(after, CursorPage.clampLimit(limit));
+        return page.okWithNextCursor().body(withOwners(page.getItems(), null, null));
+    }
+    
+    /**
+     * API: Site statistics (live counters, no queries)
+     */
+    @GetMapping("/api/stats")
+    @ResponseBody
+    public ResponseEntity<?> getStats() {
+        return ResponseEntity.ok(bookService.getSiteStats());
+    }
+    
+    /**
+     * Build book responses with owner details, loading all owners in a single query
+     */
+    private List<Map<String, Object>> withOwners(List<Book> books, Double latitude, Double longitude) {
+        Map<Long, User> owners = userService.findUsersByIds(books.stream()
+            .map(Book::getOwnerId)
+            .collect(Collectors.toSet()));
+        
+        return books.stream()
             .map(book -> {
                 Map<String, Object> bookMap = new HashMap<>();
                 bookMap.put("id", book.getId());
@@ -311,12 +427,11 @@ public class BookController {
                 bookMap.put("ownerId", book.getOwnerId());
                 bookMap.put("createdAt", book.getCreatedAt());
                 bookMap.put("updatedAt", book.getUpdatedAt());
-                bookMap.put("displayLocation", book.getDisplayLocation());
+                bookMap.put("displayLocation", book.getDisplayLocationWithDistance(latitude, longitude));
                 
                 // Add owner information
-                Optional<User> ownerOpt = userService.findById(book.getOwnerId());
-                if (ownerOpt.isPresent()) {
-                    User owner = ownerOpt.get();
+                User owner = owners.get(book.getOwnerId());
+                if (owner != null) {
                     Map<String, Object> ownerInfo = new HashMap<>();
                     ownerInfo.put("id", owner.getId());
                     ownerInfo.put("firstName", owner.getFirstName());
@@ -328,8 +443,6 @@ public class BookController {
                 return bookMap;
             })
             .collect(Collectors.toList());
-        
-        return ResponseEntity.ok(enhancedBooks);
     }
     
 
@@ -353,7 +466,9 @@ public class BookController {
      */
     @GetMapping("/api/my-books")
     @ResponseBody
-    public ResponseEntity<?> getMyBooks(HttpSession session) {
+    public ResponseEntity<?> getMyBooks(@RequestParam(value = "cursor", required = false) String cursor,
+                                        @RequestParam(value = "limit", required = false) Integer limit,
+                                        HttpSession session) {
         // Get current user from Spring Security authentication
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !authentication.isAuthenticated() || 
@@ -361,20 +476,27 @@ public class BookController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Not authenticated"));
         }
         
-        // Get user by email from authentication
-        String email = authentication.getName();
-        Optional<User> userOpt = userService.findByEmail(email);
-        if (userOpt.isEmpty()) {
+        // Get user id from the authenticated principal
+        Optional<Long> userIdOpt = userService.findUserId(authentication);
+        if (userIdOpt.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "User not found"));
         }
         
-        Long userId = userOpt.get().getId();
+        Long userId = userIdOpt.get();
+        
+        KeysetCursor after;
+        try {
+            after = KeysetCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
         
-        List<Book> books = bookService.findBooksByOwner(userId);
+        CursorPage<Book> page = bookService.findBooksByOwner(userId, after, CursorPage.clampLimit(limit));
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
-        response.put("books", books);
-        response.put("count", books.size());
+        response.put("books", page.getItems());
+        response.put("count", page.getItems().size());
+        response.put("nextCursor", page.getNextCursorToken());
         return ResponseEntity.ok(response);
     }
     
@@ -393,14 +515,13 @@ public class BookController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Not authenticated"));
         }
         
-        // Get user by email from authentication
-        String email = authentication.getName();
-        Optional<User> userOpt = userService.findByEmail(email);
-        if (userOpt.isEmpty()) {
+        // Get user id from the authenticated principal
+        Optional<Long> userIdOpt = userService.findUserId(authentication);
+        if (userIdOpt.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "User not found"));
         }
         
-        Long userId = userOpt.get().getId();
+        Long userId = userIdOpt.get();
         
         try {
             // Verify the book belongs to the current user
@@ -441,14 +562,13 @@ public class BookController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Not authenticated"));
         }
         
-        // Get user by email from authentication
-        String email = authentication.getName();
-        Optional<User> userOpt = userService.findByEmail(email);
-        if (userOpt.isEmpty()) {
+        // Get user id from the authenticated principal
+        Optional<Long> userIdOpt = userService.findUserId(authentication);
+        if (userIdOpt.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "User not found"));
         }
         
-        Long userId = userOpt.get().getId();
+        Long userId = userIdOpt.get();
         
         try {
             // Verify the book belongs to the current user
@@ -496,14 +616,13 @@ public class BookController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Not authenticated"));
         }
         
-        // Get user by email from authentication
-        String email = authentication.getName();
-        Optional<User> userOpt = userService.findByEmail(email);
-        if (userOpt.isEmpty()) {
+        // Get user id from the authenticated principal
+        Optional<Long> userIdOpt = userService.findUserId(authentication);
+        if (userIdOpt.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "User not found"));
         }
         
-        Long userId = userOpt.get().getId();
+        Long userId = userIdOpt.get();
         
         List<Book> books = bookService.findSwappableBooksByOwner(userId);
         return ResponseEntity.ok(books);
@@ -561,14 +680,13 @@ public class BookController {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Not authenticated"));
             }
             
-            // Get user by email from authentication
-            String email = authentication.getName();
-            Optional<User> userOpt = userService.findByEmail(email);
-            if (userOpt.isEmpty()) {
+            // Get user id from the authenticated principal
+            Optional<Long> userIdOpt = userService.findUserId(authentication);
+            if (userIdOpt.isEmpty()) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "User not found"));
             }
             
-            Long userId = userOpt.get().getId();
+            Long userId = userIdOpt.get();
             
             // Find the book
             Optional<Book> bookOpt = bookService.findById(id);
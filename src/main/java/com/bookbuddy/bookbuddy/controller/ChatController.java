@@ -5,12 +5,17 @@
 package com.bookbuddy.bookbuddy.controller;
 
 import com.bookbuddy.bookbuddy.model.Chat;
+import com.bookbuddy.bookbuddy.model.ChatInboxEntry;
 import com.bookbuddy.bookbuddy.model.Message;
 import com.bookbuddy.bookbuddy.model.Book;
 import com.bookbuddy.bookbuddy.model.User;
 import com.bookbuddy.bookbuddy.service.ChatService;
+import com.bookbuddy.bookbuddy.service.TypingCoalescer;
 import com.bookbuddy.bookbuddy.service.UserService;
-import com.bookbuddy.bookbuddy.service.BookService;
+import com.bookbuddy.bookbuddy.util.CursorPage;
+import com.bookbuddy.bookbuddy.util.KeysetCursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -32,18 +37,20 @@ import java.util.*;
 @Controller
 public class ChatController {
     
+    private static final Logger logger = LoggerFactory.getLogger(ChatController.class);
+    
     private final ChatService chatService;
     private final UserService userService;
-    private final BookService bookService;
     private final SimpMessagingTemplate messagingTemplate;
+    private final TypingCoalescer typingCoalescer;
     
     @Autowired
-    public ChatController(ChatService chatService, UserService userService, BookService bookService, 
-                        SimpMessagingTemplate messagingTemplate) {
+    public ChatController(ChatService chatService, UserService userService,
+                        SimpMessagingTemplate messagingTemplate, TypingCoalescer typingCoalescer) {
         this.chatService = chatService;
         this.userService = userService;
-        this.bookService = bookService;
         this.messagingTemplate = messagingTemplate;
+        this.typingCoalescer = typingCoalescer;
     }
     
     /**
@@ -56,13 +63,20 @@ public class ChatController {
             throw new IllegalArgumentException("Not authenticated");
         }
         
-        String email = authentication.getName();
-        Optional<User> userOpt = userService.findByEmail(email);
-        if (userOpt.isEmpty()) {
-            throw new IllegalArgumentException("User not found");
+        return userService.findUserId(authentication)
+                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+    }
+    
+    /**
+     * Get current user ID for a STOMP message (the principal from the WebSocket handshake)
+     */
+    private Long getCurrentUserId(SimpMessageHeaderAccessor headerAccessor) {
+        if (!(headerAccessor.getUser() instanceof Authentication authentication) || !authentication.isAuthenticated()) {
+            throw new IllegalArgumentException("Not authenticated");
         }
         
-        return userOpt.get().getId();
+        return userService.findUserId(authentication)
+                .orElseThrow(() -> new IllegalArgumentException("User not found"));
     }
     
     /**
@@ -73,10 +87,11 @@ public class ChatController {
                                          SimpMessageHeaderAccessor headerAccessor) {
         try {
             Long chatId = Long.parseLong(messageData.get("chatId").toString());
-            Long senderId = getCurrentUserId();
+            Long senderId = getCurrentUserId(headerAccessor);
             String content = messageData.get("content").toString();
             
             Message message = chatService.sendMessage(chatId, senderId, content);
+            chatService.awaitPersisted(message);
             
             Map<String, Object> response = new HashMap<>();
             response.put("id", message.getId());
@@ -109,11 +124,10 @@ public class ChatController {
                                      SimpMessageHeaderAccessor headerAccessor) {
         try {
             Long chatId = Long.parseLong(joinData.get("chatId").toString());
-            Long userId = getCurrentUserId();
+            Long userId = getCurrentUserId(headerAccessor);
             
             // Verify user is part of the chat
-            Optional<Chat> chatOpt = chatService.findById(chatId);
-            if (chatOpt.isEmpty() || !chatOpt.get().involvesUser(userId)) {
+            if (!chatService.isParticipant(chatId, userId)) {
                 throw new IllegalArgumentException("You are not part of this chat");
             }
             
@@ -149,14 +163,18 @@ public class ChatController {
                       SimpMessageHeaderAccessor headerAccessor) {
         try {
             Long chatId = Long.parseLong(typingData.get("chatId").toString());
-            Long userId = getCurrentUserId();
+            Long userId = getCurrentUserId(headerAccessor);
             
-            // Verify user is part of the chat
-            Optional<Chat> chatOpt = chatService.findById(chatId);
-            if (chatOpt.isEmpty() || !chatOpt.get().involvesUser(userId)) {
+            // Verify user is part of the chat (cached, no query per keystroke)
+            if (!chatService.isParticipant(chatId, userId)) {
                 throw new IllegalArgumentException("You are not part of this chat");
             }
             
+            // Keystroke events are coalesced: only real transitions reach the broker
+            if (!typingCoalescer.typing(chatId, userId)) {
+                return;
+            }
+            
             Map<String, Object> response = new HashMap<>();
             response.put("chatId", chatId);
             response.put("userId", userId);
@@ -185,14 +203,18 @@ public class ChatController {
                           SimpMessageHeaderAccessor headerAccessor) {
         try {
             Long chatId = Long.parseLong(typingData.get("chatId").toString());
-            Long userId = getCurrentUserId();
+            Long userId = getCurrentUserId(headerAccessor);
             
-            // Verify user is part of the chat
-            Optional<Chat> chatOpt = chatService.findById(chatId);
-            if (chatOpt.isEmpty() || !chatOpt.get().involvesUser(userId)) {
+            // Verify user is part of the chat (cached, no query per keystroke)
+            if (!chatService.isParticipant(chatId, userId)) {
                 throw new IllegalArgumentException("You are not part of this chat");
             }
             
+            // Keystroke events are coalesced: only real transitions reach the broker
+            if (!typingCoalescer.stopTyping(chatId, userId)) {
+                return;
+            }
+            
             Map<String, Object> response = new HashMap<>();
             response.put("chatId", chatId);
             response.put("userId", userId);
@@ -220,139 +242,100 @@ public class ChatController {
     @ResponseBody
     public ResponseEntity<?> getAllChats() {
         try {
-            System.out.println("=== getAllChats called ===");
-            
-            // Debug authentication
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            System.out.println("Authentication: " + authentication);
-            if (authentication != null) {
-                System.out.println("Principal: " + authentication.getPrincipal());
-                System.out.println("Name: " + authentication.getName());
-                System.out.println("Authenticated: " + authentication.isAuthenticated());
-            }
-            
             Long currentUserId = getCurrentUserId();
-            System.out.println("Getting chats for user: " + currentUserId);
-            
-            List<Chat> chats = chatService.findByUserId(currentUserId);
-            System.out.println("Found " + chats.size() + " chats");
+            List<ChatInboxEntry> inbox = chatService.getInbox(currentUserId);
+            logger.debug("Loaded {} chats for user {}", inbox.size(), currentUserId);
             
             List<Map<String, Object>> chatList = new ArrayList<>();
             
-            for (Chat chat : chats) {
-                try {
-                    Map<String, Object> chatData = new HashMap<>();
-                    chatData.put("id", chat.getId());
-                    chatData.put("requestId", chat.getRequestId());
-                    chatData.put("bookId", chat.getBookId());
-                    chatData.put("user1Id", chat.getUser1Id());
-                    chatData.put("user2Id", chat.getUser2Id());
-                    chatData.put("status", chat.getStatus());
-                    chatData.put("createdAt", chat.getCreatedAt());
-                    chatData.put("updatedAt", chat.getUpdatedAt());
-                    
-                    // Get book information
-                    Optional<Book> bookOpt = bookService.findById(chat.getBookId());
-                    if (bookOpt.isPresent()) {
-                        Book book = bookOpt.get();
-                        Map<String, Object> bookData = new HashMap<>();
-                        bookData.put("id", book.getId());
-                        bookData.put("title", book.getTitle());
-                        bookData.put("author", book.getAuthor());
-                        bookData.put("genre", book.getGenre());
-                        bookData.put("condition", book.getCondition());
-                        bookData.put("sharingType", book.getSharingType());
-                        bookData.put("status", book.getStatus());
-                        chatData.put("book", bookData);
-                    } else {
-                        System.err.println("Book not found for chat " + chat.getId() + ", bookId: " + chat.getBookId());
-                        // Create a placeholder book data
-                        Map<String, Object> bookData = new HashMap<>();
-                        bookData.put("id", chat.getBookId());
-                        bookData.put("title", "Unknown Book");
-                        bookData.put("author", "Unknown Author");
-                        chatData.put("book", bookData);
-                    }
-                    
-                    // Get user information
-                    Optional<User> user1Opt = userService.findById(chat.getUser1Id());
-                    Optional<User> user2Opt = userService.findById(chat.getUser2Id());
-                    
-                    if (user1Opt.isPresent() && user2Opt.isPresent()) {
-                        User user1 = user1Opt.get();
-                        User user2 = user2Opt.get();
-                        
-                        Map<String, Object> user1Data = new HashMap<>();
-                        user1Data.put("id", user1.getId());
-                        user1Data.put("firstName", user1.getFirstName());
-                        user1Data.put("lastName", user1.getLastName());
-                        user1Data.put("email", user1.getEmail());
-                        
-                        Map<String, Object> user2Data = new HashMap<>();
-                        user2Data.put("id", user2.getId());
-                        user2Data.put("firstName", user2.getFirstName());
-                        user2Data.put("lastName", user2.getLastName());
-                        user2Data.put("email", user2.getEmail());
-                        
-                        chatData.put("user1", user1Data);
-                        chatData.put("user2", user2Data);
-                    } else {
-                        System.err.println("User not found for chat " + chat.getId() + ", user1Id: " + chat.getUser1Id() + ", user2Id: " + chat.getUser2Id());
-                        // Create placeholder user data
-                        Map<String, Object> user1Data = new HashMap<>();
-                        user1Data.put("id", chat.getUser1Id());
-                        user1Data.put("firstName", "Unknown");
-                        user1Data.put("lastName", "User");
-                        user1Data.put("email", "unknown@example.com");
-                        
-                        Map<String, Object> user2Data = new HashMap<>();
-                        user2Data.put("id", chat.getUser2Id());
-                        user2Data.put("firstName", "Unknown");
-                        user2Data.put("lastName", "User");
-                        user2Data.put("email", "unknown@example.com");
-                        
-                        chatData.put("user1", user1Data);
-                        chatData.put("user2", user2Data);
-                    }
-                    
-                    // Get last message
-                    Optional<Message> lastMessageOpt = chatService.getLastMessage(chat.getId());
-                    if (lastMessageOpt.isPresent()) {
-                        Message lastMessage = lastMessageOpt.get();
-                        Map<String, Object> messageData = new HashMap<>();
-                        messageData.put("id", lastMessage.getId());
-                        messageData.put("content", lastMessage.getContent());
-                        messageData.put("senderId", lastMessage.getSenderId());
-                        messageData.put("messageType", lastMessage.getMessageType());
-                        messageData.put("createdAt", lastMessage.getCreatedAt());
-                        chatData.put("lastMessage", messageData);
-                    } else {
-                        System.out.println("No last message found for chat " + chat.getId());
-                    }
-                    
-                    // Get unread count for this chat
-                    long unreadCount = chatService.getUnreadMessageCount(chat.getId(), currentUserId);
-                    chatData.put("unreadCount", unreadCount);
-                    
-                    chatList.add(chatData);
-                } catch (Exception e) {
-                    System.err.println("Error processing chat " + chat.getId() + ": " + e.getMessage());
-                    e.printStackTrace();
-                    // Continue with other chats instead of failing completely
+            for (ChatInboxEntry entry : inbox) {
+                Chat chat = entry.getChat();
+                Map<String, Object> chatData = new HashMap<>();
+                chatData.put("id", chat.getId());
+                chatData.put("requestId", chat.getRequestId());
+                chatData.put("bookId", chat.getBookId());
+                chatData.put("user1Id", chat.getUser1Id());
+                chatData.put("user2Id", chat.getUser2Id());
+                chatData.put("status", chat.getStatus());
+                chatData.put("createdAt", chat.getCreatedAt());
+                chatData.put("updatedAt", chat.getUpdatedAt());
+                
+                // Book information
+                Book book = entry.getBook();
+                Map<String, Object> bookData = new HashMap<>();
+                if (book != null) {
+                    bookData.put("id", book.getId());
+                    bookData.put("title", book.getTitle());
+                    bookData.put("author", book.getAuthor());
+                    bookData.put("genre", book.getGenre());
+                    bookData.put("condition", book.getCondition());
+                    bookData.put("sharingType", book.getSharingType());
+                    bookData.put("status", book.getStatus());
+                } else {
+                    logger.warn("Book not found for chat {}, bookId: {}", chat.getId(), chat.getBookId());
+                    // Create a placeholder book data
+                    bookData.put("id", chat.getBookId());
+                    bookData.put("title", "Unknown Book");
+                    bookData.put("author", "Unknown Author");
+                }
+                chatData.put("book", bookData);
+                
+                // User information
+                if (entry.getUser1() != null && entry.getUser2() != null) {
+                    chatData.put("user1", userData(entry.getUser1()));
+                    chatData.put("user2", userData(entry.getUser2()));
+                } else {
+                    logger.warn("User not found for chat {}, user1Id: {}, user2Id: {}",
+                        chat.getId(), chat.getUser1Id(), chat.getUser2Id());
+                    // Create placeholder user data
+                    chatData.put("user1", unknownUserData(chat.getUser1Id()));
+                    chatData.put("user2", unknownUserData(chat.getUser2Id()));
                 }
+                
+                // Last message
+                Message lastMessage = entry.getLastMessage();
+                if (lastMessage != null) {
+                    Map<String, Object> messageData = new HashMap<>();
+                    messageData.put("id", lastMessage.getId());
+                    messageData.put("content", lastMessage.getContent());
+                    messageData.put("senderId", lastMessage.getSenderId());
+                    messageData.put("messageType", lastMessage.getMessageType());
+                    messageData.put("createdAt", lastMessage.getCreatedAt());
+                    chatData.put("lastMessage", messageData);
+                }
+                
+                chatData.put("unreadCount", entry.getUnreadCount());
+                
+                chatList.add(chatData);
             }
             
-            System.out.println("Returning " + chatList.size() + " processed chats");
             return ResponseEntity.ok(chatList);
             
         } catch (Exception e) {
-            System.err.println("Error in getAllChats: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("Error in getAllChats", e);
             Map<String, Object> error = new HashMap<>();
             error.put("error", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
         }
     }
+    
+    private Map<String, Object> userData(User user) {
+        Map<String, Object> userData = new HashMap<>();
+        userData.put("id", user.getId());
+        userData.put("firstName", user.getFirstName());
+        userData.put("lastName", user.getLastName());
+        userData.put("email", user.getEmail());
+        return userData;
+    }
+    
+    private Map<String, Object> unknownUserData(Long userId) {
+        Map<String, Object> userData = new HashMap<>();
+        userData.put("id", userId);
+        userData.put("firstName", "Unknown");
+        userData.put("lastName", "User");
+        userData.put("email", "unknown@example.com");
+        return userData;
+    }
 
     /**
      * REST API: Send a message in a chat
@@ -370,13 +353,13 @@ public class ChatController {
             }
             
             // Verify user is part of the chat
-            Optional<Chat> chatOpt = chatService.findById(chatId);
-            if (chatOpt.isEmpty() || !chatOpt.get().involvesUser(currentUserId)) {
+            if (!chatService.isParticipant(chatId, currentUserId)) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body(Map.of("error", "You do not have access to this chat"));
             }
             
             Message message = chatService.sendMessage(chatId, currentUserId, content);
+            chatService.awaitPersisted(message);
             
             Map<String, Object> response = new HashMap<>();
             response.put("id", message.getId());
@@ -400,32 +383,61 @@ public class ChatController {
      */
     @GetMapping("/api/chats/{chatId}/messages")
     @ResponseBody
-    public ResponseEntity<?> getChatMessagesByChatId(@PathVariable Long chatId) {
+    public ResponseEntity<?> getChatMessagesByChatId(@PathVariable Long chatId,
+                                                     @RequestParam(value = "cursor", required = false) String cursor,
+                                                     @RequestParam(value = "limit", required = false) Integer limit) {
+        KeysetCursor after;
+        try {
+            after = KeysetCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
         try {
             Long currentUserId = getCurrentUserId();
             
             // Verify user is part of the chat
-            Optional<Chat> chatOpt = chatService.findById(chatId);
-            if (chatOpt.isEmpty() || !chatOpt.get().involvesUser(currentUserId)) {
+            if (!chatService.isParticipant(chatId, currentUserId)) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body(Map.of("error", "You do not have access to this chat"));
             }
             
-            List<Message> messages = chatService.getChatMessages(chatId);
-            
-            List<Map<String, Object>> messageList = new ArrayList<>();
-            for (Message message : messages) {
-                Map<String, Object> messageData = new HashMap<>();
-                messageData.put("id", message.getId());
-                messageData.put("chatId", message.getChatId());
-                messageData.put("senderId", message.getSenderId());
-                messageData.put("content", message.getContent());
-                messageData.put("messageType", message.getMessageType());
-                messageData.put("createdAt", message.getCreatedAt());
-                messageList.add(messageData);
+            CursorPage<Message> page = chatService.getChatMessages(chatId, after, CursorPage.clampLimit(limit));
+            
+            return page.okWithNextCursor().body(toMessageList(page.getItems()));
+            
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+    
+    /**
+     * REST API: Get the latest messages of a chat, oldest first.
+     * X-Next-Cursor points at the oldest message returned; pass it back as "before" to load older history.
+     */
+    @GetMapping("/api/chats/{chatId}/messages/latest")
+    @ResponseBody
+    public ResponseEntity<?> getLatestChatMessages(@PathVariable Long chatId,
+                                                   @RequestParam(value = "before", required = false) String before,
+                                                   @RequestParam(value = "limit", required = false) Integer limit) {
+        KeysetCursor olderThan;
+        try {
+            olderThan = KeysetCursor.decode(before);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        try {
+            Long currentUserId = getCurrentUserId();
+            
+            // Verify user is part of the chat
+            if (!chatService.isParticipant(chatId, currentUserId)) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("error", "You do not have access to this chat"));
             }
             
-            return ResponseEntity.ok(messageList);
+            CursorPage<Message> page = chatService.getLatestChatMessages(chatId, olderThan, CursorPage.clampLimit(limit));
+            return page.okWithNextCursor().body(toMessageList(page.getItems()));
             
         } catch (Exception e) {
             Map<String, Object> error = new HashMap<>();
@@ -434,23 +446,45 @@ public class ChatController {
         }
     }
     
+    private static List<Map<String, Object>> toMessageList(List<Message> messages) {
+        List<Map<String, Object>> messageList = new ArrayList<>();
+        for (Message message : messages) {
+            Map<String, Object> messageData = new HashMap<>();
+            messageData.put("id", message.getId());
+            messageData.put("chatId", message.getChatId());
+            messageData.put("senderId", message.getSenderId());
+            messageData.put("content", message.getContent());
+            messageData.put("messageType", message.getMessageType());
+            messageData.put("createdAt", message.getCreatedAt());
+            messageList.add(messageData);
+        }
+        return messageList;
+    }
+    
     /**
      * REST API: Get chat messages
      */
     @GetMapping("/api/chat/{chatId}/messages")
     @ResponseBody
-    public ResponseEntity<?> getChatMessages(@PathVariable Long chatId) {
+    public ResponseEntity<?> getChatMessages(@PathVariable Long chatId,
+                                             @RequestParam(value = "cursor", required = false) String cursor,
+                                             @RequestParam(value = "limit", required = false) Integer limit) {
+        KeysetCursor after;
+        try {
+            after = KeysetCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
         try {
             Long userId = getCurrentUserId();
             
             // Verify user is part of the chat
-            Optional<Chat> chatOpt = chatService.findById(chatId);
-            if (chatOpt.isEmpty() || !chatOpt.get().involvesUser(userId)) {
+            if (!chatService.isParticipant(chatId, userId)) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "You are not part of this chat"));
             }
             
-            List<Message> messages = chatService.getChatMessages(chatId);
-            return ResponseEntity.ok(messages);
+            CursorPage<Message> page = chatService.getChatMessages(chatId, after, CursorPage.clampLimit(limit));
+            return page.okWithNextCursor().body(page.getItems());
             
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", e.getMessage()));
@@ -6,10 +6,11 @@ package com.bookbuddy.bookbuddy.controller;
 
 import com.bookbuddy.bookbuddy.model.Request;
 import com.bookbuddy.bookbuddy.model.RequestWithBookInfo;
-import com.bookbuddy.bookbuddy.model.User;
 import com.bookbuddy.bookbuddy.service.RequestService;
 import com.bookbuddy.bookbuddy.service.ChatService;
 import com.bookbuddy.bookbuddy.service.UserService;
+import com.bookbuddy.bookbuddy.util.CursorPage;
+import com.bookbuddy.bookbuddy.util.KeysetCursor;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -52,13 +53,8 @@ public class RequestController {
             throw new IllegalArgumentException("Not authenticated");
         }
         
-        String email = authentication.getName();
-        Optional<User> userOpt = userService.findByEmail(email);
-        if (userOpt.isEmpty()) {
-            throw new IllegalArgumentException("User not found");
-        }
-        
-        return userOpt.get().getId();
+        return userService.findUserId(authentication)
+                .orElseThrow(() -> new IllegalArgumentException("User not found"));
     }
     
     /**
@@ -211,14 +207,22 @@ public class RequestController {
      */
     @GetMapping("/api/my-sent")
     @ResponseBody
-    public ResponseEntity<?> getMySentRequests(HttpSession session) {
+    public ResponseEntity<?> getMySentRequests(@RequestParam(value = "cursor", required = false) String cursor,
+                                                @RequestParam(value = "limit", required = false) Integer limit,
+                                                HttpSession session) {
+        Long userId;
         try {
-            Long userId = getCurrentUserId();
-            List<RequestWithBookInfo> requests = requestService.findRequestsByRequesterWithBookInfo(userId);
-            return ResponseEntity.ok(requests);
+            userId = getCurrentUserId();
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", e.getMessage()));
         }
+        try {
+            CursorPage<RequestWithBookInfo> page = requestService.findRequestsByRequesterWithBookInfo(
+                    userId, KeysetCursor.decode(cursor), CursorPage.clampLimit(limit));
+            return page.okWithNextCursor().body(page.getItems());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
     
     /**
@@ -226,14 +230,22 @@ public class RequestController {
      */
     @GetMapping("/api/my-received")
     @ResponseBody
-    public ResponseEntity<?> getMyReceivedRequests(HttpSession session) {
+    public ResponseEntity<?> getMyReceivedRequests(@RequestParam(value = "cursor", required = false) String cursor,
+                                                @RequestParam(value = "limit", required = false) Integer limit,
+                                                HttpSession session) {
+        Long userId;
         try {
-            Long userId = getCurrentUserId();
-            List<RequestWithBookInfo> requests = requestService.findRequestsByOwnerWithBookInfo(userId);
-            return ResponseEntity.ok(requests);
+            userId = getCurrentUserId();
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", e.getMessage()));
         }
+        try {
+            CursorPage<RequestWithBookInfo> page = requestService.findRequestsByOwnerWithBookInfo(
+                    userId, KeysetCursor.decode(cursor), CursorPage.clampLimit(limit));
+            return page.okWithNextCursor().body(page.getItems());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
     
 
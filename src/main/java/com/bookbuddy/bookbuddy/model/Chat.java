@@ -15,11 +15,16 @@ import org.hibernate.annotations.UpdateTimestamp;
  * @author holiday
  */
 @Entity
-@Table(name = "chats")
+@Table(name = "chats", indexes = {
+    @Index(name = "idx_chats_user1", columnList = "user1_id"),
+    @Index(name = "idx_chats_user2", columnList = "user2_id"),
+    @Index(name = "idx_chats_request", columnList = "request_id")
+})
 public class Chat {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "chats_seq")
+    @SequenceGenerator(name = "chats_seq", sequenceName = "chats_seq", allocationSize = 50)
     private Long id;
     
     // The book involved in the exchange
@@ -0,0 +1,64 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.bookbuddy.bookbuddy.model;
+
+/**
+ * Read model for the chat inbox
+ * One row per chat with its book, both participants and the last message,
+ * loaded together so listing chats costs a constant number of queries
+ * @author holiday
+ */
+public class ChatInboxEntry {
+    
+    private final Chat chat;
+    private final Book book;
+    private final User user1;
+    private final User user2;
+    private final Message lastMessage;
+    private long unreadCount;
+    
+    public ChatInboxEntry(Chat chat, Book book, User user1, User user2, Message lastMessage) {
+        this.chat = chat;
+        this.book = book;
+        this.user1 = user1;
+        this.user2 = user2;
+        this.lastMessage = lastMessage;
+    }
+    
+    public Chat getChat() {
+        return chat;
+    }
+    
+    public Book getBook() {
+        return book;
+    }
+    
+    public User getUser1() {
+        return user1;
+    }
+    
+    public User getUser2() {
+        return user2;
+    }
+    
+    public Message getLastMessage() {
+        return lastMessage;
+    }
+    
+    public long getUnreadCount() {
+        return unreadCount;
+    }
+    
+    public void setUnreadCount(long unreadCount) {
+        this.unreadCount = unreadCount;
+    }
+    
+    /**
+     * ID of the participant who is not the given user
+     */
+    public Long getOtherUserId(Long userId) {
+        return chat.getUser1Id().equals(userId) ? chat.getUser2Id() : chat.getUser1Id();
+    }
+}
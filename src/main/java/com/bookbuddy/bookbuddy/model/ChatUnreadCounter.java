@@ -0,0 +1,77 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.bookbuddy.bookbuddy.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Denormalized unread message counter for one user in one chat
+ * Kept in step with sendMessage / markMessagesAsRead so badges don't need to count messages
+ * @author holiday
+ */
+@Entity
+@Table(name = "chat_unread_counters", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_chat_unread_counters_chat_user", columnNames = {"chat_id", "user_id"})
+}, indexes = {
+    @Index(name = "idx_chat_unread_counters_user", columnList = "user_id")
+})
+public class ChatUnreadCounter {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "chat_id", nullable = false)
+    private Long chatId;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Column(name = "unread_count", nullable = false)
+    private long unreadCount;
+    
+    // Default constructor
+    public ChatUnreadCounter() {
+    }
+    
+    public ChatUnreadCounter(Long chatId, Long userId, long unreadCount) {
+        this.chatId = chatId;
+        this.userId = userId;
+        this.unreadCount = unreadCount;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Long getChatId() {
+        return chatId;
+    }
+    
+    public void setChatId(Long chatId) {
+        this.chatId = chatId;
+    }
+    
+    public Long getUserId() {
+        return userId;
+    }
+    
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+    
+    public long getUnreadCount() {
+        return unreadCount;
+    }
+    
+    public void setUnreadCount(long unreadCount) {
+        this.unreadCount = unreadCount;
+    }
+}
@@ -14,11 +14,15 @@ import org.hibernate.annotations.CreationTimestamp;
  * @author holiday
  */
 @Entity
-@Table(name = "messages")
+@Table(name = "messages", indexes = {
+    @Index(name = "idx_messages_chat_created", columnList = "chat_id, created_at, id")
+})
 public class Message {
     
+    // MessageIdAllocator hands out ids from the same sequence for the write-behind
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "messages_seq")
+    @SequenceGenerator(name = "messages_seq", sequenceName = "messages_seq", allocationSize = 50)
     private Long id;
     
     // The chat this message belongs to
@@ -4,6 +4,7 @@
  */
 package com.bookbuddy.bookbuddy.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 import org.hibernate.annotations.CreationTimestamp;
@@ -15,11 +16,17 @@ import org.hibernate.annotations.UpdateTimestamp;
  * @author holiday
  */
 @Entity
-@Table(name = "requests")
+@Table(name = "requests", indexes = {
+    @Index(name = "idx_requests_requester_created", columnList = "requester_id, created_at, id"),
+    @Index(name = "idx_requests_owner_created", columnList = "owner_id, created_at, id"),
+    @Index(name = "idx_requests_owner_status_created", columnList = "owner_id, status, created_at"),
+    @Index(name = "idx_requests_lend_notice", columnList = "lend_notice_at, id")
+})
 public class Request {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "requests_seq")
+    @SequenceGenerator(name = "requests_seq", sequenceName = "requests_seq", allocationSize = 50)
     private Long id;
     
     // The book being requested
@@ -56,6 +63,15 @@ public class Request {
     @Column(name = "requested_duration_days")
     private Integer requestedDurationDays;
     
+    // For accepted lending requests: when the book is due back
+    @Column(name = "due_at")
+    private LocalDateTime dueAt;
+    
+    // When LoanDueDates next posts a reminder or overdue notice for this loan (null = nothing scheduled)
+    @JsonIgnore
+    @Column(name = "lend_notice_at")
+    private LocalDateTime lendNoticeAt;
+    
     @CreationTimestamp
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
@@ -186,6 +202,22 @@ public class Request {
         this.requestedDurationDays = requestedDurationDays;
     }
     
+    public LocalDateTime getDueAt() {
+        return dueAt;
+    }
+    
+    public void setDueAt(LocalDateTime dueAt) {
+        this.dueAt = dueAt;
+    }
+    
+    public LocalDateTime getLendNoticeAt() {
+        return lendNoticeAt;
+    }
+    
+    public void setLendNoticeAt(LocalDateTime lendNoticeAt) {
+        this.lendNoticeAt = lendNoticeAt;
+    }
+    
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
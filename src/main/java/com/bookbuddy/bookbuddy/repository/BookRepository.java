@@ -5,11 +5,13 @@
 package com.bookbuddy.bookbuddy.repository;
 
 import com.bookbuddy.bookbuddy.model.Book;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -35,14 +37,59 @@ public interface BookRepository extends JpaRepository<Book, Long> {
     List<Book> findByStatus(Book.BookStatus status);
     
     /**
-     * search books by title, author, or genre
+     * search books by title, author, or genre (query escaped with SqlLike, so it matches literally)
      */
     @Query("SELECT b FROM Book b WHERE b.status = 'AVAILABLE' AND " +
-           "(LOWER(b.title) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
-           "LOWER(b.author) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
-           "LOWER(b.genre) LIKE LOWER(CONCAT('%', :query, '%')))")
+           "(LOWER(b.title) LIKE LOWER(CONCAT('%', :query, '%')) ESCAPE '!' OR " +
+           "LOWER(b.author) LIKE LOWER(CONCAT('%', :query, '%')) ESCAPE '!' OR " +
+           "LOWER(b.genre) LIKE LOWER(CONCAT('%', :query, '%')) ESCAPE '!')")
     List<Book> searchBooks(@Param("query") String query);
     
+    /**
+     * page through available books newest first (keyset on created_at, id; null cursor = first page);
+     * locatedOnly keeps only books with a pickup location
+     */
+    @Query("SELECT b FROM Book b WHERE b.status = 'AVAILABLE' " +
+           "AND (:sharingType IS NULL OR b.sharingType = :sharingType) " +
+           "AND (:locatedOnly = FALSE OR (b.pickupLatitude IS NOT NULL AND b.pickupLongitude IS NOT NULL)) " +
+           "AND (CAST(:createdAt AS LocalDateTime) IS NULL OR b.createdAt < :createdAt OR (b.createdAt = :createdAt AND b.id < :id)) " +
+           "ORDER BY b.createdAt DESC, b.id DESC")
+    List<Book> findAvailableBooksPage(@Param("sharingType") Book.SharingType sharingType,
+                                      @Param("locatedOnly") boolean locatedOnly,
+                                      @Param("createdAt") LocalDateTime createdAt,
+                                      @Param("id") Long id,
+                                      Pageable pageable);
+    
+    /**
+     * page through search results newest first (keyset on created_at, id; null cursor = first page);
+     * query escaped with SqlLike; locatedOnly keeps only books with a pickup location
+     */
+    @Query("SELECT b FROM Book b WHERE b.status = 'AVAILABLE' AND " +
+           "(LOWER(b.title) LIKE LOWER(CONCAT('%', :query, '%')) ESCAPE '!' OR " +
+           "LOWER(b.author) LIKE LOWER(CONCAT('%', :query, '%')) ESCAPE '!' OR " +
+           "LOWER(b.genre) LIKE LOWER(CONCAT('%', :query, '%')) ESCAPE '!') " +
+           "AND (:sharingType IS NULL OR b.sharingType = :sharingType) " +
+           "AND (:locatedOnly = FALSE OR (b.pickupLatitude IS NOT NULL AND b.pickupLongitude IS NOT NULL)) " +
+           "AND (CAST(:createdAt AS LocalDateTime) IS NULL OR b.createdAt < :createdAt OR (b.createdAt = :createdAt AND b.id < :id)) " +
+           "ORDER BY b.createdAt DESC, b.id DESC")
+    List<Book> searchBooksPage(@Param("query") String query,
+                               @Param("sharingType") Book.SharingType sharingType,
+                               @Param("locatedOnly") boolean locatedOnly,
+                               @Param("createdAt") LocalDateTime createdAt,
+                               @Param("id") Long id,
+                               Pageable pageable);
+    
+    /**
+     * page through an owner's books newest first (keyset on created_at, id; null cursor = first page)
+     */
+    @Query("SELECT b FROM Book b WHERE b.ownerId = :ownerId " +
+           "AND (CAST(:createdAt AS LocalDateTime) IS NULL OR b.createdAt < :createdAt OR (b.createdAt = :createdAt AND b.id < :id)) " +
+           "ORDER BY b.createdAt DESC, b.id DESC")
+    List<Book> findByOwnerIdPage(@Param("ownerId") Long ownerId,
+                                 @Param("createdAt") LocalDateTime createdAt,
+                                 @Param("id") Long id,
+                                 Pageable pageable);
+    
     /**
      * find books within a certain distance (requires latitude/longitude)
      * 
@@ -57,6 +104,18 @@ public interface BookRepository extends JpaRepository<Book, Long> {
                                      @Param("lng") double longitude, 
                                      @Param("distance") double distanceKm);
     
+    /**
+     * count books per (status, sharing type): rows of [status, sharingType, count]
+     */
+    @Query("SELECT b.status, b.sharingType, COUNT(b) FROM Book b GROUP BY b.status, b.sharingType")
+    List<Object[]> countByStatusAndSharingType();
+    
+    /**
+     * count available books that have location information
+     */
+    @Query("SELECT COUNT(b) FROM Book b WHERE b.pickupLatitude IS NOT NULL AND b.pickupLongitude IS NOT NULL AND b.status = 'AVAILABLE'")
+    long countAvailableBooksWithLocation();
+    
     /**
      * find books that have location information
      */
@@ -64,13 +123,26 @@ public interface BookRepository extends JpaRepository<Book, Long> {
     List<Book> findBooksWithLocation();
     
     /**
-     * find books by multiple criteria
+     * find available books inside a geohash cell (prefix match on the indexed geohash column)
+     */
+    @Query("SELECT b FROM Book b WHERE b.status = 'AVAILABLE' AND b.pickupGeohash LIKE CONCAT(:cell, '%')")
+    List<Book> findAvailableBooksInGeohashCell(@Param("cell") String cell);
+    
+    /**
+     * find books with coordinates but no geohash yet (rows saved before the column existed)
+     */
+    @Query("SELECT b FROM Book b WHERE b.pickupGeohash IS NULL " +
+           "AND b.pickupLatitude IS NOT NULL AND b.pickupLongitude IS NOT NULL")
+    List<Book> findBooksMissingGeohash();
+    
+    /**
+     * find books by multiple criteria (title, author and genre escaped with SqlLike)
      */
     @Query("SELECT b FROM Book b WHERE b.status = 'AVAILABLE' " +
-           "AND (:title IS NULL OR LOWER(b.title) LIKE LOWER(CONCAT('%', :title, '%'))) " +
-           "AND (:author IS NULL OR LOWER(b.author) LIKE LOWER(CONCAT('%', :author, '%'))) " +
-           "AND (:genre IS NULL OR LOWER(b.genre) LIKE LOWER(CONCAT('%', :genre, '%'))) " +
-           "AND (:condition IS NULL OR LOWER(b.condition) = LOWER(:condition)) " +
+           "AND (CAST(:title AS String) IS NULL OR LOWER(b.title) LIKE LOWER(CONCAT('%', CAST(:title AS String), '%')) ESCAPE '!') " +
+           "AND (CAST(:author AS String) IS NULL OR LOWER(b.author) LIKE LOWER(CONCAT('%', CAST(:author AS String), '%')) ESCAPE '!') " +
+           "AND (CAST(:genre AS String) IS NULL OR LOWER(b.genre) LIKE LOWER(CONCAT('%', CAST(:genre AS String), '%')) ESCAPE '!') " +
+           "AND (CAST(:condition AS String) IS NULL OR LOWER(b.condition) = LOWER(CAST(:condition AS String))) " +
            "AND (:sharingType IS NULL OR b.sharingType = :sharingType)")
     List<Book> findBooksByCriteria(@Param("title") String title,
                                   @Param("author") String author,
@@ -84,11 +156,16 @@ public interface BookRepository extends JpaRepository<Book, Long> {
     long countByStatus(Book.BookStatus status);
     
     /**
-     * find recent books (last 30 days)
+     * page through available books listed since a point in time, newest first
+     * (keyset on created_at, id; null cursor = first page)
      */
-    @Query(value = "SELECT * FROM books WHERE status = 'AVAILABLE' AND created_at >= DATE_SUB(CURDATE(), INTERVAL 30 DAY) ORDER BY created_at DESC", 
-       nativeQuery = true)
-    List<Book> findRecentBooks();
+    @Query("SELECT b FROM Book b WHERE b.status = 'AVAILABLE' AND b.createdAt >= :since " +
+           "AND (CAST(:createdAt AS LocalDateTime) IS NULL OR b.createdAt < :createdAt OR (b.createdAt = :createdAt AND b.id < :id)) " +
+           "ORDER BY b.createdAt DESC, b.id DESC")
+    List<Book> findRecentBooksPage(@Param("since") LocalDateTime since,
+                                   @Param("createdAt") LocalDateTime createdAt,
+                                   @Param("id") Long id,
+                                   Pageable pageable);
     
     /**
      * find books available for give away
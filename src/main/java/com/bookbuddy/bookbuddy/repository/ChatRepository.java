@@ -5,11 +5,13 @@
 package com.bookbuddy.bookbuddy.repository;
 
 import com.bookbuddy.bookbuddy.model.Chat;
+import com.bookbuddy.bookbuddy.model.ChatInboxEntry;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,6 +27,11 @@ public interface ChatRepository extends JpaRepository<Chat, Long> {
      */
     Optional<Chat> findByRequestId(Long requestId);
     
+    /**
+     * Find the chats of several requests in one query
+     */
+    List<Chat> findByRequestIdIn(Collection<Long> requestIds);
+    
     /**
      * Find active chats for a user
      */
@@ -47,4 +54,32 @@ public interface ChatRepository extends JpaRepository<Chat, Long> {
      */
     @Query("SELECT c FROM Chat c WHERE (c.user1Id = :userId OR c.user2Id = :userId) AND c.status = 'COMPLETED'")
     List<Chat> findCompletedChatsByUserId(@Param("userId") Long userId);
-} 
\ No newline at end of file
+    
+    /**
+     * Load the inbox for a user in one query: each chat with its book, both users and the latest message.
+     * The latest message is the last in (created_at, id) order, as the chat shows it (ids from the pooled
+     * sequence aren't in commit order across instances). Pass a null status to include chats in any state.
+     */
+    @Query("SELECT new com.bookbuddy.bookbuddy.model.ChatInboxEntry(c, b, u1, u2, m) FROM Chat c " +
+           "LEFT JOIN Book b ON b.id = c.bookId " +
+           "LEFT JOIN User u1 ON u1.id = c.user1Id " +
+           "LEFT JOIN User u2 ON u2.id = c.user2Id " +
+           "LEFT JOIN Message m ON m.chatId = c.id " +
+           "AND NOT EXISTS (SELECT m2.id FROM Message m2 WHERE m2.chatId = c.id " +
+           "AND (m2.createdAt > m.createdAt OR (m2.createdAt = m.createdAt AND m2.id > m.id))) " +
+           "WHERE (c.user1Id = :userId OR c.user2Id = :userId) " +
+           "AND (:status IS NULL OR c.status = :status)")
+    List<ChatInboxEntry> findInboxByUserId(@Param("userId") Long userId, @Param("status") Chat.ChatStatus status);
+    
+    /**
+     * Find chats that have no unread counters yet (created before counters were enabled)
+     */
+    @Query("SELECT c FROM Chat c WHERE NOT EXISTS (SELECT u FROM ChatUnreadCounter u WHERE u.chatId = c.id)")
+    List<Chat> findChatsWithoutUnreadCounters();
+    
+    /**
+     * Count chats per status: rows of [status, count]
+     */
+    @Query("SELECT c.status, COUNT(c) FROM Chat c GROUP BY c.status")
+    List<Object[]> countByStatus();
+}
@@ -0,0 +1,57 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.bookbuddy.bookbuddy.repository;
+
+import com.bookbuddy.bookbuddy.model.ChatUnreadCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Repository for ChatUnreadCounter entity
+ * @author holiday
+ */
+@Repository
+public interface ChatUnreadCounterRepository extends JpaRepository<ChatUnreadCounter, Long> {
+    
+    /**
+     * Current counter value for a user in a chat (empty if there is no counter yet)
+     */
+    @Query("SELECT c.unreadCount FROM ChatUnreadCounter c WHERE c.chatId = :chatId AND c.userId = :userId")
+    Optional<Long> findUnreadCount(@Param("chatId") Long chatId, @Param("userId") Long userId);
+    
+    /**
+     * Add one unread message for a user in a chat; returns the number of rows updated
+     */
+    @Modifying
+    @Query("UPDATE ChatUnreadCounter c SET c.unreadCount = c.unreadCount + 1 WHERE c.chatId = :chatId AND c.userId = :userId")
+    int increment(@Param("chatId") Long chatId, @Param("userId") Long userId);
+    
+    /**
+     * Take one unread message back off a user's counter, never going below zero; returns the number of rows updated
+     */
+    @Modifying
+    @Query("UPDATE ChatUnreadCounter c SET c.unreadCount = c.unreadCount - 1 " +
+           "WHERE c.chatId = :chatId AND c.userId = :userId AND c.unreadCount > 0")
+    int decrement(@Param("chatId") Long chatId, @Param("userId") Long userId);
+    
+    /**
+     * Reset the counter for a user in a chat; returns the number of rows updated
+     */
+    @Modifying
+    @Query("UPDATE ChatUnreadCounter c SET c.unreadCount = 0 WHERE c.chatId = :chatId AND c.userId = :userId")
+    int reset(@Param("chatId") Long chatId, @Param("userId") Long userId);
+    
+    /**
+     * Sum of the user's counters across active chats
+     */
+    @Query("SELECT COALESCE(SUM(c.unreadCount), 0) FROM ChatUnreadCounter c WHERE c.userId = :userId " +
+           "AND c.chatId IN (SELECT ch.id FROM Chat ch WHERE ch.status = 'ACTIVE')")
+    long sumUnreadInActiveChats(@Param("userId") Long userId);
+}
@@ -5,6 +5,7 @@
 package com.bookbuddy.bookbuddy.repository;
 
 import com.bookbuddy.bookbuddy.model.Message;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -12,6 +13,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -28,10 +30,26 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
     List<Message> findByChatIdOrderByCreatedAtAsc(@Param("chatId") Long chatId);
     
     /**
-     * Find messages by chat ID with limit
+     * Page through a chat oldest first (keyset on created_at, id; null cursor = first page)
      */
-    @Query("SELECT m FROM Message m WHERE m.chatId = :chatId ORDER BY m.createdAt DESC")
-    List<Message> findTop50ByChatIdOrderByCreatedAtDesc(@Param("chatId") Long chatId);
+    @Query("SELECT m FROM Message m WHERE m.chatId = :chatId " +
+           "AND (CAST(:createdAt AS LocalDateTime) IS NULL OR m.createdAt > :createdAt OR (m.createdAt = :createdAt AND m.id > :id)) " +
+           "ORDER BY m.createdAt ASC, m.id ASC")
+    List<Message> findByChatIdPage(@Param("chatId") Long chatId,
+                                   @Param("createdAt") LocalDateTime createdAt,
+                                   @Param("id") Long id,
+                                   Pageable pageable);
+    
+    /**
+     * Page backwards through a chat newest first (keyset on created_at, id; null cursor = latest messages)
+     */
+    @Query("SELECT m FROM Message m WHERE m.chatId = :chatId " +
+           "AND (CAST(:createdAt AS LocalDateTime) IS NULL OR m.createdAt < :createdAt OR (m.createdAt = :createdAt AND m.id < :id)) " +
+           "ORDER BY m.createdAt DESC, m.id DESC")
+    List<Message> findByChatIdBefore(@Param("chatId") Long chatId,
+                                     @Param("createdAt") LocalDateTime createdAt,
+                                     @Param("id") Long id,
+                                     Pageable pageable);
     
     /**
      * Find unread messages for a user in a specific chat
@@ -39,6 +57,20 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
     @Query("SELECT m FROM Message m WHERE m.chatId = :chatId AND m.senderId != :userId AND m.messageType = 'TEXT' AND m.isRead = false ORDER BY m.createdAt DESC")
     List<Message> findUnreadMessagesByChatIdAndUserId(@Param("chatId") Long chatId, @Param("userId") Long userId);
     
+    /**
+     * Count unread messages for a user in a specific chat
+     */
+    @Query("SELECT COUNT(m) FROM Message m WHERE m.chatId = :chatId AND m.senderId != :userId AND m.messageType = 'TEXT' AND m.isRead = false")
+    long countUnreadMessagesByChatIdAndUserId(@Param("chatId") Long chatId, @Param("userId") Long userId);
+    
+    /**
+     * Count unread messages for a user across all of the user's active chats
+     */
+    @Query("SELECT COUNT(m) FROM Message m WHERE m.chatId IN " +
+           "(SELECT c.id FROM Chat c WHERE (c.user1Id = :userId OR c.user2Id = :userId) AND c.status = 'ACTIVE') " +
+           "AND m.senderId != :userId AND m.messageType = 'TEXT' AND m.isRead = false")
+    long countUnreadMessagesInActiveChats(@Param("userId") Long userId);
+    
     /**
      * Mark all messages in a chat as read for a specific user
      */
@@ -51,4 +83,13 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
      * Find the latest message in a chat (returns only one result)
      */
     Message findFirstByChatIdOrderByCreatedAtDesc(Long chatId);
-} 
\ No newline at end of file
+    
+    /**
+     * Unread message counts per chat for a user, across all of the user's chats (rows of chatId, count)
+     */
+    @Query("SELECT m.chatId, COUNT(m) FROM Message m WHERE m.chatId IN " +
+           "(SELECT c.id FROM Chat c WHERE c.user1Id = :userId OR c.user2Id = :userId) " +
+           "AND m.senderId != :userId AND m.messageType = 'TEXT' AND m.isRead = false " +
+           "GROUP BY m.chatId")
+    List<Object[]> countUnreadMessagesByChatForUser(@Param("userId") Long userId);
+}
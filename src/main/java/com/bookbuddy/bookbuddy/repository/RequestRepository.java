@@ -5,11 +5,14 @@
 package com.bookbuddy.bookbuddy.repository;
 
 import com.bookbuddy.bookbuddy.model.Request;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -34,6 +37,28 @@ public interface RequestRepository extends JpaRepository<Request, Long> {
      */
     List<Request> findByOwnerIdOrderByCreatedAtDesc(Long ownerId);
     
+    /**
+     * Page through requests made by a user, newest first (keyset on created_at, id; null cursor = first page)
+     */
+    @Query("SELECT r FROM Request r WHERE r.requesterId = :requesterId " +
+           "AND (CAST(:createdAt AS LocalDateTime) IS NULL OR r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)) " +
+           "ORDER BY r.createdAt DESC, r.id DESC")
+    List<Request> findByRequesterIdPage(@Param("requesterId") Long requesterId,
+                                        @Param("createdAt") LocalDateTime createdAt,
+                                        @Param("id") Long id,
+                                        Pageable pageable);
+    
+    /**
+     * Page through requests for a user's books, newest first (keyset on created_at, id; null cursor = first page)
+     */
+    @Query("SELECT r FROM Request r WHERE r.ownerId = :ownerId " +
+           "AND (CAST(:createdAt AS LocalDateTime) IS NULL OR r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)) " +
+           "ORDER BY r.createdAt DESC, r.id DESC")
+    List<Request> findByOwnerIdPage(@Param("ownerId") Long ownerId,
+                                    @Param("createdAt") LocalDateTime createdAt,
+                                    @Param("id") Long id,
+                                    Pageable pageable);
+    
     /**
      * Find pending requests by book ID, sorted by creation date (newest first)
      */
@@ -65,4 +90,33 @@ public interface RequestRepository extends JpaRepository<Request, Long> {
      * Count requests by requester and status in
      */
     long countByRequesterIdAndStatusIn(Long requesterId, List<Request.RequestStatus> statuses);
-} 
\ No newline at end of file
+    
+    /**
+     * Count requests per status: rows of [status, count]
+     */
+    @Query("SELECT r.status, COUNT(r) FROM Request r GROUP BY r.status")
+    List<Object[]> countByStatus();
+    
+    /**
+     * Loans with a reminder or overdue notice due by now, earliest first (range scan on idx_requests_lend_notice)
+     */
+    @Query("SELECT r FROM Request r WHERE r.lendNoticeAt <= :now ORDER BY r.lendNoticeAt, r.id")
+    List<Request> findDueLendNotices(@Param("now") LocalDateTime now, Pageable pageable);
+    
+    /**
+     * Move a loan's next notice on, only if it is still the one that was read; returns the number of rows updated
+     * (0 when the loan was returned or another instance sent the notice first)
+     */
+    @Modifying
+    @Query("UPDATE Request r SET r.lendNoticeAt = :next WHERE r.id = :id AND r.lendNoticeAt = :current")
+    int advanceLendNotice(@Param("id") Long id,
+                          @Param("current") LocalDateTime current,
+                          @Param("next") LocalDateTime next);
+
+    /**
+     * Stop a loan's reminder/overdue notices (its chat was completed or cancelled)
+     */
+    @Modifying
+    @Query("UPDATE Request r SET r.lendNoticeAt = NULL WHERE r.id = :id AND r.lendNoticeAt IS NOT NULL")
+    int clearLendNotice(@Param("id") Long id);
+}
@@ -5,8 +5,11 @@
 package com.bookbuddy.bookbuddy.repository;
 
 import com.bookbuddy.bookbuddy.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -26,9 +29,18 @@ public interface UserRepository extends JpaRepository<User, Long> { //Long=type
     /**
      * find & return a user by email address
      * auto generate SELECT * FROM users WHERE email = ?
+     * (query cache: repeat lookups of the same email skip the database until users changes)
      */
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
     Optional<User> findByEmail(String email); //returns Optional<User> to handle nulls safely
     
+    /**
+     * find only the user id for an email (resolving the logged-in user)
+     */
+    @Query("SELECT u.id FROM User u WHERE u.email = :email")
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    Optional<Long> findIdByEmail(@Param("email") String email);
+    
     /**
      * Check if user exists by email
      * SELECT COUNT(*) > 0 FROM users WHERE email = ?
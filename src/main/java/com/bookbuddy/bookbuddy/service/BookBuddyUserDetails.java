@@ -0,0 +1,39 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.bookbuddy.bookbuddy.service;
+
+import com.bookbuddy.bookbuddy.model.User;
+
+import java.util.ArrayList;
+
+/**
+ * Logged-in user principal. Carries the user id and display name so controllers and
+ * STOMP handlers don't have to look the user up by email on every call.
+ * @author holiday
+ */
+public class BookBuddyUserDetails extends org.springframework.security.core.userdetails.User {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long userId;
+    private final String displayName;
+
+    public BookBuddyUserDetails(User user) {
+        super(user.getEmail(), user.getPassword(), new ArrayList<>()); // No roles for now, just empty list
+        this.userId = user.getId();
+        this.displayName = user.getFullName();
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    /**
+     * Name at login time; may be stale after a profile update in the same session
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+}
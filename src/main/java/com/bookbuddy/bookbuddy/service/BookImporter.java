@@ -0,0 +1,428 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.bookbuddy.bookbuddy.service;
+
+import com.bookbuddy.bookbuddy.model.Book;
+import com.bookbuddy.bookbuddy.util.CsvReader;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Streams a CSV or NDJSON file of book listings into the database for one owner.
+ * Rows are read one at a time, checked with the listBook rules and listed batch-size books per
+ * transaction through BookService.listBooks, so memory use doesn't grow with the file.
+ * A bad row is reported with its line number and skipped; the rest of the file still imports.
+ * Should a batch still fail to save, it is retried row by row so only the rows that fail are rejected.
+ * A CSV file that stops making sense (an unterminated quote, an oversized field) ends the import
+ * at that line: the batches before it are already saved, so the report says where it stopped.
+ * <p>
+ * Columns (CSV header or NDJSON keys, case and separators ignored): title, author, genre, isbn,
+ * condition, description, pickupLocation, latitude, longitude, sharingType, lendingDurationDays.
+ * @author holiday
+ */
+@Component
+public class BookImporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookImporter.class);
+
+    // Errors kept for the report; past this they are only counted
+    static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final Map<String, String> ALIASES = Map.of(
+            "pickuplatitude", "latitude",
+            "pickuplongitude", "longitude");
+
+    /**
+     * Input file format
+     */
+    public enum Format {
+        CSV,
+        NDJSON;
+
+        /**
+         * Format for a request Content-Type, or null if it isn't one of ours
+         */
+        public static Format fromContentType(String contentType) {
+            if (contentType == null) {
+                return null;
+            }
+            String type = contentType.toLowerCase(Locale.ROOT);
+            if (type.startsWith("text/csv")) {
+                return CSV;
+            }
+            if (type.startsWith("application/x-ndjson") || type.startsWith("application/jsonl")) {
+                return NDJSON;
+            }
+            return null;
+        }
+
+        /**
+         * Format for a file name (.csv, .ndjson or .jsonl), or null
+         */
+        public static Format fromFileName(String fileName) {
+            String name = fileName.toLowerCase(Locale.ROOT);
+            if (name.endsWith(".csv")) {
+                return CSV;
+            }
+            if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+                return NDJSON;
+            }
+            return null;
+        }
+    }
+
+    private final BookService bookService;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final int progressInterval;
+
+    @Autowired
+    public BookImporter(BookService bookService, ObjectMapper objectMapper,
+                        @Value("${bookbuddy.books.import.batch-size:500}") int batchSize,
+                        @Value("${bookbuddy.books.import.progress-interval:10000}") int progressInterval) {
+        this.bookService = bookService;
+        this.objectMapper = objectMapper;
+        this.batchSize = Math.max(1, Math.min(batchSize, BookService.MAX_BULK_SIZE));
+        this.progressInterval = Math.max(1, progressInterval);
+    }
+
+    public ImportReport importBooks(InputStream in, Format format, Long ownerId) throws IOException {
+        return importBooks(in, format, ownerId, report -> { });
+    }
+
+    /**
+     * Import every row of the stream (UTF-8), calling progress every progress-interval rows
+     */
+    public ImportReport importBooks(InputStream in, Format format, Long ownerId,
+                                    Consumer<ImportReport> progress) throws IOException {
+        if (ownerId == null) {
+            throw new IllegalArgumentException("Owner ID is required");
+        }
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        RowSource rows = format == Format.CSV ? new CsvRows(reader) : new NdjsonRows(reader, objectMapper);
+
+        ImportReport report = new ImportReport();
+        long start = System.currentTimeMillis();
+        List<Book> batch = new ArrayList<>(batchSize);
+        List<Integer> batchLines = new ArrayList<>(batchSize);
+
+        while (true) {
+            try {
+                Map<String, String> row = rows.next();
+                if (row == null) {
+                    break;
+                }
+                Book listing = toListing(row);
+                bookService.validateListing(listing, ownerId);
+                batch.add(listing);
+                batchLines.add(rows.line());
+            } catch (IllegalArgumentException e) {
+                report.rejected(rows.line(), e.getMessage());
+            } catch (IOException e) {
+                // No telling where the next row starts; keep what was read so far rather than fail the whole import
+                report.stopped(rows.line(), e.getMessage());
+                report.rowsRead++;
+                break;
+            }
+            report.rowsRead++;
+
+            if (batch.size() >= batchSize) {
+                save(ownerId, batch, batchLines, report);
+            }
+            if (report.rowsRead % progressInterval == 0) {
+                report.elapsedMs = System.currentTimeMillis() - start;
+                logger.info("Book import for user {}: {} rows read, {} imported, {} rejected",
+                        ownerId, report.rowsRead, report.imported, report.rejected);
+                progress.accept(report);
+            }
+        }
+        save(ownerId, batch, batchLines, report);
+
+        report.elapsedMs = System.currentTimeMillis() - start;
+        if (report.isComplete()) {
+            logger.info("Book import for user {} done: {} imported, {} rejected in {} ms",
+                    ownerId, report.imported, report.rejected, report.elapsedMs);
+        } else {
+            logger.warn("Book import for user {} stopped at line {}: {} imported, {} rejected in {} ms",
+                    ownerId, report.stoppedAtLine, report.imported, report.rejected, report.elapsedMs);
+        }
+        return report;
+    }
+
+    private void save(Long ownerId, List<Book> batch, List<Integer> batchLines, ImportReport report) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            bookService.listBooks(ownerId, batch);
+            report.imported += batch.size();
+        } catch (RuntimeException e) {
+            // The whole batch was rolled back; one row must not take the others down with it
+            logger.warn("Book import batch of {} rows failed, retrying one by one: {}", batch.size(), e.getMessage());
+            saveOneByOne(ownerId, batch, batchLines, report);
+        }
+        batch.clear();
+        batchLines.clear();
+    }
+
+    private void saveOneByOne(Long ownerId, List<Book> batch, List<Integer> batchLines, ImportReport report) {
+        for (int i = 0; i < batch.size(); i++) {
+            try {
+                bookService.listBooks(ownerId, List.of(batch.get(i)));
+                report.imported++;
+            } catch (RuntimeException e) {
+                report.rejected(batchLines.get(i), "Not saved: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Row fields as a listing, with the same format checks as the listing form
+     */
+    private static Book toListing(Map<String, String> row) {
+        Book listing = new Book();
+        listing.setTitle(row.get("title"));
+        listing.setAuthor(row.get("author"));
+        listing.setGenre(row.get("genre"));
+        listing.setIsbn(row.get("isbn"));
+        listing.setCondition(row.get("condition"));
+        listing.setDescription(row.get("description"));
+        listing.setPickupLocation(row.get("pickuplocation"));
+        listing.setPickupLatitude(parseDouble(row.get("latitude"), "Invalid latitude format"));
+        listing.setPickupLongitude(parseDouble(row.get("longitude"), "Invalid longitude format"));
+
+        String sharingType = row.get("sharingtype");
+        if (sharingType != null) {
+            try {
+                listing.setSharingType(Book.SharingType.valueOf(
+                        sharingType.toUpperCase(Locale.ROOT).replace(' ', '_').replace('-', '_')));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid sharing type: " + sharingType);
+            }
+        }
+        String lendingDuration = row.get("lendingdurationdays");
+        if (lendingDuration != null) {
+            try {
+                listing.setLendingDurationDays(Integer.parseInt(lendingDuration));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid lending duration");
+            }
+        }
+        return listing;
+    }
+
+    private static Double parseDouble(String value, String error) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(error);
+        }
+    }
+
+    /**
+     * Column key: lower case letters and digits only, so "Pickup Location" and "pickup_location" match
+     */
+    private static String key(String column) {
+        StringBuilder key = new StringBuilder(column.length());
+        for (char c : column.toLowerCase(Locale.ROOT).toCharArray()) {
+            if (Character.isLetterOrDigit(c)) {
+                key.append(c);
+            }
+        }
+        return ALIASES.getOrDefault(key.toString(), key.toString());
+    }
+
+    /**
+     * Trimmed value, null when blank
+     */
+    private static String value(String raw) {
+        if (raw == null) {
+            return null;
+        }
+        String trimmed = raw.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    /**
+     * Rows of the file as column key to value
+     */
+    private interface RowSource {
+
+        /**
+         * Next row, or null at the end of the file; IllegalArgumentException for a row that can't be parsed
+         */
+        Map<String, String> next() throws IOException;
+
+        /**
+         * Line the last row started on
+         */
+        int line();
+    }
+
+    private static final class CsvRows implements RowSource {
+
+        private final CsvReader csv;
+        private final List<String> columns = new ArrayList<>();
+
+        CsvRows(BufferedReader reader) throws IOException {
+            this.csv = new CsvReader(reader);
+            List<String> header = csv.next();
+            if (header == null) {
+                throw new IllegalArgumentException("The file is empty");
+            }
+            for (String column : header) {
+                // A UTF-8 byte order mark from spreadsheet exports ends up in the first column name
+                columns.add(key(column.replace("\uFEFF", "")));
+            }
+            if (!columns.contains("title") || !columns.contains("author")) {
+                throw new IllegalArgumentException("The first line must name the columns, including title and author");
+            }
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+            List<String> fields = csv.next();
+            if (fields == null) {
+                return null;
+            }
+            Map<String, String> row = new HashMap<>();
+            for (int i = 0; i < Math.min(fields.size(), columns.size()); i++) {
+                row.put(columns.get(i), value(fields.get(i)));
+            }
+            return row;
+        }
+
+        @Override
+        public int line() {
+            return csv.getRecordLine();
+        }
+    }
+
+    private static final class NdjsonRows implements RowSource {
+
+        private final BufferedReader reader;
+        private final ObjectMapper objectMapper;
+        private int line;
+
+        NdjsonRows(BufferedReader reader, ObjectMapper objectMapper) {
+            this.reader = reader;
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+            String text;
+            do {
+                text = reader.readLine();
+                line++;
+                if (text == null) {
+                    return null;
+                }
+            } while (text.isBlank());
+
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(text);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Invalid JSON: " + e.getOriginalMessage());
+            }
+            if (!node.isObject()) {
+                throw new IllegalArgumentException("Each line must be a JSON object");
+            }
+            Map<String, String> row = new HashMap<>();
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                if (!field.getValue().isNull()) {
+                    row.put(key(field.getKey()), value(field.getValue().asText()));
+                }
+            }
+            return row;
+        }
+
+        @Override
+        public int line() {
+            return line;
+        }
+    }
+
+    /**
+     * Outcome of an import: counts, and the first MAX_REPORTED_ERRORS rejected rows with the reason.
+     * An import that couldn't read the whole file is not complete, and stoppedAtLine is the line it gave up on.
+     */
+    public static final class ImportReport {
+
+        private long rowsRead;
+        private long imported;
+        private long rejected;
+        private long elapsedMs;
+        private Integer stoppedAtLine;
+        private final List<RowError> errors = new ArrayList<>();
+
+        void rejected(int line, String message) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new RowError(line, message));
+            }
+        }
+
+        void stopped(int line, String message) {
+            rejected(line, message + "; the rest of the file was not read");
+            stoppedAtLine = line;
+        }
+
+        public long getRowsRead() { return rowsRead; }
+        public long getImported() { return imported; }
+        public long getRejected() { return rejected; }
+        public long getElapsedMs() { return elapsedMs; }
+        public boolean isComplete() { return stoppedAtLine == null; }
+        public Integer getStoppedAtLine() { return stoppedAtLine; }
+        public List<RowError> getErrors() { return errors; }
+    }
+
+    /**
+     * A rejected row: the line it starts on and why
+     */
+    public static final class RowError {
+
+        private final int line;
+        private final String message;
+
+        public RowError(int line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public int getLine() { return line; }
+        public String getMessage() { return message; }
+
+        @Override
+        public String toString() {
+            return "line " + line + ": " + message;
+        }
+    }
+}
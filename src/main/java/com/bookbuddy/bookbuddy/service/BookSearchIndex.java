@@ -0,0 +1,319 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.bookbuddy.bookbuddy.service;
+
+import com.bookbuddy.bookbuddy.model.Book;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over the title, author and genre of available books.
+ * Text is tokenized into character trigrams so that a query matches exactly the
+ * same books as the substring search in BookRepository.searchBooks, without
+ * scanning the books table. Candidates from the posting lists are confirmed with
+ * a contains check, so the trigram step only ever narrows the search.
+ * @author holiday
+ */
+@Component
+public class BookSearchIndex {
+
+    private static final int GRAM = 3;
+
+    // Rebuild the posting lists once this many removed documents pile up
+    private static final int MIN_TOMBSTONES_BEFORE_COMPACTION = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Document slots are append-only; a removed book leaves a null slot behind
+    private IndexedBook[] docs = new IndexedBook[1024];
+    private int docCount;
+    private int tombstones;
+    private final Map<Long, Integer> docByBookId = new HashMap<>();
+    private final Map<String, Postings> postings = new HashMap<>();
+
+    // Changes since beginRebuild (null = removed), replayed over the rebuilt index
+    private Map<Long, Book> changedDuringRebuild;
+
+    private volatile boolean ready;
+
+    /**
+     * Start recording updates and removals; call before reading the books for rebuild,
+     * so changes committed while they are read aren't lost when the index is replaced
+     */
+    public void beginRebuild() {
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = new HashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replace the whole index with the given books, then replay what changed since beginRebuild
+     */
+    public void rebuild(Collection<Book> books) {
+        lock.writeLock().lock();
+        try {
+            clear();
+            for (Book book : books) {
+                if (book.getId() != null && book.getStatus() == Book.BookStatus.AVAILABLE) {
+                    add(book);
+                }
+            }
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.forEach((bookId, book) -> {
+                    removeDoc(bookId);
+                    if (book != null && book.getStatus() == Book.BookStatus.AVAILABLE) {
+                        add(book);
+                    }
+                });
+                changedDuringRebuild = null;
+            }
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Index or re-index a book. Books that are no longer available are dropped.
+     */
+    public void update(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeDoc(book.getId());
+            if (book.getStatus() == Book.BookStatus.AVAILABLE) {
+                add(book);
+            }
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.put(book.getId(), BookSnapshot.of(book));
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drop a book from the index
+     */
+    public void remove(Long bookId) {
+        if (bookId == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeDoc(bookId);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.put(bookId, null);
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Whether the index has been built and can answer searches
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Number of books currently indexed
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docByBookId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Available books whose title, author or genre contains the query (case-insensitive)
+     */
+    public List<Book> search(String query) {
+        String needle = normalize(query);
+        lock.readLock().lock();
+        try {
+            List<Book> results = new ArrayList<>();
+            if (needle.length() < GRAM) {
+                // Too short for trigrams; a scan over memory is still far cheaper than the table scan
+                for (int doc = 0; doc < docCount; doc++) {
+                    if (docs[doc] != null && docs[doc].matches(needle)) {
+                        results.add(docs[doc].book);
+                    }
+                }
+                return results;
+            }
+
+            List<Postings> lists = new ArrayList<>();
+            for (String gram : trigrams(needle)) {
+                Postings list = postings.get(gram);
+                if (list == null) {
+                    return results;
+                }
+                lists.add(list);
+            }
+            lists.sort((a, b) -> Integer.compare(a.size, b.size));
+
+            int[] candidates = Arrays.copyOf(lists.get(0).docs, lists.get(0).size);
+            int count = candidates.length;
+            for (int i = 1; i < lists.size() && count > 0; i++) {
+                count = intersect(candidates, count, lists.get(i));
+            }
+
+            for (int i = 0; i < count; i++) {
+                IndexedBook indexed = docs[candidates[i]];
+                if (indexed != null && indexed.matches(needle)) {
+                    results.add(indexed.book);
+                }
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(Book book) {
+        IndexedBook indexed = new IndexedBook(BookSnapshot.of(book));
+        if (docCount == docs.length) {
+            docs = Arrays.copyOf(docs, docs.length * 2);
+        }
+        int doc = docCount++;
+        docs[doc] = indexed;
+        docByBookId.put(book.getId(), doc);
+
+        Set<String> grams = new LinkedHashSet<>();
+        grams.addAll(trigrams(indexed.title));
+        grams.addAll(trigrams(indexed.author));
+        grams.addAll(trigrams(indexed.genre));
+        for (String gram : grams) {
+            postings.computeIfAbsent(gram, g -> new Postings()).add(doc);
+        }
+    }
+
+    private void removeDoc(Long bookId) {
+        Integer doc = docByBookId.remove(bookId);
+        if (doc != null) {
+            docs[doc] = null;
+            tombstones++;
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (tombstones < MIN_TOMBSTONES_BEFORE_COMPACTION || tombstones < docByBookId.size()) {
+            return;
+        }
+        List<Book> live = new ArrayList<>(docByBookId.size());
+        for (int doc = 0; doc < docCount; doc++) {
+            if (docs[doc] != null) {
+                live.add(docs[doc].book);
+            }
+        }
+        clear();
+        for (Book book : live) {
+            add(book);
+        }
+    }
+
+    private void clear() {
+        docs = new IndexedBook[1024];
+        docCount = 0;
+        tombstones = 0;
+        docByBookId.clear();
+        postings.clear();
+    }
+
+    /**
+     * Keep only the candidates that also appear in the posting list; both are sorted
+     */
+    private static int intersect(int[] candidates, int count, Postings list) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < count && j < list.size; i++) {
+            int doc = candidates[i];
+            while (j < list.size && list.docs[j] < doc) {
+                j++;
+            }
+            if (j < list.size && list.docs[j] == doc) {
+                candidates[kept++] = doc;
+            }
+        }
+        return kept;
+    }
+
+    private static List<String> trigrams(String text) {
+        if (text == null || text.length() < GRAM) {
+            return List.of();
+        }
+        List<String> grams = new ArrayList<>(text.length() - GRAM + 1);
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String lower(String text) {
+        return text == null ? null : text.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class IndexedBook {
+        private final Book book;
+        private final String title;
+        private final String author;
+        private final String genre;
+
+        private IndexedBook(Book book) {
+            this.book = book;
+            this.title = lower(book.getTitle());
+            this.author = lower(book.getAuthor());
+            this.genre = lower(book.getGenre());
+        }
+
+        private boolean matches(String needle) {
+            return (title != null && title.contains(needle))
+                    || (author != null && author.contains(needle))
+                    || (genre != null && genre.contains(needle));
+        }
+    }
+
+    /**
+     * Growable list of document ids, ascending because documents are only ever appended
+     */
+    private static final class Postings {
+        private int[] docs = new int[4];
+        private int size;
+
+        private void add(int doc) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = doc;
+        }
+    }
+}
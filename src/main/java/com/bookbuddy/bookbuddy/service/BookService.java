@@ -6,13 +6,29 @@ package com.bookbuddy.bookbuddy.service;
 
 import com.bookbuddy.bookbuddy.model.Book;
 import com.bookbuddy.bookbuddy.repository.BookRepository;
+import com.bookbuddy.bookbuddy.util.CursorPage;
+import com.bookbuddy.bookbuddy.util.DistanceCursor;
+import com.bookbuddy.bookbuddy.util.GeoHash;
+import com.bookbuddy.bookbuddy.util.KeysetCursor;
+import com.bookbuddy.bookbuddy.util.SqlLike;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
-import java.util.Comparator;
+import java.util.Set;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -21,13 +37,57 @@ import java.util.stream.Collectors;
  */
 @Service
 @Transactional
+@Timed("bookbuddy.service")
 public class BookService {
     
+    private static final Logger logger = LoggerFactory.getLogger(BookService.class);
+    
+    // How far back the recent listings feed goes
+    static final int RECENT_DAYS = 30;
+    
+    // Most books a bulk listing or status change takes in one transaction
+    public static final int MAX_BULK_SIZE = 500;
+    
     private final BookRepository bookRepository;
+    private final BookSearchIndex searchIndex;
+    private final BookSpatialIndex spatialIndex;
+    private final RecentBooksCache recentBooks;
+    private final LiveStats liveStats;
     
     @Autowired
-    public BookService(BookRepository bookRepository) {
+    public BookService(BookRepository bookRepository, BookSearchIndex searchIndex, BookSpatialIndex spatialIndex,
+                       RecentBooksCache recentBooks, LiveStats liveStats) {
         this.bookRepository = bookRepository;
+        this.searchIndex = searchIndex;
+        this.spatialIndex = spatialIndex;
+        this.recentBooks = recentBooks;
+        this.liveStats = liveStats;
+    }
+    
+    /**
+     * Build the in-memory search and spatial indexes from the available books once the application is up
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildIndexes() {
+        long start = System.currentTimeMillis();
+        
+        // Rows saved before the geohash column existed
+        List<Book> missingGeohash = bookRepository.findBooksMissingGeohash();
+        if (!missingGeohash.isEmpty()) {
+            missingGeohash.forEach(Book::refreshPickupGeohash);
+            bookRepository.saveAll(missingGeohash);
+            logger.info("Backfilled pickup geohash for {} books", missingGeohash.size());
+        }
+        
+        // Books changed while the list is read are replayed by rebuild, so they aren't lost
+        searchIndex.beginRebuild();
+        spatialIndex.beginRebuild();
+        List<Book> availableBooks = bookRepository.findByStatus(Book.BookStatus.AVAILABLE);
+        searchIndex.rebuild(availableBooks);
+        spatialIndex.rebuild(availableBooks);
+        loadRecentBooks();
+        logger.info("Book indexes built with {} books ({} with location) in {} ms",
+                searchIndex.size(), spatialIndex.size(), System.currentTimeMillis() - start);
     }
     
     /**
@@ -37,9 +97,41 @@ public class BookService {
                         String condition, String description, String pickupLocation,
                         Double pickupLatitude, Double pickupLongitude, Long ownerId,
                         Book.SharingType sharingType, Integer lendingDurationDays) {
+        Book book = newBook(title, author, genre, isbn, condition, description, pickupLocation,
+                pickupLatitude, pickupLongitude, ownerId, sharingType, lendingDurationDays);
+        return indexed(bookRepository.save(book), null);
+    }
+    
+    /**
+     * List several books for one owner, all or nothing. Each listing carries the same fields as
+     * listBook; ids come from the pooled books_seq, so the inserts go out in JDBC batches.
+     */
+    public List<Book> listBooks(Long ownerId, List<Book> listings) {
+        if (listings == null || listings.isEmpty()) {
+            throw new IllegalArgumentException("No books to list");
+        }
+        if (listings.size() > MAX_BULK_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_BULK_SIZE + " books can be listed at once");
+        }
         
-        // Validate required fields
-        validateBookInput(title, author, condition, ownerId, sharingType);
+        List<Book> books = new ArrayList<>(listings.size());
+        for (Book listing : listings) {
+            books.add(newBook(listing.getTitle(), listing.getAuthor(), listing.getGenre(), listing.getIsbn(),
+                    listing.getCondition(), listing.getDescription(), listing.getPickupLocation(),
+                    listing.getPickupLatitude(), listing.getPickupLongitude(), ownerId,
+                    listing.getSharingType(), listing.getLendingDurationDays()));
+        }
+        List<Book> saved = bookRepository.saveAll(books);
+        saved.forEach(book -> indexed(book, null));
+        return saved;
+    }
+    
+    private Book newBook(String title, String author, String genre, String isbn, 
+                         String condition, String description, String pickupLocation,
+                         Double pickupLatitude, Double pickupLongitude, Long ownerId,
+                         Book.SharingType sharingType, Integer lendingDurationDays) {
+        
+        validateListing(title, author, condition, ownerId, sharingType, lendingDurationDays);
         
         // Create new book
         Book book = new Book();
@@ -55,16 +147,34 @@ public class BookService {
         book.setOwnerId(ownerId);
         book.setSharingType(sharingType);
         book.setStatus(Book.BookStatus.AVAILABLE);
+        validateLengths(book);
         
         // Set lending duration for lend books
         if (sharingType == Book.SharingType.LEND) {
-            if (lendingDurationDays == null || lendingDurationDays <= 0) {
-                throw new IllegalArgumentException("Lending duration is required for lend books");
-            }
             book.setLendingDurationDays(lendingDurationDays);
         }
+        return book;
+    }
+    
+    /**
+     * Check a listing against the rules listBook applies, without saving anything
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void validateListing(Book listing, Long ownerId) {
+        validateListing(listing.getTitle(), listing.getAuthor(), listing.getCondition(), ownerId,
+                listing.getSharingType(), listing.getLendingDurationDays());
+        validateLengths(listing);
+    }
+    
+    private void validateListing(String title, String author, String condition, Long ownerId,
+                                 Book.SharingType sharingType, Integer lendingDurationDays) {
+        // Validate required fields
+        validateBookInput(title, author, condition, ownerId, sharingType);
         
-        return bookRepository.save(book);
+        // Lend books need a lending duration
+        if (sharingType == Book.SharingType.LEND && (lendingDurationDays == null || lendingDurationDays <= 0)) {
+            throw new IllegalArgumentException("Lending duration is required for lend books");
+        }
     }
     
     /**
@@ -99,6 +209,17 @@ public class BookService {
         return bookRepository.findByOwnerId(ownerId);
     }
     
+    /**
+     * Find books by owner one page at a time, newest first
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Book> findBooksByOwner(Long ownerId, KeysetCursor after, int limit) {
+        int pageSize = CursorPage.clampLimit(limit);
+        List<Book> rows = bookRepository.findByOwnerIdPage(ownerId, createdAtOf(after), idOf(after),
+                PageRequest.of(0, pageSize + 1));
+        return CursorPage.fromLookahead(rows, pageSize, BookService::cursorOf);
+    }
+    
     /**
      * Find available books by owner
      */
@@ -115,7 +236,57 @@ public class BookService {
         if (query == null || query.trim().isEmpty()) {
             return findAllAvailableBooks();
         }
-        return bookRepository.searchBooks(query.trim());
+        if (searchIndex.isReady()) {
+            return searchIndex.search(query);
+        }
+        return bookRepository.searchBooks(SqlLike.escape(query.trim()));
+    }
+    
+    /**
+     * Search available books one page at a time, newest first; an empty query pages through all of them
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Book> searchBooks(String query, Book.SharingType sharingType, KeysetCursor after, int limit) {
+        return searchBooks(query, sharingType, false, after, limit);
+    }
+    
+    /**
+     * Search available books one page at a time, newest first, only those with a pickup location
+     * when locatedOnly is set ("all locations" around the user)
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Book> searchBooks(String query, Book.SharingType sharingType, boolean locatedOnly,
+                                        KeysetCursor after, int limit) {
+        int pageSize = CursorPage.clampLimit(limit);
+        PageRequest lookahead = PageRequest.of(0, pageSize + 1);
+        List<Book> rows;
+        if (query == null || query.trim().isEmpty()) {
+            rows = bookRepository.findAvailableBooksPage(sharingType, locatedOnly, createdAtOf(after), idOf(after), lookahead);
+        } else if (searchIndex.isReady()) {
+            rows = searchIndex.search(query).stream()
+                    .filter(book -> sharingType == null || book.getSharingType() == sharingType)
+                    .filter(book -> !locatedOnly || book.hasLocation())
+                    .filter(book -> after == null || after.isAfterInNewestFirst(book.getCreatedAt(), book.getId()))
+                    .sorted(KeysetCursor.newestFirst(Book::getCreatedAt, Book::getId))
+                    .limit(pageSize + 1L)
+                    .collect(Collectors.toList());
+        } else {
+            rows = bookRepository.searchBooksPage(SqlLike.escape(query.trim()), sharingType, locatedOnly,
+                    createdAtOf(after), idOf(after), lookahead);
+        }
+        return CursorPage.fromLookahead(rows, pageSize, BookService::cursorOf);
+    }
+    
+    private static KeysetCursor cursorOf(Book book) {
+        return new KeysetCursor(book.getCreatedAt(), book.getId());
+    }
+    
+    private static LocalDateTime createdAtOf(KeysetCursor cursor) {
+        return cursor == null ? null : cursor.getCreatedAt();
+    }
+    
+    private static Long idOf(KeysetCursor cursor) {
+        return cursor == null ? null : cursor.getId();
     }
     
     /**
@@ -123,23 +294,88 @@ public class BookService {
      */
     @Transactional(readOnly = true)
     public List<Book> findBooksNearby(double latitude, double longitude, double radiusKm) {
-        List<Book> booksWithinRadius = bookRepository.findBooksWithinDistance(latitude, longitude, radiusKm);
+        return findBooksNearby(latitude, longitude, radiusKm, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Find the closest books within distance, closest first, at most limit results
+     */
+    @Transactional(readOnly = true)
+    public List<Book> findBooksNearby(double latitude, double longitude, double radiusKm, int limit) {
+        return findBooksNearby(latitude, longitude, radiusKm, null, null, limit);
+    }
+    
+    /**
+     * Find the closest books within distance that match a text query and sharing type (either may be null),
+     * closest first, at most limit results. The filters apply before the limit.
+     */
+    @Transactional(readOnly = true)
+    public List<Book> findBooksNearby(double latitude, double longitude, double radiusKm,
+                                      String query, Book.SharingType sharingType, int limit) {
+        return findBooksNearby(latitude, longitude, radiusKm, query, sharingType, null, limit);
+    }
+    
+    /**
+     * One page of a radius search: the closest matching books after a cursor (null = from the center),
+     * closest first with ties by id, at most limit results
+     */
+    @Transactional(readOnly = true)
+    public List<Book> findBooksNearby(double latitude, double longitude, double radiusKm,
+                                      String query, Book.SharingType sharingType, DistanceCursor after, int limit) {
+        Predicate<Book> filter = nearbyFilter(query, sharingType);
+        if (after != null) {
+            Predicate<Book> afterCursor = book -> after.isAfterInClosestFirst(book.distanceTo(latitude, longitude), book.getId());
+            filter = filter == null ? afterCursor : filter.and(afterCursor);
+        }
+        if (spatialIndex.isReady()) {
+            return filter == null ? spatialIndex.findNearby(latitude, longitude, radiusKm, limit)
+                    : spatialIndex.findNearby(latitude, longitude, radiusKm, limit, filter);
+        }
+        
+        // Index not built yet: prefilter with the indexed geohash prefix, then check the exact distance
+        List<Book> booksWithinRadius = new ArrayList<>();
+        for (String cell : GeoHash.covering(latitude, longitude, radiusKm)) {
+            for (Book book : bookRepository.findAvailableBooksInGeohashCell(cell)) {
+                if (book.distanceTo(latitude, longitude) <= radiusKm && (filter == null || filter.test(book))) {
+                    booksWithinRadius.add(book);
+                }
+            }
+        }
         
         // Sort by distance (closest first)
         return booksWithinRadius.stream()
-                .sorted(Comparator.comparingDouble(book -> book.distanceTo(latitude, longitude)))
+                .sorted(DistanceCursor.closestFirst(book -> book.distanceTo(latitude, longitude), Book::getId))
+                .limit(limit)
                 .collect(Collectors.toList());
     }
     
+    /**
+     * Text query and sharing type as one book filter, or null when neither is given
+     */
+    private Predicate<Book> nearbyFilter(String query, Book.SharingType sharingType) {
+        Predicate<Book> filter = null;
+        if (query != null && !query.trim().isEmpty()) {
+            Set<Long> matchingIds = searchBooks(query).stream()
+                    .map(Book::getId)
+                    .collect(Collectors.toSet());
+            filter = book -> matchingIds.contains(book.getId());
+        }
+        if (sharingType != null) {
+            Predicate<Book> sameType = book -> book.getSharingType() == sharingType;
+            filter = filter == null ? sameType : filter.and(sameType);
+        }
+        return filter;
+    }
+    
     /**
      * Advanced search with multiple criteria
      */
     @Transactional(readOnly = true)
     public List<Book> findBooksByCriteria(String title, String author, String genre, String condition, Book.SharingType sharingType) {
         return bookRepository.findBooksByCriteria(
-            isNullOrEmpty(title) ? null : title,
-            isNullOrEmpty(author) ? null : author,
-            isNullOrEmpty(genre) ? null : genre,
+            isNullOrEmpty(title) ? null : SqlLike.escape(title),
+            isNullOrEmpty(author) ? null : SqlLike.escape(author),
+            isNullOrEmpty(genre) ? null : SqlLike.escape(genre),
             isNullOrEmpty(condition) ? null : condition,
             sharingType
         );
@@ -153,6 +389,7 @@ public class BookService {
                           String pickupLocation) {
         Book book = bookRepository.findById(bookId)
                 .orElseThrow(() -> new IllegalArgumentException("Book not found with id: " + bookId));
+        LiveStats.BookState before = LiveStats.BookState.of(book);
         
         // Update fields if provided
         if (title != null && !title.trim().isEmpty()) {
@@ -177,7 +414,7 @@ public class BookService {
             book.setPickupLocation(pickupLocation.trim().isEmpty() ? null : pickupLocation.trim());
         }
         
-        return bookRepository.save(book);
+        return indexed(bookRepository.save(book), before);
     }
     
     /**
@@ -187,12 +424,13 @@ public class BookService {
                                   Double pickupLatitude, Double pickupLongitude) {
         Book book = bookRepository.findById(bookId)
                 .orElseThrow(() -> new IllegalArgumentException("Book not found with id: " + bookId));
+        LiveStats.BookState before = LiveStats.BookState.of(book);
         
         book.setPickupLocation(pickupLocation);
         book.setPickupLatitude(pickupLatitude);
         book.setPickupLongitude(pickupLongitude);
         
-        return bookRepository.save(book);
+        return indexed(bookRepository.save(book), before);
     }
     
     /**
@@ -201,9 +439,10 @@ public class BookService {
     public Book markAsUnavailable(Long bookId) {
         Book book = bookRepository.findById(bookId)
                 .orElseThrow(() -> new IllegalArgumentException("Book not found with id: " + bookId));
+        LiveStats.BookState before = LiveStats.BookState.of(book);
         
         book.setStatus(Book.BookStatus.UNAVAILABLE);
-        return bookRepository.save(book);
+        return indexed(bookRepository.save(book), before);
     }
     
     /**
@@ -212,9 +451,46 @@ public class BookService {
     public Book markAsAvailable(Long bookId) {
         Book book = bookRepository.findById(bookId)
                 .orElseThrow(() -> new IllegalArgumentException("Book not found with id: " + bookId));
+        LiveStats.BookState before = LiveStats.BookState.of(book);
         
         book.setStatus(Book.BookStatus.AVAILABLE);
-        return bookRepository.save(book);
+        return indexed(bookRepository.save(book), before);
+    }
+    
+    /**
+     * Mark several of an owner's books available or unavailable in one go: one select, then batched
+     * updates. Books that are part of an exchange, lent out or gone keep their status; the books
+     * that changed are returned.
+     */
+    public List<Book> updateAvailability(Long ownerId, List<Long> bookIds, boolean available) {
+        if (bookIds == null || bookIds.isEmpty()) {
+            throw new IllegalArgumentException("No books selected");
+        }
+        if (bookIds.size() > MAX_BULK_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_BULK_SIZE + " books can be updated at once");
+        }
+        
+        List<Book> books = bookRepository.findAllById(bookIds);
+        if (books.size() != new HashSet<>(bookIds).size()) {
+            throw new IllegalArgumentException("Book not found");
+        }
+        for (Book book : books) {
+            if (!book.getOwnerId().equals(ownerId)) {
+                throw new IllegalArgumentException("You can only modify your own books");
+            }
+        }
+        
+        Book.BookStatus from = available ? Book.BookStatus.UNAVAILABLE : Book.BookStatus.AVAILABLE;
+        Book.BookStatus to = available ? Book.BookStatus.AVAILABLE : Book.BookStatus.UNAVAILABLE;
+        List<Book> changed = new ArrayList<>();
+        for (Book book : books) {
+            if (book.getStatus() == from) {
+                LiveStats.BookState before = LiveStats.BookState.of(book);
+                book.setStatus(to);
+                changed.add(indexed(book, before));
+            }
+        }
+        return bookRepository.saveAll(changed);
     }
     
     /**
@@ -223,9 +499,10 @@ public class BookService {
     public Book markAsExchangeInProgress(Long bookId) {
         Book book = bookRepository.findById(bookId)
                 .orElseThrow(() -> new IllegalArgumentException("Book not found with id: " + bookId));
+        LiveStats.BookState before = LiveStats.BookState.of(book);
         
         book.setStatus(Book.BookStatus.EXCHANGE_IN_PROGRESS);
-        return bookRepository.save(book);
+        return indexed(bookRepository.save(book), before);
     }
     
     /**
@@ -234,9 +511,10 @@ public class BookService {
     public Book markAsCurrentlyLentOut(Long bookId) {
         Book book = bookRepository.findById(bookId)
                 .orElseThrow(() -> new IllegalArgumentException("Book not found with id: " + bookId));
+        LiveStats.BookState before = LiveStats.BookState.of(book);
         
         book.setStatus(Book.BookStatus.CURRENTLY_LENT_OUT);
-        return bookRepository.save(book);
+        return indexed(bookRepository.save(book), before);
     }
     
     /**
@@ -245,9 +523,10 @@ public class BookService {
     public Book markAsGivenAway(Long bookId) {
         Book book = bookRepository.findById(bookId)
                 .orElseThrow(() -> new IllegalArgumentException("Book not found with id: " + bookId));
+        LiveStats.BookState before = LiveStats.BookState.of(book);
         
         book.setStatus(Book.BookStatus.GIVEN_AWAY);
-        return bookRepository.save(book);
+        return indexed(bookRepository.save(book), before);
     }
     
     /**
@@ -256,9 +535,10 @@ public class BookService {
     public Book markAsSwapped(Long bookId) {
         Book book = bookRepository.findById(bookId)
                 .orElseThrow(() -> new IllegalArgumentException("Book not found with id: " + bookId));
+        LiveStats.BookState before = LiveStats.BookState.of(book);
         
         book.setStatus(Book.BookStatus.SWAPPED);
-        return bookRepository.save(book);
+        return indexed(bookRepository.save(book), before);
     }
     
     /**
@@ -272,26 +552,68 @@ public class BookService {
             throw new IllegalArgumentException("You can only delete your own books");
         }
         
+        LiveStats.BookState before = LiveStats.BookState.of(book);
         bookRepository.delete(book);
+        AfterCommit.run(() -> {
+            searchIndex.remove(bookId);
+            spatialIndex.remove(bookId);
+            recentBooks.remove(bookId);
+            liveStats.bookChanged(before, null);
+        });
     }
     
     /**
-     * Get recent books
+     * Get the newest books listed in the last RECENT_DAYS days (first page of the feed)
      */
     @Transactional(readOnly = true)
     public List<Book> getRecentBooks() {
-        return bookRepository.findRecentBooks();
+        return getRecentBooks(null, CursorPage.DEFAULT_LIMIT).getItems();
     }
     
     /**
-     * Get book statistics
+     * Page through the books listed in the last RECENT_DAYS days, newest first.
+     * Served from the recent books cache when it covers the page, from the (status, created_at) index otherwise.
      */
     @Transactional(readOnly = true)
-    public BookStats getBookStats() {
-        long totalBooks = bookRepository.countByStatus(Book.BookStatus.AVAILABLE);
-        List<Book> booksWithLocation = bookRepository.findBooksWithLocation();
+    public CursorPage<Book> getRecentBooks(KeysetCursor after, int limit) {
+        int pageSize = CursorPage.clampLimit(limit);
+        LocalDateTime since = LocalDateTime.now().minusDays(RECENT_DAYS);
         
-        return new BookStats(totalBooks, booksWithLocation.size());
+        Optional<List<Book>> cached = recentBooks.page(since, after, pageSize + 1);
+        if (cached.isEmpty() && after == null && pageSize < recentBooks.getCapacity()) {
+            // Cold or shrunk by removals: reload it and try once more
+            loadRecentBooks();
+            cached = recentBooks.page(since, null, pageSize + 1);
+        }
+        List<Book> rows = cached.orElseGet(() -> bookRepository.findRecentBooksPage(
+                since, createdAtOf(after), idOf(after), PageRequest.of(0, pageSize + 1)));
+        return CursorPage.fromLookahead(rows, pageSize, BookService::cursorOf);
+    }
+    
+    private void loadRecentBooks() {
+        if (!recentBooks.isEnabled()) {
+            return;
+        }
+        long token = recentBooks.beginLoad();
+        recentBooks.load(bookRepository.findAvailableBooksPage(null, false, null, null,
+                PageRequest.of(0, recentBooks.getCapacity())), token);
+    }
+    
+    /**
+     * Get book statistics, from the live counters
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public BookStats getBookStats() {
+        LiveStats.Snapshot stats = liveStats.snapshot();
+        return new BookStats(stats.getAvailableBooks(), stats.getLocatedBooks());
+    }
+    
+    /**
+     * Get the site-wide counters: books by status and sharing type, active requests and chats
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public LiveStats.Snapshot getSiteStats() {
+        return liveStats.snapshot();
     }
     
     /**
@@ -347,6 +669,41 @@ public class BookService {
         }
     }
     
+    /**
+     * Column limits of the books table, checked up front so a field that is too long rejects its own
+     * listing instead of failing the insert (and every listing saved in the same batch)
+     */
+    private static void validateLengths(Book book) {
+        checkLength(book.getTitle(), 200, "Title");
+        checkLength(book.getAuthor(), 100, "Author");
+        checkLength(book.getGenre(), 50, "Genre");
+        checkLength(book.getIsbn(), 20, "ISBN");
+        checkLength(book.getCondition(), 20, "Condition");
+        checkLength(book.getDescription(), 1000, "Description");
+        checkLength(book.getPickupLocation(), 200, "Pickup location");
+    }
+    
+    private static void checkLength(String value, int maxLength, String field) {
+        if (value != null && value.trim().length() > maxLength) {
+            throw new IllegalArgumentException(field + " must be at most " + maxLength + " characters");
+        }
+    }
+    
+    /**
+     * Refresh the search and spatial indexes, the recent books cache and the live stats
+     * for a saved book once the transaction commits (before is null for a new book)
+     */
+    private Book indexed(Book book, LiveStats.BookState before) {
+        LiveStats.BookState after = LiveStats.BookState.of(book);
+        AfterCommit.run(() -> {
+            searchIndex.update(book);
+            spatialIndex.update(book);
+            recentBooks.update(book);
+            liveStats.bookChanged(before, after);
+        });
+        return book;
+    }
+    
     /**
      * Helper method to check if string is null or empty
      */
@@ -0,0 +1,37 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.bookbuddy.bookbuddy.service;
+
+import com.bookbuddy.bookbuddy.model.Book;
+
+/**
+ * Detached copies of books for the in-memory indexes, so later changes
+ * to a managed entity don't leak into what the indexes serve
+ * @author holiday
+ */
+final class BookSnapshot {
+
+    private BookSnapshot() {
+    }
+
+    static Book of(Book source) {
+        Book copy = new Book(source.getTitle(), source.getAuthor(), source.getCondition(),
+                source.getOwnerId(), source.getSharingType());
+        copy.setId(source.getId());
+        copy.setGenre(source.getGenre());
+        copy.setIsbn(source.getIsbn());
+        copy.setDescription(source.getDescription());
+        copy.setPickupLatitude(source.getPickupLatitude());
+        copy.setPickupLongitude(source.getPickupLongitude());
+        copy.setPickupLocation(source.getPickupLocation());
+        copy.setStatus(source.getStatus());
+        copy.setLendingDurationDays(source.getLendingDurationDays());
+        copy.setImageUrl(source.getImageUrl());
+        copy.setCreatedAt(source.getCreatedAt());
+        copy.setUpdatedAt(source.getUpdatedAt());
+        copy.refreshPickupGeohash();
+        return copy;
+    }
+}
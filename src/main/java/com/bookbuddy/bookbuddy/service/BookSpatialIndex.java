@@ -0,0 +1,195 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.bookbuddy.bookbuddy.service;
+
+import com.bookbuddy.bookbuddy.model.Book;
+import com.bookbuddy.bookbuddy.util.DistanceCursor;
+import com.bookbuddy.bookbuddy.util.GeoHash;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Predicate;
+
+/**
+ * In-memory geohash index over the pickup coordinates of available books.
+ * Entries are kept sorted by geohash, so every covering cell is a single range scan,
+ * and only books in the cells overlapping the search radius are distance-checked.
+ * @author holiday
+ */
+@Component
+public class BookSpatialIndex {
+
+    private static final char KEY_SEPARATOR = '/';
+
+    // Ties on distance go by id, so pages walked with a DistanceCursor neither skip nor repeat books
+    private static final Comparator<Located> CLOSEST_FIRST =
+            DistanceCursor.closestFirst(located -> located.distance, located -> located.book.getId());
+
+    // geohash + "/" + book id -> located book; sorted so a cell is a contiguous key range
+    private final ConcurrentSkipListMap<String, Book> entries = new ConcurrentSkipListMap<>();
+    private final Map<Long, String> keyByBookId = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+
+    // Changes since beginRebuild (null = removed), replayed over the rebuilt index
+    private Map<Long, Book> changedDuringRebuild;
+
+    private volatile boolean ready;
+
+    /**
+     * Start recording updates and removals; call before reading the books for rebuild,
+     * so changes committed while they are read aren't lost when the index is replaced
+     */
+    public void beginRebuild() {
+        synchronized (writeLock) {
+            changedDuringRebuild = new HashMap<>();
+        }
+    }
+
+    /**
+     * Replace the whole index with the given books, then replay what changed since beginRebuild
+     */
+    public void rebuild(Collection<Book> books) {
+        synchronized (writeLock) {
+            entries.clear();
+            keyByBookId.clear();
+            for (Book book : books) {
+                add(book);
+            }
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.forEach((bookId, book) -> {
+                    removeEntry(bookId);
+                    if (book != null) {
+                        add(book);
+                    }
+                });
+                changedDuringRebuild = null;
+            }
+            ready = true;
+        }
+    }
+
+    /**
+     * Index or re-index a book. Books that are unavailable or have no location are dropped.
+     */
+    public void update(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        synchronized (writeLock) {
+            removeEntry(book.getId());
+            add(book);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.put(book.getId(), BookSnapshot.of(book));
+            }
+        }
+    }
+
+    /**
+     * Drop a book from the index
+     */
+    public void remove(Long bookId) {
+        if (bookId == null) {
+            return;
+        }
+        synchronized (writeLock) {
+            removeEntry(bookId);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.put(bookId, null);
+            }
+        }
+    }
+
+    /**
+     * Whether the index has been built and can answer queries
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Number of books currently indexed
+     */
+    public int size() {
+        return keyByBookId.size();
+    }
+
+    /**
+     * Up to limit books within radiusKm of the given point, closest first
+     */
+    public List<Book> findNearby(double latitude, double longitude, double radiusKm, int limit) {
+        return findNearby(latitude, longitude, radiusKm, limit, book -> true);
+    }
+
+    /**
+     * Up to limit books within radiusKm that match the filter, closest first (ties by id).
+     * The filter runs before the limit, so a match further out counts even when closer books don't match.
+     */
+    public List<Book> findNearby(double latitude, double longitude, double radiusKm, int limit, Predicate<Book> filter) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        // Max-heap on distance: the root is the furthest of the closest books seen so far
+        PriorityQueue<Located> closest = new PriorityQueue<>(Math.min(limit, 64), CLOSEST_FIRST.reversed());
+
+        for (String cell : GeoHash.covering(latitude, longitude, radiusKm)) {
+            for (Book book : entries.subMap(cell, true, cell + Character.MAX_VALUE, false).values()) {
+                double distance = book.distanceTo(latitude, longitude);
+                if (distance > radiusKm || !filter.test(book)) {
+                    continue;
+                }
+                Located located = new Located(book, distance);
+                if (closest.size() < limit) {
+                    closest.add(located);
+                } else if (CLOSEST_FIRST.compare(located, closest.peek()) < 0) {
+                    closest.poll();
+                    closest.add(located);
+                }
+            }
+        }
+
+        List<Located> ordered = new ArrayList<>(closest);
+        ordered.sort(CLOSEST_FIRST);
+        List<Book> results = new ArrayList<>(ordered.size());
+        for (Located located : ordered) {
+            results.add(located.book);
+        }
+        return results;
+    }
+
+    private void add(Book book) {
+        if (book.getId() == null || book.getStatus() != Book.BookStatus.AVAILABLE || !book.hasLocation()) {
+            return;
+        }
+        Book snapshot = BookSnapshot.of(book);
+        String key = snapshot.getPickupGeohash() + KEY_SEPARATOR + snapshot.getId();
+        entries.put(key, snapshot);
+        keyByBookId.put(snapshot.getId(), key);
+    }
+
+    private void removeEntry(Long bookId) {
+        String key = keyByBookId.remove(bookId);
+        if (key != null) {
+            entries.remove(key);
+        }
+    }
+
+    private static final class Located {
+        private final Book book;
+        private final double distance;
+
+        private Located(Book book, double distance) {
+            this.book = book;
+            this.distance = distance;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.bookbuddy.bookbuddy.service;
+
+import com.bookbuddy.bookbuddy.model.Chat;
+import com.bookbuddy.bookbuddy.repository.ChatRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Who is in a chat and whether it is still active, so per-message authorization checks
+ * don't reload the chat row. Participants never change; the status is refreshed by
+ * ChatService whenever a chat is completed or cancelled. A load that overlaps such an update
+ * is returned but not cached, so a row read before the chat closed can't overwrite the update.
+ * @author holiday
+ */
+@Component
+public class ChatMembershipCache {
+
+    private static final int MAX_CHATS = 10_000;
+
+    // Updates bump one of these; a load is only cached if its stripe didn't move while reading
+    private static final int WRITE_STRIPES = 64;
+
+    private final ChatRepository chatRepository;
+
+    private final Map<Long, Membership> memberships = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Membership> eldest) {
+            return size() > MAX_CHATS;
+        }
+    };
+
+    private final long[] writeStripes = new long[WRITE_STRIPES];
+
+    @Autowired
+    public ChatMembershipCache(ChatRepository chatRepository) {
+        this.chatRepository = chatRepository;
+    }
+
+    /**
+     * Membership of a chat, loading it on a miss; empty if the chat doesn't exist
+     */
+    public Optional<Membership> get(Long chatId) {
+        long token;
+        synchronized (this) {
+            Membership cached = memberships.get(chatId);
+            if (cached != null) {
+                return Optional.of(cached);
+            }
+            token = writeStripes[stripe(chatId)];
+        }
+        Optional<Membership> loaded = chatRepository.findById(chatId).map(Membership::of);
+        loaded.ifPresent(membership -> fill(chatId, membership, token));
+        return loaded;
+    }
+
+    /**
+     * Record the current state of a chat (after it was created or changed status)
+     */
+    public synchronized void update(Chat chat) {
+        writeStripes[stripe(chat.getId())]++;
+        memberships.put(chat.getId(), Membership.of(chat));
+    }
+
+    private synchronized void fill(Long chatId, Membership membership, long token) {
+        if (writeStripes[stripe(chatId)] == token) {
+            memberships.putIfAbsent(chatId, membership);
+        }
+    }
+
+    private static int stripe(Long chatId) {
+        return Long.hashCode(chatId) & (WRITE_STRIPES - 1);
+    }
+
+    /**
+     * Participants and status of one chat
+     */
+    public static final class Membership {
+        private final long user1Id;
+        private final long user2Id;
+        private final Chat.ChatStatus status;
+
+        private Membership(long user1Id, long user2Id, Chat.ChatStatus status) {
+            this.user1Id = user1Id;
+            this.user2Id = user2Id;
+            this.status = status;
+        }
+
+        static Membership of(Chat chat) {
+            return new Membership(chat.getUser1Id(), chat.getUser2Id(), chat.getStatus());
+        }
+
+        public boolean involvesUser(Long userId) {
+            return userId != null && (user1Id == userId || user2Id == userId);
+        }
+
+        public boolean isActive() {
+            return status == Chat.ChatStatus.ACTIVE;
+        }
+
+        public Long getOtherUserId(Long userId) {
+            return user1Id == userId ? user2Id : user1Id;
+        }
+
+        public Chat.ChatStatus getStatus() {
+            return status;
+        }
+    }
+}
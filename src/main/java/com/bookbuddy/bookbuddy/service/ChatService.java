@@ -5,18 +5,34 @@
 package com.bookbuddy.bookbuddy.service;
 
 import com.bookbuddy.bookbuddy.model.Chat;
+import com.bookbuddy.bookbuddy.model.ChatInboxEntry;
+import com.bookbuddy.bookbuddy.model.ChatUnreadCounter;
 import com.bookbuddy.bookbuddy.model.Message;
 import com.bookbuddy.bookbuddy.model.Request;
 import com.bookbuddy.bookbuddy.repository.ChatRepository;
+import com.bookbuddy.bookbuddy.repository.ChatUnreadCounterRepository;
 import com.bookbuddy.bookbuddy.repository.MessageRepository;
 import com.bookbuddy.bookbuddy.repository.RequestRepository;
+import com.bookbuddy.bookbuddy.service.ChatMembershipCache.Membership;
+import com.bookbuddy.bookbuddy.service.NotificationPublisher.Badge;
+import com.bookbuddy.bookbuddy.util.CursorPage;
+import com.bookbuddy.bookbuddy.util.KeysetCursor;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -26,19 +42,63 @@ import java.util.Map;
  */
 @Service
 @Transactional
+@Timed("bookbuddy.service")
 public class ChatService {
     
+    private static final Logger logger = LoggerFactory.getLogger(ChatService.class);
+    
     private final ChatRepository chatRepository;
     private final MessageRepository messageRepository;
     private final RequestRepository requestRepository;
+    private final ChatUnreadCounterRepository unreadCounterRepository;
+    private final NotificationPublisher notificationPublisher;
+    private final RecentMessageCache recentMessages;
+    private final MessageWriteBehind writeBehind;
+    private final ChatMembershipCache memberships;
+    private final LiveStats liveStats;
+    
+    // Keep per-(chat, user) unread counters instead of counting messages on every badge poll
+    @Value("${bookbuddy.chat.unread-counters.enabled:false}")
+    private boolean unreadCountersEnabled;
     
     @Autowired
     public ChatService(ChatRepository chatRepository, 
                       MessageRepository messageRepository,
-                      RequestRepository requestRepository) {
+                      RequestRepository requestRepository,
+                      ChatUnreadCounterRepository unreadCounterRepository,
+                      NotificationPublisher notificationPublisher,
+                      RecentMessageCache recentMessages,
+                      MessageWriteBehind writeBehind,
+                      ChatMembershipCache memberships,
+                      LiveStats liveStats) {
         this.chatRepository = chatRepository;
         this.messageRepository = messageRepository;
         this.requestRepository = requestRepository;
+        this.unreadCounterRepository = unreadCounterRepository;
+        this.notificationPublisher = notificationPublisher;
+        this.recentMessages = recentMessages;
+        this.writeBehind = writeBehind;
+        this.memberships = memberships;
+        this.liveStats = liveStats;
+        writeBehind.onDropped(this::messageDropped);
+    }
+    
+    /**
+     * Create missing unread counters at startup, so every chat has one per participant
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedUnreadCounters() {
+        if (!unreadCountersEnabled) {
+            return;
+        }
+        List<Chat> chats = chatRepository.findChatsWithoutUnreadCounters();
+        for (Chat chat : chats) {
+            createUnreadCounter(chat.getId(), chat.getUser1Id());
+            createUnreadCounter(chat.getId(), chat.getUser2Id());
+        }
+        if (!chats.isEmpty()) {
+            logger.info("Seeded unread counters for {} chats", chats.size());
+        }
     }
     
     /**
@@ -62,8 +122,18 @@ public class ChatService {
         
         // Add initial system message
         String systemMessage = getInitialSystemMessage(request);
-        Message message = new Message(chat.getId(), systemMessage, Message.MessageType.SYSTEM);
-        messageRepository.save(message);
+        Message message = saveMessage(new Message(chat.getId(), systemMessage, Message.MessageType.SYSTEM));
+        Chat created = chat;
+        AfterCommit.run(() -> {
+            memberships.update(created);
+            recentMessages.startChat(created.getId(), message);
+            liveStats.chatChanged(null, created.getStatus());
+        });
+        
+        if (unreadCountersEnabled) {
+            unreadCounterRepository.save(new ChatUnreadCounter(chat.getId(), chat.getUser1Id(), 0));
+            unreadCounterRepository.save(new ChatUnreadCounter(chat.getId(), chat.getUser2Id(), 0));
+        }
         
         return chat;
     }
@@ -72,7 +142,8 @@ public class ChatService {
      * Send a message in a chat
      */
     public Message sendMessage(Long chatId, Long senderId, String content) {
-        Chat chat = chatRepository.findById(chatId)
+        // Membership and status come from the cache: no chat read before the insert
+        Membership chat = memberships.get(chatId)
                 .orElseThrow(() -> new IllegalArgumentException("Chat not found"));
         
         if (!chat.isActive()) {
@@ -84,7 +155,50 @@ public class ChatService {
         }
         
         Message message = new Message(chatId, senderId, content);
-        return messageRepository.save(message);
+        if (writeBehind.isEnabled()) {
+            // Id and timestamp now, row later: the flusher batches the insert and updates the cache
+            Message queued = writeBehind.prepare(message);
+            AfterCommit.run(() -> writeBehind.enqueue(queued));
+        } else {
+            message = messageRepository.save(message);
+            cacheAfterCommit(message);
+        }
+        
+        Long recipientId = chat.getOtherUserId(senderId);
+        if (unreadCountersEnabled && unreadCounterRepository.increment(chatId, recipientId) == 0) {
+            createUnreadCounter(chatId, recipientId);
+            if (writeBehind.isEnabled()) {
+                // The new counter is a row count, and this message isn't a row yet
+                unreadCounterRepository.increment(chatId, recipientId);
+            }
+        }
+        notificationPublisher.publishDelta(recipientId, Badge.CHAT, 1);
+        
+        return message;
+    }
+    
+    /**
+     * The write-behind flusher couldn't insert a message that sendMessage already counted:
+     * take it back off the recipient's counter and have their badge reloaded
+     */
+    private void messageDropped(Message message) {
+        memberships.get(message.getChatId()).ifPresent(chat -> {
+            Long recipientId = chat.getOtherUserId(message.getSenderId());
+            // A read message was already cleared from the counter when the chat was read
+            if (unreadCountersEnabled && !Boolean.TRUE.equals(message.getIsRead())) {
+                unreadCounterRepository.decrement(message.getChatId(), recipientId);
+            }
+            notificationPublisher.publishRefresh(recipientId, Badge.CHAT);
+        });
+    }
+    
+    /**
+     * With write-behind and durable-ack on, wait until a sent message is in the database.
+     * Runs outside any transaction so waiting doesn't hold a pool connection.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void awaitPersisted(Message message) {
+        writeBehind.awaitPersisted(message);
     }
     
     /**
@@ -92,59 +206,106 @@ public class ChatService {
      */
     @Transactional(readOnly = true)
     public List<Message> getChatMessages(Long chatId) {
-        return messageRepository.findByChatIdOrderByCreatedAtAsc(chatId);
+        return recentMessages.all(chatId)
+                .orElseGet(() -> messageRepository.findByChatIdOrderByCreatedAtAsc(chatId));
+    }
+    
+    /**
+     * Get messages for a chat one page at a time, oldest first
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Message> getChatMessages(Long chatId, KeysetCursor after, int limit) {
+        int pageSize = CursorPage.clampLimit(limit);
+        List<Message> rows = messageRepository.findByChatIdPage(chatId,
+                after == null ? null : after.getCreatedAt(), after == null ? null : after.getId(),
+                PageRequest.of(0, pageSize + 1));
+        return CursorPage.fromLookahead(rows, pageSize,
+                message -> new KeysetCursor(message.getCreatedAt(), message.getId()));
+    }
+    
+    /**
+     * Get the latest messages of a chat before a cursor (null = the newest), returned oldest first.
+     * The next cursor points at the oldest message returned, so passing it back scrolls further into history.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Message> getLatestChatMessages(Long chatId, KeysetCursor before, int limit) {
+        int pageSize = CursorPage.clampLimit(limit);
+        List<Message> rows = before == null ? latestMessages(chatId, pageSize + 1)
+                : messageRepository.findByChatIdBefore(chatId, before.getCreatedAt(), before.getId(),
+                        PageRequest.of(0, pageSize + 1));
+        return CursorPage.fromLookahead(rows, pageSize,
+                        message -> new KeysetCursor(message.getCreatedAt(), message.getId()))
+                .map(newestFirst -> {
+                    List<Message> oldestFirst = new ArrayList<>(newestFirst);
+                    Collections.reverse(oldestFirst);
+                    return oldestFirst;
+                });
     }
     
     /**
      * Complete a chat (when exchange is completed)
      */
     public Chat completeChat(Long chatId, Long userId) {
+        // Reject from the cache first; only a valid transition loads the row it updates
+        requireParticipant(chatId, userId);
         Chat chat = chatRepository.findById(chatId)
                 .orElseThrow(() -> new IllegalArgumentException("Chat not found"));
         
-        if (!chat.involvesUser(userId)) {
-            throw new IllegalArgumentException("You are not part of this chat");
-        }
-        
         if (!chat.isActive()) {
             throw new IllegalArgumentException("Chat is not active");
         }
         
         chat.setStatus(Chat.ChatStatus.COMPLETED);
         chat = chatRepository.save(chat);
+        endLoanNotices(chat);
         
         // Add completion message
         Message message = new Message(chatId, "Exchange completed successfully!", Message.MessageType.EXCHANGE_COMPLETED);
-        messageRepository.save(message);
+        cacheAfterCommit(saveMessage(message));
         
-        return chat;
+        return chatClosed(chat);
     }
     
     /**
      * Cancel a chat (when exchange is cancelled)
      */
     public Chat cancelChat(Long chatId, Long userId) {
+        // Reject from the cache first; only a valid transition loads the row it updates
+        requireParticipant(chatId, userId);
         Chat chat = chatRepository.findById(chatId)
                 .orElseThrow(() -> new IllegalArgumentException("Chat not found"));
         
-        if (!chat.involvesUser(userId)) {
-            throw new IllegalArgumentException("You are not part of this chat");
-        }
-        
         if (!chat.isActive()) {
             throw new IllegalArgumentException("Chat is not active");
         }
         
         chat.setStatus(Chat.ChatStatus.CANCELLED);
         chat = chatRepository.save(chat);
+        endLoanNotices(chat);
         
         // Add cancellation message
         Message message = new Message(chatId, "Exchange was cancelled.", Message.MessageType.EXCHANGE_CANCELLED);
-        messageRepository.save(message);
+        cacheAfterCommit(saveMessage(message));
         
-        return chat;
+        return chatClosed(chat);
     }
     
+    /**
+     * Post a system message (no sender, already read) to an active chat
+     */
+    public Message postSystemMessage(Long chatId, String content) {
+        Membership chat = memberships.get(chatId)
+                .orElseThrow(() -> new IllegalArgumentException("Chat not found"));
+
+        if (!chat.isActive()) {
+            throw new IllegalArgumentException("Chat is not active");
+        }
+
+        Message message = saveMessage(new Message(chatId, content, Message.MessageType.SYSTEM));
+        cacheAfterCommit(message);
+        return message;
+    }
+
     /**
      * Find chat by ID
      */
@@ -153,6 +314,16 @@ public class ChatService {
         return chatRepository.findById(id);
     }
     
+    /**
+     * Whether a user is part of a chat, answered from the membership cache
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public boolean isParticipant(Long chatId, Long userId) {
+        return memberships.get(chatId)
+                .map(membership -> membership.involvesUser(userId))
+                .orElse(false);
+    }
+    
     /**
      * Find chat by request ID
      */
@@ -183,11 +354,13 @@ public class ChatService {
     @Transactional(readOnly = true)
     public Optional<Message> getLastMessage(Long chatId) {
         try {
-            Message message = messageRepository.findFirstByChatIdOrderByCreatedAtDesc(chatId);
-            return Optional.ofNullable(message);
+            Optional<Message> cached = recentMessages.lastMessage(chatId);
+            if (cached.isPresent()) {
+                return cached;
+            }
+            return Optional.ofNullable(messageRepository.findFirstByChatIdOrderByCreatedAtDesc(chatId));
         } catch (Exception e) {
-            // Log the exception for debugging
-            System.err.println("Error getting last message for chat " + chatId + ": " + e.getMessage());
+            logger.warn("Error getting last message for chat {}: {}", chatId, e.getMessage());
             return Optional.empty();
         }
     }
@@ -205,7 +378,25 @@ public class ChatService {
      */
     @Transactional(readOnly = true)
     public long getUnreadMessageCount(Long chatId, Long userId) {
-        return messageRepository.findUnreadMessagesByChatIdAndUserId(chatId, userId).size();
+        if (unreadCountersEnabled) {
+            Optional<Long> counter = unreadCounterRepository.findUnreadCount(chatId, userId);
+            if (counter.isPresent()) {
+                return counter.get();
+            }
+        }
+        return messageRepository.countUnreadMessagesByChatIdAndUserId(chatId, userId);
+    }
+    
+    /**
+     * Get unread message counts for every chat of a user in one query (chat ID -> count, chats with none omitted)
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Long> getUnreadMessageCounts(Long userId) {
+        Map<Long, Long> unreadByChat = new HashMap<>();
+        for (Object[] row : messageRepository.countUnreadMessagesByChatForUser(userId)) {
+            unreadByChat.put((Long) row[0], (Long) row[1]);
+        }
+        return unreadByChat;
     }
     
     /**
@@ -214,14 +405,52 @@ public class ChatService {
     @Transactional
     public void markMessagesAsRead(Long chatId, Long userId) {
         // Verify the user is part of this chat
-        Chat chat = chatRepository.findById(chatId)
-                .orElseThrow(() -> new IllegalArgumentException("Chat not found"));
+        requireParticipant(chatId, userId);
+        
+        // Messages still queued for write-behind aren't rows yet; the UPDATE can't reach them
+        writeBehind.markRead(chatId, userId);
+        messageRepository.markMessagesAsRead(chatId, userId);
+        AfterCommit.run(() -> recentMessages.markRead(chatId, userId));
         
+        if (unreadCountersEnabled && unreadCounterRepository.reset(chatId, userId) == 0) {
+            unreadCounterRepository.save(new ChatUnreadCounter(chatId, userId, 0));
+        }
+        notificationPublisher.publishRefresh(userId, Badge.CHAT);
+    }
+    
+    /**
+     * Membership of a chat the user must be part of
+     */
+    private Membership requireParticipant(Long chatId, Long userId) {
+        Membership chat = memberships.get(chatId)
+                .orElseThrow(() -> new IllegalArgumentException("Chat not found"));
         if (!chat.involvesUser(userId)) {
             throw new IllegalArgumentException("You are not part of this chat");
         }
-        
-        messageRepository.markMessagesAsRead(chatId, userId);
+        return chat;
+    }
+    
+    /**
+     * A closed chat has nobody to send loan reminders to
+     */
+    private void endLoanNotices(Chat chat) {
+        if (chat.getRequestId() != null) {
+            requestRepository.clearLendNotice(chat.getRequestId());
+        }
+    }
+    
+    /**
+     * The chat badge only counts active chats, so both participants need to reload it
+     */
+    private Chat chatClosed(Chat chat) {
+        Chat.ChatStatus status = chat.getStatus();
+        AfterCommit.run(() -> {
+            memberships.update(chat);
+            liveStats.chatChanged(Chat.ChatStatus.ACTIVE, status);
+        });
+        notificationPublisher.publishRefresh(chat.getUser1Id(), Badge.CHAT);
+        notificationPublisher.publishRefresh(chat.getUser2Id(), Badge.CHAT);
+        return chat;
     }
 
     /**
@@ -229,14 +458,10 @@ public class ChatService {
      */
     @Transactional(readOnly = true)
     public long getTotalUnreadMessageCount(Long userId) {
-        List<Chat> userChats = findActiveChatsByUser(userId);
-        long totalUnread = 0;
-        
-        for (Chat chat : userChats) {
-            totalUnread += getUnreadMessageCount(chat.getId(), userId);
+        if (unreadCountersEnabled) {
+            return unreadCounterRepository.sumUnreadInActiveChats(userId);
         }
-        
-        return totalUnread;
+        return messageRepository.countUnreadMessagesInActiveChats(userId);
     }
     
     /**
@@ -244,7 +469,25 @@ public class ChatService {
      */
     @Transactional(readOnly = true)
     public Message getLatestMessage(Long chatId) {
-        return messageRepository.findFirstByChatIdOrderByCreatedAtDesc(chatId);
+        return recentMessages.lastMessage(chatId)
+                .orElseGet(() -> messageRepository.findFirstByChatIdOrderByCreatedAtDesc(chatId));
+    }
+    
+    /**
+     * Get the chat inbox for a user: every chat with book, participants, last message and unread count.
+     * Always two queries, however many chats the user has.
+     */
+    @Transactional(readOnly = true)
+    public List<ChatInboxEntry> getInbox(Long userId) {
+        return loadInbox(userId, null);
+    }
+    
+    /**
+     * Get the inbox entries for a user's active chats
+     */
+    @Transactional(readOnly = true)
+    public List<ChatInboxEntry> getActiveInbox(Long userId) {
+        return loadInbox(userId, Chat.ChatStatus.ACTIVE);
     }
     
     /**
@@ -252,10 +495,10 @@ public class ChatService {
      */
     @Transactional(readOnly = true)
     public List<Map<String, Object>> getEnhancedActiveChatsForUser(Long userId) {
-        List<Chat> chats = findActiveChatsByUser(userId);
         List<Map<String, Object>> enhancedChats = new ArrayList<>();
         
-        for (Chat chat : chats) {
+        for (ChatInboxEntry entry : getActiveInbox(userId)) {
+            Chat chat = entry.getChat();
             Map<String, Object> enhancedChat = new HashMap<>();
             enhancedChat.put("id", chat.getId());
             enhancedChat.put("status", chat.getStatus());
@@ -263,11 +506,10 @@ public class ChatService {
             enhancedChat.put("updatedAt", chat.getUpdatedAt());
             
             // Get the other user's information
-            Long otherUserId = chat.getUser1Id().equals(userId) ? chat.getUser2Id() : chat.getUser1Id();
-            enhancedChat.put("otherUserId", otherUserId);
+            enhancedChat.put("otherUserId", entry.getOtherUserId(userId));
             
             // Get the latest message
-            Message latestMessage = getLatestMessage(chat.getId());
+            Message latestMessage = entry.getLastMessage();
             if (latestMessage != null) {
                 enhancedChat.put("lastMessage", latestMessage.getContent());
                 enhancedChat.put("lastMessageTime", latestMessage.getCreatedAt());
@@ -278,9 +520,7 @@ public class ChatService {
                 enhancedChat.put("lastMessageType", "SYSTEM");
             }
             
-            // Get unread count
-            long unreadCount = getUnreadMessageCount(chat.getId(), userId);
-            enhancedChat.put("unreadCount", unreadCount);
+            enhancedChat.put("unreadCount", entry.getUnreadCount());
             
             enhancedChats.add(enhancedChat);
         }
@@ -288,6 +528,64 @@ public class ChatService {
         return enhancedChats;
     }
     
+    /**
+     * Load inbox entries and attach the grouped unread counts
+     */
+    private List<ChatInboxEntry> loadInbox(Long userId, Chat.ChatStatus status) {
+        List<ChatInboxEntry> entries = chatRepository.findInboxByUserId(userId, status);
+        if (entries.isEmpty()) {
+            return entries;
+        }
+        
+        Map<Long, Long> unreadByChat = getUnreadMessageCounts(userId);
+        for (ChatInboxEntry entry : entries) {
+            entry.setUnreadCount(unreadByChat.getOrDefault(entry.getChat().getId(), 0L));
+        }
+        return entries;
+    }
+    
+    /**
+     * The newest count messages of a chat, newest first: from the recent-message cache when it
+     * can answer, otherwise from the database (and the result seeds the cache)
+     */
+    private List<Message> latestMessages(Long chatId, int count) {
+        Optional<List<Message>> cached = recentMessages.latest(chatId, count);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        long token = recentMessages.beginLoad(chatId);
+        List<Message> rows = messageRepository.findByChatIdBefore(chatId, null, null, PageRequest.of(0, count));
+        recentMessages.fill(chatId, rows, rows.size() < count, token);
+        return rows;
+    }
+    
+    /**
+     * Insert a message as part of the current transaction
+     */
+    private Message saveMessage(Message message) {
+        if (writeBehind.isEnabled()) {
+            // Ids come from the allocator in this mode, so every insert has to take one
+            writeBehind.insertNow(writeBehind.prepare(message));
+            return message;
+        }
+        return messageRepository.save(message);
+    }
+    
+    /**
+     * Keep the recent-message cache in step once the message is actually committed
+     */
+    private void cacheAfterCommit(Message message) {
+        AfterCommit.run(() -> recentMessages.append(message));
+    }
+    
+    /**
+     * Create a counter for a user in a chat, starting from the current number of unread messages
+     */
+    private void createUnreadCounter(Long chatId, Long userId) {
+        long unread = messageRepository.countUnreadMessagesByChatIdAndUserId(chatId, userId);
+        unreadCounterRepository.save(new ChatUnreadCounter(chatId, userId, unread));
+    }
+    
     /**
      * Generate initial system message based on request type
      */
@@ -296,6 +594,10 @@ public class ChatService {
             case GIVE_AWAY:
                 return "Give away request accepted! You can now arrange the pickup details.";
             case LEND:
+                if (request.getDueAt() != null) {
+                    return "Lending request accepted! You can now arrange the pickup and return details. "
+                            + "The book is due back on " + LoanDueDates.formatDate(request.getDueAt()) + ".";
+                }
                 return "Lending request accepted! You can now arrange the pickup and return details.";
             case SWAP:
                 return "Swap request accepted! You can now arrange the book exchange details.";
@@ -12,7 +12,6 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
 /**
  *
  * @author holiday
@@ -34,10 +33,6 @@ public class CustomUserDetailsService implements UserDetailsService{
         User user = userRepository.findByEmail(email)//checks with database for that email
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
 
-        return org.springframework.security.core.userdetails.User.builder()
-                .username(user.getEmail())
-                .password(user.getPassword())
-                .authorities(new ArrayList<>()) // No roles for now, just empty list
-                .build();
+        return new BookBuddyUserDetails(user);//also carries the user id so later requests don't look it up again
     }
 }
@@ -0,0 +1,292 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.bookbuddy.bookbuddy.service;
+
+import com.bookbuddy.bookbuddy.model.Book;
+import com.bookbuddy.bookbuddy.model.Chat;
+import com.bookbuddy.bookbuddy.model.Request;
+import com.bookbuddy.bookbuddy.repository.BookRepository;
+import com.bookbuddy.bookbuddy.repository.ChatRepository;
+import com.bookbuddy.bookbuddy.repository.RequestRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Live site statistics: book counts by status and sharing type, located books, requests and
+ * chats by status. The services report every state transition after it commits, so a read is a
+ * copy of a few counters instead of a query. A periodic reconcile replaces the counters with
+ * aggregate SQL counts to correct any drift (changes made outside the services, lost updates).
+ * @author holiday
+ */
+@Component
+public class LiveStats {
+
+    private static final Logger logger = LoggerFactory.getLogger(LiveStats.class);
+
+    // Reconcile gives up for this round if transitions keep landing while it counts
+    private static final int RECONCILE_ATTEMPTS = 3;
+
+    private final BookRepository bookRepository;
+    private final RequestRepository requestRepository;
+    private final ChatRepository chatRepository;
+
+    private final Object lock = new Object();
+    private final Map<Book.BookStatus, Long> booksByStatus = new EnumMap<>(Book.BookStatus.class);
+    private final Map<Book.SharingType, Long> availableBySharingType = new EnumMap<>(Book.SharingType.class);
+    private long locatedAvailable;
+    private final Map<Request.RequestStatus, Long> requestsByStatus = new EnumMap<>(Request.RequestStatus.class);
+    private final Map<Chat.ChatStatus, Long> chatsByStatus = new EnumMap<>(Chat.ChatStatus.class);
+    // Bumped by every transition; a reconcile is only applied if nothing changed while it counted
+    private long version;
+    private boolean reconciled;
+
+    @Autowired
+    public LiveStats(BookRepository bookRepository, RequestRepository requestRepository, ChatRepository chatRepository) {
+        this.bookRepository = bookRepository;
+        this.requestRepository = requestRepository;
+        this.chatRepository = chatRepository;
+    }
+
+    /**
+     * A book was listed (before == null), changed, or deleted (after == null)
+     */
+    public void bookChanged(BookState before, BookState after) {
+        synchronized (lock) {
+            version++;
+            if (before != null) {
+                countBook(before, -1);
+            }
+            if (after != null) {
+                countBook(after, 1);
+            }
+        }
+    }
+
+    /**
+     * A request was created (before == null) or moved from one status to another
+     */
+    public void requestChanged(Request.RequestStatus before, Request.RequestStatus after) {
+        synchronized (lock) {
+            version++;
+            if (before != null) {
+                requestsByStatus.merge(before, -1L, Long::sum);
+            }
+            requestsByStatus.merge(after, 1L, Long::sum);
+        }
+    }
+
+    /**
+     * A chat was created (before == null) or moved from one status to another
+     */
+    public void chatChanged(Chat.ChatStatus before, Chat.ChatStatus after) {
+        synchronized (lock) {
+            version++;
+            if (before != null) {
+                chatsByStatus.merge(before, -1L, Long::sum);
+            }
+            chatsByStatus.merge(after, 1L, Long::sum);
+        }
+    }
+
+    /**
+     * The current counters
+     */
+    public Snapshot snapshot() {
+        synchronized (lock) {
+            return new Snapshot(booksByStatus, availableBySharingType, locatedAvailable,
+                    requestsByStatus, chatsByStatus, reconciled);
+        }
+    }
+
+    /**
+     * Replace the counters with aggregate counts from the database
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${bookbuddy.stats.reconcile-interval-ms:300000}",
+               initialDelayString = "${bookbuddy.stats.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        for (int attempt = 0; attempt < RECONCILE_ATTEMPTS; attempt++) {
+            long startVersion;
+            synchronized (lock) {
+                startVersion = version;
+            }
+
+            Map<Book.BookStatus, Long> books = new EnumMap<>(Book.BookStatus.class);
+            Map<Book.SharingType, Long> available = new EnumMap<>(Book.SharingType.class);
+            for (Object[] row : bookRepository.countByStatusAndSharingType()) {
+                Book.BookStatus status = (Book.BookStatus) row[0];
+                long count = (Long) row[2];
+                books.merge(status, count, Long::sum);
+                if (status == Book.BookStatus.AVAILABLE) {
+                    available.merge((Book.SharingType) row[1], count, Long::sum);
+                }
+            }
+            long located = bookRepository.countAvailableBooksWithLocation();
+            Map<Request.RequestStatus, Long> requests = new EnumMap<>(Request.RequestStatus.class);
+            for (Object[] row : requestRepository.countByStatus()) {
+                requests.put((Request.RequestStatus) row[0], (Long) row[1]);
+            }
+            Map<Chat.ChatStatus, Long> chats = new EnumMap<>(Chat.ChatStatus.class);
+            for (Object[] row : chatRepository.countByStatus()) {
+                chats.put((Chat.ChatStatus) row[0], (Long) row[1]);
+            }
+
+            synchronized (lock) {
+                if (version != startVersion) {
+                    continue;
+                }
+                if (reconciled && (!books.equals(nonZero(booksByStatus)) || located != locatedAvailable
+                        || !requests.equals(nonZero(requestsByStatus)) || !chats.equals(nonZero(chatsByStatus)))) {
+                    logger.info("Live stats drifted from the database, reset to the aggregate counts");
+                }
+                replace(booksByStatus, books);
+                replace(availableBySharingType, available);
+                locatedAvailable = located;
+                replace(requestsByStatus, requests);
+                replace(chatsByStatus, chats);
+                reconciled = true;
+                return;
+            }
+        }
+        logger.debug("Live stats reconcile skipped, transitions kept arriving while counting");
+    }
+
+    private void countBook(BookState state, long delta) {
+        booksByStatus.merge(state.status, delta, Long::sum);
+        if (state.status == Book.BookStatus.AVAILABLE) {
+            if (state.sharingType != null) {
+                availableBySharingType.merge(state.sharingType, delta, Long::sum);
+            }
+            if (state.located) {
+                locatedAvailable += delta;
+            }
+        }
+    }
+
+    private static <K> Map<K, Long> nonZero(Map<K, Long> counts) {
+        Map<K, Long> copy = new HashMap<>();
+        counts.forEach((key, count) -> {
+            if (count != 0) {
+                copy.put(key, count);
+            }
+        });
+        return copy;
+    }
+
+    private static <K> void replace(Map<K, Long> target, Map<K, Long> counts) {
+        target.clear();
+        target.putAll(counts);
+    }
+
+    /**
+     * What a book contributes to the counters; taken before and after a change
+     */
+    public static final class BookState {
+        private final Book.BookStatus status;
+        private final Book.SharingType sharingType;
+        private final boolean located;
+
+        private BookState(Book.BookStatus status, Book.SharingType sharingType, boolean located) {
+            this.status = status;
+            this.sharingType = sharingType;
+            this.located = located;
+        }
+
+        public static BookState of(Book book) {
+            return new BookState(book.getStatus(), book.getSharingType(),
+                    book.getPickupLatitude() != null && book.getPickupLongitude() != null);
+        }
+    }
+
+    /**
+     * A point-in-time copy of the counters
+     */
+    public static final class Snapshot {
+        private final Map<Book.BookStatus, Long> booksByStatus;
+        private final Map<Book.SharingType, Long> availableBooksBySharingType;
+        private final long locatedBooks;
+        private final Map<Request.RequestStatus, Long> requestsByStatus;
+        private final Map<Chat.ChatStatus, Long> chatsByStatus;
+        private final boolean reconciled;
+
+        private Snapshot(Map<Book.BookStatus, Long> booksByStatus,
+                         Map<Book.SharingType, Long> availableBooksBySharingType,
+                         long locatedBooks,
+                         Map<Request.RequestStatus, Long> requestsByStatus,
+                         Map<Chat.ChatStatus, Long> chatsByStatus,
+                         boolean reconciled) {
+            this.booksByStatus = withZeros(booksByStatus, Book.BookStatus.class);
+            this.availableBooksBySharingType = withZeros(availableBooksBySharingType, Book.SharingType.class);
+            this.locatedBooks = locatedBooks;
+            this.requestsByStatus = withZeros(requestsByStatus, Request.RequestStatus.class);
+            this.chatsByStatus = withZeros(chatsByStatus, Chat.ChatStatus.class);
+            this.reconciled = reconciled;
+        }
+
+        private static <K extends Enum<K>> Map<K, Long> withZeros(Map<K, Long> counts, Class<K> type) {
+            Map<K, Long> copy = new EnumMap<>(type);
+            for (K key : type.getEnumConstants()) {
+                copy.put(key, counts.getOrDefault(key, 0L));
+            }
+            return Collections.unmodifiableMap(copy);
+        }
+
+        public long getAvailableBooks() {
+            return booksByStatus.get(Book.BookStatus.AVAILABLE);
+        }
+
+        /**
+         * Available books with a pickup location
+         */
+        public long getLocatedBooks() {
+            return locatedBooks;
+        }
+
+        public Map<Book.BookStatus, Long> getBooksByStatus() {
+            return booksByStatus;
+        }
+
+        public Map<Book.SharingType, Long> getAvailableBooksBySharingType() {
+            return availableBooksBySharingType;
+        }
+
+        /**
+         * Pending and accepted requests
+         */
+        public long getActiveRequests() {
+            return requestsByStatus.get(Request.RequestStatus.PENDING)
+                    + requestsByStatus.get(Request.RequestStatus.ACCEPTED);
+        }
+
+        public Map<Request.RequestStatus, Long> getRequestsByStatus() {
+            return requestsByStatus;
+        }
+
+        public long getActiveChats() {
+            return chatsByStatus.get(Chat.ChatStatus.ACTIVE);
+        }
+
+        public Map<Chat.ChatStatus, Long> getChatsByStatus() {
+            return chatsByStatus;
+        }
+
+        /**
+         * False until the first reconcile, when the counters only hold changes since startup
+         */
+        public boolean isReconciled() {
+            return reconciled;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.bookbuddy.bookbuddy.service;
+
+import com.bookbuddy.bookbuddy.model.Book;
+import com.bookbuddy.bookbuddy.model.Chat;
+import com.bookbuddy.bookbuddy.model.Message;
+import com.bookbuddy.bookbuddy.model.Request;
+import com.bookbuddy.bookbuddy.repository.BookRepository;
+import com.bookbuddy.bookbuddy.repository.ChatRepository;
+import com.bookbuddy.bookbuddy.repository.RequestRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Due dates of lent books. Accepting a lend request sets due_at from the requested duration and
+ * schedules a reminder before it; at due_at an overdue notice follows, repeated until the book
+ * is returned. Notices are SYSTEM messages in the loan's chat.
+ * <p>
+ * The next notice of each open loan is the indexed lend_notice_at column (null once the loan
+ * is returned or its chat closes), so a poll is a range scan over the notices that are due,
+ * batch-size rows at a time, however many loans are open. Each notice is claimed with a
+ * conditional update and posted in its own transaction, so a loan returned meanwhile or a
+ * second instance polling never sends it twice, and one failing notice doesn't hold back the rest.
+ * @author holiday
+ */
+@Component
+public class LoanDueDates {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoanDueDates.class);
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("EEE d MMM yyyy", Locale.ENGLISH);
+
+    /**
+     * Kind of notice a loan is due for
+     */
+    public enum Notice {
+        REMINDER,
+        OVERDUE
+    }
+
+    private final RequestRepository requestRepository;
+    private final ChatRepository chatRepository;
+    private final BookRepository bookRepository;
+    private final ChatService chatService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration reminderBefore;
+    private final Duration overdueRepeat;
+    private final int batchSize;
+
+    @Autowired
+    public LoanDueDates(RequestRepository requestRepository,
+                        ChatRepository chatRepository,
+                        BookRepository bookRepository,
+                        ChatService chatService,
+                        SimpMessagingTemplate messagingTemplate,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${bookbuddy.lending.reminder-before-hours:24}") long reminderBeforeHours,
+                        @Value("${bookbuddy.lending.overdue-repeat-days:3}") long overdueRepeatDays,
+                        @Value("${bookbuddy.lending.batch-size:200}") int batchSize) {
+        this.requestRepository = requestRepository;
+        this.chatRepository = chatRepository;
+        this.bookRepository = bookRepository;
+        this.chatService = chatService;
+        this.messagingTemplate = messagingTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.reminderBefore = Duration.ofHours(Math.max(0, reminderBeforeHours));
+        this.overdueRepeat = Duration.ofDays(Math.max(0, overdueRepeatDays));
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * A lend request was accepted: set its due date and schedule the first notice (saved with the request)
+     */
+    public void loanStarted(Request request) {
+        if (request.getRequestedDurationDays() == null) {
+            return;
+        }
+        LocalDateTime now = now();
+        LocalDateTime dueAt = now.plusDays(request.getRequestedDurationDays());
+        request.setDueAt(dueAt);
+        request.setLendNoticeAt(firstNoticeAt(now, dueAt, reminderBefore));
+    }
+
+    /**
+     * The book came back: nothing more to send
+     */
+    public void loanEnded(Request request) {
+        request.setLendNoticeAt(null);
+    }
+
+    /**
+     * Send every notice that is due
+     */
+    @Scheduled(fixedDelayString = "${bookbuddy.lending.poll-interval-ms:60000}",
+               initialDelayString = "${bookbuddy.lending.poll-interval-ms:60000}")
+    public void sendDueNotices() {
+        sendDueNotices(now());
+    }
+
+    /**
+     * Send every notice due by the given time; returns how many loans were handled
+     */
+    public int sendDueNotices(LocalDateTime now) {
+        int handled = 0;
+        // Notices that failed stay due for the next poll; this one reads past them
+        Set<Long> failed = new HashSet<>();
+        while (true) {
+            int limit = batchSize + failed.size();
+            DueBatch batch = transactionTemplate.execute(status -> readBatch(now, limit));
+            for (Request loan : batch.loans) {
+                if (failed.contains(loan.getId())) {
+                    continue;
+                }
+                try {
+                    if (Boolean.TRUE.equals(transactionTemplate.execute(status -> sendNotice(loan,
+                            batch.chats.get(loan.getId()), batch.books.get(loan.getBookId()), now)))) {
+                        handled++;
+                    }
+                } catch (RuntimeException e) {
+                    // Rolled back together with its claim, so only this notice waits for the next poll
+                    failed.add(loan.getId());
+                    logger.warn("Sending the loan notice for request {} failed: {}", loan.getId(), e.getMessage());
+                }
+            }
+            if (batch.loans.size() < limit) {
+                break;
+            }
+        }
+        if (handled > 0 || !failed.isEmpty()) {
+            logger.info("Handled {} loan reminder/overdue notices, {} failed", handled, failed.size());
+        }
+        return handled;
+    }
+
+    /**
+     * The oldest due notices with their chats and books
+     */
+    private DueBatch readBatch(LocalDateTime now, int limit) {
+        DueBatch batch = new DueBatch(requestRepository.findDueLendNotices(now, PageRequest.of(0, limit)));
+        if (batch.loans.isEmpty()) {
+            return batch;
+        }
+        chatRepository.findByRequestIdIn(batch.loans.stream().map(Request::getId).toList())
+                .forEach(chat -> batch.chats.put(chat.getRequestId(), chat));
+        bookRepository.findAllById(batch.loans.stream().map(Request::getBookId).distinct().toList())
+                .forEach(book -> batch.books.put(book.getId(), book));
+        return batch;
+    }
+
+    /**
+     * Claim and post one loan's notice; false if the claim was lost
+     */
+    private boolean sendNotice(Request loan, Chat chat, Book book, LocalDateTime now) {
+        if (chat == null || !chat.isActive()) {
+            // Nobody left to tell: end the schedule so the loan isn't read again every poll
+            return requestRepository.advanceLendNotice(loan.getId(), loan.getLendNoticeAt(), null) > 0;
+        }
+        Notice notice = noticeDue(now, loan.getDueAt());
+        LocalDateTime next = nextNoticeAt(notice, now, loan.getDueAt(), overdueRepeat);
+        if (requestRepository.advanceLendNotice(loan.getId(), loan.getLendNoticeAt(), next) == 0) {
+            return false;
+        }
+        Message message = chatService.postSystemMessage(chat.getId(), noticeText(notice, book, loan.getDueAt(), now));
+        AfterCommit.run(() -> push(message));
+        return true;
+    }
+
+    /**
+     * Show the notice to anyone with the chat open, in the shape ChatController sends messages
+     */
+    private void push(Message message) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("id", message.getId());
+        payload.put("chatId", message.getChatId());
+        payload.put("senderId", message.getSenderId());
+        payload.put("content", message.getContent());
+        payload.put("messageType", message.getMessageType());
+        payload.put("createdAt", message.getCreatedAt());
+        messagingTemplate.convertAndSend("/topic/chat/" + message.getChatId(), payload);
+    }
+
+    /**
+     * When the first notice of a loan is due: the reminder, or straight to the due date when
+     * the loan is too short for a reminder to make sense
+     */
+    static LocalDateTime firstNoticeAt(LocalDateTime now, LocalDateTime dueAt, Duration reminderBefore) {
+        LocalDateTime reminderAt = dueAt.minus(reminderBefore);
+        return reminderBefore.isZero() || !reminderAt.isAfter(now) ? dueAt : reminderAt;
+    }
+
+    /**
+     * Reminder before the due date, overdue from it on (also when polling fell behind past it)
+     */
+    static Notice noticeDue(LocalDateTime now, LocalDateTime dueAt) {
+        return now.isBefore(dueAt) ? Notice.REMINDER : Notice.OVERDUE;
+    }
+
+    /**
+     * When the notice after this one is due: the due date after a reminder, then every
+     * overdueRepeat (null when overdue notices aren't repeated)
+     */
+    static LocalDateTime nextNoticeAt(Notice sent, LocalDateTime now, LocalDateTime dueAt, Duration overdueRepeat) {
+        if (sent == Notice.REMINDER) {
+            return dueAt;
+        }
+        return overdueRepeat.isZero() ? null : now.plus(overdueRepeat);
+    }
+
+    static String noticeText(Notice notice, Book book, LocalDateTime dueAt, LocalDateTime now) {
+        String title = book == null ? "The book" : "\"" + book.getTitle() + "\"";
+        if (notice == Notice.REMINDER) {
+            return "Reminder: " + title + " is due back on " + formatDate(dueAt) + ".";
+        }
+        long daysLate = ChronoUnit.DAYS.between(dueAt, now);
+        String late = daysLate < 1 ? "is now overdue" : "is " + daysLate + (daysLate == 1 ? " day" : " days") + " overdue";
+        return title + " was due back on " + formatDate(dueAt) + " and " + late + ". Please arrange the return.";
+    }
+
+    static String formatDate(LocalDateTime dateTime) {
+        return DATE_FORMAT.format(dateTime);
+    }
+
+    private static final class DueBatch {
+        private final List<Request> loans;
+        private final Map<Long, Chat> chats = new HashMap<>();
+        private final Map<Long, Book> books = new HashMap<>();
+
+        DueBatch(List<Request> loans) {
+            this.loans = loans;
+        }
+    }
+
+    private static LocalDateTime now() {
+        // Stored with microsecond precision; the claim compares the value read back exactly
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.bookbuddy.bookbuddy.service;
+
+import com.bookbuddy.bookbuddy.model.Message;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hands out message ids for the write-behind from the generator Hibernate uses for Message, so
+ * a message has its id before it is inserted and write-behind and JPA inserts share one id space
+ * (switching the write-behind off never reuses an id). The pooled optimizer goes to messages_seq
+ * once per 50 ids; the stateless session opened per call only takes a connection for that.
+ * @author holiday
+ */
+@Component
+public class MessageIdAllocator {
+
+    private final SessionFactoryImplementor sessionFactory;
+    private final BeforeExecutionGenerator generator;
+
+    @Autowired
+    public MessageIdAllocator(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        this.generator = (BeforeExecutionGenerator) sessionFactory.getMappingMetamodel()
+                .getEntityDescriptor(Message.class)
+                .getGenerator();
+    }
+
+    /**
+     * Next message id
+     */
+    public long nextId() {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            return (Long) generator.generate((SharedSessionContractImplementor) session, null, null, EventType.INSERT);
+        }
+    }
+}
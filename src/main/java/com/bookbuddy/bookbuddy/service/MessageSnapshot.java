@@ -0,0 +1,34 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.bookbuddy.bookbuddy.service;
+
+import com.bookbuddy.bookbuddy.model.Message;
+
+/**
+ * Detached copies of messages for the recent-message cache, so neither the saved entity
+ * nor a list already handed out changes under it
+ * @author holiday
+ */
+final class MessageSnapshot {
+
+    private MessageSnapshot() {
+    }
+
+    static Message of(Message source) {
+        return of(source, source.getIsRead());
+    }
+
+    static Message of(Message source, Boolean isRead) {
+        Message copy = new Message();
+        copy.setId(source.getId());
+        copy.setChatId(source.getChatId());
+        copy.setSenderId(source.getSenderId());
+        copy.setContent(source.getContent());
+        copy.setMessageType(source.getMessageType());
+        copy.setCreatedAt(source.getCreatedAt());
+        copy.setIsRead(isRead);
+        return copy;
+    }
+}
@@ -0,0 +1,361 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.bookbuddy.bookbuddy.service;
+
+import com.bookbuddy.bookbuddy.model.Message;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Optional write-behind for chat messages. Messages get their id from MessageIdAllocator up front,
+ * are broadcast straight away, and are inserted into messages in JDBC batches by a background
+ * thread, every flush interval or as soon as a batch fills up.
+ * <p>
+ * With durable-ack on, awaitPersisted blocks the sender until its batch is committed; call it
+ * outside any transaction so waiting senders don't hold pool connections the flusher needs.
+ * With it off, a crash can lose the messages of the last flush interval.
+ * <p>
+ * Marking a chat read leaves a per-chat read mark here, because the read UPDATE can't see rows
+ * that are still queued: queued messages the mark covers are inserted as read, and rows of a batch
+ * that was already in flight are marked read right after it commits.
+ * <p>
+ * The sender's transaction already counted the message as unread for the recipient, so a message
+ * that can't be inserted is handed to the drop listener to take it back out.
+ * @author holiday
+ */
+@Component
+public class MessageWriteBehind {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageWriteBehind.class);
+
+    private static final String MARK_READ_SQL = "UPDATE messages SET is_read = TRUE WHERE id = ?";
+
+    private static final long READ_MARK_RETENTION_MS = 60_000;
+
+    private static final String INSERT_SQL = "INSERT INTO messages "
+            + "(id, chat_id, sender_id, content, message_type, created_at, is_read) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final long DURABLE_ACK_TIMEOUT_MS = 5000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MessageIdAllocator idAllocator;
+    private final RecentMessageCache recentMessages;
+
+    private final boolean enabled;
+    private final boolean durableAck;
+    private final long flushIntervalMs;
+    private final int batchSize;
+
+    private final ConcurrentLinkedQueue<Message> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Map<Long, CompletableFuture<Void>> pending = new ConcurrentHashMap<>();
+    // chat id -> reader id -> when the reader last marked the chat read
+    private final Map<Long, Map<Long, LocalDateTime>> readMarks = new ConcurrentHashMap<>();
+    private volatile Consumer<Message> dropListener = message -> { };
+    private ScheduledExecutorService flusher;
+
+    @Autowired
+    public MessageWriteBehind(JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              MessageIdAllocator idAllocator,
+                              RecentMessageCache recentMessages,
+                              @Value("${bookbuddy.chat.write-behind.enabled:false}") boolean enabled,
+                              @Value("${bookbuddy.chat.write-behind.durable-ack:false}") boolean durableAck,
+                              @Value("${bookbuddy.chat.write-behind.flush-interval-ms:50}") long flushIntervalMs,
+                              @Value("${bookbuddy.chat.write-behind.batch-size:200}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.idAllocator = idAllocator;
+        this.recentMessages = recentMessages;
+        this.enabled = enabled;
+        this.durableAck = durableAck;
+        this.flushIntervalMs = flushIntervalMs;
+        this.batchSize = batchSize;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "message-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushSafely, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        logger.info("Message write-behind enabled (batch {}, every {} ms, durable ack {})",
+                batchSize, flushIntervalMs, durableAck);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        flusher.awaitTermination(5, TimeUnit.SECONDS);
+        // Whatever is still queued goes out on the shutdown thread
+        while (flush() > 0) {
+            // keep draining
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Called, in its own transaction, for each message the flusher had to drop
+     */
+    public void onDropped(Consumer<Message> listener) {
+        this.dropListener = listener;
+    }
+
+    /**
+     * Give a new message its id and timestamp, as the database would on insert
+     */
+    public Message prepare(Message message) {
+        message.setId(idAllocator.nextId());
+        message.setCreatedAt(now());
+        if (message.getIsRead() == null) {
+            message.setIsRead(false);
+        }
+        return message;
+    }
+
+    /**
+     * Queue a prepared message for the next batch
+     */
+    public void enqueue(Message message) {
+        if (durableAck) {
+            pending.put(message.getId(), new CompletableFuture<>());
+        }
+        queue.add(message);
+        if (queued.incrementAndGet() >= batchSize && flusher != null) {
+            flusher.execute(this::flushSafely);
+        }
+    }
+
+    /**
+     * A participant read a chat: its queued messages to them are written as read.
+     * Call before the read UPDATE, so a batch committing in between is caught by one or the other.
+     */
+    public void markRead(Long chatId, Long readerId) {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime at = now();
+        readMarks.compute(chatId, (id, marks) -> {
+            Map<Long, LocalDateTime> updated = marks == null ? new ConcurrentHashMap<>() : marks;
+            updated.put(readerId, at);
+            return updated;
+        });
+    }
+
+    /**
+     * Insert a prepared message right away, inside the caller's transaction
+     * (system messages that must commit together with a chat status change)
+     */
+    public void insertNow(Message message) {
+        jdbcTemplate.update(INSERT_SQL, ps -> bind(ps, message));
+    }
+
+    /**
+     * With durable-ack on, wait until the message's batch has been committed. No-op otherwise.
+     */
+    public void awaitPersisted(Message message) {
+        CompletableFuture<Void> done = message == null ? null : pending.get(message.getId());
+        if (done == null) {
+            return;
+        }
+        try {
+            done.get(DURABLE_ACK_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while saving message");
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Message could not be saved");
+        }
+    }
+
+    /**
+     * Write one batch of queued messages; returns how many were taken off the queue
+     */
+    public int flush() {
+        List<Message> batch = new ArrayList<>(batchSize);
+        Message message;
+        while (batch.size() < batchSize && (message = queue.poll()) != null) {
+            batch.add(message);
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        queued.addAndGet(-batch.size());
+        for (Message queuedMessage : batch) {
+            if (isReadMarked(queuedMessage)) {
+                queuedMessage.setIsRead(true);
+            }
+        }
+
+        List<Message> written;
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), MessageWriteBehind::bind));
+            written = batch;
+        } catch (Exception e) {
+            logger.warn("Batch insert of {} messages failed, retrying one by one: {}", batch.size(), e.getMessage());
+            written = insertOneByOne(batch);
+        }
+        markReadSinceBind(written);
+
+        for (Message saved : written) {
+            recentMessages.append(saved);
+            CompletableFuture<Void> done = pending.remove(saved.getId());
+            if (done != null) {
+                done.complete(null);
+            }
+        }
+        return batch.size();
+    }
+
+    public int getQueuedCount() {
+        return queued.get();
+    }
+
+    private void flushSafely() {
+        try {
+            while (flush() == batchSize) {
+                // a full batch means there may be more waiting
+            }
+            if (queued.get() == 0) {
+                sweepReadMarks();
+            }
+        } catch (Exception e) {
+            logger.error("Message write-behind flush failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * A bad row must not take its whole batch down: insert individually and drop only what fails
+     */
+    private List<Message> insertOneByOne(List<Message> batch) {
+        List<Message> written = new ArrayList<>(batch.size());
+        for (Message message : batch) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> insertNow(message));
+                written.add(message);
+            } catch (Exception e) {
+                logger.error("Dropping message {} in chat {}: {}", message.getId(), message.getChatId(), e.getMessage());
+                CompletableFuture<Void> done = pending.remove(message.getId());
+                if (done != null) {
+                    done.completeExceptionally(e);
+                }
+                notifyDropped(message);
+            }
+        }
+        return written;
+    }
+
+    private void notifyDropped(Message message) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> dropListener.accept(message));
+        } catch (Exception e) {
+            logger.warn("Undoing the unread count of dropped message {} failed: {}", message.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Whether a queued message was read before it got into the database
+     */
+    private boolean isReadMarked(Message message) {
+        if (Boolean.TRUE.equals(message.getIsRead()) || message.getMessageType() != Message.MessageType.TEXT) {
+            return false;
+        }
+        Map<Long, LocalDateTime> marks = readMarks.get(message.getChatId());
+        if (marks == null) {
+            return false;
+        }
+        for (Map.Entry<Long, LocalDateTime> mark : marks.entrySet()) {
+            if (!mark.getKey().equals(message.getSenderId()) && !message.getCreatedAt().isAfter(mark.getValue())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A chat read while the batch was in flight missed its rows: mark them read now
+     */
+    private void markReadSinceBind(List<Message> written) {
+        List<Message> missed = written.stream().filter(this::isReadMarked).toList();
+        if (missed.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(MARK_READ_SQL, missed,
+                    missed.size(), (ps, message) -> ps.setLong(1, message.getId())));
+            missed.forEach(message -> message.setIsRead(true));
+        } catch (Exception e) {
+            logger.warn("Marking {} flushed messages read failed: {}", missed.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Drop read marks nothing queued can still be covered by. Runs with the queue empty, and keeps
+     * marks for a while so messages prepared in a sender's open transaction still see them.
+     */
+    private void sweepReadMarks() {
+        LocalDateTime cutoff = now().minus(READ_MARK_RETENTION_MS, ChronoUnit.MILLIS);
+        for (Long chatId : readMarks.keySet()) {
+            readMarks.computeIfPresent(chatId, (id, marks) -> {
+                marks.values().removeIf(at -> at.isBefore(cutoff));
+                return marks.isEmpty() ? null : marks;
+            });
+        }
+    }
+
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    private static void bind(PreparedStatement ps, Message message) throws SQLException {
+        ps.setLong(1, message.getId());
+        ps.setLong(2, message.getChatId());
+        ps.setLong(3, message.getSenderId());
+        ps.setString(4, message.getContent());
+        ps.setString(5, message.getMessageType().name());
+        ps.setTimestamp(6, Timestamp.valueOf(message.getCreatedAt()));
+        ps.setBoolean(7, Boolean.TRUE.equals(message.getIsRead()));
+    }
+}
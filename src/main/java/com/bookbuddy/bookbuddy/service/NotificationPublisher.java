@@ -0,0 +1,85 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.bookbuddy.bookbuddy.service;
+
+import com.bookbuddy.bookbuddy.model.User;
+import com.bookbuddy.bookbuddy.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Pushes notification badge changes to users over STOMP (/user/queue/notifications)
+ * so open tabs don't have to poll the badge count endpoints.
+ * Messages are sent after the surrounding transaction commits; failures are logged, never thrown.
+ * @author holiday
+ */
+@Component
+public class NotificationPublisher {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationPublisher.class);
+
+    public static final String DESTINATION = "/queue/notifications";
+
+    /**
+     * Badge that a notification applies to
+     */
+    public enum Badge {
+        RECEIVED_REQUESTS,
+        SENT_REQUESTS,
+        CHAT
+    }
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final UserRepository userRepository;
+
+    @Autowired
+    public NotificationPublisher(SimpMessagingTemplate messagingTemplate, UserRepository userRepository) {
+        this.messagingTemplate = messagingTemplate;
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Tell a user's open tabs to add delta to a badge
+     */
+    public void publishDelta(Long userId, Badge badge, int delta) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("type", badge.name());
+        payload.put("delta", delta);
+        publish(userId, payload);
+    }
+
+    /**
+     * Tell a user's open tabs to reload a badge (when the change can't be expressed as a delta)
+     */
+    public void publishRefresh(Long userId, Badge badge) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("type", badge.name());
+        payload.put("refresh", true);
+        publish(userId, payload);
+    }
+
+    private void publish(Long userId, Map<String, Object> payload) {
+        if (userId == null) {
+            return;
+        }
+        AfterCommit.run(() -> {
+            try {
+                // User destinations are keyed by the principal name, which is the email
+                String email = userRepository.findById(userId).map(User::getEmail).orElse(null);
+                if (email != null) {
+                    messagingTemplate.convertAndSendToUser(email, DESTINATION, payload);
+                }
+            } catch (Exception e) {
+                logger.warn("Failed to push {} notification to user {}: {}", payload.get("type"), userId, e.getMessage());
+            }
+        });
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.bookbuddy.bookbuddy.service;
+
+import com.bookbuddy.bookbuddy.model.Book;
+import com.bookbuddy.bookbuddy.util.KeysetCursor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Detached copies of the newest available books, newest first, so the home page and the first
+ * pages of the recent listings feed are served without a query. BookService keeps it in step as books
+ * are listed, change status or are deleted.
+ * <p>
+ * The cache holds a prefix of the (created_at DESC, id DESC) order. Unless every available
+ * book fits, a page that runs past the cached prefix is a miss and goes to the database.
+ * @author holiday
+ */
+@Component
+public class RecentBooksCache {
+
+    private static final Comparator<Book> NEWEST_FIRST = KeysetCursor.newestFirst(Book::getCreatedAt, Book::getId);
+
+    private final int capacity;
+
+    // Newest first; null until loaded
+    private List<Book> books;
+    // True when the cached books are all the available books there are
+    private boolean exhaustive;
+    // Bumped by every write; a load is only accepted if nothing was written while it ran
+    private long writes;
+
+    private long hits;
+    private long misses;
+
+    @Autowired
+    public RecentBooksCache(@Value("${bookbuddy.books.recent-cache.size:200}") int capacity) {
+        this.capacity = Math.max(0, capacity);
+    }
+
+    public boolean isEnabled() {
+        return capacity > 0;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Up to count available books listed at or after since, following the cursor (null = from the newest).
+     * Empty if the cache can't answer for sure.
+     */
+    public synchronized Optional<List<Book>> page(LocalDateTime since, KeysetCursor after, int count) {
+        if (books == null) {
+            misses++;
+            return Optional.empty();
+        }
+        List<Book> page = new ArrayList<>(Math.min(count, books.size()));
+        for (Book book : books) {
+            if (page.size() == count || (since != null && book.getCreatedAt().isBefore(since))) {
+                // Either the page is full or the cache already reaches past the window
+                hits++;
+                return Optional.of(page);
+            }
+            if (after == null || after.isAfterInNewestFirst(book.getCreatedAt(), book.getId())) {
+                page.add(book);
+            }
+        }
+        if (page.size() == count || exhaustive) {
+            hits++;
+            return Optional.of(page);
+        }
+        misses++;
+        return Optional.empty();
+    }
+
+    /**
+     * Start a load; pass the token to load so it is dropped if a write happened meanwhile
+     */
+    public synchronized long beginLoad() {
+        return writes;
+    }
+
+    /**
+     * Replace the cache with the newest available books (newest first), as read from the database
+     * with a limit of getCapacity()
+     */
+    public synchronized void load(List<Book> newestFirst, long token) {
+        if (!isEnabled() || writes != token) {
+            return;
+        }
+        books = new ArrayList<>(Math.min(newestFirst.size(), capacity));
+        for (Book book : newestFirst.subList(0, Math.min(newestFirst.size(), capacity))) {
+            books.add(BookSnapshot.of(book));
+        }
+        exhaustive = newestFirst.size() < capacity;
+    }
+
+    /**
+     * A book was listed or changed: (re)place it, or drop it if it is no longer available
+     */
+    public synchronized void update(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        writes++;
+        if (books == null) {
+            return;
+        }
+        books.removeIf(cached -> cached.getId().equals(book.getId()));
+        if (book.getStatus() != Book.BookStatus.AVAILABLE || book.getCreatedAt() == null) {
+            return;
+        }
+        int position = 0;
+        while (position < books.size() && NEWEST_FIRST.compare(books.get(position), book) < 0) {
+            position++;
+        }
+        if (position == books.size() && !exhaustive) {
+            // Older than everything cached: it may not belong right after the cached prefix
+            return;
+        }
+        books.add(position, BookSnapshot.of(book));
+        if (books.size() > capacity) {
+            books.remove(books.size() - 1);
+            exhaustive = false;
+        }
+    }
+
+    /**
+     * A book was deleted
+     */
+    public synchronized void remove(Long bookId) {
+        writes++;
+        if (books != null) {
+            books.removeIf(cached -> cached.getId().equals(bookId));
+        }
+    }
+
+    public synchronized void invalidate() {
+        writes++;
+        books = null;
+    }
+
+    public synchronized int size() {
+        return books == null ? 0 : books.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+}
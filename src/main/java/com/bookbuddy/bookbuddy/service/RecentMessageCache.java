@@ -0,0 +1,331 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.bookbuddy.bookbuddy.service;
+
+import com.bookbuddy.bookbuddy.model.Message;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the most recent messages of hot chats in memory, one small ring buffer per chat,
+ * so opening a chat and showing its last message don't go to the messages table.
+ * Chats are evicted least-recently-used once there are too many, or after sitting idle.
+ * <p>
+ * Buffers are filled from the database on a miss and kept current by ChatService writes.
+ * A fill that raced with a write to the same chat is dropped instead of caching a stale page.
+ * The buffers hold detached copies that are never changed once stored (marking messages read
+ * swaps in new copies), so the lists handed out can be read without the lock.
+ * Hits and misses are counted as bookbuddy.chat.recent-cache{result=hit|miss}.
+ * @author holiday
+ */
+@Component
+public class RecentMessageCache {
+
+    // Writes bump one of these; a fill is only accepted if its stripe didn't move while loading
+    private static final int WRITE_STRIPES = 64;
+
+    private final int messagesPerChat;
+    private final int maxChats;
+    private final long idleNanos;
+    private final LongSupplier nanoClock;
+
+    private final Map<Long, ChatMessages> chats;
+    private final long[] writeStripes = new long[WRITE_STRIPES];
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Autowired
+    public RecentMessageCache(@Value("${bookbuddy.chat.recent-cache.messages-per-chat:64}") int messagesPerChat,
+                              @Value("${bookbuddy.chat.recent-cache.max-chats:1000}") int maxChats,
+                              @Value("${bookbuddy.chat.recent-cache.idle-minutes:30}") long idleMinutes,
+                              MeterRegistry meterRegistry) {
+        this(messagesPerChat, maxChats, TimeUnit.MINUTES.toNanos(idleMinutes), System::nanoTime);
+        FunctionCounter.builder("bookbuddy.chat.recent-cache", hits, AtomicLong::get)
+                .tag("result", "hit")
+                .description("Chat message reads answered from the recent-message cache")
+                .register(meterRegistry);
+        FunctionCounter.builder("bookbuddy.chat.recent-cache", misses, AtomicLong::get)
+                .tag("result", "miss")
+                .description("Chat message reads the recent-message cache couldn't answer")
+                .register(meterRegistry);
+    }
+
+    RecentMessageCache(int messagesPerChat, int maxChats, long idleNanos, LongSupplier nanoClock) {
+        this.messagesPerChat = messagesPerChat;
+        this.maxChats = maxChats;
+        this.idleNanos = idleNanos;
+        this.nanoClock = nanoClock;
+        this.chats = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, ChatMessages> eldest) {
+                if (size() > RecentMessageCache.this.maxChats) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Whether the cache holds anything at all (a messages-per-chat of 0 turns it off)
+     */
+    public boolean isEnabled() {
+        return messagesPerChat > 0 && maxChats > 0;
+    }
+
+    /**
+     * Start the buffer of a brand new chat; it holds the full history until it overflows
+     */
+    public synchronized void startChat(Long chatId, Message first) {
+        if (!isEnabled()) {
+            return;
+        }
+        bumpStripe(chatId);
+        ChatMessages buffer = new ChatMessages(messagesPerChat, nanoClock.getAsLong());
+        buffer.add(MessageSnapshot.of(first));
+        chats.put(chatId, buffer);
+    }
+
+    /**
+     * Add a newly saved message to its chat's buffer, if the chat is cached
+     */
+    public synchronized void append(Message message) {
+        if (!isEnabled()) {
+            return;
+        }
+        bumpStripe(message.getChatId());
+        ChatMessages buffer = chats.get(message.getChatId());
+        if (buffer != null) {
+            buffer.add(MessageSnapshot.of(message));
+        }
+    }
+
+    /**
+     * Mirror MessageRepository.markMessagesAsRead on the cached copies
+     */
+    public synchronized void markRead(Long chatId, Long readerId) {
+        bumpStripe(chatId);
+        ChatMessages buffer = chats.get(chatId);
+        if (buffer != null) {
+            buffer.markRead(readerId);
+        }
+    }
+
+    /**
+     * The newest count messages of a chat, newest first, or empty when the buffer can't answer
+     * (chat not cached, or fewer messages cached than asked for and older ones may exist)
+     */
+    public synchronized Optional<List<Message>> latest(Long chatId, int count) {
+        ChatMessages buffer = liveBuffer(chatId);
+        if (buffer == null || (buffer.size < count && !buffer.complete)) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        return Optional.of(buffer.newest(count));
+    }
+
+    /**
+     * Every message of a chat, oldest first, when the buffer still holds the whole history
+     */
+    public synchronized Optional<List<Message>> all(Long chatId) {
+        ChatMessages buffer = liveBuffer(chatId);
+        if (buffer == null || !buffer.complete) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        List<Message> oldestFirst = buffer.newest(buffer.size);
+        Collections.reverse(oldestFirst);
+        return Optional.of(oldestFirst);
+    }
+
+    /**
+     * The last message of a chat, or empty on a miss
+     */
+    public synchronized Optional<Message> lastMessage(Long chatId) {
+        ChatMessages buffer = liveBuffer(chatId);
+        if (buffer == null || buffer.size == 0) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        return Optional.of(buffer.newest(1).get(0));
+    }
+
+    /**
+     * Token to take before reading a chat from the database; hand it back to fill
+     */
+    public synchronized long beginLoad(Long chatId) {
+        return writeStripes[stripe(chatId)];
+    }
+
+    /**
+     * Cache messages read from the database (newest first). complete means there is nothing older.
+     * Ignored if the chat is already cached or was written to since beginLoad.
+     */
+    public synchronized void fill(Long chatId, List<Message> newestFirst, boolean complete, long token) {
+        if (!isEnabled() || chats.containsKey(chatId) || writeStripes[stripe(chatId)] != token) {
+            return;
+        }
+        ChatMessages buffer = new ChatMessages(messagesPerChat, nanoClock.getAsLong());
+        for (int i = Math.min(newestFirst.size(), messagesPerChat) - 1; i >= 0; i--) {
+            buffer.add(MessageSnapshot.of(newestFirst.get(i)));
+        }
+        buffer.complete = complete && newestFirst.size() <= messagesPerChat;
+        chats.put(chatId, buffer);
+    }
+
+    /**
+     * Drop a chat's buffer
+     */
+    public synchronized void evict(Long chatId) {
+        bumpStripe(chatId);
+        if (chats.remove(chatId) != null) {
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Drop buffers that have been idle for longer than the TTL
+     */
+    @Scheduled(fixedDelayString = "${bookbuddy.chat.recent-cache.evict-interval-ms:60000}",
+               initialDelayString = "${bookbuddy.chat.recent-cache.evict-interval-ms:60000}")
+    public synchronized int evictIdle() {
+        long now = nanoClock.getAsLong();
+        int removed = 0;
+        Iterator<ChatMessages> it = chats.values().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().lastAccessNanos > idleNanos) {
+                it.remove();
+                removed++;
+            }
+        }
+        evictions.addAndGet(removed);
+        return removed;
+    }
+
+    public synchronized int size() {
+        return chats.size();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    private ChatMessages liveBuffer(Long chatId) {
+        ChatMessages buffer = chats.get(chatId);
+        if (buffer == null) {
+            return null;
+        }
+        long now = nanoClock.getAsLong();
+        if (now - buffer.lastAccessNanos > idleNanos) {
+            chats.remove(chatId);
+            evictions.incrementAndGet();
+            return null;
+        }
+        buffer.lastAccessNanos = now;
+        return buffer;
+    }
+
+    private void bumpStripe(Long chatId) {
+        writeStripes[stripe(chatId)]++;
+    }
+
+    private static int stripe(Long chatId) {
+        return Long.hashCode(chatId) & (WRITE_STRIPES - 1);
+    }
+
+    /**
+     * Ring buffer of one chat's newest messages, kept in (createdAt, id) order
+     */
+    private static final class ChatMessages {
+        private final Message[] ring;
+        private int head; // next write position
+        private int size;
+        private boolean complete = true;
+        private long lastAccessNanos;
+
+        ChatMessages(int capacity, long now) {
+            this.ring = new Message[capacity];
+            this.lastAccessNanos = now;
+        }
+
+        void add(Message message) {
+            if (size == ring.length) {
+                complete = false;
+            } else {
+                size++;
+            }
+            int pos = head;
+            ring[pos] = message;
+            head = (head + 1) % ring.length;
+
+            // Writes from concurrent transactions can arrive slightly out of order
+            for (int i = 1; i < size; i++) {
+                int prev = Math.floorMod(pos - 1, ring.length);
+                if (!isNewer(ring[prev], ring[pos])) {
+                    break;
+                }
+                Message swap = ring[prev];
+                ring[prev] = ring[pos];
+                ring[pos] = swap;
+                pos = prev;
+            }
+        }
+
+        // Copy-on-write, so a list handed out earlier keeps the flags it was read with
+        void markRead(Long readerId) {
+            for (int i = 0; i < size; i++) {
+                Message message = ring[i];
+                if (!readerId.equals(message.getSenderId()) && message.getMessageType() == Message.MessageType.TEXT
+                        && !Boolean.TRUE.equals(message.getIsRead())) {
+                    ring[i] = MessageSnapshot.of(message, true);
+                }
+            }
+        }
+
+        // Newest first
+        List<Message> newest(int count) {
+            int n = Math.min(count, size);
+            List<Message> result = new ArrayList<>(n);
+            for (int i = 1; i <= n; i++) {
+                result.add(ring[Math.floorMod(head - i, ring.length)]);
+            }
+            return result;
+        }
+
+        private static boolean isNewer(Message a, Message b) {
+            int byTime = a.getCreatedAt().compareTo(b.getCreatedAt());
+            return byTime > 0 || (byTime == 0 && a.getId() > b.getId());
+        }
+    }
+}
@@ -10,13 +10,24 @@ import com.bookbuddy.bookbuddy.model.RequestWithBookInfo;
 import com.bookbuddy.bookbuddy.repository.BookRepository;
 import com.bookbuddy.bookbuddy.repository.RequestRepository;
 import com.bookbuddy.bookbuddy.repository.UserRepository;
+import com.bookbuddy.bookbuddy.service.NotificationPublisher.Badge;
+import com.bookbuddy.bookbuddy.util.CursorPage;
+import com.bookbuddy.bookbuddy.util.KeysetCursor;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 /**
  * Service for handling book requests
@@ -24,25 +35,37 @@ import java.util.stream.Collectors;
  */
 @Service
 @Transactional
+@Timed("bookbuddy.service")
 public class RequestService {
     
+    private static final Logger logger = LoggerFactory.getLogger(RequestService.class);
+    
     private final RequestRepository requestRepository;
     private final BookRepository bookRepository;
     private final BookService bookService;
     private final UserRepository userRepository;
     private final ChatService chatService;
+    private final NotificationPublisher notificationPublisher;
+    private final LiveStats liveStats;
+    private final LoanDueDates loanDueDates;
     
     @Autowired
     public RequestService(RequestRepository requestRepository, 
                         BookRepository bookRepository,
                         BookService bookService,
                         UserRepository userRepository,
-                        ChatService chatService) {
+                        ChatService chatService,
+                        NotificationPublisher notificationPublisher,
+                        LiveStats liveStats,
+                        LoanDueDates loanDueDates) {
         this.requestRepository = requestRepository;
         this.bookRepository = bookRepository;
         this.bookService = bookService;
         this.userRepository = userRepository;
         this.chatService = chatService;
+        this.notificationPublisher = notificationPublisher;
+        this.liveStats = liveStats;
+        this.loanDueDates = loanDueDates;
     }
     
     /**
@@ -71,7 +94,7 @@ public class RequestService {
         // Mark book as unavailable
         bookService.markAsUnavailable(bookId);
         
-        return requestRepository.save(request);
+        return requestCreated(counted(requestRepository.save(request), null));
     }
     
     /**
@@ -109,7 +132,7 @@ public class RequestService {
         // Mark book as unavailable
         bookService.markAsUnavailable(bookId);
         
-        return requestRepository.save(request);
+        return requestCreated(counted(requestRepository.save(request), null));
     }
     
     /**
@@ -155,7 +178,7 @@ public class RequestService {
         bookService.markAsUnavailable(bookId);
         bookService.markAsUnavailable(offeredBookId);
         
-        return requestRepository.save(request);
+        return requestCreated(counted(requestRepository.save(request), null));
     }
     
     /**
@@ -180,6 +203,7 @@ public class RequestService {
             bookService.markAsExchangeInProgress(request.getBookId());
         } else if (request.isLendRequest()) {
             bookService.markAsCurrentlyLentOut(request.getBookId());
+            loanDueDates.loanStarted(request);
         } else if (request.isSwapRequest()) {
             bookService.markAsExchangeInProgress(request.getBookId());
             if (request.getOfferedBookId() != null) {
@@ -194,7 +218,7 @@ public class RequestService {
             } catch (IllegalArgumentException e) {
                 if (e.getMessage().contains("Chat already exists")) {
                     // Chat already exists, which is fine - just continue
-                    System.out.println("Chat already exists for request " + requestId + ", continuing...");
+                    logger.debug("Chat already exists for request {}, continuing", requestId);
                 } else {
                     // Re-throw other IllegalArgumentException
                     throw e;
@@ -202,7 +226,7 @@ public class RequestService {
             }
         }
         
-        return requestRepository.save(request);
+        return requestAnswered(counted(requestRepository.save(request), Request.RequestStatus.PENDING));
     }
     
     /**
@@ -230,7 +254,7 @@ public class RequestService {
             bookService.markAsAvailable(request.getOfferedBookId());
         }
         
-        return requestRepository.save(request);
+        return requestAnswered(counted(requestRepository.save(request), Request.RequestStatus.PENDING));
     }
     
     /**
@@ -257,6 +281,7 @@ public class RequestService {
         } else if (request.isLendRequest()) {
             // For lending requests, mark book as available again (returned)
             bookService.markAsAvailable(request.getBookId());
+            loanDueDates.loanEnded(request);
         } else if (request.isSwapRequest()) {
             bookService.markAsSwapped(request.getBookId());
             if (request.getOfferedBookId() != null) {
@@ -264,7 +289,7 @@ public class RequestService {
             }
         }
         
-        return requestRepository.save(request);
+        return counted(requestRepository.save(request), Request.RequestStatus.ACCEPTED);
     }
     
     /**
@@ -290,8 +315,9 @@ public class RequestService {
         
         // Mark book as available again
         bookService.markAsAvailable(request.getBookId());
+        loanDueDates.loanEnded(request);
         
-        return requestRepository.save(request);
+        return counted(requestRepository.save(request), Request.RequestStatus.ACCEPTED);
     }
     
     /**
@@ -319,7 +345,7 @@ public class RequestService {
             bookService.markAsAvailable(request.getOfferedBookId());
         }
         
-        return requestRepository.save(request);
+        return requestWithdrawn(counted(requestRepository.save(request), Request.RequestStatus.PENDING));
     }
     
     /**
@@ -383,10 +409,7 @@ public class RequestService {
      */
     @Transactional(readOnly = true)
     public List<RequestWithBookInfo> findRequestsByRequesterWithBookInfo(Long requesterId) {
-        List<Request> requests = findRequestsByRequester(requesterId);
-        return requests.stream()
-                .map(this::enrichRequestWithBookInfo)
-                .collect(Collectors.toList());
+        return enrichRequestsWithBookInfo(findRequestsByRequester(requesterId));
     }
     
     /**
@@ -394,27 +417,70 @@ public class RequestService {
      */
     @Transactional(readOnly = true)
     public List<RequestWithBookInfo> findRequestsByOwnerWithBookInfo(Long ownerId) {
-        List<Request> requests = findRequestsByOwner(ownerId);
-        return requests.stream()
-                .map(this::enrichRequestWithBookInfo)
-                .collect(Collectors.toList());
+        return enrichRequestsWithBookInfo(findRequestsByOwner(ownerId));
     }
     
     /**
-     * Enrich a request with book and user information
+     * Find requests by requester with book information, one page at a time, newest first
      */
-    private RequestWithBookInfo enrichRequestWithBookInfo(Request request) {
-        Book book = bookRepository.findById(request.getBookId()).orElse(null);
-        
-        String ownerName = userRepository.findById(request.getOwnerId())
-                .map(user -> user.getFirstName() + " " + user.getLastName())
-                .orElse("Unknown Owner");
+    @Transactional(readOnly = true)
+    public CursorPage<RequestWithBookInfo> findRequestsByRequesterWithBookInfo(Long requesterId, KeysetCursor after, int limit) {
+        int pageSize = CursorPage.clampLimit(limit);
+        List<Request> rows = requestRepository.findByRequesterIdPage(requesterId,
+                after == null ? null : after.getCreatedAt(), after == null ? null : after.getId(),
+                PageRequest.of(0, pageSize + 1));
+        return CursorPage.fromLookahead(rows, pageSize, RequestService::cursorOf)
+                .map(this::enrichRequestsWithBookInfo);
+    }
+    
+    /**
+     * Find requests by owner with book information, one page at a time, newest first
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<RequestWithBookInfo> findRequestsByOwnerWithBookInfo(Long ownerId, KeysetCursor after, int limit) {
+        int pageSize = CursorPage.clampLimit(limit);
+        List<Request> rows = requestRepository.findByOwnerIdPage(ownerId,
+                after == null ? null : after.getCreatedAt(), after == null ? null : after.getId(),
+                PageRequest.of(0, pageSize + 1));
+        return CursorPage.fromLookahead(rows, pageSize, RequestService::cursorOf)
+                .map(this::enrichRequestsWithBookInfo);
+    }
+    
+    private static KeysetCursor cursorOf(Request request) {
+        return new KeysetCursor(request.getCreatedAt(), request.getId());
+    }
+    
+    /**
+     * Enrich requests with book and user information.
+     * Books and users are loaded with one query each, however many requests there are.
+     */
+    private List<RequestWithBookInfo> enrichRequestsWithBookInfo(List<Request> requests) {
+        if (requests.isEmpty()) {
+            return new ArrayList<>();
+        }
         
-        String requesterName = userRepository.findById(request.getRequesterId())
-                .map(user -> user.getFirstName() + " " + user.getLastName())
-                .orElse("Unknown Requester");
+        Set<Long> bookIds = new HashSet<>();
+        Set<Long> userIds = new HashSet<>();
+        for (Request request : requests) {
+            bookIds.add(request.getBookId());
+            userIds.add(request.getOwnerId());
+            userIds.add(request.getRequesterId());
+        }
         
-        return new RequestWithBookInfo(request, book, ownerName, requesterName);
+        Map<Long, Book> books = new HashMap<>();
+        bookRepository.findAllById(bookIds).forEach(book -> books.put(book.getId(), book));
+        Map<Long, String> userNames = new HashMap<>();
+        userRepository.findAllById(userIds).forEach(user ->
+                userNames.put(user.getId(), user.getFirstName() + " " + user.getLastName()));
+        
+        List<RequestWithBookInfo> enriched = new ArrayList<>(requests.size());
+        for (Request request : requests) {
+            enriched.add(new RequestWithBookInfo(request,
+                    books.get(request.getBookId()),
+                    userNames.getOrDefault(request.getOwnerId(), "Unknown Owner"),
+                    userNames.getOrDefault(request.getRequesterId(), "Unknown Requester")));
+        }
+        return enriched;
     }
     
     /**
@@ -436,4 +502,33 @@ public class RequestService {
             List.of(Request.RequestStatus.ACCEPTED, Request.RequestStatus.REJECTED, Request.RequestStatus.COMPLETED)
         );
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Report a status change to the live stats once it commits (before is null for a new request)
+     */
+    private Request counted(Request request, Request.RequestStatus before) {
+        Request.RequestStatus after = request.getStatus();
+        AfterCommit.run(() -> liveStats.requestChanged(before, after));
+        return request;
+    }
+    
+    /**
+     * Notification badge pushes. Received badge counts pending requests on the owner side,
+     * sent badge counts accepted/rejected/completed requests on the requester side.
+     */
+    private Request requestCreated(Request request) {
+        notificationPublisher.publishDelta(request.getOwnerId(), Badge.RECEIVED_REQUESTS, 1);
+        return request;
+    }
+    
+    private Request requestAnswered(Request request) {
+        notificationPublisher.publishDelta(request.getOwnerId(), Badge.RECEIVED_REQUESTS, -1);
+        notificationPublisher.publishDelta(request.getRequesterId(), Badge.SENT_REQUESTS, 1);
+        return request;
+    }
+    
+    private Request requestWithdrawn(Request request) {
+        notificationPublisher.publishDelta(request.getOwnerId(), Badge.RECEIVED_REQUESTS, -1);
+        return request;
+    }
+}
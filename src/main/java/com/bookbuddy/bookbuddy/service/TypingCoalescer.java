@@ -0,0 +1,110 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.bookbuddy.bookbuddy.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Turns a stream of per-keystroke typing events into at most one broadcast per interval
+ * for each (chat, user). A start is sent on the first event and then re-sent no more than
+ * once per interval while typing continues; a stop is only sent if a start went out,
+ * so nobody is left looking at a stuck indicator. A stop ends the interval, so typing
+ * again right after it is shown straight away.
+ * @author holiday
+ */
+@Component
+public class TypingCoalescer {
+
+    // Sweep idle entries once the map gets this big
+    private static final int SWEEP_THRESHOLD = 10_000;
+
+    private final long intervalNanos;
+    private final LongSupplier nanoClock;
+    private final Map<String, TypingState> states = new ConcurrentHashMap<>();
+
+    @Autowired
+    public TypingCoalescer(@Value("${bookbuddy.chat.typing.interval-ms:1000}") long intervalMs) {
+        this(TimeUnit.MILLISECONDS.toNanos(intervalMs), System::nanoTime);
+    }
+
+    TypingCoalescer(long intervalNanos, LongSupplier nanoClock) {
+        this.intervalNanos = intervalNanos;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * A typing event arrived; true if a TYPING broadcast should go out
+     */
+    public boolean typing(Long chatId, Long userId) {
+        long now = nanoClock.getAsLong();
+        TypingState state = states.computeIfAbsent(key(chatId, userId), k -> new TypingState(now - intervalNanos));
+        boolean emit;
+        synchronized (state) {
+            emit = now - state.lastEmitNanos >= intervalNanos;
+            if (emit) {
+                state.typing = true;
+                state.lastEmitNanos = now;
+            }
+        }
+        if (states.size() > SWEEP_THRESHOLD) {
+            sweep(now);
+        }
+        return emit;
+    }
+
+    /**
+     * A stop-typing event arrived; true if a STOP_TYPING broadcast should go out
+     */
+    public boolean stopTyping(Long chatId, Long userId) {
+        TypingState state = states.get(key(chatId, userId));
+        if (state == null) {
+            return false;
+        }
+        synchronized (state) {
+            if (!state.typing) {
+                return false;
+            }
+            state.typing = false;
+            // The other side now shows nothing, so the next start must not wait out the interval
+            state.lastEmitNanos = nanoClock.getAsLong() - intervalNanos;
+            return true;
+        }
+    }
+
+    int size() {
+        return states.size();
+    }
+
+    // Users who stopped long ago don't need rate limiting any more
+    private void sweep(long now) {
+        states.entrySet().removeIf(entry -> {
+            TypingState state = entry.getValue();
+            synchronized (state) {
+                // A client that vanished without a stop keeps its entry a while longer
+                return now - state.lastEmitNanos > (state.typing ? 60 : 1) * intervalNanos;
+            }
+        });
+    }
+
+    private static String key(Long chatId, Long userId) {
+        return chatId + ":" + userId;
+    }
+
+    private static final class TypingState {
+        private boolean typing;
+        private long lastEmitNanos;
+
+        TypingState(long lastEmitNanos) {
+            this.lastEmitNanos = lastEmitNanos;
+        }
+    }
+}
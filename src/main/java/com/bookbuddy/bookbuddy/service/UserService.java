@@ -6,12 +6,20 @@ package com.bookbuddy.bookbuddy.service;
 
 import com.bookbuddy.bookbuddy.model.User;
 import com.bookbuddy.bookbuddy.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional; // for readONLY
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -21,11 +29,22 @@ import java.util.Optional;
 
 @Service //marks it as a Spring service (i.e., contains business logic)
 @Transactional //ensures that all DB operations in each method are atomic (rollback on failure)
+@Timed("bookbuddy.service")
 public class UserService {
     
     private final UserRepository userRepository; //Interface to interact with the database(like save, findByEmail, etc.).
     private final PasswordEncoder passwordEncoder; //use to hash passwords and check password validity securely.
     
+    // Bounded email -> user id cache (least recently used entries are dropped first)
+    private static final int USER_ID_CACHE_SIZE = 10_000;
+    private final Map<String, Long> userIdsByEmail = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                    return size() > USER_ID_CACHE_SIZE;
+                }
+            });
+    
     @Autowired
     public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder){
         this.userRepository = userRepository;
@@ -62,6 +81,39 @@ public class UserService {
         return userRepository.findByEmail(email.toLowerCase().trim());
     }
     
+    /**
+     * Find the logged-in user's id: read from the principal, or from the email cache for
+     * sessions whose principal doesn't carry it. SUPPORTS so the common case opens no transaction.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Optional<Long> findUserId(Authentication authentication) {
+        if (authentication == null) {
+            return Optional.empty();
+        }
+        if (authentication.getPrincipal() instanceof BookBuddyUserDetails details) {
+            return Optional.of(details.getUserId());
+        }
+        return findUserIdByEmail(authentication.getName());
+    }
+    
+    /**
+     * Find a user id by email, cached
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Optional<Long> findUserIdByEmail(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        String key = email.toLowerCase().trim();
+        Long cached = userIdsByEmail.get(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<Long> userId = userRepository.findIdByEmail(key);
+        userId.ifPresent(id -> userIdsByEmail.put(key, id));
+        return userId;
+    }
+    
     /**
      * find user by ID: use for data retrieval 
      */
@@ -70,6 +122,21 @@ public class UserService {
         return userRepository.findById(id);
     }
     
+    /**
+     * find users by IDs in one query: use for enriching lists (book owners, requesters)
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, User> findUsersByIds(Collection<Long> ids) {
+        Map<Long, User> usersById = new HashMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return usersById;
+        }
+        for (User user : userRepository.findAllById(ids.stream().distinct().toList())) {
+            usersById.put(user.getId(), user);
+        }
+        return usersById;
+    }
+    
     /**
      * Get all users
      */
@@ -104,6 +171,8 @@ public class UserService {
             user.setLastName(lastName.trim());
         }
         
+        userIdsByEmail.remove(user.getEmail()); // drop the cached id for this user
+        
         return userRepository.save(user); //save the updated user
     }
     
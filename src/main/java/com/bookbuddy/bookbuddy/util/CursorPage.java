@@ -0,0 +1,88 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.bookbuddy.bookbuddy.util;
+
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset-paginated list plus the cursor for the next page (null on the last page).
+ * @author holiday
+ */
+public final class CursorPage<T> {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 200;
+
+    /**
+     * Response header carrying the next page token for endpoints that return a bare JSON array
+     */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private final List<T> items;
+    private final KeysetCursor nextCursor;
+
+    public CursorPage(List<T> items, KeysetCursor nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Build a page from rows fetched with limit + 1: the extra row only tells us there is more
+     */
+    public static <T> CursorPage<T> fromLookahead(List<T> rows, int limit, Function<T, KeysetCursor> cursorOf) {
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null);
+        }
+        List<T> items = List.copyOf(rows.subList(0, limit));
+        return new CursorPage<>(items, cursorOf.apply(items.get(limit - 1)));
+    }
+
+    /**
+     * Clamp a client-supplied page size into [1, MAX_LIMIT]
+     */
+    public static int clampLimit(Integer requested) {
+        if (requested == null || requested <= 0) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.min(requested, MAX_LIMIT);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public KeysetCursor getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    /**
+     * Encoded next cursor, or null on the last page
+     */
+    public String getNextCursorToken() {
+        return nextCursor == null ? null : nextCursor.encode();
+    }
+
+    /**
+     * Start a 200 response carrying the next page token in NEXT_CURSOR_HEADER, if there is one
+     */
+    public ResponseEntity.BodyBuilder okWithNextCursor() {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (hasNext()) {
+            builder.header(NEXT_CURSOR_HEADER, getNextCursorToken());
+        }
+        return builder;
+    }
+
+    public <R> CursorPage<R> map(Function<List<T>, List<R>> mapper) {
+        return new CursorPage<>(mapper.apply(items), nextCursor);
+    }
+}
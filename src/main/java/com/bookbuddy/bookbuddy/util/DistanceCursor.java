@@ -0,0 +1,103 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.bookbuddy.bookbuddy.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Position in a radius search ordered closest first by (distance, id), passed to clients as an
+ * opaque token. Only meaningful for the same search center; the next page starts strictly after it.
+ * @author holiday
+ */
+public final class DistanceCursor {
+
+    private final double distanceKm;
+    private final Long id;
+
+    public DistanceCursor(double distanceKm, Long id) {
+        this.distanceKm = distanceKm;
+        this.id = Objects.requireNonNull(id, "id");
+    }
+
+    public double getDistanceKm() {
+        return distanceKm;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Encode as a URL-safe token
+     */
+    public String encode() {
+        String raw = distanceKm + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a token from a client; null or blank means "first page"
+     */
+    public static DistanceCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            double distanceKm = Double.parseDouble(raw.substring(0, separator));
+            if (!Double.isFinite(distanceKm) || distanceKm < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new DistanceCursor(distanceKm, Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Closest first ordering, ties broken by id, matching the pages this cursor walks
+     */
+    public static <T> Comparator<T> closestFirst(ToDoubleFunction<T> distanceKm, Function<T, Long> id) {
+        return Comparator.comparingDouble(distanceKm).thenComparing(id);
+    }
+
+    /**
+     * Whether a result sorts strictly after this position, i.e. belongs on a later closest first page
+     */
+    public boolean isAfterInClosestFirst(double otherDistanceKm, Long otherId) {
+        int byDistance = Double.compare(otherDistanceKm, distanceKm);
+        return byDistance != 0 ? byDistance > 0 : otherId.compareTo(id) > 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DistanceCursor other)) {
+            return false;
+        }
+        return Double.compare(distanceKm, other.distanceKm) == 0 && id.equals(other.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(distanceKm, id);
+    }
+
+    @Override
+    public String toString() {
+        return "DistanceCursor{" + distanceKm + " km, " + id + "}";
+    }
+}
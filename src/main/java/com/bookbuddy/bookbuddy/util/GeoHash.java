@@ -0,0 +1,151 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.bookbuddy.bookbuddy.util;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Geohash encoding and radius coverings.
+ * A geohash is a base32 string where every extra character narrows the cell,
+ * so all points inside a cell share the cell's hash as a prefix.
+ * @author holiday
+ */
+public final class GeoHash {
+
+    /**
+     * Precision stored on books (cells of roughly 5 m x 5 m)
+     */
+    public static final int MAX_PRECISION = 9;
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+    private static final double KM_PER_DEGREE_LAT = 111.32;
+
+    // Beyond this many cells a covering stops being cheaper than a coarser one
+    private static final int MAX_COVERING_CELLS = 16;
+
+    private GeoHash() {
+    }
+
+    /**
+     * Encode a coordinate at the given precision (number of characters)
+     */
+    public static String encode(double latitude, double longitude, int precision) {
+        double minLat = -90, maxLat = 90;
+        double minLng = -180, maxLng = 180;
+        StringBuilder hash = new StringBuilder(precision);
+        boolean evenBit = true;
+        int bit = 0;
+        int ch = 0;
+
+        while (hash.length() < precision) {
+            if (evenBit) {
+                double mid = (minLng + maxLng) / 2;
+                if (longitude >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLng = mid;
+                } else {
+                    ch = ch << 1;
+                    maxLng = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (latitude >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLat = mid;
+                } else {
+                    ch = ch << 1;
+                    maxLat = mid;
+                }
+            }
+            evenBit = !evenBit;
+
+            if (++bit == 5) {
+                hash.append(BASE32[ch]);
+                bit = 0;
+                ch = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Cell height in degrees of latitude at the given precision
+     */
+    public static double cellHeight(int precision) {
+        int latBits = (precision * 5) / 2;
+        return 180.0 / (1L << latBits);
+    }
+
+    /**
+     * Cell width in degrees of longitude at the given precision
+     */
+    public static double cellWidth(int precision) {
+        int lngBits = (precision * 5 + 1) / 2;
+        return 360.0 / (1L << lngBits);
+    }
+
+    /**
+     * Geohash cells that together cover every point within radiusKm of the centre.
+     * Uses the finest precision that still needs only a handful of cells.
+     */
+    public static Set<String> covering(double latitude, double longitude, double radiusKm) {
+        double deltaLat = radiusKm / KM_PER_DEGREE_LAT;
+        double minLat = Math.max(-90, latitude - deltaLat);
+        double maxLat = Math.min(90, latitude + deltaLat);
+
+        double minLng;
+        double maxLng;
+        double cosLat = Math.cos(Math.toRadians(Math.max(Math.abs(minLat), Math.abs(maxLat))));
+        if (minLat <= -90 || maxLat >= 90 || cosLat < 0.01) {
+            // Circle reaches a pole, every longitude is in range
+            minLng = -180;
+            maxLng = 180;
+        } else {
+            double deltaLng = deltaLat / cosLat;
+            if (deltaLng >= 180) {
+                minLng = -180;
+                maxLng = 180;
+            } else {
+                minLng = longitude - deltaLng;
+                maxLng = longitude + deltaLng;
+            }
+        }
+
+        int precision = MAX_PRECISION;
+        while (precision > 1 && cellCount(minLat, maxLat, minLng, maxLng, precision) > MAX_COVERING_CELLS) {
+            precision--;
+        }
+        return cells(minLat, maxLat, minLng, maxLng, precision);
+    }
+
+    private static long cellCount(double minLat, double maxLat, double minLng, double maxLng, int precision) {
+        long rows = (long) Math.floor((maxLat + 90) / cellHeight(precision))
+                - (long) Math.floor((minLat + 90) / cellHeight(precision)) + 1;
+        long cols = (long) Math.floor((maxLng + 180) / cellWidth(precision))
+                - (long) Math.floor((minLng + 180) / cellWidth(precision)) + 1;
+        return rows * cols;
+    }
+
+    private static Set<String> cells(double minLat, double maxLat, double minLng, double maxLng, int precision) {
+        double height = cellHeight(precision);
+        double width = cellWidth(precision);
+        Set<String> cells = new LinkedHashSet<>();
+
+        // Walk the grid from the cell containing the south-west corner, sampling cell centres
+        double startLat = Math.floor((minLat + 90) / height) * height - 90 + height / 2;
+        double startLng = Math.floor((minLng + 180) / width) * width - 180 + width / 2;
+        for (double lat = startLat; lat <= maxLat + height / 2 && lat < 90; lat += height) {
+            for (double lng = startLng; lng <= maxLng + width / 2; lng += width) {
+                cells.add(encode(lat, wrapLongitude(lng), precision));
+            }
+        }
+        return cells;
+    }
+
+    private static double wrapLongitude(double longitude) {
+        return ((longitude + 180) % 360 + 360) % 360 - 180;
+    }
+}
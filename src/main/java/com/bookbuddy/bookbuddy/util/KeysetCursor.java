@@ -0,0 +1,109 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.bookbuddy.bookbuddy.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Position in a list ordered by (created_at, id), passed to clients as an opaque token.
+ * The next page starts strictly after this position, so rows inserted meanwhile never shift it.
+ * @author holiday
+ */
+public final class KeysetCursor {
+
+    private final LocalDateTime createdAt;
+    private final Long id;
+
+    public KeysetCursor(LocalDateTime createdAt, Long id) {
+        this.createdAt = Objects.requireNonNull(createdAt, "createdAt");
+        this.id = Objects.requireNonNull(id, "id");
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Encode as a URL-safe token
+     */
+    public String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a token from a client; null or blank means "first page"
+     */
+    public static KeysetCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new KeysetCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Newest first ordering matching "ORDER BY created_at DESC, id DESC"
+     */
+    public static <T> Comparator<T> newestFirst(Function<T, LocalDateTime> createdAt, Function<T, Long> id) {
+        return Comparator.comparing(createdAt, Comparator.nullsLast(Comparator.reverseOrder()))
+                .thenComparing(id, Comparator.nullsLast(Comparator.reverseOrder()));
+    }
+
+    /**
+     * Whether a row sorts strictly before this position, i.e. belongs on a later newest first page
+     */
+    public boolean isAfterInNewestFirst(LocalDateTime otherCreatedAt, Long otherId) {
+        return compareTo(otherCreatedAt, otherId) < 0;
+    }
+
+    private int compareTo(LocalDateTime otherCreatedAt, Long otherId) {
+        if (otherCreatedAt == null || otherId == null) {
+            return 1;
+        }
+        int byTime = otherCreatedAt.compareTo(createdAt);
+        return byTime != 0 ? byTime : otherId.compareTo(id);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof KeysetCursor other)) {
+            return false;
+        }
+        return createdAt.equals(other.createdAt) && id.equals(other.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(createdAt, id);
+    }
+
+    @Override
+    public String toString() {
+        return "KeysetCursor{" + createdAt + ", " + id + "}";
+    }
+}
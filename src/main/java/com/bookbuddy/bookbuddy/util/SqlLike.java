@@ -0,0 +1,37 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.bookbuddy.bookbuddy.util;
+
+/**
+ * Escaping for text matched with LIKE, so % and _ typed by a user match themselves.
+ * Queries taking escaped text declare ESCAPE '!' ('!' rather than a backslash, which
+ * MySQL would read as an escape inside the string literal itself).
+ * @author holiday
+ */
+public final class SqlLike {
+
+    public static final char ESCAPE = '!';
+
+    private SqlLike() {
+    }
+
+    /**
+     * The text with the LIKE wildcards and the escape character escaped (null stays null)
+     */
+    public static String escape(String text) {
+        if (text == null) {
+            return null;
+        }
+        StringBuilder escaped = new StringBuilder(text.length() + 8);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '%' || c == '_' || c == ESCAPE) {
+                escaped.append(ESCAPE);
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
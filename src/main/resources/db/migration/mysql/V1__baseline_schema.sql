@@ -0,0 +1,73 @@
+-- Schema as ddl-auto=update created it before migrations were introduced.
+-- Existing databases are baselined at this version (spring.flyway.baseline-on-migrate).
+
+create table users (
+    created_at datetime(6) not null,
+    id bigint not null auto_increment,
+    updated_at datetime(6),
+    first_name varchar(50) not null,
+    last_name varchar(50) not null,
+    email varchar(100) not null,
+    password varchar(255) not null,
+    primary key (id),
+    constraint uk_users_email unique (email)
+) engine=InnoDB;
+
+create table books (
+    lending_duration_days integer,
+    pickup_latitude float(53),
+    pickup_longitude float(53),
+    created_at datetime(6) not null,
+    id bigint not null auto_increment,
+    owner_id bigint not null,
+    updated_at datetime(6),
+    book_condition varchar(20) not null,
+    isbn varchar(20),
+    genre varchar(50),
+    author varchar(100) not null,
+    pickup_location varchar(200),
+    title varchar(200) not null,
+    image_url varchar(500),
+    description varchar(1000),
+    sharing_type enum ('GIVE_AWAY','LEND','SWAP') not null,
+    status enum ('AVAILABLE','CURRENTLY_LENT_OUT','EXCHANGE_IN_PROGRESS','GIVEN_AWAY','SWAPPED','UNAVAILABLE') not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table requests (
+    requested_duration_days integer,
+    book_id bigint not null,
+    created_at datetime(6) not null,
+    id bigint not null auto_increment,
+    offered_book_id bigint,
+    owner_id bigint not null,
+    requester_id bigint not null,
+    updated_at datetime(6),
+    message varchar(1000),
+    request_type enum ('GIVE_AWAY','LEND','SWAP') not null,
+    status enum ('ACCEPTED','CANCELLED','COMPLETED','PENDING','REJECTED') not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table chats (
+    book_id bigint not null,
+    created_at datetime(6) not null,
+    id bigint not null auto_increment,
+    request_id bigint not null,
+    updated_at datetime(6),
+    user1_id bigint not null,
+    user2_id bigint not null,
+    status enum ('ACTIVE','CANCELLED','COMPLETED') not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table messages (
+    is_read bit not null,
+    chat_id bigint not null,
+    created_at datetime(6) not null,
+    id bigint not null auto_increment,
+    sender_id bigint not null,
+    content varchar(2000) not null,
+    message_type enum ('EXCHANGE_CANCELLED','EXCHANGE_COMPLETED','SYSTEM','TEXT') not null,
+    primary key (id)
+) engine=InnoDB;
@@ -0,0 +1,28 @@
+-- Pickup geohash for the spatial index
+alter table books add column pickup_geohash varchar(12);
+create index idx_books_pickup_geohash on books (pickup_geohash);
+
+-- Keyset pagination: (filter, created_at, id)
+create index idx_books_status_created on books (status, created_at, id);
+create index idx_books_owner_created on books (owner_id, created_at, id);
+create index idx_requests_requester_created on requests (requester_id, created_at, id);
+create index idx_requests_owner_created on requests (owner_id, created_at, id);
+create index idx_messages_chat_created on messages (chat_id, created_at, id);
+
+-- Optional per-(chat, user) unread counters
+create table chat_unread_counters (
+    chat_id bigint not null,
+    id bigint not null auto_increment,
+    unread_count bigint not null,
+    user_id bigint not null,
+    primary key (id),
+    constraint uk_chat_unread_counters_chat_user unique (chat_id, user_id)
+) engine=InnoDB;
+create index idx_chat_unread_counters_user on chat_unread_counters (user_id);
+
+-- Application-allocated id blocks (message write-behind)
+create table id_blocks (
+    next_value bigint not null,
+    name varchar(64) not null,
+    primary key (name)
+) engine=InnoDB;
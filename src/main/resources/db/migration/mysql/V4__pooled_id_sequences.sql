@@ -0,0 +1,27 @@
+-- Books, requests, chats and messages take their ids from pooled sequences (50 ids per round trip),
+-- so Hibernate has the id before the insert and can send inserts in JDBC batches.
+-- MySQL has no sequences: Hibernate keeps each one in a single-row table. next_val is the top of the
+-- next block handed out, so it starts 50 past the highest id in use.
+create table books_seq (
+    next_val bigint
+) engine=InnoDB;
+insert into books_seq (next_val) select coalesce(max(id), 0) + 50 from books;
+
+create table requests_seq (
+    next_val bigint
+) engine=InnoDB;
+insert into requests_seq (next_val) select coalesce(max(id), 0) + 50 from requests;
+
+create table chats_seq (
+    next_val bigint
+) engine=InnoDB;
+insert into chats_seq (next_val) select coalesce(max(id), 0) + 50 from chats;
+
+-- The message write-behind allocates from messages_seq too, replacing id_blocks
+create table messages_seq (
+    next_val bigint
+) engine=InnoDB;
+insert into messages_seq (next_val)
+select greatest(coalesce(max(id), 0), coalesce((select max(next_value) from id_blocks where name = 'messages'), 0)) + 50
+from messages;
+drop table id_blocks;
@@ -0,0 +1,14 @@
+-- Due dates of accepted loans, and when the next reminder or overdue notice is due.
+-- Only open loans have lend_notice_at set, so the poller's range scan never touches the rest.
+alter table requests add column due_at datetime(6);
+alter table requests add column lend_notice_at datetime(6);
+create index idx_requests_lend_notice on requests (lend_notice_at, id);
+
+-- Notices are posted to the loan's chat, looked up by request
+create index idx_chats_request on chats (request_id);
+
+-- Loans accepted before this release: due counted from the acceptance (the last update), reminder a day before
+update requests
+set due_at = timestampadd(day, requested_duration_days, coalesce(updated_at, created_at))
+where status = 'ACCEPTED' and request_type = 'LEND' and requested_duration_days is not null;
+update requests set lend_notice_at = timestampadd(day, -1, due_at) where due_at is not null;
@@ -0,0 +1,73 @@
+-- Schema as ddl-auto=update created it before migrations were introduced.
+-- Existing databases are baselined at this version (spring.flyway.baseline-on-migrate).
+
+create table users (
+    created_at timestamp(6) not null,
+    id bigint generated by default as identity,
+    updated_at timestamp(6),
+    first_name varchar(50) not null,
+    last_name varchar(50) not null,
+    email varchar(100) not null,
+    password varchar(255) not null,
+    primary key (id),
+    constraint uk_users_email unique (email)
+);
+
+create table books (
+    lending_duration_days integer,
+    pickup_latitude float(53),
+    pickup_longitude float(53),
+    created_at timestamp(6) not null,
+    id bigint generated by default as identity,
+    owner_id bigint not null,
+    updated_at timestamp(6),
+    book_condition varchar(20) not null,
+    isbn varchar(20),
+    genre varchar(50),
+    author varchar(100) not null,
+    pickup_location varchar(200),
+    title varchar(200) not null,
+    image_url varchar(500),
+    description varchar(1000),
+    sharing_type varchar(255) not null check (sharing_type in ('GIVE_AWAY','LEND','SWAP')),
+    status varchar(255) not null check (status in ('AVAILABLE','UNAVAILABLE','EXCHANGE_IN_PROGRESS','CURRENTLY_LENT_OUT','GIVEN_AWAY','SWAPPED')),
+    primary key (id)
+);
+
+create table requests (
+    requested_duration_days integer,
+    book_id bigint not null,
+    created_at timestamp(6) not null,
+    id bigint generated by default as identity,
+    offered_book_id bigint,
+    owner_id bigint not null,
+    requester_id bigint not null,
+    updated_at timestamp(6),
+    message varchar(1000),
+    request_type varchar(255) not null check (request_type in ('GIVE_AWAY','LEND','SWAP')),
+    status varchar(255) not null check (status in ('PENDING','ACCEPTED','REJECTED','COMPLETED','CANCELLED')),
+    primary key (id)
+);
+
+create table chats (
+    book_id bigint not null,
+    created_at timestamp(6) not null,
+    id bigint generated by default as identity,
+    request_id bigint not null,
+    updated_at timestamp(6),
+    user1_id bigint not null,
+    user2_id bigint not null,
+    status varchar(255) not null check (status in ('ACTIVE','COMPLETED','CANCELLED')),
+    primary key (id)
+);
+
+create table messages (
+    is_read boolean not null,
+    chat_id bigint not null,
+    created_at timestamp(6) not null,
+    id bigint generated by default as identity,
+    sender_id bigint not null,
+    content varchar(2000) not null,
+    message_type varchar(255) not null check (message_type in ('TEXT','SYSTEM','EXCHANGE_COMPLETED','EXCHANGE_CANCELLED')),
+    primary key (id)
+);
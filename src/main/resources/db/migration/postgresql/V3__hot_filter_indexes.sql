@@ -0,0 +1,6 @@
+-- Indexes for the filters behind badges, listings and the chat inbox
+create index idx_requests_owner_status_created on requests (owner_id, status, created_at);
+create index idx_books_status_sharing_type on books (status, sharing_type);
+create index idx_books_owner_status on books (owner_id, status);
+create index idx_chats_user1 on chats (user1_id);
+create index idx_chats_user2 on chats (user2_id);
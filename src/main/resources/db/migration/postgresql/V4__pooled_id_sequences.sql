@@ -0,0 +1,19 @@
+-- Books, requests, chats and messages take their ids from pooled sequences (50 ids per round trip),
+-- so Hibernate has the id before the insert and can send inserts in JDBC batches.
+-- Each nextval is the top of a block of 50, so the sequences start 50 past the highest id in use.
+-- The identity columns stay: they are only used when a row is inserted without an id.
+create sequence books_seq start with 50 increment by 50;
+select setval('books_seq', (select coalesce(max(id), 0) + 50 from books), false);
+
+create sequence requests_seq start with 50 increment by 50;
+select setval('requests_seq', (select coalesce(max(id), 0) + 50 from requests), false);
+
+create sequence chats_seq start with 50 increment by 50;
+select setval('chats_seq', (select coalesce(max(id), 0) + 50 from chats), false);
+
+-- The message write-behind allocates from messages_seq too, replacing id_blocks
+create sequence messages_seq start with 50 increment by 50;
+select setval('messages_seq', greatest(
+        (select coalesce(max(id), 0) from messages),
+        (select coalesce(max(next_value), 0) from id_blocks where name = 'messages')) + 50, false);
+drop table id_blocks;
@@ -0,0 +1,14 @@
+-- Due dates of accepted loans, and when the next reminder or overdue notice is due.
+-- Partial index: only open loans have lend_notice_at set, so the poller never touches the rest.
+alter table requests add column due_at timestamp(6);
+alter table requests add column lend_notice_at timestamp(6);
+create index idx_requests_lend_notice on requests (lend_notice_at, id) where lend_notice_at is not null;
+
+-- Notices are posted to the loan's chat, looked up by request
+create index idx_chats_request on chats (request_id);
+
+-- Loans accepted before this release: due counted from the acceptance (the last update), reminder a day before
+update requests
+set due_at = coalesce(updated_at, created_at) + requested_duration_days * interval '1 day'
+where status = 'ACCEPTED' and request_type = 'LEND' and requested_duration_days is not null;
+update requests set lend_notice_at = due_at - interval '1 day' where due_at is not null;
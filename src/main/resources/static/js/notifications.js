@@ -124,13 +124,98 @@ function isAuthenticated() {
     return document.querySelector('.auth-required').style.display !== 'none';
 }
 
+// Badge element and refresh function for each pushed notification type
+const NOTIFICATION_BADGES = {
+    RECEIVED_REQUESTS: { id: 'received-requests-badge', refresh: updateReceivedRequestsBadge },
+    SENT_REQUESTS: { id: 'sent-requests-badge', refresh: updateSentRequestsBadge },
+    CHAT: { id: 'chat-badge', refresh: updateChatBadge }
+};
+
+// Badges are pushed over STOMP; polling is only a fallback in case a push is missed
+const FALLBACK_POLL_INTERVAL = 300000;
+const SOCKJS_URL = 'https://cdnjs.cloudflare.com/ajax/libs/sockjs-client/1.5.1/sockjs.min.js';
+const STOMP_URL = 'https://cdnjs.cloudflare.com/ajax/libs/stomp.js/2.3.3/stomp.min.js';
+
+let notificationClient = null;
+let notificationReconnectDelay = 1000;
+
+// Apply a pushed badge change
+function handleNotification(notification) {
+    const target = NOTIFICATION_BADGES[notification.type];
+    if (!target) {
+        return;
+    }
+    
+    if (notification.refresh) {
+        target.refresh();
+        return;
+    }
+    
+    const badge = document.getElementById(target.id);
+    if (badge) {
+        const current = badge.style.display === 'none' ? 0 : (parseInt(badge.textContent, 10) || 0);
+        const count = Math.max(0, current + (notification.delta || 0));
+        if (count > 0) {
+            badge.textContent = count;
+            badge.style.display = 'inline';
+        } else {
+            badge.style.display = 'none';
+        }
+    }
+}
+
+// Load a script once (pages other than chat don't include SockJS/STOMP)
+function loadScript(src) {
+    return new Promise((resolve, reject) => {
+        const script = document.createElement('script');
+        script.src = src;
+        script.onload = resolve;
+        script.onerror = reject;
+        document.head.appendChild(script);
+    });
+}
+
+function loadStompLibraries() {
+    const sockJs = typeof SockJS !== 'undefined' ? Promise.resolve() : loadScript(SOCKJS_URL);
+    return sockJs.then(() => typeof Stomp !== 'undefined' ? undefined : loadScript(STOMP_URL));
+}
+
+// Subscribe to this user's notification queue, reconnecting with backoff
+function connectNotifications() {
+    const socket = new SockJS('/ws');
+    const client = Stomp.over(socket);
+    client.debug = null;
+    
+    client.connect({}, () => {
+        notificationClient = client;
+        notificationReconnectDelay = 1000;
+        client.subscribe('/user/queue/notifications', message => {
+            handleNotification(JSON.parse(message.body));
+        });
+        // Catch up on anything that changed while disconnected
+        updateNotificationBadges();
+    }, () => {
+        notificationClient = null;
+        setTimeout(connectNotifications, notificationReconnectDelay);
+        notificationReconnectDelay = Math.min(notificationReconnectDelay * 2, 60000);
+    });
+}
+
 // Initialize notifications
 function initNotifications() {
     // Update badges immediately
     updateNotificationBadges();
     
-    // Update badges every 30 seconds
-    setInterval(updateNotificationBadges, 30000);
+    if (isAuthenticated()) {
+        loadStompLibraries()
+            .then(connectNotifications)
+            .catch(error => {
+                console.error('Failed to connect to notifications:', error);
+            });
+    }
+    
+    // Low-frequency fallback poll
+    setInterval(updateNotificationBadges, FALLBACK_POLL_INTERVAL);
 }
 
 // Export functions for use in other scripts
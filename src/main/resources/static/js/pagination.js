@@ -0,0 +1,35 @@
+/**
+ * Pagination helpers for BookBuddy
+ * List endpoints return one page at a time and put the next page token in the X-Next-Cursor header
+ */
+
+const NEXT_CURSOR_HEADER = 'X-Next-Cursor';
+
+// Add the cursor parameter to a list URL
+function withCursor(url, cursor) {
+    if (!cursor) {
+        return url;
+    }
+    return url + (url.includes('?') ? '&' : '?') + 'cursor=' + encodeURIComponent(cursor);
+}
+
+// Fetch one page: resolves to { items, nextCursor }
+function fetchPage(url, cursor) {
+    return fetch(withCursor(url, cursor), { credentials: 'include' })
+        .then(response => {
+            if (!response.ok) {
+                throw new Error('Failed to load page (' + response.status + ')');
+            }
+            const nextCursor = response.headers.get(NEXT_CURSOR_HEADER);
+            return response.json().then(data => ({
+                items: Array.isArray(data) ? data : (data.books || []),
+                nextCursor: nextCursor || data.nextCursor || null
+            }));
+        });
+}
+
+// Export functions for use in other scripts
+window.pagination = {
+    withCursor,
+    fetchPage
+};
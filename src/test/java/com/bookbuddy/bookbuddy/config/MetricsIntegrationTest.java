@@ -0,0 +1,156 @@
+package com.bookbuddy.bookbuddy.config;
+
+import com.bookbuddy.bookbuddy.model.Book;
+import com.bookbuddy.bookbuddy.model.User;
+import com.bookbuddy.bookbuddy.repository.BookRepository;
+import com.bookbuddy.bookbuddy.repository.UserRepository;
+import com.bookbuddy.bookbuddy.service.BookService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:metrics",
+        "bookbuddy.metrics.scrape-password=scrape-secret"
+})
+@ActiveProfiles("test")
+@AutoConfigureObservability(tracing = false)
+@AutoConfigureMockMvc
+class MetricsIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PrometheusMeterRegistry prometheusMeterRegistry;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @AfterEach
+    void tearDown() {
+        bookRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void prometheusEndpoint_OnlyTheScrapeCredentialGetsIn() throws Exception {
+        // Given: an ordinary account, which anyone can register
+        userRepository.save(new User("member@example.com", passwordEncoder.encode("password123"), "Mem", "Ber"));
+
+        // When & Then
+        mockMvc.perform(get("/actuator/prometheus").with(httpBasic("prometheus", "scrape-secret")))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("bookbuddy_stomp_messages_total")));
+        mockMvc.perform(get("/actuator/prometheus").with(httpBasic("member@example.com", "password123")))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/actuator/metrics").with(httpBasic("member@example.com", "password123")))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/actuator/prometheus").with(httpBasic("prometheus", "wrong")))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void serviceMethods_AreTimedPerMethod() {
+        // Given
+        Book listed = bookService.listBook("Timed Book", "Author", null, null, "Good", null,
+                null, null, null, 1L, Book.SharingType.GIVE_AWAY, null);
+        long timedBefore = findByIdCount();
+
+        // When
+        bookService.findById(listed.getId());
+        bookService.findById(listed.getId());
+
+        // Then
+        assertEquals(timedBefore + 2, findByIdCount());
+    }
+
+    @Test
+    void repositoryCalls_AreTimed() {
+        // When
+        bookService.findById(1L);
+
+        // Then
+        assertNotNull(meterRegistry.find("spring.data.repository.invocations")
+                .tag("repository", "BookRepository")
+                .timer());
+    }
+
+    @Test
+    void connectionPool_ReportsAcquireTime() {
+        // When
+        bookService.findById(1L);
+
+        // Then
+        assertNotNull(meterRegistry.find("hikaricp.connections.acquire").timer());
+    }
+
+    @Test
+    void stompBroadcast_IsCountedAndTimed() {
+        // Given
+        double sentBefore = meterRegistry.get(StompMetrics.BROADCAST).timer().count();
+
+        // When
+        messagingTemplate.convertAndSend("/topic/chat/1", "hello");
+
+        // Then
+        assertEquals(sentBefore + 1, meterRegistry.get(StompMetrics.BROADCAST).timer().count());
+        assertNotNull(meterRegistry.find("executor.queued").tag("name", "clientInboundChannelExecutor").gauge());
+    }
+
+    @Test
+    void prometheusScrape_ContainsApplicationMetrics() {
+        // Given
+        bookService.findById(1L);
+
+        // When
+        String scrape = prometheusMeterRegistry.scrape();
+
+        // Then
+        assertTrue(scrape.contains("bookbuddy_service_seconds_count"));
+        assertTrue(scrape.contains("bookbuddy_stomp_messages_total"));
+        assertTrue(scrape.contains("hikaricp_connections_acquire_seconds_bucket"));
+    }
+
+    private long findByIdCount() {
+        Timer timer = meterRegistry.find("bookbuddy.service")
+                .tag("class", BookService.class.getName())
+                .tag("method", "findById")
+                .timer();
+        return timer == null ? 0 : timer.count();
+    }
+}
@@ -0,0 +1,146 @@
+package com.bookbuddy.bookbuddy.config;
+
+import com.bookbuddy.bookbuddy.model.Book;
+import com.bookbuddy.bookbuddy.model.Chat;
+import com.bookbuddy.bookbuddy.model.Message;
+import com.bookbuddy.bookbuddy.model.Request;
+import com.bookbuddy.bookbuddy.repository.BookRepository;
+import com.bookbuddy.bookbuddy.repository.ChatRepository;
+import com.bookbuddy.bookbuddy.repository.MessageRepository;
+import com.bookbuddy.bookbuddy.repository.RequestRepository;
+import com.bookbuddy.bookbuddy.util.SqlLike;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The PostgreSQL migrations and the hand-written queries on a real PostgreSQL, which is stricter than
+// H2 about parameter types (a null timestamp bound into "IS NULL" has no type there). Needs Docker.
+@SpringBootTest(properties = {
+        "spring.flyway.enabled=true",
+        "spring.flyway.locations=classpath:db/migration/postgresql",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.PostgreSQLDialect",
+        "bookbuddy.schema.verify-indexes=fail"
+})
+@ActiveProfiles("test")
+@Testcontainers(disabledWithoutDocker = true)
+@Transactional
+class PostgresCompatibilityIntegrationTest {
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+    }
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private RequestRepository requestRepository;
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Test
+    void bookSearch_EscapedWildcardsMatchLiterally() {
+        // Given
+        bookRepository.saveAndFlush(new Book("100% Escaped", "Author", "Good", 502L, Book.SharingType.SWAP));
+        bookRepository.saveAndFlush(new Book("1000 Escaped", "Author", "Good", 502L, Book.SharingType.SWAP));
+
+        // When / Then
+        assertEquals(1, bookRepository.searchBooks(SqlLike.escape("0% esc")).size());
+        assertEquals(1, bookRepository.searchBooksPage(SqlLike.escape("0% esc"), null, false, null, null, PageRequest.of(0, 5)).size());
+        assertEquals(0, bookRepository.findBooksByCriteria(SqlLike.escape("0_ esc"), null, null, null, null).size());
+    }
+
+    @Test
+    void bookKeysetQueries_FirstAndNextPage() {
+        // Given
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            books.add(bookRepository.saveAndFlush(new Book("Keyset " + i, "Author", "Good", 501L, Book.SharingType.SWAP)));
+        }
+        Book newest = books.get(2);
+        LocalDateTime since = LocalDateTime.now().minusDays(1);
+        PageRequest two = PageRequest.of(0, 2);
+
+        // When & Then: first page (null cursor), then the page after the newest book
+        assertEquals(2, bookRepository.findAvailableBooksPage(null, false, null, null, two).size());
+        assertEquals(2, bookRepository.findAvailableBooksPage(Book.SharingType.SWAP, false, null, null, two).size());
+        assertFalse(bookRepository.findAvailableBooksPage(null, false, newest.getCreatedAt(), newest.getId(), two)
+                .contains(newest));
+        assertEquals(2, bookRepository.searchBooksPage("keyset", null, false, null, null, two).size());
+        assertTrue(bookRepository.searchBooksPage("keyset", null, true, null, null, two).stream().allMatch(Book::hasLocation));
+        assertEquals(2, bookRepository.searchBooksPage("keyset", Book.SharingType.SWAP, false,
+                newest.getCreatedAt(), newest.getId(), two).size());
+        assertEquals(List.of(newest, books.get(1)), bookRepository.findByOwnerIdPage(501L, null, null, two));
+        assertEquals(List.of(books.get(1), books.get(0)),
+                bookRepository.findByOwnerIdPage(501L, newest.getCreatedAt(), newest.getId(), two));
+        assertEquals(2, bookRepository.findRecentBooksPage(since, null, null, two).size());
+        assertEquals(2, bookRepository.findRecentBooksPage(since, newest.getCreatedAt(), newest.getId(), two).size());
+    }
+
+    @Test
+    void requestAndMessageKeysetQueries_FirstAndNextPage() {
+        // Given
+        Request first = requestRepository.saveAndFlush(new Request(1L, 601L, 602L, Request.RequestType.SWAP));
+        Request second = requestRepository.saveAndFlush(new Request(2L, 601L, 602L, Request.RequestType.SWAP));
+        Chat chat = chatRepository.saveAndFlush(new Chat(1L, first.getId(), 601L, 602L));
+        Message hello = messageRepository.saveAndFlush(new Message(chat.getId(), 601L, "Hello"));
+        Message reply = messageRepository.saveAndFlush(new Message(chat.getId(), 602L, "Hi"));
+        PageRequest ten = PageRequest.of(0, 10);
+
+        // When & Then
+        assertEquals(List.of(second, first), requestRepository.findByRequesterIdPage(601L, null, null, ten));
+        assertEquals(List.of(first), requestRepository.findByRequesterIdPage(601L, second.getCreatedAt(), second.getId(), ten));
+        assertEquals(List.of(second, first), requestRepository.findByOwnerIdPage(602L, null, null, ten));
+        assertEquals(List.of(first), requestRepository.findByOwnerIdPage(602L, second.getCreatedAt(), second.getId(), ten));
+        assertEquals(List.of(hello, reply), messageRepository.findByChatIdPage(chat.getId(), null, null, ten));
+        assertEquals(List.of(reply), messageRepository.findByChatIdPage(chat.getId(), hello.getCreatedAt(), hello.getId(), ten));
+        assertEquals(List.of(reply, hello), messageRepository.findByChatIdBefore(chat.getId(), null, null, ten));
+        assertEquals(List.of(hello), messageRepository.findByChatIdBefore(chat.getId(), reply.getCreatedAt(), reply.getId(), ten));
+        assertEquals(reply, chatRepository.findInboxByUserId(601L, null).get(0).getLastMessage());
+        assertEquals(1, chatRepository.findInboxByUserId(601L, Chat.ChatStatus.ACTIVE).size());
+    }
+
+    @Test
+    void loanNoticeQueries_ClaimAndClear() {
+        // Given
+        LocalDateTime noticeAt = LocalDateTime.of(2025, 3, 14, 10, 0);
+        Request loan = new Request(3L, 701L, 702L, Request.RequestType.LEND);
+        loan.setStatus(Request.RequestStatus.ACCEPTED);
+        loan.setDueAt(noticeAt.plusDays(1));
+        loan.setLendNoticeAt(noticeAt);
+        loan = requestRepository.saveAndFlush(loan);
+
+        // When & Then
+        assertEquals(List.of(loan), requestRepository.findDueLendNotices(noticeAt.plusHours(1), PageRequest.of(0, 10)));
+        assertEquals(1, requestRepository.advanceLendNotice(loan.getId(), noticeAt, null));
+        assertEquals(0, requestRepository.advanceLendNotice(loan.getId(), noticeAt, null));
+        assertTrue(requestRepository.findDueLendNotices(noticeAt.plusDays(30), PageRequest.of(0, 10)).isEmpty());
+        assertTrue(chatRepository.findByRequestIdIn(List.of(loan.getId())).isEmpty());
+    }
+}
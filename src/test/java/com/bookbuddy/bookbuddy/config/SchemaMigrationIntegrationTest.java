@@ -0,0 +1,93 @@
+package com.bookbuddy.bookbuddy.config;
+
+import com.bookbuddy.bookbuddy.model.Book;
+import com.bookbuddy.bookbuddy.service.BookService;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The MySQL migrations on H2 in MySQL mode, with Hibernate validating the result against the entities
+// as it would on MySQL (sequences emulated with tables)
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:migrations;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+        "spring.flyway.enabled=true",
+        "spring.flyway.locations=classpath:db/migration/mysql",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.MySQLDialect",
+        "bookbuddy.schema.verify-indexes=fail"
+})
+@ActiveProfiles("test")
+class SchemaMigrationIntegrationTest {
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private SchemaIndexVerifier indexVerifier;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private BookService bookService;
+
+    @Test
+    void migrations_AllAppliedAndSchemaMatchesEntities() {
+        // Then: the context started, so ddl-auto=validate accepted the migrated schema
+        assertEquals("5", flyway.info().current().getVersion().getVersion());
+        assertEquals(0, flyway.info().pending().length);
+    }
+
+    @Test
+    void migrations_CreateEveryRequiredIndex() throws Exception {
+        // When
+        List<SchemaIndexVerifier.RequiredIndex> missing = indexVerifier.findMissingIndexes();
+
+        // Then
+        assertTrue(missing.isEmpty(), "missing " + missing);
+    }
+
+    @Test
+    void findMissingIndexes_ReportsDroppedIndex() throws Exception {
+        // Given
+        jdbcTemplate.execute("DROP INDEX idx_chats_user2");
+
+        try {
+            // When
+            List<SchemaIndexVerifier.RequiredIndex> missing = indexVerifier.findMissingIndexes();
+
+            // Then
+            assertEquals(List.of("chats(user2_id)"), missing.stream().map(Object::toString).toList());
+        } finally {
+            jdbcTemplate.execute("CREATE INDEX idx_chats_user2 ON chats (user2_id)");
+        }
+    }
+
+    @Test
+    void pooledIds_ComeFromTheSequenceTable() {
+        // Given
+        long nextValue = jdbcTemplate.queryForObject("SELECT next_val FROM books_seq", Long.class);
+
+        // When
+        Book first = bookService.listBook("First", "Author", null, null, "Good", null,
+                null, null, null, 1L, Book.SharingType.GIVE_AWAY, null);
+        Book second = bookService.listBook("Second", "Author", null, null, "Good", null,
+                null, null, null, 1L, Book.SharingType.GIVE_AWAY, null);
+
+        try {
+            // Then: one block of 50 reserved, both ids taken from it
+            assertEquals(nextValue + 50, jdbcTemplate.queryForObject("SELECT next_val FROM books_seq", Long.class));
+            assertTrue(first.getId() > nextValue - 50 && first.getId() <= nextValue);
+            assertEquals(first.getId() + 1, second.getId());
+        } finally {
+            jdbcTemplate.update("DELETE FROM books");
+        }
+    }
+}
@@ -201,8 +201,7 @@ class AuthControllerTest {
             mockedStatic.when(SecurityContextHolder::getContext).thenReturn(securityContext);
             when(securityContext.getAuthentication()).thenReturn(authentication);
             when(authentication.isAuthenticated()).thenReturn(true);
-            when(authentication.getName()).thenReturn("john@example.com");
-            when(userService.findByEmail("john@example.com")).thenReturn(Optional.of(testUser));
+            when(userService.findUserId(authentication)).thenReturn(Optional.of(1L));
             doNothing().when(userService).changePassword(1L, "oldpassword", "newpassword123");
 
             // When & Then
@@ -244,8 +243,7 @@ class AuthControllerTest {
             mockedStatic.when(SecurityContextHolder::getContext).thenReturn(securityContext);
             when(securityContext.getAuthentication()).thenReturn(authentication);
             when(authentication.isAuthenticated()).thenReturn(true);
-            when(authentication.getName()).thenReturn("john@example.com");
-            when(userService.findByEmail("john@example.com")).thenReturn(Optional.of(testUser));
+            when(userService.findUserId(authentication)).thenReturn(Optional.of(1L));
             doThrow(new IllegalArgumentException("Current password is incorrect"))
                     .when(userService).changePassword(1L, "wrongpassword", "newpassword123");
 
@@ -2,9 +2,13 @@ package com.bookbuddy.bookbuddy.controller;
 
 import com.bookbuddy.bookbuddy.model.Book;
 import com.bookbuddy.bookbuddy.model.User;
+import com.bookbuddy.bookbuddy.service.BookImporter;
 import com.bookbuddy.bookbuddy.service.BookService;
 import com.bookbuddy.bookbuddy.service.UserService;
 import com.bookbuddy.bookbuddy.service.RequestService;
+import com.bookbuddy.bookbuddy.util.CursorPage;
+import com.bookbuddy.bookbuddy.util.DistanceCursor;
+import com.bookbuddy.bookbuddy.util.KeysetCursor;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,11 +19,17 @@ import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
@@ -39,6 +49,9 @@ class BookControllerTest {
     @MockBean
     private RequestService requestService;
 
+    @MockBean
+    private BookImporter bookImporter;
+
     private ObjectMapper objectMapper;
     private User testUser;
     private Book testBook;
@@ -66,7 +79,7 @@ class BookControllerTest {
     @WithMockUser(username = "john@example.com")
     void listBook_Success() throws Exception {
         // Given
-        when(userService.findByEmail("john@example.com")).thenReturn(Optional.of(testUser));
+        when(userService.findUserId(any())).thenReturn(Optional.of(1L));
         when(bookService.listBook(anyString(), anyString(), any(), any(), 
                                  anyString(), any(), any(), any(), any(), 
                                  anyLong(), any(Book.SharingType.class), any()))
@@ -92,7 +105,7 @@ class BookControllerTest {
     @WithMockUser(username = "john@example.com")
     void listBook_WithLendingDuration_Success() throws Exception {
         // Given
-        when(userService.findByEmail("john@example.com")).thenReturn(Optional.of(testUser));
+        when(userService.findUserId(any())).thenReturn(Optional.of(1L));
         when(bookService.listBook(anyString(), anyString(), any(), any(), 
                                  anyString(), any(), any(), any(), any(), 
                                  anyLong(), any(Book.SharingType.class), any()))
@@ -119,7 +132,7 @@ class BookControllerTest {
     @WithMockUser(username = "john@example.com")
     void listBook_MissingRequiredFields_BadRequest() throws Exception {
         // Given
-        when(userService.findByEmail("john@example.com")).thenReturn(Optional.of(testUser));
+        when(userService.findUserId(any())).thenReturn(Optional.of(1L));
 
         // When & Then
         mockMvc.perform(post("/books/api/list")
@@ -138,7 +151,7 @@ class BookControllerTest {
     @WithMockUser(username = "john@example.com")
     void listBook_InvalidSharingType_BadRequest() throws Exception {
         // Given
-        when(userService.findByEmail("john@example.com")).thenReturn(Optional.of(testUser));
+        when(userService.findUserId(any())).thenReturn(Optional.of(1L));
 
         // When & Then
         mockMvc.perform(post("/books/api/list")
@@ -159,7 +172,7 @@ class BookControllerTest {
     @WithMockUser(username = "john@example.com")
     void listBook_LendWithoutDuration_BadRequest() throws Exception {
         // Given
-        when(userService.findByEmail("john@example.com")).thenReturn(Optional.of(testUser));
+        when(userService.findUserId(any())).thenReturn(Optional.of(1L));
 
         // When & Then
         mockMvc.perform(post("/books/api/list")
@@ -180,7 +193,7 @@ class BookControllerTest {
     @WithMockUser(username = "john@example.com")
     void listBook_InvalidLatitude_BadRequest() throws Exception {
         // Given
-        when(userService.findByEmail("john@example.com")).thenReturn(Optional.of(testUser));
+        when(userService.findUserId(any())).thenReturn(Optional.of(1L));
 
         // When & Then
         mockMvc.perform(post("/books/api/list")
@@ -218,7 +231,7 @@ class BookControllerTest {
     @WithMockUser(username = "john@example.com")
     void listBook_UserNotFound_Unauthorized() throws Exception {
         // Given
-        when(userService.findByEmail("john@example.com")).thenReturn(Optional.empty());
+        when(userService.findUserId(any())).thenReturn(Optional.empty());
 
         // When & Then
         mockMvc.perform(post("/books/api/list")
@@ -239,7 +252,7 @@ class BookControllerTest {
     @WithMockUser(username = "john@example.com")
     void listBook_ServiceThrowsException_InternalServerError() throws Exception {
         // Given
-        when(userService.findByEmail("john@example.com")).thenReturn(Optional.of(testUser));
+        when(userService.findUserId(any())).thenReturn(Optional.of(1L));
         when(bookService.listBook(anyString(), anyString(), any(), any(), 
                                  anyString(), any(), any(), any(), any(), 
                                  anyLong(), any(Book.SharingType.class), any()))
@@ -259,4 +272,149 @@ class BookControllerTest {
         //                            anyString(), any(), any(), any(), any(), 
         //                            anyLong(), any(Book.SharingType.class), any());
     }
-} 
\ No newline at end of file
+
+    @Test
+    @WithMockUser(username = "john@example.com")
+    void searchBooks_LoadsOwnersInOneBatch() throws Exception {
+        // Given
+        Book secondBook = new Book();
+        secondBook.setId(2L);
+        secondBook.setTitle("Second Book");
+        secondBook.setAuthor("Test Author");
+        secondBook.setOwnerId(1L);
+        secondBook.setStatus(Book.BookStatus.AVAILABLE);
+        secondBook.setSharingType(Book.SharingType.SWAP);
+        when(bookService.searchBooks("test", null, false, null, CursorPage.DEFAULT_LIMIT))
+                .thenReturn(new CursorPage<>(List.of(testBook, secondBook), null));
+        when(userService.findUsersByIds(any())).thenReturn(Map.of(1L, testUser));
+
+        // When & Then
+        mockMvc.perform(get("/books/api/search").param("q", "test"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].owner.fullName").value("John Doe"))
+                .andExpect(jsonPath("$[1].owner.id").value(1));
+
+        verify(userService, times(1)).findUsersByIds(any());
+        verify(userService, never()).findById(anyLong());
+    }
+
+    @Test
+    @WithMockUser(username = "john@example.com")
+    void searchBooks_ReturnsNextCursorHeader() throws Exception {
+        // Given
+        KeysetCursor next = new KeysetCursor(LocalDateTime.of(2025, 1, 1, 10, 0), 1L);
+        KeysetCursor after = new KeysetCursor(LocalDateTime.of(2025, 1, 2, 10, 0), 5L);
+        when(bookService.searchBooks("", Book.SharingType.SWAP, false, after, 1))
+                .thenReturn(new CursorPage<>(List.of(testBook), next));
+        when(userService.findUsersByIds(any())).thenReturn(Map.of(1L, testUser));
+
+        // When & Then
+        mockMvc.perform(get("/books/api/search")
+                        .param("q", "")
+                        .param("sharingType", "swap")
+                        .param("limit", "1")
+                        .param("cursor", after.encode()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(CursorPage.NEXT_CURSOR_HEADER, next.encode()))
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    @WithMockUser(username = "john@example.com")
+    void searchBooks_LocationWithoutRadius_OnlyBooksWithLocation() throws Exception {
+        // Given
+        when(bookService.searchBooks("test", null, true, null, CursorPage.DEFAULT_LIMIT))
+                .thenReturn(new CursorPage<>(List.of(testBook), null));
+        when(userService.findUsersByIds(any())).thenReturn(Map.of(1L, testUser));
+
+        // When & Then
+        mockMvc.perform(get("/books/api/search")
+                        .param("q", "test")
+                        .param("lat", "40.7128")
+                        .param("lng", "-74.0060"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+
+        verify(bookService).searchBooks("test", null, true, null, CursorPage.DEFAULT_LIMIT);
+        verify(bookService, never()).searchBooks(any(), any(), eq(false), any(), anyInt());
+    }
+
+    @Test
+    @WithMockUser(username = "john@example.com")
+    void searchBooks_RadiusSearchReturnsDistanceCursor() throws Exception {
+        // Given
+        Book secondBook = new Book("Second Book", "Test Author", "Good", 1L, Book.SharingType.SWAP);
+        secondBook.setId(2L);
+        secondBook.setPickupLatitude(40.72);
+        secondBook.setPickupLongitude(-74.0060);
+        testBook.setPickupLatitude(40.7128);
+        testBook.setPickupLongitude(-74.0060);
+        DistanceCursor after = new DistanceCursor(0.5, 9L);
+        when(bookService.findBooksNearby(40.7128, -74.0060, 5.0, null, null, after, 2))
+                .thenReturn(List.of(testBook, secondBook));
+        when(userService.findUsersByIds(any())).thenReturn(Map.of(1L, testUser));
+
+        // When & Then: one more book than the page means there is a next page, starting after the first
+        mockMvc.perform(get("/books/api/search")
+                        .param("lat", "40.7128")
+                        .param("lng", "-74.0060")
+                        .param("radius", "5")
+                        .param("limit", "1")
+                        .param("cursor", after.encode()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(CursorPage.NEXT_CURSOR_HEADER,
+                        new DistanceCursor(testBook.distanceTo(40.7128, -74.0060), testBook.getId()).encode()))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(testBook.getId()));
+    }
+
+    @Test
+    @WithMockUser(username = "john@example.com")
+    void searchBooks_RadiusSearchInvalidCursor_BadRequest() throws Exception {
+        KeysetCursor keyset = new KeysetCursor(LocalDateTime.of(2025, 1, 1, 10, 0), 1L);
+        mockMvc.perform(get("/books/api/search")
+                        .param("lat", "40.7128")
+                        .param("lng", "-74.0060")
+                        .param("radius", "5")
+                        .param("cursor", keyset.encode()))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(username = "john@example.com")
+    void searchBooks_InvalidCursor_BadRequest() throws Exception {
+        mockMvc.perform(get("/books/api/search").param("q", "test").param("cursor", "garbage"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(username = "john@example.com")
+    void importBooks_StreamsCsvBodyForCurrentUser() throws Exception {
+        // Given
+        when(userService.findUserId(any())).thenReturn(Optional.of(1L));
+        when(bookImporter.importBooks(any(), eq(BookImporter.Format.CSV), eq(1L)))
+                .thenReturn(new BookImporter.ImportReport());
+
+        // When & Then
+        mockMvc.perform(post("/books/api/import")
+                .with(csrf())
+                .contentType("text/csv")
+                .content("title,author,condition,sharingType\nDune,Herbert,Good,SWAP\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.report.imported").value(0));
+    }
+
+    @Test
+    @WithMockUser(username = "john@example.com")
+    void importBooks_UnsupportedContentType() throws Exception {
+        // When & Then
+        mockMvc.perform(post("/books/api/import")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_XML)
+                .content("<books/>"))
+                .andExpect(status().isUnsupportedMediaType());
+        verifyNoInteractions(bookImporter);
+    }
+}
@@ -0,0 +1,98 @@
+package com.bookbuddy.bookbuddy.controller;
+
+import com.bookbuddy.bookbuddy.model.Message;
+import com.bookbuddy.bookbuddy.service.ChatService;
+import com.bookbuddy.bookbuddy.service.TypingCoalescer;
+import com.bookbuddy.bookbuddy.service.UserService;
+import com.bookbuddy.bookbuddy.util.CursorPage;
+import com.bookbuddy.bookbuddy.util.KeysetCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ChatController.class)
+class ChatControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ChatService chatService;
+
+    @MockBean
+    private UserService userService;
+
+    @MockBean
+    private SimpMessagingTemplate messagingTemplate;
+
+    @MockBean
+    private TypingCoalescer typingCoalescer;
+
+    @BeforeEach
+    void setUp() {
+        when(userService.findUserId(any())).thenReturn(Optional.of(1L));
+        when(chatService.isParticipant(10L, 1L)).thenReturn(true);
+    }
+
+    @Test
+    @WithMockUser(username = "john@example.com")
+    void getChatMessagesByChatId_ReturnsNextCursorHeader() throws Exception {
+        // Given
+        KeysetCursor next = new KeysetCursor(LocalDateTime.of(2025, 1, 1, 10, 0), 7L);
+        Message message = new Message();
+        message.setId(7L);
+        message.setChatId(10L);
+        when(chatService.getChatMessages(eq(10L), eq(null), eq(1)))
+                .thenReturn(new CursorPage<>(List.of(message), next));
+
+        // When & Then
+        mockMvc.perform(get("/api/chats/10/messages").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(CursorPage.NEXT_CURSOR_HEADER, next.encode()))
+                .andExpect(jsonPath("$[0].id").value(7));
+    }
+
+    @Test
+    @WithMockUser(username = "john@example.com")
+    void getChatMessagesByChatId_InvalidCursor_BadRequest() throws Exception {
+        mockMvc.perform(get("/api/chats/10/messages").param("cursor", "garbage"))
+                .andExpect(status().isBadRequest());
+
+        verify(chatService, never()).getChatMessages(anyLong(), any(), anyInt());
+    }
+
+    @Test
+    @WithMockUser(username = "john@example.com")
+    void getChatMessages_InvalidCursor_BadRequest() throws Exception {
+        mockMvc.perform(get("/api/chat/10/messages").param("cursor", "garbage"))
+                .andExpect(status().isBadRequest());
+
+        verify(chatService, never()).getChatMessages(anyLong(), any(), anyInt());
+    }
+
+    @Test
+    @WithMockUser(username = "john@example.com")
+    void getLatestChatMessages_InvalidBeforeCursor_BadRequest() throws Exception {
+        mockMvc.perform(get("/api/chats/10/messages/latest").param("before", "garbage"))
+                .andExpect(status().isBadRequest());
+
+        verify(chatService, never()).getLatestChatMessages(anyLong(), any(), anyInt());
+    }
+}
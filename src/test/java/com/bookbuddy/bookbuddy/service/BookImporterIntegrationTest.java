@@ -0,0 +1,227 @@
+package com.bookbuddy.bookbuddy.service;
+
+import com.bookbuddy.bookbuddy.model.Book;
+import com.bookbuddy.bookbuddy.repository.BookRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:bookimport",
+        "bookbuddy.books.import.batch-size=3",
+        "bookbuddy.books.import.progress-interval=1000"
+})
+@ActiveProfiles("test")
+class BookImporterIntegrationTest {
+
+    @Autowired
+    private BookImporter bookImporter;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @SpyBean
+    private BookService bookService;
+
+    @AfterEach
+    void tearDown() {
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void importBooks_CsvListsValidRowsAndReportsTheRest() throws Exception {
+        // Given
+        String csv = "Title,Author,Condition,Sharing Type,Lending Duration Days,Latitude,Longitude\n"
+                + "Dune,Frank Herbert,Good,swap,,53.35,-6.26\n"
+                + ",Nobody,Good,SWAP,,,\n"
+                + "Emma,Jane Austen,Fair,LEND,,,\n"
+                + "\"Hitchhiker's Guide, The\",Douglas Adams,Good,give away,,,\n"
+                + "Ulysses,James Joyce,Poor,LEND,21,north,\n"
+                + "Persuasion,Jane Austen,Good,LEND,14,,\n";
+
+        // When
+        BookImporter.ImportReport report = bookImporter.importBooks(stream(csv), BookImporter.Format.CSV, 31L);
+
+        // Then
+        assertEquals(6, report.getRowsRead());
+        assertTrue(report.isComplete());
+        assertEquals(3, report.getImported());
+        assertEquals(3, report.getRejected());
+        assertEquals(List.of("line 3: Title is required",
+                        "line 4: Lending duration is required for lend books",
+                        "line 6: Invalid latitude format"),
+                report.getErrors().stream().map(Object::toString).toList());
+
+        List<Book> books = bookRepository.findByOwnerId(31L);
+        assertEquals(3, books.size());
+        Book dune = books.stream().filter(book -> book.getTitle().equals("Dune")).findFirst().orElseThrow();
+        assertEquals(Book.SharingType.SWAP, dune.getSharingType());
+        assertEquals(53.35, dune.getPickupLatitude());
+        assertTrue(books.stream().anyMatch(book -> book.getTitle().equals("Hitchhiker's Guide, The")
+                && book.getSharingType() == Book.SharingType.GIVE_AWAY));
+    }
+
+    @Test
+    void importBooks_NdjsonReportsUnparseableLines() throws Exception {
+        // Given
+        String ndjson = "{\"title\":\"Dune\",\"author\":\"Herbert\",\"condition\":\"Good\",\"sharingType\":\"SWAP\"}\n"
+                + "\n"
+                + "{\"title\":\"Broken\",\n"
+                + "[1,2]\n"
+                + "{\"title\":\"Emma\",\"author\":\"Austen\",\"condition\":\"Good\",\"sharingType\":\"LEND\","
+                + "\"lendingDurationDays\":14,\"pickupLatitude\":53.3,\"pickupLongitude\":-6.2}\n";
+
+        // When
+        BookImporter.ImportReport report = bookImporter.importBooks(stream(ndjson), BookImporter.Format.NDJSON, 32L);
+
+        // Then
+        assertEquals(2, report.getImported());
+        assertEquals(2, report.getRejected());
+        assertEquals(3, report.getErrors().get(0).getLine());
+        assertTrue(report.getErrors().get(0).getMessage().startsWith("Invalid JSON"));
+        assertEquals("line 4: Each line must be a JSON object", report.getErrors().get(1).toString());
+        Book emma = bookRepository.findByOwnerId(32L).stream()
+                .filter(book -> book.getTitle().equals("Emma")).findFirst().orElseThrow();
+        assertEquals(14, emma.getLendingDurationDays());
+        assertEquals(53.3, emma.getPickupLatitude());
+    }
+
+    @Test
+    void importBooks_StreamsLargeFileInBatchesWithProgress() throws Exception {
+        // Given: rows generated on the fly, never held as one string
+        List<InputStream> parts = new ArrayList<>();
+        parts.add(stream("title,author,condition,sharingType\n"));
+        for (int i = 0; i < 2500; i++) {
+            parts.add(stream("Book " + i + ",Author " + (i % 50) + ",Good,SWAP\n"));
+        }
+        List<Long> progress = new ArrayList<>();
+
+        // When
+        BookImporter.ImportReport report = bookImporter.importBooks(
+                new SequenceInputStream(Collections.enumeration(parts)), BookImporter.Format.CSV, 33L,
+                update -> progress.add(update.getRowsRead()));
+
+        // Then
+        assertEquals(2500, report.getImported());
+        assertEquals(0, report.getRejected());
+        assertEquals(List.of(1000L, 2000L), progress);
+        assertEquals(2500, bookRepository.findByOwnerId(33L).size());
+    }
+
+    @Test
+    void importBooks_CsvErrorAfterFirstBatchKeepsSavedRowsAndReportsWhereItStopped() throws Exception {
+        // Given: the first batch of 3 is saved before the unterminated quote on line 6 is reached
+        String csv = "title,author,condition,sharingType\n"
+                + "Dune,Herbert,Good,SWAP\n"
+                + "Emma,Austen,Good,SWAP\n"
+                + "Ulysses,Joyce,Good,SWAP\n"
+                + "Persuasion,Austen,Good,SWAP\n"
+                + "\"Broken,Nobody,Good,SWAP\n"
+                + "Never Read,Nobody,Good,SWAP\n";
+
+        // When
+        BookImporter.ImportReport report = bookImporter.importBooks(stream(csv), BookImporter.Format.CSV, 35L);
+
+        // Then
+        assertFalse(report.isComplete());
+        assertEquals(6, report.getStoppedAtLine());
+        assertEquals(5, report.getRowsRead());
+        assertEquals(4, report.getImported());
+        assertEquals(1, report.getRejected());
+        assertEquals("line 6: Unterminated quoted field starting on line 6; the rest of the file was not read",
+                report.getErrors().get(0).toString());
+        assertEquals(4, bookRepository.findByOwnerId(35L).size());
+    }
+
+    @Test
+    void importBooks_OversizedCsvFieldStopsTheImport() throws Exception {
+        // Given
+        String csv = "title,author,condition,sharingType\n"
+                + "Dune,Herbert,Good,SWAP\n"
+                + "Dune,Herbert,Good,SWAP," + "x".repeat(64 * 1024 + 1) + "\n";
+
+        // When
+        BookImporter.ImportReport report = bookImporter.importBooks(stream(csv), BookImporter.Format.CSV, 36L);
+
+        // Then
+        assertFalse(report.isComplete());
+        assertEquals(3, report.getStoppedAtLine());
+        assertEquals(1, report.getImported());
+        assertEquals(1, bookRepository.findByOwnerId(36L).size());
+    }
+
+    @Test
+    void importBooks_FieldTooLongForItsColumnRejectsOnlyThatRow() throws Exception {
+        // Given: a 21 character ISBN and a 21 character condition, batched with good rows
+        String csv = "title,author,condition,isbn,sharingType\n"
+                + "Dune,Herbert,Good,9780441013593,SWAP\n"
+                + "Emma,Austen,Good,978-0-14-143958-7-XYZ,SWAP\n"
+                + "Ulysses,Joyce,Good,,SWAP\n"
+                + "Persuasion,Austen," + "x".repeat(21) + ",,SWAP\n";
+
+        // When
+        BookImporter.ImportReport report = bookImporter.importBooks(stream(csv), BookImporter.Format.CSV, 37L);
+
+        // Then
+        assertEquals(2, report.getImported());
+        assertEquals(List.of("line 3: ISBN must be at most 20 characters",
+                        "line 5: Condition must be at most 20 characters"),
+                report.getErrors().stream().map(Object::toString).toList());
+        assertEquals(2, bookRepository.findByOwnerId(37L).size());
+    }
+
+    @Test
+    void importBooks_FailedBatchIsRetriedRowByRow() throws Exception {
+        // Given: the database refuses one row of the first batch
+        doThrow(new DataIntegrityViolationException("could not insert"))
+                .when(bookService).listBooks(eq(38L), argThat(listings -> listings.stream()
+                        .anyMatch(listing -> "Refused".equals(listing.getTitle()))));
+        String csv = "title,author,condition,sharingType\n"
+                + "Dune,Herbert,Good,SWAP\n"
+                + "Refused,Nobody,Good,SWAP\n"
+                + "Emma,Austen,Good,SWAP\n"
+                + "Ulysses,Joyce,Good,SWAP\n";
+
+        // When
+        BookImporter.ImportReport report = bookImporter.importBooks(stream(csv), BookImporter.Format.CSV, 38L);
+
+        // Then
+        assertEquals(3, report.getImported());
+        assertEquals(List.of("line 3: Not saved: could not insert"),
+                report.getErrors().stream().map(Object::toString).toList());
+        assertEquals(List.of("Dune", "Emma", "Ulysses"), bookRepository.findByOwnerId(38L).stream()
+                .map(Book::getTitle).sorted().toList());
+    }
+
+    @Test
+    void importBooks_CsvWithoutHeaderIsRejected() {
+        // Given
+        String csv = "Dune,Herbert,Good,SWAP\n";
+
+        // When & Then
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> bookImporter.importBooks(stream(csv), BookImporter.Format.CSV, 34L));
+        assertEquals("The first line must name the columns, including title and author", exception.getMessage());
+    }
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
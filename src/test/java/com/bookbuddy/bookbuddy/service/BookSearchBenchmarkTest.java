@@ -0,0 +1,125 @@
+package com.bookbuddy.bookbuddy.service;
+
+import com.bookbuddy.bookbuddy.model.Book;
+import com.bookbuddy.bookbuddy.repository.BookRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares search latency of the SQL LIKE path and the in-memory index.
+ * Excluded from the normal build; run with: mvn test -Pbenchmark
+ * Catalog sizes can be overridden with -Dbenchmark.sizes=10000,100000
+ */
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+class BookSearchBenchmarkTest {
+
+    private static final String[] WORDS = {
+            "shadow", "river", "garden", "winter", "empire", "silent", "golden", "night",
+            "ocean", "journey", "secret", "forest", "kingdom", "broken", "little", "history",
+            "mountain", "stranger", "letters", "island", "machine", "summer", "city", "glass"};
+    private static final String[] AUTHORS = {
+            "Austen", "Tolkien", "Herbert", "Gaiman", "Le Guin", "Morrison", "Ishiguro",
+            "Atwood", "Pratchett", "Murakami", "Christie", "Orwell", "Rowling", "Hemingway"};
+    private static final String[] GENRES = {
+            "Fantasy", "Science Fiction", "Mystery", "Romance", "History", "Biography",
+            "Poetry", "Thriller", "Classic", "Children"};
+    private static final String[] QUERIES = {
+            "shadow river", "tolkien", "science", "garden", "ishiguro", "glass", "xyz", "le"};
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("TRUNCATE TABLE books RESTART IDENTITY");
+    }
+
+    @Test
+    void compareSqlAndIndexLatency() {
+        String sizes = System.getProperty("benchmark.sizes", "10000,100000,1000000");
+        System.out.printf("%-10s %-16s %12s %12s %10s%n", "books", "query", "sql (ms)", "index (ms)", "matches");
+
+        for (String size : sizes.split(",")) {
+            int count = Integer.parseInt(size.trim());
+            List<Book> books = seed(count);
+            BookSearchIndex index = new BookSearchIndex();
+            long buildStart = System.nanoTime();
+            index.rebuild(books);
+            System.out.printf("%-10d index built in %d ms%n", count, (System.nanoTime() - buildStart) / 1_000_000);
+
+            for (String query : QUERIES) {
+                int sqlRuns = count >= 1_000_000 ? 3 : 10;
+                int sqlMatches = 0;
+                long sqlStart = System.nanoTime();
+                for (int i = 0; i < sqlRuns; i++) {
+                    sqlMatches = bookRepository.searchBooks(query).size();
+                }
+                double sqlMs = (System.nanoTime() - sqlStart) / 1_000_000.0 / sqlRuns;
+
+                int indexRuns = 50;
+                int indexMatches = 0;
+                long indexStart = System.nanoTime();
+                for (int i = 0; i < indexRuns; i++) {
+                    indexMatches = index.search(query).size();
+                }
+                double indexMs = (System.nanoTime() - indexStart) / 1_000_000.0 / indexRuns;
+
+                assertEquals(sqlMatches, indexMatches, "Result count differs for '" + query + "'");
+                System.out.printf("%-10d %-16s %12.3f %12.3f %10d%n", count, query, sqlMs, indexMs, indexMatches);
+            }
+            tearDown();
+        }
+    }
+
+    /**
+     * Insert a synthetic catalog and return matching detached books for the index
+     */
+    private List<Book> seed(int count) {
+        Random random = new Random(42);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Book> books = new ArrayList<>(count);
+        List<Object[]> batch = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            String title = capitalize(WORDS[random.nextInt(WORDS.length)]) + " "
+                    + WORDS[random.nextInt(WORDS.length)] + " " + i;
+            String author = AUTHORS[random.nextInt(AUTHORS.length)];
+            String genre = GENRES[random.nextInt(GENRES.length)];
+
+            Book book = new Book(title, author, "Good", 1L, Book.SharingType.SWAP);
+            book.setId((long) i);
+            book.setGenre(genre);
+            books.add(book);
+
+            batch.add(new Object[]{title, author, genre, "Good", "SWAP", "AVAILABLE", 1L, now});
+            if (batch.size() == 5000 || i == count) {
+                jdbcTemplate.batchUpdate("INSERT INTO books (title, author, genre, book_condition, "
+                        + "sharing_type, status, owner_id, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        assertEquals(count, bookRepository.count());
+        return books;
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+}
@@ -0,0 +1,121 @@
+package com.bookbuddy.bookbuddy.service;
+
+import com.bookbuddy.bookbuddy.model.Book;
+import com.bookbuddy.bookbuddy.repository.BookRepository;
+import com.bookbuddy.bookbuddy.util.SqlLike;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that searches answered by the in-memory index return the same books as the SQL path.
+ * Not transactional on purpose: the index is only updated after commit.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class BookSearchIndexConsistencyTest {
+
+    private static final List<String> QUERIES = List.of(
+            "hobbit", "HOBB", "tolkien", "fantasy", "fiction", "science fiction",
+            "an", "e", "dune", "herbert", "pride", "austen", "classic", "nothing-matches", "o",
+            "%", "100%", "_", "snake_", "!", "a%e");
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository.deleteAll();
+        bookService.buildIndexes();
+
+        bookService.listBook("The Hobbit", "J.R.R. Tolkien", "Fantasy", null, "Good", null,
+                null, null, null, 1L, Book.SharingType.SWAP, null);
+        bookService.listBook("Dune", "Frank Herbert", "Science Fiction", null, "Good", null,
+                null, null, null, 1L, Book.SharingType.GIVE_AWAY, null);
+        bookService.listBook("Pride and Prejudice", "Jane Austen", "Classic", null, "Fair", null,
+                null, null, null, 2L, Book.SharingType.LEND, 14);
+        bookService.listBook("Anansi Boys", "Neil Gaiman", null, null, "Good", null,
+                null, null, null, 2L, Book.SharingType.SWAP, null);
+        bookService.listBook("100% Wolf!", "Jayne Lyons", null, null, "Good", null,
+                null, null, null, 2L, Book.SharingType.SWAP, null);
+        bookService.listBook("Python snake_case Style", "Anonymous", "Programming", null, "Good", null,
+                null, null, null, 2L, Book.SharingType.SWAP, null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookRepository.deleteAll();
+        bookService.buildIndexes();
+    }
+
+    @Test
+    void search_IndexMatchesSql() {
+        assertTrue(searchIndex.isReady());
+        assertConsistent();
+    }
+
+    @Test
+    void sqlSearch_MatchesWildcardsLiterally() {
+        // When / Then: % and _ are plain characters, as in the index
+        assertEquals(Set.of("100% Wolf!"), titles(bookRepository.searchBooks(SqlLike.escape("0%"))));
+        assertEquals(Set.of(), titles(bookRepository.searchBooks(SqlLike.escape("a%e"))));
+        assertEquals(Set.of("Python snake_case Style"),
+                titles(bookService.findBooksByCriteria("e_c", null, null, null, null)));
+        assertEquals(Set.of("100% Wolf!"), titles(bookService.findBooksByCriteria("!", null, null, null, null)));
+    }
+
+    @Test
+    void search_IndexMatchesSqlAfterUpdatesAndTransitions() {
+        // Given
+        Long hobbitId = bookRepository.searchBooks("hobbit").get(0).getId();
+        Long duneId = bookRepository.searchBooks("dune").get(0).getId();
+        Long prideId = bookRepository.searchBooks("pride").get(0).getId();
+
+        // When
+        bookService.updateBook(hobbitId, "The Hobbit, or There and Back Again", null, "Classic",
+                null, null, null, null);
+        bookService.markAsUnavailable(duneId);
+        bookService.deleteBook(prideId, 2L);
+
+        // Then
+        assertConsistent();
+        assertEquals(ids(bookRepository.searchBooks("there and back")), ids(bookService.searchBooks("there and back")));
+
+        // When
+        bookService.markAsAvailable(duneId);
+
+        // Then
+        assertConsistent();
+    }
+
+    private void assertConsistent() {
+        for (String query : QUERIES) {
+            Set<Long> fromSql = ids(bookRepository.searchBooks(SqlLike.escape(query.trim())));
+            Set<Long> fromIndex = ids(bookService.searchBooks(query));
+            assertEquals(fromSql, fromIndex, "Index and SQL disagree for query '" + query + "'");
+        }
+    }
+
+    private static Set<String> titles(List<Book> books) {
+        return books.stream().map(Book::getTitle).collect(Collectors.toSet());
+    }
+
+    private static Set<Long> ids(List<Book> books) {
+        return books.stream().map(Book::getId).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,150 @@
+package com.bookbuddy.bookbuddy.service;
+
+import com.bookbuddy.bookbuddy.model.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookSearchIndexTest {
+
+    private BookSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookSearchIndex();
+        index.rebuild(List.of(
+                book(1L, "The Hobbit", "J.R.R. Tolkien", "Fantasy"),
+                book(2L, "Dune", "Frank Herbert", "Science Fiction"),
+                book(3L, "Hobbies for Beginners", "Ann Smith", null)));
+    }
+
+    @Test
+    void search_MatchesSubstringsCaseInsensitively() {
+        // When
+        List<Long> ids = ids(index.search("HOBB"));
+
+        // Then
+        assertEquals(List.of(1L, 3L), ids);
+    }
+
+    @Test
+    void search_MatchesAuthorAndGenre() {
+        // When / Then
+        assertEquals(List.of(1L), ids(index.search("tolk")));
+        assertEquals(List.of(2L), ids(index.search("science fic")));
+    }
+
+    @Test
+    void search_ShortQueryScansAllFields() {
+        // When / Then
+        assertEquals(List.of(2L), ids(index.search("du")));
+    }
+
+    @Test
+    void search_DoesNotMatchAcrossFields() {
+        // "bitj" only exists when title and author are glued together
+        assertTrue(index.search("bitj").isEmpty());
+    }
+
+    @Test
+    void update_ReindexesChangedBook() {
+        // Given
+        Book dune = book(2L, "Dune Messiah", "Frank Herbert", "Science Fiction");
+
+        // When
+        index.update(dune);
+
+        // Then
+        assertEquals(List.of(2L), ids(index.search("messiah")));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void update_DropsBookThatIsNoLongerAvailable() {
+        // Given
+        Book hobbit = book(1L, "The Hobbit", "J.R.R. Tolkien", "Fantasy");
+        hobbit.setStatus(Book.BookStatus.UNAVAILABLE);
+
+        // When
+        index.update(hobbit);
+
+        // Then
+        assertEquals(List.of(3L), ids(index.search("hobb")));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void remove_DropsBook() {
+        // When
+        index.remove(2L);
+
+        // Then
+        assertTrue(index.search("dune").isEmpty());
+    }
+
+    @Test
+    void rebuild_ReplaysChangesMadeWhileTheBooksWereRead() {
+        // Given: the rebuild read its books before Dune was renamed and the Hobbit deleted
+        index.beginRebuild();
+        List<Book> readBefore = List.of(
+                book(1L, "The Hobbit", "J.R.R. Tolkien", "Fantasy"),
+                book(2L, "Dune", "Frank Herbert", "Science Fiction"));
+        index.update(book(2L, "Dune Messiah", "Frank Herbert", "Science Fiction"));
+        index.update(book(4L, "Emma", "Jane Austen", "Classic"));
+        index.remove(1L);
+
+        // When
+        index.rebuild(readBefore);
+
+        // Then
+        assertEquals(List.of(2L), ids(index.search("messiah")));
+        assertEquals(List.of(4L), ids(index.search("emma")));
+        assertTrue(index.search("hobbit").isEmpty());
+        assertEquals(2, index.size());
+
+        // And later rebuilds without beginRebuild replay nothing
+        index.rebuild(readBefore);
+        assertTrue(index.search("emma").isEmpty());
+    }
+
+    @Test
+    void update_SurvivesCompaction() {
+        // When
+        for (int i = 0; i < 5000; i++) {
+            index.update(book(2L, "Dune " + i, "Frank Herbert", "Science Fiction"));
+        }
+
+        // Then
+        assertEquals(List.of(2L), ids(index.search("dune 4999")));
+        assertEquals(List.of(1L, 3L), ids(index.search("hobb")));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void search_ReturnsSnapshotNotCallerInstance() {
+        // Given
+        Book book = book(4L, "Emma", "Jane Austen", "Classic");
+        index.update(book);
+
+        // When
+        book.setTitle("Persuasion");
+
+        // Then
+        assertEquals("Emma", index.search("emma").get(0).getTitle());
+    }
+
+    private static List<Long> ids(List<Book> books) {
+        return books.stream().map(Book::getId).sorted().collect(Collectors.toList());
+    }
+
+    private static Book book(Long id, String title, String author, String genre) {
+        Book book = new Book(title, author, "Good", 1L, Book.SharingType.SWAP);
+        book.setId(id);
+        book.setGenre(genre);
+        return book;
+    }
+}
@@ -2,12 +2,18 @@ package com.bookbuddy.bookbuddy.service;
 
 import com.bookbuddy.bookbuddy.model.Book;
 import com.bookbuddy.bookbuddy.repository.BookRepository;
+import com.bookbuddy.bookbuddy.util.CursorPage;
+import com.bookbuddy.bookbuddy.util.KeysetCursor;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
@@ -21,6 +27,86 @@ class BookServiceIntegrationTest {
     @Autowired
     private BookRepository bookRepository;
 
+    @Test
+    void findBooksByOwner_PagesThroughAllBooksNewestFirst() {
+        // Arrange
+        Long ownerId = 77L;
+        List<Long> listedIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            listedIds.add(bookService.listBook("Paged Book " + i, "Author", null, null, "Good", null,
+                    null, null, null, ownerId, Book.SharingType.SWAP, null).getId());
+        }
+
+        // Act
+        List<Book> seen = new ArrayList<>();
+        KeysetCursor cursor = null;
+        int pages = 0;
+        do {
+            CursorPage<Book> page = bookService.findBooksByOwner(ownerId, cursor, 2);
+            assertTrue(page.getItems().size() <= 2);
+            seen.addAll(page.getItems());
+            cursor = KeysetCursor.decode(page.getNextCursorToken());
+            pages++;
+        } while (cursor != null);
+
+        // Assert
+        assertEquals(3, pages);
+        assertEquals(5, seen.size());
+        assertEquals(listedIds.stream().sorted().toList(), seen.stream().map(Book::getId).sorted().toList());
+        for (int i = 1; i < seen.size(); i++) {
+            Book newer = seen.get(i - 1);
+            Book older = seen.get(i);
+            assertTrue(new KeysetCursor(newer.getCreatedAt(), newer.getId())
+                    .isAfterInNewestFirst(older.getCreatedAt(), older.getId()));
+        }
+    }
+
+    @Test
+    void searchBooks_EmptyQueryPagesWithSharingTypeFilter() {
+        // Arrange
+        List<Long> giveAwayIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            giveAwayIds.add(bookService.listBook("Give Away " + i, "Author", null, null, "Good", null,
+                    null, null, null, 78L, Book.SharingType.GIVE_AWAY, null).getId());
+            bookService.listBook("Swap " + i, "Author", null, null, "Good", null,
+                    null, null, null, 78L, Book.SharingType.SWAP, null);
+        }
+
+        // Act
+        List<Book> seen = new ArrayList<>();
+        KeysetCursor cursor = null;
+        do {
+            CursorPage<Book> page = bookService.searchBooks("", Book.SharingType.GIVE_AWAY, cursor, 2);
+            assertTrue(page.getItems().size() <= 2);
+            seen.addAll(page.getItems());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        // Assert
+        assertTrue(seen.stream().allMatch(book -> book.getSharingType() == Book.SharingType.GIVE_AWAY));
+        assertEquals(seen.size(), seen.stream().map(Book::getId).distinct().count());
+        assertTrue(seen.stream().map(Book::getId).toList().containsAll(giveAwayIds));
+    }
+
+    @Test
+    void searchBooks_LocatedOnlySkipsBooksWithoutPickupLocation() {
+        // Arrange
+        Book located = bookService.listBook("Pinpointed Atlas", "Author", null, null, "Good", null,
+                "Harbour", 40.7128, -74.0060, 79L, Book.SharingType.SWAP, null);
+        bookService.listBook("Pinpointed Nowhere", "Author", null, null, "Good", null,
+                null, null, null, 79L, Book.SharingType.SWAP, null);
+
+        // Act: the text page from SQL, since this transaction's listings never reach the search index
+        List<Book> byText = bookRepository.searchBooksPage("pinpointed", null, true, null, null, PageRequest.of(0, 10));
+        CursorPage<Book> all = bookService.searchBooks("", null, true, null, CursorPage.MAX_LIMIT);
+
+        // Assert
+        assertEquals(List.of(located.getId()), byText.stream().map(Book::getId).toList());
+        assertTrue(all.getItems().stream().allMatch(Book::hasLocation));
+        assertTrue(all.getItems().stream().map(Book::getId).toList().contains(located.getId()));
+        assertEquals(2, bookRepository.searchBooksPage("pinpointed", null, false, null, null, PageRequest.of(0, 10)).size());
+    }
+
     @Test
     void listBook_Success() {
         // Arrange
@@ -2,6 +2,8 @@ package com.bookbuddy.bookbuddy.service;
 
 import com.bookbuddy.bookbuddy.model.Book;
 import com.bookbuddy.bookbuddy.repository.BookRepository;
+import com.bookbuddy.bookbuddy.util.CursorPage;
+import com.bookbuddy.bookbuddy.util.KeysetCursor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -9,12 +11,16 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -23,6 +29,18 @@ class BookServiceTest {
     @Mock
     private BookRepository bookRepository;
 
+    @Mock
+    private BookSearchIndex searchIndex;
+
+    @Mock
+    private BookSpatialIndex spatialIndex;
+
+    @Mock
+    private RecentBooksCache recentBooks;
+
+    @Mock
+    private LiveStats liveStats;
+
     @InjectMocks
     private BookService bookService;
 
@@ -187,6 +205,238 @@ class BookServiceTest {
         verify(bookRepository).searchBooks(query);
     }
 
+    @Test
+    void searchBooks_UsesIndexWhenReady() {
+        // Arrange
+        String query = "test";
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.search(query)).thenReturn(Arrays.asList(testBook));
+
+        // Act
+        List<Book> result = bookService.searchBooks(query);
+
+        // Assert
+        assertEquals(1, result.size());
+        assertEquals(testBook, result.get(0));
+        verify(bookRepository, never()).searchBooks(any());
+    }
+
+    @Test
+    void searchBooksPage_IndexResultsPagedNewestFirst() {
+        // Arrange
+        LocalDateTime now = LocalDateTime.now();
+        List<Book> matches = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            Book book = new Book("Test " + id, "Author", "Good", 1L,
+                    id % 2 == 0 ? Book.SharingType.SWAP : Book.SharingType.GIVE_AWAY);
+            book.setId(id);
+            book.setCreatedAt(now.minusMinutes(id));
+            matches.add(book);
+        }
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.search("test")).thenReturn(matches);
+
+        // Act
+        CursorPage<Book> first = bookService.searchBooks("test", null, null, 2);
+        CursorPage<Book> second = bookService.searchBooks("test", null, first.getNextCursor(), 2);
+        CursorPage<Book> giveAways = bookService.searchBooks("test", Book.SharingType.GIVE_AWAY, null, 10);
+
+        // Assert
+        assertEquals(List.of(1L, 2L), first.getItems().stream().map(Book::getId).toList());
+        assertEquals(new KeysetCursor(now.minusMinutes(2), 2L), first.getNextCursor());
+        assertEquals(List.of(3L, 4L), second.getItems().stream().map(Book::getId).toList());
+        assertEquals(List.of(1L, 3L, 5L), giveAways.getItems().stream().map(Book::getId).toList());
+        assertFalse(giveAways.hasNext());
+        verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    void searchBooksPage_LocatedOnlyFiltersIndexResults() {
+        // Arrange
+        Book unlocated = new Book("Test Unlocated", "Author", "Good", 1L, Book.SharingType.SWAP);
+        unlocated.setId(2L);
+        unlocated.setCreatedAt(LocalDateTime.now());
+        testBook.setCreatedAt(LocalDateTime.now().minusMinutes(1));
+        testBook.setPickupLatitude(40.7128);
+        testBook.setPickupLongitude(-74.0060);
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.search("test")).thenReturn(List.of(unlocated, testBook));
+
+        // Act
+        CursorPage<Book> result = bookService.searchBooks("test", null, true, null, 10);
+
+        // Assert
+        assertEquals(List.of(testBook), result.getItems());
+        verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    void searchBooksPage_EmptyQueryUsesKeysetQuery() {
+        // Arrange
+        KeysetCursor after = new KeysetCursor(LocalDateTime.now(), 9L);
+        when(bookRepository.findAvailableBooksPage(eq(Book.SharingType.SWAP), eq(false), eq(after.getCreatedAt()), eq(9L), any()))
+                .thenReturn(List.of(testBook));
+
+        // Act
+        CursorPage<Book> result = bookService.searchBooks(" ", Book.SharingType.SWAP, after, 20);
+
+        // Assert
+        assertEquals(List.of(testBook), result.getItems());
+        assertFalse(result.hasNext());
+        verify(searchIndex, never()).search(any());
+    }
+
+    @Test
+    void findBooksNearby_UsesSpatialIndexWhenReady() {
+        // Arrange
+        when(spatialIndex.isReady()).thenReturn(true);
+        when(spatialIndex.findNearby(40.7128, -74.0060, 5.0, 10)).thenReturn(Arrays.asList(testBook));
+
+        // Act
+        List<Book> result = bookService.findBooksNearby(40.7128, -74.0060, 5.0, 10);
+
+        // Assert
+        assertEquals(1, result.size());
+        verify(bookRepository, never()).findAvailableBooksInGeohashCell(any());
+    }
+
+    @Test
+    void findBooksNearby_FallsBackToGeohashPrefixQuery() {
+        // Arrange
+        Book farBook = new Book("Far", "Author", "Good", 2L, Book.SharingType.SWAP);
+        farBook.setId(2L);
+        farBook.setPickupLatitude(40.80);
+        farBook.setPickupLongitude(-74.0060);
+        when(bookRepository.findAvailableBooksInGeohashCell(any()))
+                .thenReturn(Arrays.asList(farBook, testBook))
+                .thenReturn(List.of());
+
+        // Act
+        List<Book> result = bookService.findBooksNearby(40.7128, -74.0060, 5.0);
+
+        // Assert
+        assertEquals(List.of(testBook), result);
+    }
+
+    @Test
+    void findBooksNearby_FiltersBeforeTheLimit() {
+        // Arrange: 60 nearby swap books closer than the only matching lend book
+        List<Book> cell = new ArrayList<>();
+        for (long id = 10; id < 70; id++) {
+            Book book = new Book("Close " + id, "Author", "Good", 2L, Book.SharingType.SWAP);
+            book.setId(id);
+            book.setPickupLatitude(40.7128 + id * 0.0001);
+            book.setPickupLongitude(-74.0060);
+            cell.add(book);
+        }
+        Book lendBook = new Book("Further", "Author", "Good", 2L, Book.SharingType.LEND);
+        lendBook.setId(100L);
+        lendBook.setLendingDurationDays(14);
+        lendBook.setPickupLatitude(40.7428);
+        lendBook.setPickupLongitude(-74.0060);
+        cell.add(lendBook);
+        when(bookRepository.findAvailableBooksInGeohashCell(any()))
+                .thenReturn(cell)
+                .thenReturn(List.of());
+
+        // Act
+        List<Book> result = bookService.findBooksNearby(40.7128, -74.0060, 5.0, null, Book.SharingType.LEND, 50);
+
+        // Assert
+        assertEquals(List.of(lendBook), result);
+    }
+
+    @Test
+    void markAsUnavailable_RefreshesSearchIndex() {
+        // Arrange
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(testBook));
+        when(bookRepository.save(any(Book.class))).thenReturn(testBook);
+
+        // Act
+        bookService.markAsUnavailable(1L);
+
+        // Assert
+        verify(searchIndex).update(testBook);
+        verify(spatialIndex).update(testBook);
+        verify(recentBooks).update(testBook);
+        verify(liveStats).bookChanged(any(LiveStats.BookState.class), any(LiveStats.BookState.class));
+    }
+
+    @Test
+    void getBookStats_ReadsLiveCountersWithoutQuerying() {
+        // Arrange
+        LiveStats counters = new LiveStats(bookRepository, null, null);
+        counters.bookChanged(null, LiveStats.BookState.of(testBook));
+        Book unlocated = new Book("No Location", "Author", "Good", 2L, Book.SharingType.LEND);
+        counters.bookChanged(null, LiveStats.BookState.of(unlocated));
+        when(liveStats.snapshot()).thenReturn(counters.snapshot());
+
+        // Act
+        BookService.BookStats stats = bookService.getBookStats();
+
+        // Assert
+        assertEquals(2, stats.getTotalBooks());
+        assertEquals(1, stats.getBooksWithLocation());
+        verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    void getRecentBooks_FirstPageServedFromCache() {
+        // Arrange
+        LocalDateTime now = LocalDateTime.now();
+        List<Book> newest = new ArrayList<>();
+        for (long id = 3; id >= 1; id--) {
+            Book book = new Book("Recent " + id, "Author", "Good", 1L, Book.SharingType.LEND);
+            book.setId(id);
+            book.setCreatedAt(now.minusMinutes(10 - id));
+            newest.add(book);
+        }
+        when(recentBooks.page(any(LocalDateTime.class), isNull(), eq(3))).thenReturn(Optional.of(newest));
+
+        // Act
+        CursorPage<Book> result = bookService.getRecentBooks(null, 2);
+
+        // Assert
+        assertEquals(List.of(3L, 2L), result.getItems().stream().map(Book::getId).toList());
+        assertTrue(result.hasNext());
+        verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    void getRecentBooks_ColdCacheLoadedOnce() {
+        // Arrange
+        when(recentBooks.isEnabled()).thenReturn(true);
+        when(recentBooks.getCapacity()).thenReturn(200);
+        when(recentBooks.beginLoad()).thenReturn(7L);
+        when(bookRepository.findAvailableBooksPage(isNull(), eq(false), isNull(), isNull(), any())).thenReturn(List.of(testBook));
+        when(recentBooks.page(any(LocalDateTime.class), isNull(), eq(11)))
+                .thenReturn(Optional.empty(), Optional.of(List.of(testBook)));
+
+        // Act
+        CursorPage<Book> result = bookService.getRecentBooks(null, 10);
+
+        // Assert
+        assertEquals(List.of(testBook), result.getItems());
+        verify(recentBooks).load(List.of(testBook), 7L);
+        verify(bookRepository, never()).findRecentBooksPage(any(), any(), any(), any());
+    }
+
+    @Test
+    void getRecentBooks_PagePastCacheUsesIndexedQuery() {
+        // Arrange
+        KeysetCursor after = new KeysetCursor(LocalDateTime.now().minusDays(3), 40L);
+        when(bookRepository.findRecentBooksPage(any(LocalDateTime.class), eq(after.getCreatedAt()), eq(40L), any()))
+                .thenReturn(List.of(testBook));
+
+        // Act
+        CursorPage<Book> result = bookService.getRecentBooks(after, 20);
+
+        // Assert
+        assertEquals(List.of(testBook), result.getItems());
+        assertFalse(result.hasNext());
+        verify(recentBooks, never()).load(any(), anyLong());
+    }
+
     @Test
     void updateBook_Success() {
         // Arrange
@@ -313,4 +563,103 @@ class BookServiceTest {
         verify(bookRepository).findById(bookId);
         verify(bookRepository).save(any(Book.class));
     }
-} 
\ No newline at end of file
+
+    @Test
+    void listBooks_ListsEveryBookForTheOwner() {
+        // Arrange
+        Book first = listing("First", Book.SharingType.SWAP, null);
+        Book second = listing("Second", Book.SharingType.LEND, 14);
+        when(bookRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        List<Book> result = bookService.listBooks(9L, List.of(first, second));
+
+        // Assert
+        assertEquals(2, result.size());
+        assertTrue(result.stream().allMatch(book -> book.getOwnerId().equals(9L)));
+        assertTrue(result.stream().allMatch(book -> book.getStatus() == Book.BookStatus.AVAILABLE));
+        assertEquals(14, result.get(1).getLendingDurationDays());
+        verify(searchIndex, times(2)).update(any(Book.class));
+    }
+
+    @Test
+    void listBooks_InvalidListingSavesNothing() {
+        // Arrange
+        Book valid = listing("Valid", Book.SharingType.SWAP, null);
+        Book missingDuration = listing("Lend", Book.SharingType.LEND, null);
+
+        // Act & Assert
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> bookService.listBooks(9L, List.of(valid, missingDuration)));
+        assertEquals("Lending duration is required for lend books", exception.getMessage());
+        verify(bookRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void listBooks_TooManyListings() {
+        // Arrange
+        List<Book> listings = new ArrayList<>();
+        for (int i = 0; i <= BookService.MAX_BULK_SIZE; i++) {
+            listings.add(listing("Book " + i, Book.SharingType.SWAP, null));
+        }
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> bookService.listBooks(9L, listings));
+        verify(bookRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void updateAvailability_OnlyTogglesAvailableAndUnavailableBooks() {
+        // Arrange
+        Book inExchange = listing("In Exchange", Book.SharingType.SWAP, null);
+        inExchange.setId(2L);
+        inExchange.setOwnerId(1L);
+        inExchange.setStatus(Book.BookStatus.EXCHANGE_IN_PROGRESS);
+        when(bookRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(testBook, inExchange));
+        when(bookRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        List<Book> result = bookService.updateAvailability(1L, List.of(1L, 2L), false);
+
+        // Assert
+        assertEquals(List.of(testBook), result);
+        assertEquals(Book.BookStatus.UNAVAILABLE, testBook.getStatus());
+        assertEquals(Book.BookStatus.EXCHANGE_IN_PROGRESS, inExchange.getStatus());
+    }
+
+    @Test
+    void updateAvailability_OtherOwnersBookChangesNothing() {
+        // Arrange
+        Book someoneElses = listing("Not Mine", Book.SharingType.SWAP, null);
+        someoneElses.setId(2L);
+        someoneElses.setOwnerId(2L);
+        someoneElses.setStatus(Book.BookStatus.AVAILABLE);
+        when(bookRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(testBook, someoneElses));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> bookService.updateAvailability(1L, List.of(1L, 2L), false));
+        assertEquals(Book.BookStatus.AVAILABLE, testBook.getStatus());
+        verify(bookRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void updateAvailability_MissingBook() {
+        // Arrange
+        when(bookRepository.findAllById(List.of(1L, 99L))).thenReturn(List.of(testBook));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> bookService.updateAvailability(1L, List.of(1L, 99L), true));
+    }
+
+    private static Book listing(String title, Book.SharingType sharingType, Integer lendingDurationDays) {
+        Book listing = new Book();
+        listing.setTitle(title);
+        listing.setAuthor("Author");
+        listing.setCondition("Good");
+        listing.setSharingType(sharingType);
+        listing.setLendingDurationDays(lendingDurationDays);
+        return listing;
+    }
+}
@@ -0,0 +1,185 @@
+package com.bookbuddy.bookbuddy.service;
+
+import com.bookbuddy.bookbuddy.model.Book;
+import com.bookbuddy.bookbuddy.util.DistanceCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookSpatialIndexTest {
+
+    private static final double LONDON_LAT = 51.5074;
+    private static final double LONDON_LNG = -0.1278;
+
+    private BookSpatialIndex index;
+    private List<Book> books;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(42);
+        books = new ArrayList<>();
+        for (long id = 1; id <= 2000; id++) {
+            // Scatter books over roughly 100 km around central London
+            books.add(book(id, LONDON_LAT + (random.nextDouble() - 0.5), LONDON_LNG + (random.nextDouble() - 0.5) * 1.6));
+        }
+        Book withoutLocation = book(2001L, null, null);
+        books.add(withoutLocation);
+
+        index = new BookSpatialIndex();
+        index.rebuild(books);
+    }
+
+    @Test
+    void findNearby_MatchesBruteForce() {
+        for (double radius : new double[]{0.5, 2, 10, 40}) {
+            // When
+            List<Long> fromIndex = ids(index.findNearby(LONDON_LAT, LONDON_LNG, radius, Integer.MAX_VALUE));
+
+            // Then
+            assertEquals(bruteForce(radius, Integer.MAX_VALUE), fromIndex, "radius " + radius);
+        }
+    }
+
+    @Test
+    void findNearby_ReturnsClosestFirstWithinLimit() {
+        // When
+        List<Book> result = index.findNearby(LONDON_LAT, LONDON_LNG, 40, 10);
+
+        // Then
+        assertEquals(10, result.size());
+        assertEquals(bruteForce(40, 10), ids(result));
+        for (int i = 1; i < result.size(); i++) {
+            assertTrue(result.get(i - 1).distanceTo(LONDON_LAT, LONDON_LNG)
+                    <= result.get(i).distanceTo(LONDON_LAT, LONDON_LNG));
+        }
+    }
+
+    @Test
+    void findNearby_PagesWithDistanceCursorCoverEveryBookOnce() {
+        // When: pages of 50 after the last book of the previous page
+        List<Long> paged = new ArrayList<>();
+        DistanceCursor after = null;
+        List<Book> page;
+        do {
+            DistanceCursor cursor = after;
+            page = index.findNearby(LONDON_LAT, LONDON_LNG, 40, 50, book -> cursor == null
+                    || cursor.isAfterInClosestFirst(book.distanceTo(LONDON_LAT, LONDON_LNG), book.getId()));
+            paged.addAll(ids(page));
+            if (!page.isEmpty()) {
+                Book last = page.get(page.size() - 1);
+                after = new DistanceCursor(last.distanceTo(LONDON_LAT, LONDON_LNG), last.getId());
+            }
+        } while (page.size() == 50);
+
+        // Then
+        assertEquals(bruteForce(40, Integer.MAX_VALUE), paged);
+    }
+
+    @Test
+    void findNearby_SameDistanceOrderedById() {
+        // Given: three books at the very same spot
+        for (long id = 5003; id >= 5001; id--) {
+            index.update(book(id, LONDON_LAT, LONDON_LNG));
+        }
+
+        // When
+        List<Long> closest = ids(index.findNearby(LONDON_LAT, LONDON_LNG, 1, 2));
+
+        // Then
+        assertEquals(List.of(5001L, 5002L), closest);
+    }
+
+    @Test
+    void findNearby_FiltersBeforeTheLimit() {
+        // Given: 2000 books around London, and the only lend book further out than the closest 50
+        List<Long> closestFifty = bruteForce(40, 50);
+        Book lendBook = books.stream()
+                .filter(book -> book.hasLocation() && book.distanceTo(LONDON_LAT, LONDON_LNG) <= 40)
+                .filter(book -> !closestFifty.contains(book.getId()))
+                .findFirst().orElseThrow();
+        lendBook.setSharingType(Book.SharingType.LEND);
+        index.update(lendBook);
+
+        // When
+        List<Book> result = index.findNearby(LONDON_LAT, LONDON_LNG, 40, 50,
+                book -> book.getSharingType() == Book.SharingType.LEND);
+
+        // Then
+        assertEquals(List.of(lendBook.getId()), ids(result));
+    }
+
+    @Test
+    void update_MovesAndDropsBooks() {
+        // Given
+        Book moved = book(5000L, LONDON_LAT, LONDON_LNG);
+        index.update(moved);
+        assertEquals(5000L, index.findNearby(LONDON_LAT, LONDON_LNG, 1, 1).get(0).getId());
+
+        // When
+        moved.setStatus(Book.BookStatus.UNAVAILABLE);
+        index.update(moved);
+
+        // Then
+        assertNotEquals(5000L, index.findNearby(LONDON_LAT, LONDON_LNG, 1, 1).stream()
+                .findFirst().map(Book::getId).orElse(null));
+    }
+
+    @Test
+    void rebuild_ReplaysChangesMadeWhileTheBooksWereRead() {
+        // Given: a book is listed next to the centre and another removed while the rebuild reads
+        Long closest = index.findNearby(LONDON_LAT, LONDON_LNG, 40, 1).get(0).getId();
+        index.beginRebuild();
+        index.update(book(5000L, LONDON_LAT, LONDON_LNG));
+        index.remove(closest);
+
+        // When
+        index.rebuild(books);
+
+        // Then
+        List<Long> nearby = ids(index.findNearby(LONDON_LAT, LONDON_LNG, 40, Integer.MAX_VALUE));
+        assertEquals(5000L, nearby.get(0));
+        assertFalse(nearby.contains(closest));
+        assertEquals(2000, index.size());
+    }
+
+    @Test
+    void remove_DropsBook() {
+        // Given
+        Long closest = index.findNearby(LONDON_LAT, LONDON_LNG, 40, 1).get(0).getId();
+
+        // When
+        index.remove(closest);
+
+        // Then
+        assertFalse(ids(index.findNearby(LONDON_LAT, LONDON_LNG, 40, Integer.MAX_VALUE)).contains(closest));
+        assertEquals(1999, index.size());
+    }
+
+    private List<Long> bruteForce(double radius, int limit) {
+        return books.stream()
+                .filter(Book::hasLocation)
+                .filter(book -> book.distanceTo(LONDON_LAT, LONDON_LNG) <= radius)
+                .sorted(DistanceCursor.closestFirst(book -> book.distanceTo(LONDON_LAT, LONDON_LNG), Book::getId))
+                .limit(limit)
+                .map(Book::getId)
+                .collect(Collectors.toList());
+    }
+
+    private static List<Long> ids(List<Book> books) {
+        return books.stream().map(Book::getId).collect(Collectors.toList());
+    }
+
+    private static Book book(Long id, Double lat, Double lng) {
+        Book book = new Book("Book " + id, "Author", "Good", 1L, Book.SharingType.SWAP);
+        book.setId(id);
+        book.setPickupLatitude(lat);
+        book.setPickupLongitude(lng);
+        return book;
+    }
+}
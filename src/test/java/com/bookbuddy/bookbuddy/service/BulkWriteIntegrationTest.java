@@ -0,0 +1,90 @@
+package com.bookbuddy.bookbuddy.service;
+
+import com.bookbuddy.bookbuddy.model.Book;
+import com.bookbuddy.bookbuddy.repository.BookRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:bulkwrite")
+@ActiveProfiles("test")
+class BulkWriteIntegrationTest {
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void listBooks_InsertsInJdbcBatches() {
+        // Given
+        List<Book> listings = listings(120);
+        statistics.clear();
+
+        // When
+        List<Book> listed = bookService.listBooks(5L, listings);
+
+        // Then: 3 batches of inserts and 3 sequence blocks instead of 120 round trips
+        assertEquals(120, listed.size());
+        assertEquals(120, statistics.getEntityInsertCount());
+        assertTrue(statistics.getPrepareStatementCount() <= 10, "statements: " + statistics.getPrepareStatementCount());
+        assertEquals(120, bookRepository.findByOwnerId(5L).size());
+    }
+
+    @Test
+    void updateAvailability_UpdatesInJdbcBatches() {
+        // Given
+        List<Long> ids = bookService.listBooks(6L, listings(60)).stream().map(Book::getId).toList();
+        statistics.clear();
+
+        // When
+        List<Book> changed = bookService.updateAvailability(6L, ids, false);
+
+        // Then
+        assertEquals(60, changed.size());
+        assertEquals(60, statistics.getEntityUpdateCount());
+        assertTrue(statistics.getPrepareStatementCount() <= 5, "statements: " + statistics.getPrepareStatementCount());
+        assertTrue(bookRepository.findByOwnerId(6L).stream()
+                .allMatch(book -> book.getStatus() == Book.BookStatus.UNAVAILABLE));
+    }
+
+    private static List<Book> listings(int count) {
+        List<Book> listings = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Book listing = new Book();
+            listing.setTitle("Bulk Book " + i);
+            listing.setAuthor("Author");
+            listing.setCondition("Good");
+            listing.setSharingType(Book.SharingType.SWAP);
+            listings.add(listing);
+        }
+        return listings;
+    }
+}
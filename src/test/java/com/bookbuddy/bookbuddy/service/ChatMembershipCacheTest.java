@@ -0,0 +1,78 @@
+package com.bookbuddy.bookbuddy.service;
+
+import com.bookbuddy.bookbuddy.model.Chat;
+import com.bookbuddy.bookbuddy.repository.ChatRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ChatMembershipCacheTest {
+
+    private ChatRepository chatRepository;
+    private ChatMembershipCache cache;
+
+    @BeforeEach
+    void setUp() {
+        chatRepository = mock(ChatRepository.class);
+        cache = new ChatMembershipCache(chatRepository);
+    }
+
+    @Test
+    void get_LoadsOnceThenServesFromCache() {
+        // Given
+        when(chatRepository.findById(1L)).thenReturn(Optional.of(chat(1L, Chat.ChatStatus.ACTIVE)));
+
+        // When
+        cache.get(1L);
+        ChatMembershipCache.Membership membership = cache.get(1L).orElseThrow();
+
+        // Then
+        assertTrue(membership.isActive());
+        assertTrue(membership.involvesUser(20L));
+        verify(chatRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void get_LoadOverlappingAnUpdateDoesNotOverwriteIt() {
+        // Given: the chat is completed while a miss is still reading the old row
+        when(chatRepository.findById(1L)).thenAnswer(invocation -> {
+            cache.update(chat(1L, Chat.ChatStatus.COMPLETED));
+            return Optional.of(chat(1L, Chat.ChatStatus.ACTIVE));
+        });
+
+        // When
+        cache.get(1L);
+
+        // Then
+        assertEquals(Chat.ChatStatus.COMPLETED, cache.get(1L).orElseThrow().getStatus());
+        verify(chatRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void get_LoadOverlappingAnUpdateOfAnotherChatIsNotCached() {
+        // Given: chat 65 shares a stripe with chat 1, so the load can't tell the updates apart
+        when(chatRepository.findById(1L)).thenAnswer(invocation -> {
+            cache.update(chat(65L, Chat.ChatStatus.CANCELLED));
+            return Optional.of(chat(1L, Chat.ChatStatus.ACTIVE));
+        }).thenReturn(Optional.of(chat(1L, Chat.ChatStatus.ACTIVE)));
+
+        // When
+        cache.get(1L);
+        cache.get(1L);
+        cache.get(1L);
+
+        // Then: dropped once, cached by the next load
+        verify(chatRepository, times(2)).findById(1L);
+    }
+
+    private static Chat chat(Long id, Chat.ChatStatus status) {
+        Chat chat = new Chat(5L, 7L, 10L, 20L);
+        chat.setId(id);
+        chat.setStatus(status);
+        return chat;
+    }
+}
@@ -0,0 +1,211 @@
+package com.bookbuddy.bookbuddy.service;
+
+import com.bookbuddy.bookbuddy.model.Book;
+import com.bookbuddy.bookbuddy.model.Chat;
+import com.bookbuddy.bookbuddy.model.ChatInboxEntry;
+import com.bookbuddy.bookbuddy.model.Message;
+import com.bookbuddy.bookbuddy.model.User;
+import com.bookbuddy.bookbuddy.repository.BookRepository;
+import com.bookbuddy.bookbuddy.repository.ChatRepository;
+import com.bookbuddy.bookbuddy.repository.MessageRepository;
+import com.bookbuddy.bookbuddy.repository.UserRepository;
+import com.bookbuddy.bookbuddy.util.CursorPage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class ChatServiceIntegrationTest {
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User owner;
+    private User requester;
+    private Chat activeChat;
+    private Chat completedChat;
+
+    @BeforeEach
+    void setUp() {
+        owner = userRepository.save(new User("owner@example.com", "password123", "Olive", "Owner"));
+        requester = userRepository.save(new User("requester@example.com", "password123", "Rick", "Requester"));
+        Book book = bookRepository.save(new Book("Dune", "Frank Herbert", "Good", owner.getId(), Book.SharingType.SWAP));
+
+        activeChat = chatRepository.save(new Chat(book.getId(), 100L, requester.getId(), owner.getId()));
+        completedChat = new Chat(book.getId(), 101L, requester.getId(), owner.getId());
+        completedChat.setStatus(Chat.ChatStatus.COMPLETED);
+        completedChat = chatRepository.save(completedChat);
+
+        messageRepository.save(new Message(activeChat.getId(), "Swap request accepted!", Message.MessageType.SYSTEM));
+        messageRepository.save(new Message(activeChat.getId(), requester.getId(), "Hi there"));
+        messageRepository.save(new Message(activeChat.getId(), requester.getId(), "Is it still available?"));
+        messageRepository.save(new Message(activeChat.getId(), owner.getId(), "Yes"));
+        messageRepository.save(new Message(completedChat.getId(), requester.getId(), "Thanks!"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField(chatService, "unreadCountersEnabled", false);
+    }
+
+    @Test
+    void getInbox_LoadsChatsWithBookUsersLastMessageAndUnreadCounts() {
+        // When
+        Map<Long, ChatInboxEntry> inbox = chatService.getInbox(owner.getId()).stream()
+                .collect(Collectors.toMap(entry -> entry.getChat().getId(), Function.identity()));
+
+        // Then
+        assertEquals(2, inbox.size());
+
+        ChatInboxEntry active = inbox.get(activeChat.getId());
+        assertEquals("Dune", active.getBook().getTitle());
+        assertEquals(requester.getId(), active.getUser1().getId());
+        assertEquals(owner.getId(), active.getUser2().getId());
+        assertEquals("Yes", active.getLastMessage().getContent());
+        assertEquals(2, active.getUnreadCount());
+        assertEquals(requester.getId(), active.getOtherUserId(owner.getId()));
+
+        ChatInboxEntry completed = inbox.get(completedChat.getId());
+        assertEquals("Thanks!", completed.getLastMessage().getContent());
+        assertEquals(1, completed.getUnreadCount());
+    }
+
+    @Test
+    void getInbox_LastMessageIsTheNewestByCreatedAtNotTheHighestId() {
+        // Given: a message with a higher id but an earlier timestamp, as another instance's id block gives
+        Message late = messageRepository.saveAndFlush(new Message(activeChat.getId(), requester.getId(), "Sent earlier"));
+        jdbcTemplate.update("UPDATE messages SET created_at = ? WHERE id = ?",
+                LocalDateTime.now().minusHours(1), late.getId());
+
+        // When
+        ChatInboxEntry entry = chatService.getInbox(owner.getId()).stream()
+                .filter(e -> e.getChat().getId().equals(activeChat.getId()))
+                .findFirst()
+                .orElseThrow();
+
+        // Then
+        assertEquals("Yes", entry.getLastMessage().getContent());
+    }
+
+    @Test
+    void getInbox_ChatWithoutMessagesHasNoLastMessage() {
+        // Given
+        Chat emptyChat = chatRepository.save(new Chat(999L, 102L, requester.getId(), owner.getId()));
+
+        // When
+        ChatInboxEntry entry = chatService.getInbox(requester.getId()).stream()
+                .filter(e -> e.getChat().getId().equals(emptyChat.getId()))
+                .findFirst()
+                .orElseThrow();
+
+        // Then
+        assertNull(entry.getLastMessage());
+        assertNull(entry.getBook());
+        assertEquals(0, entry.getUnreadCount());
+    }
+
+    @Test
+    void getEnhancedActiveChatsForUser_OnlyActiveChats() {
+        // When
+        List<Map<String, Object>> chats = chatService.getEnhancedActiveChatsForUser(requester.getId());
+
+        // Then
+        assertEquals(1, chats.size());
+        assertEquals(activeChat.getId(), chats.get(0).get("id"));
+        assertEquals(owner.getId(), chats.get(0).get("otherUserId"));
+        assertEquals("Yes", chats.get(0).get("lastMessage"));
+        assertEquals(1L, chats.get(0).get("unreadCount"));
+    }
+
+    @Test
+    void getChatMessages_PagesOldestFirst() {
+        // When
+        CursorPage<Message> first = chatService.getChatMessages(activeChat.getId(), null, 3);
+        CursorPage<Message> second = chatService.getChatMessages(activeChat.getId(), first.getNextCursor(), 3);
+
+        // Then
+        assertEquals(List.of("Swap request accepted!", "Hi there", "Is it still available?"),
+                first.getItems().stream().map(Message::getContent).toList());
+        assertTrue(first.hasNext());
+        assertEquals(List.of("Yes"), second.getItems().stream().map(Message::getContent).toList());
+        assertFalse(second.hasNext());
+    }
+
+    @Test
+    void getLatestChatMessages_ScrollsBackFromNewest() {
+        // When
+        CursorPage<Message> latest = chatService.getLatestChatMessages(activeChat.getId(), null, 2);
+        CursorPage<Message> older = chatService.getLatestChatMessages(activeChat.getId(), latest.getNextCursor(), 2);
+
+        // Then
+        assertEquals(List.of("Is it still available?", "Yes"),
+                latest.getItems().stream().map(Message::getContent).toList());
+        assertTrue(latest.hasNext());
+        assertEquals(List.of("Swap request accepted!", "Hi there"),
+                older.getItems().stream().map(Message::getContent).toList());
+        assertFalse(older.hasNext());
+    }
+
+    @Test
+    void unreadCounts_UseCountQueries() {
+        // When / Then
+        assertEquals(2, chatService.getUnreadMessageCount(activeChat.getId(), owner.getId()));
+        assertEquals(2, chatService.getTotalUnreadMessageCount(owner.getId()));
+        assertEquals(Map.of(activeChat.getId(), 2L, completedChat.getId(), 1L),
+                chatService.getUnreadMessageCounts(owner.getId()));
+    }
+
+    @Test
+    void unreadCounters_TrackSendAndMarkRead() {
+        // Given
+        ReflectionTestUtils.setField(chatService, "unreadCountersEnabled", true);
+        chatService.seedUnreadCounters();
+        assertEquals(2, chatService.getTotalUnreadMessageCount(owner.getId()));
+
+        // When
+        chatService.sendMessage(activeChat.getId(), requester.getId(), "Tomorrow at noon?");
+
+        // Then
+        assertEquals(3, chatService.getUnreadMessageCount(activeChat.getId(), owner.getId()));
+        assertEquals(3, chatService.getTotalUnreadMessageCount(owner.getId()));
+
+        // When
+        chatService.markMessagesAsRead(activeChat.getId(), owner.getId());
+
+        // Then
+        assertEquals(0, chatService.getUnreadMessageCount(activeChat.getId(), owner.getId()));
+        assertEquals(0, chatService.getTotalUnreadMessageCount(owner.getId()));
+        assertEquals(1, chatService.getTotalUnreadMessageCount(requester.getId()));
+    }
+}
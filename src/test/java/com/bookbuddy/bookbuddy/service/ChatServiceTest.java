@@ -2,10 +2,12 @@ package com.bookbuddy.bookbuddy.service;
 
 import com.bookbuddy.bookbuddy.model.Book;
 import com.bookbuddy.bookbuddy.model.Chat;
+import com.bookbuddy.bookbuddy.model.ChatInboxEntry;
 import com.bookbuddy.bookbuddy.model.Message;
 import com.bookbuddy.bookbuddy.model.Request;
 import com.bookbuddy.bookbuddy.model.User;
 import com.bookbuddy.bookbuddy.repository.ChatRepository;
+import com.bookbuddy.bookbuddy.repository.ChatUnreadCounterRepository;
 import com.bookbuddy.bookbuddy.repository.MessageRepository;
 import com.bookbuddy.bookbuddy.repository.RequestRepository;
 import com.bookbuddy.bookbuddy.repository.UserRepository;
@@ -15,6 +17,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
@@ -23,6 +26,7 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -41,6 +45,24 @@ class ChatServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private ChatUnreadCounterRepository unreadCounterRepository;
+
+    @Mock
+    private NotificationPublisher notificationPublisher;
+
+    @Mock
+    private RecentMessageCache recentMessages;
+
+    @Mock
+    private MessageWriteBehind writeBehind;
+
+    @Mock
+    private ChatMembershipCache memberships;
+
+    @Mock
+    private LiveStats liveStats;
+
     @InjectMocks
     private ChatService chatService;
 
@@ -91,6 +113,10 @@ class ChatServiceTest {
         testMessage.setId(1L);
         testMessage.setMessageType(Message.MessageType.TEXT);
         testMessage.setCreatedAt(LocalDateTime.now());
+
+        // The membership cache reads through to the (mocked) chat repository, as on a cold cache
+        lenient().when(memberships.get(any())).thenAnswer(invocation ->
+                chatRepository.findById(invocation.getArgument(0)).map(ChatMembershipCache.Membership::of));
     }
 
     @Test
@@ -169,6 +195,7 @@ class ChatServiceTest {
         assertEquals("Hello!", result.getContent());
         assertEquals(Message.MessageType.TEXT, result.getMessageType());
         verify(messageRepository).save(any(Message.class));
+        verify(notificationPublisher).publishDelta(1L, NotificationPublisher.Badge.CHAT, 1);
     }
 
     @Test
@@ -189,6 +216,7 @@ class ChatServiceTest {
         // When & Then
         assertThrows(IllegalArgumentException.class, () -> chatService.sendMessage(1L, 3L, "Hello!"));
         verify(messageRepository, never()).save(any(Message.class));
+        verifyNoInteractions(notificationPublisher);
     }
 
     @Test
@@ -218,6 +246,46 @@ class ChatServiceTest {
         verify(messageRepository).findByChatIdOrderByCreatedAtAsc(1L);
     }
 
+    @Test
+    void getLastMessage_CachedChat_SkipsRepository() {
+        // Given
+        when(recentMessages.lastMessage(1L)).thenReturn(Optional.of(testMessage));
+
+        // When
+        Optional<Message> result = chatService.getLastMessage(1L);
+
+        // Then
+        assertEquals(Optional.of(testMessage), result);
+        verify(messageRepository, never()).findFirstByChatIdOrderByCreatedAtDesc(any());
+    }
+
+    @Test
+    void sendMessage_AppendsToRecentMessages() {
+        // Given
+        when(chatRepository.findById(1L)).thenReturn(Optional.of(testChat));
+        when(messageRepository.save(any(Message.class))).thenReturn(testMessage);
+
+        // When
+        chatService.sendMessage(1L, 1L, "Hello!");
+
+        // Then
+        verify(recentMessages).append(testMessage);
+    }
+
+    @Test
+    void sendMessage_WarmMembershipCache_NoChatRead() {
+        // Given
+        doReturn(Optional.of(ChatMembershipCache.Membership.of(testChat))).when(memberships).get(1L);
+        when(messageRepository.save(any(Message.class))).thenReturn(testMessage);
+
+        // When
+        chatService.sendMessage(1L, 2L, "Hello!");
+
+        // Then
+        verify(chatRepository, never()).findById(any());
+        verify(notificationPublisher).publishDelta(1L, NotificationPublisher.Badge.CHAT, 1);
+    }
+
     @Test
     void getChatMessages_EmptyList() {
         // Given
@@ -392,15 +460,76 @@ class ChatServiceTest {
     @Test
     void getUnreadMessageCount_Success() {
         // Given
-        List<Message> unreadMessages = Arrays.asList(testMessage, testMessage, testMessage);
-        when(messageRepository.findUnreadMessagesByChatIdAndUserId(1L, 1L)).thenReturn(unreadMessages);
+        when(messageRepository.countUnreadMessagesByChatIdAndUserId(1L, 1L)).thenReturn(3L);
 
         // When
         long result = chatService.getUnreadMessageCount(1L, 1L);
 
         // Then
         assertEquals(3L, result);
-        verify(messageRepository).findUnreadMessagesByChatIdAndUserId(1L, 1L);
+        verify(messageRepository).countUnreadMessagesByChatIdAndUserId(1L, 1L);
+        verify(messageRepository, never()).findUnreadMessagesByChatIdAndUserId(any(), any());
+    }
+
+    @Test
+    void getUnreadMessageCount_CountersEnabled_ReadsCounter() {
+        // Given
+        ReflectionTestUtils.setField(chatService, "unreadCountersEnabled", true);
+        when(unreadCounterRepository.findUnreadCount(1L, 1L)).thenReturn(Optional.of(4L));
+
+        // When
+        long result = chatService.getUnreadMessageCount(1L, 1L);
+
+        // Then
+        assertEquals(4L, result);
+        verify(messageRepository, never()).countUnreadMessagesByChatIdAndUserId(any(), any());
+    }
+
+    @Test
+    void sendMessage_CountersEnabled_IncrementsRecipientCounter() {
+        // Given
+        ReflectionTestUtils.setField(chatService, "unreadCountersEnabled", true);
+        when(chatRepository.findById(1L)).thenReturn(Optional.of(testChat));
+        when(messageRepository.save(any(Message.class))).thenReturn(testMessage);
+        when(unreadCounterRepository.increment(1L, 2L)).thenReturn(1);
+
+        // When
+        chatService.sendMessage(1L, 1L, "Hello");
+
+        // Then
+        verify(unreadCounterRepository).increment(1L, 2L);
+        verify(unreadCounterRepository, never()).save(any());
+    }
+
+    @Test
+    void sendMessage_CountersEnabled_CreatesMissingCounter() {
+        // Given
+        ReflectionTestUtils.setField(chatService, "unreadCountersEnabled", true);
+        when(chatRepository.findById(1L)).thenReturn(Optional.of(testChat));
+        when(messageRepository.save(any(Message.class))).thenReturn(testMessage);
+        when(unreadCounterRepository.increment(1L, 2L)).thenReturn(0);
+        when(messageRepository.countUnreadMessagesByChatIdAndUserId(1L, 2L)).thenReturn(1L);
+
+        // When
+        chatService.sendMessage(1L, 1L, "Hello");
+
+        // Then
+        verify(unreadCounterRepository).save(argThat(counter ->
+                counter.getChatId() == 1L && counter.getUserId() == 2L && counter.getUnreadCount() == 1L));
+    }
+
+    @Test
+    void markMessagesAsRead_CountersEnabled_ResetsCounter() {
+        // Given
+        ReflectionTestUtils.setField(chatService, "unreadCountersEnabled", true);
+        when(chatRepository.findById(1L)).thenReturn(Optional.of(testChat));
+        when(unreadCounterRepository.reset(1L, 1L)).thenReturn(1);
+
+        // When
+        chatService.markMessagesAsRead(1L, 1L);
+
+        // Then
+        verify(unreadCounterRepository).reset(1L, 1L);
     }
 
     @Test
@@ -414,24 +543,102 @@ class ChatServiceTest {
 
         // Then
         verify(messageRepository).markMessagesAsRead(1L, 1L);
+        verify(notificationPublisher).publishRefresh(1L, NotificationPublisher.Badge.CHAT);
+    }
+
+    @Test
+    void completeChat_RefreshesBothParticipantsChatBadge() {
+        // Given
+        when(chatRepository.findById(1L)).thenReturn(Optional.of(testChat));
+        when(chatRepository.save(any(Chat.class))).thenReturn(testChat);
+
+        // When
+        chatService.completeChat(1L, 1L);
+
+        // Then
+        verify(notificationPublisher).publishRefresh(1L, NotificationPublisher.Badge.CHAT);
+        verify(notificationPublisher).publishRefresh(2L, NotificationPublisher.Badge.CHAT);
+    }
+
+    @Test
+    void cancelChat_UpdatesCachedMembership() {
+        // Given
+        when(chatRepository.findById(1L)).thenReturn(Optional.of(testChat));
+        when(chatRepository.save(any(Chat.class))).thenReturn(testChat);
+
+        // When
+        chatService.cancelChat(1L, 2L);
+
+        // Then
+        verify(memberships).update(argThat(chat -> chat.getStatus() == Chat.ChatStatus.CANCELLED));
+    }
+
+    @Test
+    void markMessagesAsRead_OutsiderRejectedFromCache() {
+        // Given
+        doReturn(Optional.of(ChatMembershipCache.Membership.of(testChat))).when(memberships).get(1L);
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> chatService.markMessagesAsRead(1L, 99L));
+        verify(messageRepository, never()).markMessagesAsRead(any(), any());
     }
 
     @Test
     void getTotalUnreadMessageCount_Success() {
         // Given
-        List<Chat> userChats = Arrays.asList(testChat);
-        List<Message> unreadMessages = Arrays.asList(testMessage, testMessage, testMessage, testMessage, testMessage);
-        
-        when(chatRepository.findActiveChatsByUserId(1L)).thenReturn(userChats);
-        when(messageRepository.findUnreadMessagesByChatIdAndUserId(1L, 1L)).thenReturn(unreadMessages);
+        when(messageRepository.countUnreadMessagesInActiveChats(1L)).thenReturn(5L);
 
         // When
         long result = chatService.getTotalUnreadMessageCount(1L);
 
         // Then
         assertEquals(5L, result);
-        verify(chatRepository).findActiveChatsByUserId(1L);
-        verify(messageRepository).findUnreadMessagesByChatIdAndUserId(1L, 1L);
+        verify(messageRepository).countUnreadMessagesInActiveChats(1L);
+        verify(chatRepository, never()).findActiveChatsByUserId(any());
+    }
+
+    @Test
+    void getTotalUnreadMessageCount_CountersEnabled_SumsCounters() {
+        // Given
+        ReflectionTestUtils.setField(chatService, "unreadCountersEnabled", true);
+        when(unreadCounterRepository.sumUnreadInActiveChats(1L)).thenReturn(7L);
+
+        // When
+        long result = chatService.getTotalUnreadMessageCount(1L);
+
+        // Then
+        assertEquals(7L, result);
+        verify(messageRepository, never()).countUnreadMessagesInActiveChats(any());
+    }
+
+    @Test
+    void getInbox_AttachesGroupedUnreadCounts() {
+        // Arrange
+        ChatInboxEntry entry = new ChatInboxEntry(testChat, testBook, testUser2, testUser1, testMessage);
+        when(chatRepository.findInboxByUserId(1L, null)).thenReturn(List.of(entry));
+        when(messageRepository.countUnreadMessagesByChatForUser(1L))
+                .thenReturn(List.<Object[]>of(new Object[]{1L, 3L}));
+
+        // Act
+        List<ChatInboxEntry> result = chatService.getInbox(1L);
+
+        // Assert
+        assertEquals(1, result.size());
+        assertEquals(3L, result.get(0).getUnreadCount());
+        verify(messageRepository, never()).findFirstByChatIdOrderByCreatedAtDesc(any());
+    }
+
+    @Test
+    void getInbox_NoChats_SkipsUnreadQuery() {
+        // Arrange
+        when(chatRepository.findInboxByUserId(1L, null)).thenReturn(List.of());
+
+        // Act
+        List<ChatInboxEntry> result = chatService.getInbox(1L);
+
+        // Assert
+        assertTrue(result.isEmpty());
+        verify(messageRepository, never()).countUnreadMessagesByChatForUser(any());
     }
 
     @Test
@@ -56,6 +56,20 @@ class CustomUserDetailsServiceTest {
         verify(userRepository).findByEmail("john@example.com");
     }
 
+    @Test
+    void loadUserByUsername_PrincipalCarriesUserId() {
+        // Given
+        when(userRepository.findByEmail("john@example.com")).thenReturn(Optional.of(testUser));
+
+        // When
+        UserDetails result = customUserDetailsService.loadUserByUsername("john@example.com");
+
+        // Then
+        BookBuddyUserDetails details = assertInstanceOf(BookBuddyUserDetails.class, result);
+        assertEquals(1L, details.getUserId());
+        assertEquals("John Doe", details.getDisplayName());
+    }
+
     @Test
     void loadUserByUsername_UserNotFound() {
         // Given
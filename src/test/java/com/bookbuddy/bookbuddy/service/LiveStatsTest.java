@@ -0,0 +1,124 @@
+package com.bookbuddy.bookbuddy.service;
+
+import com.bookbuddy.bookbuddy.model.Book;
+import com.bookbuddy.bookbuddy.model.Chat;
+import com.bookbuddy.bookbuddy.model.Request;
+import com.bookbuddy.bookbuddy.repository.BookRepository;
+import com.bookbuddy.bookbuddy.repository.ChatRepository;
+import com.bookbuddy.bookbuddy.repository.RequestRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LiveStatsTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private RequestRepository requestRepository;
+
+    @Mock
+    private ChatRepository chatRepository;
+
+    @InjectMocks
+    private LiveStats liveStats;
+
+    @Test
+    void transitions_MoveCountsBetweenBuckets() {
+        // Given
+        Book book = book(Book.SharingType.LEND, true);
+        LiveStats.BookState listed = LiveStats.BookState.of(book);
+        liveStats.bookChanged(null, listed);
+        liveStats.bookChanged(null, LiveStats.BookState.of(book(Book.SharingType.SWAP, false)));
+        liveStats.requestChanged(null, Request.RequestStatus.PENDING);
+        liveStats.chatChanged(null, Chat.ChatStatus.ACTIVE);
+
+        // When: the lend request is accepted and the book goes out
+        book.setStatus(Book.BookStatus.CURRENTLY_LENT_OUT);
+        liveStats.bookChanged(listed, LiveStats.BookState.of(book));
+        liveStats.requestChanged(Request.RequestStatus.PENDING, Request.RequestStatus.ACCEPTED);
+        LiveStats.Snapshot stats = liveStats.snapshot();
+
+        // Then
+        assertEquals(1, stats.getAvailableBooks());
+        assertEquals(0, stats.getLocatedBooks());
+        assertEquals(0, stats.getAvailableBooksBySharingType().get(Book.SharingType.LEND));
+        assertEquals(1, stats.getAvailableBooksBySharingType().get(Book.SharingType.SWAP));
+        assertEquals(1, stats.getBooksByStatus().get(Book.BookStatus.CURRENTLY_LENT_OUT));
+        assertEquals(1, stats.getActiveRequests());
+        assertEquals(1, stats.getActiveChats());
+        assertFalse(stats.isReconciled());
+    }
+
+    @Test
+    void reconcile_ReplacesCountersWithAggregates() {
+        // Given
+        liveStats.bookChanged(null, LiveStats.BookState.of(book(Book.SharingType.LEND, true)));
+        when(bookRepository.countByStatusAndSharingType()).thenReturn(rows(
+                new Object[]{Book.BookStatus.AVAILABLE, Book.SharingType.GIVE_AWAY, 4L},
+                new Object[]{Book.BookStatus.AVAILABLE, Book.SharingType.SWAP, 3L},
+                new Object[]{Book.BookStatus.GIVEN_AWAY, Book.SharingType.GIVE_AWAY, 2L}));
+        when(bookRepository.countAvailableBooksWithLocation()).thenReturn(5L);
+        when(requestRepository.countByStatus()).thenReturn(rows(
+                new Object[]{Request.RequestStatus.PENDING, 6L},
+                new Object[]{Request.RequestStatus.ACCEPTED, 1L},
+                new Object[]{Request.RequestStatus.REJECTED, 9L}));
+        when(chatRepository.countByStatus()).thenReturn(rows(new Object[]{Chat.ChatStatus.ACTIVE, 2L}));
+
+        // When
+        liveStats.reconcile();
+        LiveStats.Snapshot stats = liveStats.snapshot();
+
+        // Then
+        assertTrue(stats.isReconciled());
+        assertEquals(7, stats.getAvailableBooks());
+        assertEquals(5, stats.getLocatedBooks());
+        assertEquals(0, stats.getAvailableBooksBySharingType().get(Book.SharingType.LEND));
+        assertEquals(2, stats.getBooksByStatus().get(Book.BookStatus.GIVEN_AWAY));
+        assertEquals(7, stats.getActiveRequests());
+        assertEquals(2, stats.getActiveChats());
+    }
+
+    @Test
+    void reconcile_RetriedWhenATransitionLandsWhileCounting() {
+        // Given: a chat is created while the first count is running
+        when(bookRepository.countByStatusAndSharingType()).thenReturn(rows());
+        when(requestRepository.countByStatus()).thenReturn(rows());
+        when(chatRepository.countByStatus())
+                .thenAnswer(invocation -> {
+                    liveStats.chatChanged(null, Chat.ChatStatus.ACTIVE);
+                    return rows();
+                })
+                .thenReturn(rows(new Object[]{Chat.ChatStatus.ACTIVE, 1L}));
+
+        // When
+        liveStats.reconcile();
+
+        // Then: the stale first count was dropped, the second one applied
+        assertEquals(1, liveStats.snapshot().getActiveChats());
+        verify(chatRepository, times(2)).countByStatus();
+    }
+
+    private static Book book(Book.SharingType sharingType, boolean located) {
+        Book book = new Book("Title", "Author", "Good", 1L, sharingType);
+        if (located) {
+            book.setPickupLatitude(53.35);
+            book.setPickupLongitude(-6.26);
+        }
+        return book;
+    }
+
+    private static List<Object[]> rows(Object[]... rows) {
+        return new ArrayList<>(List.of(rows));
+    }
+}
@@ -0,0 +1,206 @@
+package com.bookbuddy.bookbuddy.service;
+
+import com.bookbuddy.bookbuddy.model.Book;
+import com.bookbuddy.bookbuddy.model.Message;
+import com.bookbuddy.bookbuddy.model.Request;
+import com.bookbuddy.bookbuddy.model.User;
+import com.bookbuddy.bookbuddy.repository.BookRepository;
+import com.bookbuddy.bookbuddy.repository.ChatRepository;
+import com.bookbuddy.bookbuddy.repository.MessageRepository;
+import com.bookbuddy.bookbuddy.repository.RequestRepository;
+import com.bookbuddy.bookbuddy.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.reset;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:loanduedates",
+        "bookbuddy.lending.batch-size=2",
+        "bookbuddy.lending.poll-interval-ms=3600000"
+})
+@ActiveProfiles("test")
+class LoanDueDatesIntegrationTest {
+
+    @Autowired
+    private LoanDueDates loanDueDates;
+
+    @Autowired
+    private RequestService requestService;
+
+    @SpyBean
+    private ChatService chatService;
+
+    @Autowired
+    private RequestRepository requestRepository;
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User owner;
+    private User borrower;
+
+    @BeforeEach
+    void setUp() {
+        owner = userRepository.save(new User("lender@example.com", "password123", "Lena", "Lender"));
+        borrower = userRepository.save(new User("borrower@example.com", "password123", "Ben", "Borrower"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        reset(chatService);
+        messageRepository.deleteAll();
+        chatRepository.deleteAll();
+        requestRepository.deleteAll();
+        bookRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void acceptLend_SetsDueDateAndSchedulesReminder() {
+        // Given
+        LocalDateTime before = LocalDateTime.now();
+
+        // When
+        Request loan = acceptedLoan("Dune", 14);
+
+        // Then
+        Request stored = requestRepository.findById(loan.getId()).orElseThrow();
+        assertTrue(!stored.getDueAt().isBefore(before.plusDays(14))
+                && stored.getDueAt().isBefore(LocalDateTime.now().plusDays(14).plusSeconds(1)));
+        assertEquals(stored.getDueAt().minusHours(24), stored.getLendNoticeAt());
+        Message welcome = chatMessages(loan).get(0);
+        assertTrue(welcome.getContent().endsWith("The book is due back on " + LoanDueDates.formatDate(stored.getDueAt()) + "."));
+    }
+
+    @Test
+    void sendDueNotices_RemindsThenReportsOverdueUntilReturned() {
+        // Given
+        Request loan = acceptedLoan("Dune", 14);
+        LocalDateTime dueAt = requestRepository.findById(loan.getId()).orElseThrow().getDueAt();
+
+        // When & Then: nothing is due yet
+        assertEquals(0, loanDueDates.sendDueNotices(LocalDateTime.now()));
+
+        // Reminder once it is inside the reminder window, sent once
+        assertEquals(1, loanDueDates.sendDueNotices(dueAt.minusHours(1)));
+        assertEquals(0, loanDueDates.sendDueNotices(dueAt.minusHours(1)));
+        List<Message> messages = chatMessages(loan);
+        assertEquals(2, messages.size());
+        assertEquals(Message.MessageType.SYSTEM, messages.get(1).getMessageType());
+        assertEquals("Reminder: \"Dune\" is due back on " + LoanDueDates.formatDate(dueAt) + ".", messages.get(1).getContent());
+        assertEquals(dueAt, requestRepository.findById(loan.getId()).orElseThrow().getLendNoticeAt());
+
+        // Overdue at the due date, repeated after overdue-repeat-days
+        LocalDateTime overdueAt = dueAt.plusMinutes(1).truncatedTo(ChronoUnit.MICROS);
+        assertEquals(1, loanDueDates.sendDueNotices(overdueAt));
+        assertTrue(chatMessages(loan).get(2).getContent().contains("is now overdue"));
+        assertEquals(overdueAt.plusDays(3), requestRepository.findById(loan.getId()).orElseThrow().getLendNoticeAt());
+
+        // Returning the book ends the schedule
+        requestService.returnLentBook(loan.getId(), owner.getId());
+        assertNull(requestRepository.findById(loan.getId()).orElseThrow().getLendNoticeAt());
+        assertEquals(0, loanDueDates.sendDueNotices(dueAt.plusDays(30)));
+        assertEquals(3, chatMessages(loan).size());
+    }
+
+    @Test
+    void sendDueNotices_WorksThroughEveryBatch() {
+        // Given: five loans, polled two at a time, all long overdue
+        List<Request> loans = List.of(acceptedLoan("Emma", 7), acceptedLoan("Ulysses", 7), acceptedLoan("Persuasion", 7),
+                acceptedLoan("Middlemarch", 7), acceptedLoan("Beloved", 7));
+
+        // When
+        int handled = loanDueDates.sendDueNotices(LocalDateTime.now().plusDays(10));
+
+        // Then
+        assertEquals(5, handled);
+        for (Request loan : loans) {
+            List<Message> messages = chatMessages(loan);
+            assertEquals(2, messages.size());
+            assertTrue(messages.get(1).getContent().endsWith("is 3 days overdue. Please arrange the return."));
+        }
+    }
+
+    @Test
+    void sendDueNotices_OneFailingNoticeDoesNotHoldBackTheOthers() {
+        // Given: three overdue loans, polled two at a time; posting to the first loan's chat fails
+        Request failing = acceptedLoan("Emma", 7);
+        Request second = acceptedLoan("Ulysses", 7);
+        Request third = acceptedLoan("Persuasion", 7);
+        LocalDateTime noticeAt = requestRepository.findById(failing.getId()).orElseThrow().getLendNoticeAt();
+        doThrow(new IllegalStateException("Database hiccup"))
+                .when(chatService).postSystemMessage(eq(chatId(failing)), anyString());
+        LocalDateTime now = LocalDateTime.now().plusDays(10).truncatedTo(ChronoUnit.MICROS);
+
+        // When
+        int handled = loanDueDates.sendDueNotices(now);
+
+        // Then: the others were sent, the failed notice rolled back with its claim and is still due
+        assertEquals(2, handled);
+        assertEquals(2, chatMessages(second).size());
+        assertEquals(2, chatMessages(third).size());
+        assertEquals(1, chatMessages(failing).size());
+        assertEquals(noticeAt, requestRepository.findById(failing.getId()).orElseThrow().getLendNoticeAt());
+
+        // And the next poll sends it
+        reset(chatService);
+        assertEquals(1, loanDueDates.sendDueNotices(now));
+        assertEquals(2, chatMessages(failing).size());
+    }
+
+    @Test
+    void closingTheChatEndsTheSchedule() {
+        // Given
+        Request completed = acceptedLoan("Dune", 14);
+        Request cancelled = acceptedLoan("Emma", 14);
+
+        // When
+        chatService.completeChat(chatId(completed), owner.getId());
+        chatService.cancelChat(chatId(cancelled), borrower.getId());
+
+        // Then
+        assertNull(requestRepository.findById(completed.getId()).orElseThrow().getLendNoticeAt());
+        assertNull(requestRepository.findById(cancelled.getId()).orElseThrow().getLendNoticeAt());
+        assertEquals(0, loanDueDates.sendDueNotices(LocalDateTime.now().plusDays(30)));
+        assertEquals(2, chatMessages(completed).size());
+    }
+
+    private Request acceptedLoan(String title, int days) {
+        Book book = new Book(title, "Author", "Good", owner.getId(), Book.SharingType.LEND);
+        book.setLendingDurationDays(30);
+        book = bookRepository.save(book);
+        Request request = requestService.createLendRequest(book.getId(), borrower.getId(), "May I borrow it?", days);
+        return requestService.acceptRequest(request.getId(), owner.getId());
+    }
+
+    private Long chatId(Request loan) {
+        return chatRepository.findByRequestId(loan.getId()).orElseThrow().getId();
+    }
+
+    private List<Message> chatMessages(Request loan) {
+        return messageRepository.findByChatIdOrderByCreatedAtAsc(chatId(loan));
+    }
+}
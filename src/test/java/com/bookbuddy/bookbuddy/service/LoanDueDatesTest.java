@@ -0,0 +1,61 @@
+package com.bookbuddy.bookbuddy.service;
+
+import com.bookbuddy.bookbuddy.model.Book;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoanDueDatesTest {
+
+    private static final LocalDateTime ACCEPTED = LocalDateTime.of(2025, 3, 1, 10, 0);
+    private static final LocalDateTime DUE = ACCEPTED.plusDays(14);
+
+    @Test
+    void firstNoticeAt_IsTheReminderBeforeTheDueDate() {
+        // When
+        LocalDateTime first = LoanDueDates.firstNoticeAt(ACCEPTED, DUE, Duration.ofHours(24));
+
+        // Then
+        assertEquals(DUE.minusHours(24), first);
+    }
+
+    @Test
+    void firstNoticeAt_SkipsReminderForShortLoansAndWhenTurnedOff() {
+        // When & Then
+        assertEquals(ACCEPTED.plusHours(12),
+                LoanDueDates.firstNoticeAt(ACCEPTED, ACCEPTED.plusHours(12), Duration.ofHours(24)));
+        assertEquals(DUE, LoanDueDates.firstNoticeAt(ACCEPTED, DUE, Duration.ZERO));
+    }
+
+    @Test
+    void nextNoticeAt_GoesFromReminderToDueDateToRepeatedOverdue() {
+        // Given
+        LocalDateTime reminderSent = DUE.minusHours(23);
+        LocalDateTime overdueSent = DUE.plusMinutes(1);
+
+        // When & Then
+        assertEquals(LoanDueDates.Notice.REMINDER, LoanDueDates.noticeDue(reminderSent, DUE));
+        assertEquals(DUE, LoanDueDates.nextNoticeAt(LoanDueDates.Notice.REMINDER, reminderSent, DUE, Duration.ofDays(3)));
+        assertEquals(LoanDueDates.Notice.OVERDUE, LoanDueDates.noticeDue(DUE, DUE));
+        assertEquals(overdueSent.plusDays(3),
+                LoanDueDates.nextNoticeAt(LoanDueDates.Notice.OVERDUE, overdueSent, DUE, Duration.ofDays(3)));
+        assertNull(LoanDueDates.nextNoticeAt(LoanDueDates.Notice.OVERDUE, overdueSent, DUE, Duration.ZERO));
+    }
+
+    @Test
+    void noticeText_NamesTheBookAndHowLate() {
+        // Given
+        Book book = new Book("Dune", "Frank Herbert", "Good", 1L, Book.SharingType.LEND);
+
+        // When & Then
+        assertEquals("Reminder: \"Dune\" is due back on Sat 15 Mar 2025.",
+                LoanDueDates.noticeText(LoanDueDates.Notice.REMINDER, book, DUE, DUE.minusHours(20)));
+        assertEquals("\"Dune\" was due back on Sat 15 Mar 2025 and is now overdue. Please arrange the return.",
+                LoanDueDates.noticeText(LoanDueDates.Notice.OVERDUE, book, DUE, DUE.plusMinutes(1)));
+        assertEquals("The book was due back on Sat 15 Mar 2025 and is 4 days overdue. Please arrange the return.",
+                LoanDueDates.noticeText(LoanDueDates.Notice.OVERDUE, null, DUE, DUE.plusDays(4)));
+    }
+}
@@ -0,0 +1,155 @@
+package com.bookbuddy.bookbuddy.service;
+
+import com.bookbuddy.bookbuddy.model.Chat;
+import com.bookbuddy.bookbuddy.model.Message;
+import com.bookbuddy.bookbuddy.model.User;
+import com.bookbuddy.bookbuddy.repository.ChatRepository;
+import com.bookbuddy.bookbuddy.repository.ChatUnreadCounterRepository;
+import com.bookbuddy.bookbuddy.repository.MessageRepository;
+import com.bookbuddy.bookbuddy.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Own database, so rows written behind by this context never show up in the other test contexts
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:writebehind",
+        "bookbuddy.chat.write-behind.enabled=true",
+        "bookbuddy.chat.write-behind.durable-ack=true",
+        "bookbuddy.chat.write-behind.flush-interval-ms=600000",
+        "bookbuddy.chat.unread-counters.enabled=true"
+})
+@ActiveProfiles("test")
+class MessageWriteBehindIntegrationTest {
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private MessageWriteBehind writeBehind;
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private ChatUnreadCounterRepository unreadCounterRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User owner;
+    private User requester;
+    private Chat chat;
+
+    @BeforeEach
+    void setUp() {
+        owner = userRepository.save(new User("owner@example.com", "password123", "Olive", "Owner"));
+        requester = userRepository.save(new User("requester@example.com", "password123", "Rick", "Requester"));
+        chat = chatRepository.save(new Chat(1L, 100L, requester.getId(), owner.getId()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        while (writeBehind.flush() > 0) {
+            // drain whatever a failed test left behind
+        }
+        messageRepository.deleteAll();
+        unreadCounterRepository.deleteAll();
+        chatRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void sendMessage_IdAssignedNowRowWrittenOnFlush() {
+        // When
+        Message first = chatService.sendMessage(chat.getId(), requester.getId(), "Hi there");
+        Message second = chatService.sendMessage(chat.getId(), owner.getId(), "Hello");
+
+        // Then
+        assertNotNull(first.getId());
+        assertNotNull(first.getCreatedAt());
+        assertTrue(second.getId() > first.getId());
+        assertEquals(0, messageRepository.count());
+        assertEquals(2, writeBehind.getQueuedCount());
+
+        assertEquals(2, writeBehind.flush());
+        List<Message> saved = messageRepository.findByChatIdOrderByCreatedAtAsc(chat.getId());
+        assertEquals(List.of(first.getId(), second.getId()), saved.stream().map(Message::getId).toList());
+        assertEquals(List.of("Hi there", "Hello"), saved.stream().map(Message::getContent).toList());
+    }
+
+    @Test
+    void completeChat_SystemMessageInsertedWithTheStatusChange() {
+        // Given
+        Message sent = chatService.sendMessage(chat.getId(), requester.getId(), "Got it, thanks");
+
+        // When
+        chatService.completeChat(chat.getId(), owner.getId());
+
+        // Then
+        List<Message> saved = messageRepository.findByChatIdOrderByCreatedAtAsc(chat.getId());
+        assertEquals(1, saved.size());
+        assertEquals(Message.MessageType.EXCHANGE_COMPLETED, saved.get(0).getMessageType());
+        assertTrue(saved.get(0).getId() > sent.getId());
+    }
+
+    @Test
+    void awaitPersisted_ReturnsOnceTheBatchIsCommitted() {
+        // Given
+        Message message = chatService.sendMessage(chat.getId(), requester.getId(), "Still available?");
+
+        // When
+        CompletableFuture.runAsync(writeBehind::flush);
+        chatService.awaitPersisted(message);
+
+        // Then
+        assertTrue(messageRepository.findById(message.getId()).isPresent());
+    }
+
+    @Test
+    void markMessagesAsRead_QueuedMessageIsWrittenAsRead() {
+        // Given
+        Message before = chatService.sendMessage(chat.getId(), requester.getId(), "Is it still there?");
+
+        // When
+        chatService.markMessagesAsRead(chat.getId(), owner.getId());
+        Message after = chatService.sendMessage(chat.getId(), requester.getId(), "I can pick it up today");
+        assertEquals(0, messageRepository.count());
+        writeBehind.flush();
+
+        // Then
+        assertTrue(messageRepository.findById(before.getId()).orElseThrow().getIsRead());
+        assertFalse(messageRepository.findById(after.getId()).orElseThrow().getIsRead());
+        assertEquals(1, unreadCounterRepository.findUnreadCount(chat.getId(), owner.getId()).orElseThrow());
+        assertEquals(1, messageRepository.countUnreadMessagesByChatIdAndUserId(chat.getId(), owner.getId()));
+        assertEquals(List.of(true, false), chatService.getChatMessages(chat.getId()).stream()
+                .map(Message::getIsRead).toList());
+    }
+
+    @Test
+    void flush_DroppedMessageIsTakenOffTheUnreadCounter() {
+        // Given
+        chatService.sendMessage(chat.getId(), requester.getId(), "Hi there");
+        Message tooLong = chatService.sendMessage(chat.getId(), requester.getId(), "x".repeat(2001));
+        assertEquals(2, unreadCounterRepository.findUnreadCount(chat.getId(), owner.getId()).orElseThrow());
+
+        // When
+        writeBehind.flush();
+
+        // Then
+        assertFalse(messageRepository.findById(tooLong.getId()).isPresent());
+        assertEquals(1, unreadCounterRepository.findUnreadCount(chat.getId(), owner.getId()).orElseThrow());
+        assertEquals(1, chatService.getTotalUnreadMessageCount(owner.getId()));
+    }
+}
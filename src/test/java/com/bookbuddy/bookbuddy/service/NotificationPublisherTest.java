@@ -0,0 +1,89 @@
+package com.bookbuddy.bookbuddy.service;
+
+import com.bookbuddy.bookbuddy.model.User;
+import com.bookbuddy.bookbuddy.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationPublisherTest {
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private NotificationPublisher notificationPublisher;
+
+    @Test
+    void publishDelta_SendsToUserQueueByEmail() {
+        // Given
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user(1L, "john@example.com")));
+
+        // When
+        notificationPublisher.publishDelta(1L, NotificationPublisher.Badge.RECEIVED_REQUESTS, 1);
+
+        // Then
+        verify(messagingTemplate).convertAndSendToUser("john@example.com", "/queue/notifications",
+                Map.of("type", "RECEIVED_REQUESTS", "delta", 1));
+    }
+
+    @Test
+    void publishRefresh_SendsRefreshFlag() {
+        // Given
+        when(userRepository.findById(2L)).thenReturn(Optional.of(user(2L, "jane@example.com")));
+
+        // When
+        notificationPublisher.publishRefresh(2L, NotificationPublisher.Badge.CHAT);
+
+        // Then
+        verify(messagingTemplate).convertAndSendToUser("jane@example.com", "/queue/notifications",
+                Map.of("type", "CHAT", "refresh", true));
+    }
+
+    @Test
+    void publish_UnknownUser_SendsNothing() {
+        // Given
+        when(userRepository.findById(9L)).thenReturn(Optional.empty());
+
+        // When
+        notificationPublisher.publishDelta(9L, NotificationPublisher.Badge.CHAT, 1);
+
+        // Then
+        verifyNoInteractions(messagingTemplate);
+    }
+
+    @Test
+    void publish_BrokerFailure_IsSwallowed() {
+        // Given
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user(1L, "john@example.com")));
+        doThrow(new MessagingException("broker down"))
+                .when(messagingTemplate).convertAndSendToUser(anyString(), eq("/queue/notifications"), any(Object.class));
+
+        // When & Then
+        assertDoesNotThrow(() -> notificationPublisher.publishDelta(1L, NotificationPublisher.Badge.SENT_REQUESTS, 1));
+    }
+
+    private static User user(Long id, String email) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(email);
+        return user;
+    }
+}
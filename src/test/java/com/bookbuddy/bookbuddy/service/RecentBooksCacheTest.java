@@ -0,0 +1,117 @@
+package com.bookbuddy.bookbuddy.service;
+
+import com.bookbuddy.bookbuddy.model.Book;
+import com.bookbuddy.bookbuddy.util.KeysetCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecentBooksCacheTest {
+
+    private final LocalDateTime start = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    private RecentBooksCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new RecentBooksCache(3);
+    }
+
+    @Test
+    void page_ServesCachedPrefixAndMissesPastIt() {
+        // Given
+        cache.load(List.of(book(5), book(4), book(3)), cache.beginLoad());
+
+        // When / Then
+        assertEquals(List.of(5L, 4L), ids(cache.page(null, null, 2).orElseThrow()));
+        assertEquals(List.of(3L), ids(cache.page(null, cursorAt(4), 1).orElseThrow()));
+        assertTrue(cache.page(null, cursorAt(4), 2).isEmpty());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void page_ExhaustiveCacheAnswersShortPages() {
+        // Given: fewer available books than the capacity
+        cache.load(List.of(book(2), book(1)), cache.beginLoad());
+
+        // When / Then
+        assertEquals(List.of(2L, 1L), ids(cache.page(null, null, 10).orElseThrow()));
+        assertEquals(List.of(), ids(cache.page(null, cursorAt(1), 10).orElseThrow()));
+    }
+
+    @Test
+    void page_StopsAtTheStartOfTheWindow() {
+        // Given
+        cache.load(List.of(book(5), book(4), book(3)), cache.beginLoad());
+
+        // When: only books 4 and 5 were listed since minute 4
+        List<Book> page = cache.page(start.plusMinutes(4), null, 10).orElseThrow();
+
+        // Then
+        assertEquals(List.of(5L, 4L), ids(page));
+    }
+
+    @Test
+    void update_NewListingGoesFirstAndOldestFallsOff() {
+        // Given
+        cache.load(List.of(book(3), book(2)), cache.beginLoad());
+
+        // When
+        cache.update(book(4));
+        cache.update(book(5));
+
+        // Then
+        assertEquals(List.of(5L, 4L, 3L), ids(cache.page(null, null, 3).orElseThrow()));
+        assertTrue(cache.page(null, null, 4).isEmpty());
+    }
+
+    @Test
+    void update_BookNoLongerAvailableIsDropped() {
+        // Given
+        cache.load(List.of(book(3), book(2), book(1)), cache.beginLoad());
+        Book lentOut = book(2);
+        lentOut.setStatus(Book.BookStatus.CURRENTLY_LENT_OUT);
+
+        // When
+        cache.update(lentOut);
+        cache.remove(3L);
+
+        // Then
+        assertEquals(List.of(1L), ids(cache.page(null, null, 1).orElseThrow()));
+        assertTrue(cache.page(null, null, 2).isEmpty());
+    }
+
+    @Test
+    void load_DroppedWhenWrittenDuringLoad() {
+        // Given
+        long token = cache.beginLoad();
+        cache.update(book(9));
+
+        // When
+        cache.load(List.of(book(3), book(2)), token);
+
+        // Then
+        assertEquals(0, cache.size());
+        assertTrue(cache.page(null, null, 1).isEmpty());
+    }
+
+    private Book book(long id) {
+        Book book = new Book("Book " + id, "Author", "Good", 1L, Book.SharingType.GIVE_AWAY);
+        book.setId(id);
+        book.setStatus(Book.BookStatus.AVAILABLE);
+        book.setCreatedAt(start.plusMinutes(id));
+        return book;
+    }
+
+    private KeysetCursor cursorAt(long id) {
+        return new KeysetCursor(start.plusMinutes(id), id);
+    }
+
+    private static List<Long> ids(List<Book> books) {
+        return books.stream().map(Book::getId).toList();
+    }
+}
@@ -0,0 +1,191 @@
+package com.bookbuddy.bookbuddy.service;
+
+import com.bookbuddy.bookbuddy.model.Message;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecentMessageCacheTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final LocalDateTime start = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    private RecentMessageCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new RecentMessageCache(3, 2, 1_000, clock::get);
+    }
+
+    @Test
+    void startChat_ServesWholeHistoryUntilRingOverflows() {
+        // Given
+        cache.startChat(1L, message(1L, 1));
+        cache.append(message(1L, 2));
+
+        // When / Then
+        assertEquals(List.of(2L, 1L), ids(cache.latest(1L, 10).orElseThrow()));
+        assertEquals(List.of(1L, 2L), ids(cache.all(1L).orElseThrow()));
+
+        cache.append(message(1L, 3));
+        cache.append(message(1L, 4));
+        assertEquals(List.of(4L, 3L, 2L), ids(cache.latest(1L, 3).orElseThrow()));
+        assertTrue(cache.latest(1L, 4).isEmpty());
+        assertTrue(cache.all(1L).isEmpty());
+        assertEquals(4L, cache.lastMessage(1L).orElseThrow().getId());
+    }
+
+    @Test
+    void append_OutOfOrderCommitsStayOrdered() {
+        // Given
+        cache.startChat(1L, message(1L, 1));
+
+        // When
+        cache.append(message(1L, 3));
+        cache.append(message(1L, 2));
+
+        // Then
+        assertEquals(List.of(3L, 2L, 1L), ids(cache.latest(1L, 3).orElseThrow()));
+    }
+
+    @Test
+    void fill_DroppedWhenChatWrittenDuringLoad() {
+        // Given
+        long token = cache.beginLoad(1L);
+        cache.append(message(1L, 5));
+
+        // When
+        cache.fill(1L, List.of(message(1L, 4)), false, token);
+
+        // Then
+        assertTrue(cache.lastMessage(1L).isEmpty());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void fill_PartialHistoryOnlyAnswersWhatItHolds() {
+        // Given
+        long token = cache.beginLoad(1L);
+        cache.fill(1L, List.of(message(1L, 9), message(1L, 8)), false, token);
+
+        // When / Then
+        assertEquals(List.of(9L, 8L), ids(cache.latest(1L, 2).orElseThrow()));
+        assertTrue(cache.latest(1L, 3).isEmpty());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedAndIdleChats() {
+        // Given
+        cache.startChat(1L, message(1L, 1));
+        cache.startChat(2L, message(2L, 2));
+        cache.lastMessage(1L);
+
+        // When
+        cache.startChat(3L, message(3L, 3));
+
+        // Then
+        assertTrue(cache.lastMessage(2L).isEmpty());
+        assertTrue(cache.lastMessage(1L).isPresent());
+
+        clock.addAndGet(2_000);
+        assertTrue(cache.lastMessage(1L).isEmpty());
+        assertEquals(1, cache.evictIdle());
+        assertEquals(0, cache.size());
+        assertEquals(3, cache.getEvictionCount());
+    }
+
+    @Test
+    void markRead_UpdatesCachedCopies() {
+        // Given
+        Message fromOther = message(1L, 1);
+        fromOther.setSenderId(2L);
+        cache.startChat(1L, fromOther);
+
+        // When
+        cache.markRead(1L, 1L);
+
+        // Then
+        assertTrue(cache.lastMessage(1L).orElseThrow().getIsRead());
+    }
+
+    @Test
+    void markRead_LeavesMessagesAlreadyHandedOutUnchanged() {
+        // Given
+        Message fromOther = message(1L, 1);
+        fromOther.setSenderId(2L);
+        cache.startChat(1L, fromOther);
+        Message servedBefore = cache.lastMessage(1L).orElseThrow();
+
+        // When
+        cache.markRead(1L, 1L);
+
+        // Then
+        assertFalse(servedBefore.getIsRead());
+        assertFalse(fromOther.getIsRead());
+        assertTrue(cache.lastMessage(1L).orElseThrow().getIsRead());
+    }
+
+    @Test
+    void append_StoresACopyOfTheSavedMessage() {
+        // Given
+        Message saved = message(1L, 1);
+        cache.startChat(1L, saved);
+
+        // When: the entity changes after it was cached
+        saved.setContent("Edited");
+
+        // Then
+        Message cached = cache.lastMessage(1L).orElseThrow();
+        assertEquals("Message 1", cached.getContent());
+        assertNotSame(saved, cached);
+    }
+
+    @Test
+    void hitsAndMissesAreRegisteredAsCounters() {
+        // Given
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RecentMessageCache counted = new RecentMessageCache(3, 2, 30, registry);
+        counted.startChat(1L, message(1L, 1));
+
+        // When
+        counted.lastMessage(1L);
+        counted.lastMessage(1L);
+        counted.lastMessage(2L);
+
+        // Then
+        assertEquals(2.0, registry.get("bookbuddy.chat.recent-cache").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, registry.get("bookbuddy.chat.recent-cache").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void zeroCapacity_Disabled() {
+        // Given
+        RecentMessageCache disabled = new RecentMessageCache(0, 10, 1_000, clock::get);
+
+        // When
+        disabled.startChat(1L, message(1L, 1));
+
+        // Then
+        assertEquals(Optional.empty(), disabled.lastMessage(1L));
+    }
+
+    private Message message(Long chatId, long id) {
+        Message message = new Message(chatId, 1L, "Message " + id);
+        message.setId(id);
+        message.setCreatedAt(start.plusSeconds(id));
+        return message;
+    }
+
+    private static List<Long> ids(List<Message> messages) {
+        return messages.stream().map(Message::getId).toList();
+    }
+}
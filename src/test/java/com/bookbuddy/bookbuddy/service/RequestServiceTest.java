@@ -2,6 +2,7 @@ package com.bookbuddy.bookbuddy.service;
 
 import com.bookbuddy.bookbuddy.model.Book;
 import com.bookbuddy.bookbuddy.model.Request;
+import com.bookbuddy.bookbuddy.model.RequestWithBookInfo;
 import com.bookbuddy.bookbuddy.model.User;
 import com.bookbuddy.bookbuddy.repository.BookRepository;
 import com.bookbuddy.bookbuddy.repository.RequestRepository;
@@ -40,6 +41,15 @@ class RequestServiceTest {
     @Mock
     private ChatService chatService;
 
+    @Mock
+    private NotificationPublisher notificationPublisher;
+
+    @Mock
+    private LiveStats liveStats;
+
+    @Mock
+    private LoanDueDates loanDueDates;
+
     @InjectMocks
     private RequestService requestService;
 
@@ -104,6 +114,7 @@ class RequestServiceTest {
         assertEquals("I'm interested in your book!", result.getMessage());
         verify(requestRepository).save(any(Request.class));
         verify(bookService).markAsUnavailable(1L);
+        verify(notificationPublisher).publishDelta(1L, NotificationPublisher.Badge.RECEIVED_REQUESTS, 1);
     }
 
     @Test
@@ -234,6 +245,42 @@ class RequestServiceTest {
         assertEquals(Request.RequestStatus.ACCEPTED, result.getStatus());
         verify(requestRepository).save(any(Request.class));
         verify(bookService).markAsExchangeInProgress(1L);
+        verify(notificationPublisher).publishDelta(1L, NotificationPublisher.Badge.RECEIVED_REQUESTS, -1);
+        verify(notificationPublisher).publishDelta(2L, NotificationPublisher.Badge.SENT_REQUESTS, 1);
+        verify(liveStats).requestChanged(Request.RequestStatus.PENDING, Request.RequestStatus.ACCEPTED);
+    }
+
+    @Test
+    void acceptRequest_LendStartsLoanSchedule() {
+        // Given
+        testRequest.setRequestType(Request.RequestType.LEND);
+        testRequest.setRequestedDurationDays(14);
+        when(requestRepository.findById(1L)).thenReturn(Optional.of(testRequest));
+        when(requestRepository.save(any(Request.class))).thenReturn(testRequest);
+
+        // When
+        requestService.acceptRequest(1L, 1L);
+
+        // Then
+        verify(bookService).markAsCurrentlyLentOut(1L);
+        verify(loanDueDates).loanStarted(testRequest);
+    }
+
+    @Test
+    void returnLentBook_EndsLoanSchedule() {
+        // Given
+        testRequest.setRequestType(Request.RequestType.LEND);
+        testRequest.setStatus(Request.RequestStatus.ACCEPTED);
+        when(requestRepository.findById(1L)).thenReturn(Optional.of(testRequest));
+        when(requestRepository.save(any(Request.class))).thenReturn(testRequest);
+
+        // When
+        Request result = requestService.returnLentBook(1L, 1L);
+
+        // Then
+        assertEquals(Request.RequestStatus.COMPLETED, result.getStatus());
+        verify(bookService).markAsAvailable(1L);
+        verify(loanDueDates).loanEnded(testRequest);
     }
 
     @Test
@@ -255,6 +302,8 @@ class RequestServiceTest {
         // When & Then
         assertThrows(IllegalArgumentException.class, () -> requestService.acceptRequest(1L, 1L));
         verify(requestRepository, never()).save(any(Request.class));
+        verifyNoInteractions(notificationPublisher);
+        verifyNoInteractions(liveStats);
     }
 
     @Test
@@ -272,6 +321,37 @@ class RequestServiceTest {
         assertEquals(Request.RequestStatus.REJECTED, result.getStatus());
         verify(requestRepository).save(any(Request.class));
         verify(bookService).markAsAvailable(1L);
+        verify(notificationPublisher).publishDelta(1L, NotificationPublisher.Badge.RECEIVED_REQUESTS, -1);
+        verify(notificationPublisher).publishDelta(2L, NotificationPublisher.Badge.SENT_REQUESTS, 1);
+    }
+
+    @Test
+    void cancelRequest_NotifiesOwnerOnly() {
+        // Given
+        when(requestRepository.findById(1L)).thenReturn(Optional.of(testRequest));
+        when(requestRepository.save(any(Request.class))).thenReturn(testRequest);
+
+        // When
+        Request result = requestService.cancelRequest(1L, 2L);
+
+        // Then
+        assertEquals(Request.RequestStatus.CANCELLED, result.getStatus());
+        verify(notificationPublisher).publishDelta(1L, NotificationPublisher.Badge.RECEIVED_REQUESTS, -1);
+        verifyNoMoreInteractions(notificationPublisher);
+    }
+
+    @Test
+    void completeRequest_DoesNotChangeBadges() {
+        // Given
+        testRequest.setStatus(Request.RequestStatus.ACCEPTED);
+        when(requestRepository.findById(1L)).thenReturn(Optional.of(testRequest));
+        when(requestRepository.save(any(Request.class))).thenReturn(testRequest);
+
+        // When
+        requestService.completeRequest(1L, 1L);
+
+        // Then
+        verifyNoInteractions(notificationPublisher);
     }
 
     @Test
@@ -445,4 +525,33 @@ class RequestServiceTest {
             Request.RequestStatus.COMPLETED
         ));
     }
-} 
\ No newline at end of file
+
+    @Test
+    void findRequestsByOwnerWithBookInfo_LoadsBooksAndUsersInOneQueryEach() {
+        // Given
+        Request secondRequest = new Request();
+        secondRequest.setId(2L);
+        secondRequest.setRequesterId(3L);
+        secondRequest.setBookId(1L);
+        secondRequest.setOwnerId(1L);
+        secondRequest.setStatus(Request.RequestStatus.PENDING);
+        secondRequest.setRequestType(Request.RequestType.GIVE_AWAY);
+        when(requestRepository.findByOwnerIdOrderByCreatedAtDesc(1L)).thenReturn(List.of(testRequest, secondRequest));
+        when(bookRepository.findAllById(any())).thenReturn(List.of(testBook));
+        when(userRepository.findAllById(any())).thenReturn(List.of(testUser1, testUser2));
+
+        // When
+        List<RequestWithBookInfo> result = requestService.findRequestsByOwnerWithBookInfo(1L);
+
+        // Then
+        assertEquals(2, result.size());
+        assertEquals("Test Book", result.get(0).getBookTitle());
+        assertEquals("John Doe", result.get(0).getOwnerName());
+        assertEquals("Jane Smith", result.get(0).getRequesterName());
+        assertEquals("Unknown Requester", result.get(1).getRequesterName());
+        verify(bookRepository, times(1)).findAllById(any());
+        verify(userRepository, times(1)).findAllById(any());
+        verify(bookRepository, never()).findById(any());
+        verify(userRepository, never()).findById(any());
+    }
+}
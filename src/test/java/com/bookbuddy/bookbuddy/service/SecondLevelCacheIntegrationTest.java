@@ -0,0 +1,97 @@
+package com.bookbuddy.bookbuddy.service;
+
+import com.bookbuddy.bookbuddy.model.Book;
+import com.bookbuddy.bookbuddy.model.User;
+import com.bookbuddy.bookbuddy.repository.BookRepository;
+import com.bookbuddy.bookbuddy.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:secondlevelcache")
+@ActiveProfiles("test")
+class SecondLevelCacheIntegrationTest {
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void findById_RepeatLookupsServedFromCache() {
+        // Given
+        Book listed = bookService.listBook("Cached Book", "Author", null, null, "Good", null,
+                null, null, null, 1L, Book.SharingType.GIVE_AWAY, null);
+        bookService.findById(listed.getId());
+        statistics.clear();
+
+        // When
+        bookService.findById(listed.getId());
+        bookService.findById(listed.getId());
+
+        // Then
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(2, statistics.getSecondLevelCacheHitCount());
+    }
+
+    @Test
+    void findById_SeesStatusChangesMadeThroughHibernate() {
+        // Given
+        Book listed = bookService.listBook("Lent Book", "Author", null, null, "Good", null,
+                null, null, null, 1L, Book.SharingType.LEND, 14);
+        bookService.findById(listed.getId());
+
+        // When
+        bookService.markAsCurrentlyLentOut(listed.getId());
+
+        // Then
+        assertEquals(Book.BookStatus.CURRENTLY_LENT_OUT, bookService.findById(listed.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void findByEmail_RepeatQueryServedFromQueryCache() {
+        // Given
+        userRepository.save(new User("cached@example.com", "password123", "Casey", "Cached"));
+        userService.findByEmail("cached@example.com");
+        statistics.clear();
+
+        // When
+        User user = userService.findByEmail("cached@example.com").orElseThrow();
+
+        // Then
+        assertEquals("Casey", user.getFirstName());
+        assertEquals(1, statistics.getQueryCacheHitCount());
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+}
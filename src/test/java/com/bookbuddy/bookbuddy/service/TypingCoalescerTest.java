@@ -0,0 +1,65 @@
+package com.bookbuddy.bookbuddy.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TypingCoalescerTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+
+    private TypingCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        coalescer = new TypingCoalescer(1_000, clock::get);
+    }
+
+    @Test
+    void typing_KeystrokeStormEmitsOncePerInterval() {
+        // When / Then
+        assertTrue(coalescer.typing(1L, 2L));
+        for (int i = 0; i < 50; i++) {
+            clock.addAndGet(10);
+            assertFalse(coalescer.typing(1L, 2L));
+        }
+        clock.addAndGet(500);
+        assertTrue(coalescer.typing(1L, 2L));
+    }
+
+    @Test
+    void stopTyping_OnlyAfterATypingBroadcast() {
+        // When / Then
+        assertFalse(coalescer.stopTyping(1L, 2L));
+        assertTrue(coalescer.typing(1L, 2L));
+        assertTrue(coalescer.stopTyping(1L, 2L));
+        assertFalse(coalescer.stopTyping(1L, 2L));
+    }
+
+    @Test
+    void typing_RestartAfterStopIsSentImmediately() {
+        // Given
+        coalescer.typing(1L, 2L);
+        clock.addAndGet(10);
+        coalescer.stopTyping(1L, 2L);
+
+        // When / Then: the stop reset the window, then coalescing starts over
+        clock.addAndGet(10);
+        assertTrue(coalescer.typing(1L, 2L));
+        clock.addAndGet(10);
+        assertFalse(coalescer.typing(1L, 2L));
+        assertTrue(coalescer.stopTyping(1L, 2L));
+    }
+
+    @Test
+    void typing_UsersAndChatsAreIndependent() {
+        // When / Then
+        assertTrue(coalescer.typing(1L, 2L));
+        assertTrue(coalescer.typing(1L, 3L));
+        assertTrue(coalescer.typing(4L, 2L));
+        assertEquals(3, coalescer.size());
+    }
+}
@@ -8,8 +8,12 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -104,6 +108,33 @@ class UserServiceTest {
             () -> userService.registerUser("John", "Doe", "test@example.com", "123"));
     }
 
+    @Test
+    void findUsersByIds_LoadsAllInOneQuery() {
+        // Arrange
+        User otherUser = new User();
+        otherUser.setId(2L);
+        when(userRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(testUser, otherUser));
+
+        // Act
+        Map<Long, User> result = userService.findUsersByIds(List.of(1L, 2L, 1L));
+
+        // Assert
+        assertEquals(2, result.size());
+        assertEquals(testUser, result.get(1L));
+        assertEquals(otherUser, result.get(2L));
+        verify(userRepository, times(1)).findAllById(any());
+    }
+
+    @Test
+    void findUsersByIds_EmptyInput_SkipsQuery() {
+        // Act
+        Map<Long, User> result = userService.findUsersByIds(List.of());
+
+        // Assert
+        assertTrue(result.isEmpty());
+        verify(userRepository, never()).findAllById(any());
+    }
+
     @Test
     void findByEmail_Success() {
         // Arrange
@@ -148,6 +179,66 @@ class UserServiceTest {
         verify(userRepository).findById(userId);
     }
 
+    @Test
+    void findUserId_CustomPrincipal_NoQuery() {
+        // Given
+        Authentication authentication = new UsernamePasswordAuthenticationToken(
+                new BookBuddyUserDetails(testUser), null, List.of());
+
+        // When
+        Optional<Long> result = userService.findUserId(authentication);
+
+        // Then
+        assertEquals(Optional.of(1L), result);
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void findUserId_PlainPrincipal_LooksUpEmailOnce() {
+        // Given
+        Authentication authentication = new UsernamePasswordAuthenticationToken("john.doe@example.com", null, List.of());
+        when(userRepository.findIdByEmail("john.doe@example.com")).thenReturn(Optional.of(1L));
+
+        // When
+        Optional<Long> first = userService.findUserId(authentication);
+        Optional<Long> second = userService.findUserId(authentication);
+
+        // Then
+        assertEquals(Optional.of(1L), first);
+        assertEquals(Optional.of(1L), second);
+        verify(userRepository, times(1)).findIdByEmail("john.doe@example.com");
+    }
+
+    @Test
+    void findUserIdByEmail_UnknownEmail_NotCached() {
+        // Given
+        when(userRepository.findIdByEmail("nobody@example.com")).thenReturn(Optional.empty());
+
+        // When
+        userService.findUserIdByEmail("nobody@example.com");
+        Optional<Long> result = userService.findUserIdByEmail("nobody@example.com");
+
+        // Then
+        assertTrue(result.isEmpty());
+        verify(userRepository, times(2)).findIdByEmail("nobody@example.com");
+    }
+
+    @Test
+    void updateUser_EvictsCachedUserId() {
+        // Given
+        when(userRepository.findIdByEmail("john.doe@example.com")).thenReturn(Optional.of(1L));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(userRepository.save(any(User.class))).thenReturn(testUser);
+        userService.findUserIdByEmail("john.doe@example.com");
+
+        // When
+        userService.updateUser(1L, "Johnny", null);
+        userService.findUserIdByEmail("john.doe@example.com");
+
+        // Then
+        verify(userRepository, times(2)).findIdByEmail("john.doe@example.com");
+    }
+
     @Test
     void updateUser_Success() {
         // Arrange
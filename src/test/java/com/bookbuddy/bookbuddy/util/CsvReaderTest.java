@@ -0,0 +1,64 @@
+package com.bookbuddy.bookbuddy.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvReaderTest {
+
+    @Test
+    void next_ReadsPlainRecordsAndLineNumbers() throws IOException {
+        // Given
+        CsvReader csv = new CsvReader(new StringReader("title,author\nDune,Herbert\r\nEmma,Austen"));
+
+        // When & Then
+        assertEquals(List.of("title", "author"), csv.next());
+        assertEquals(List.of("Dune", "Herbert"), csv.next());
+        assertEquals(2, csv.getRecordLine());
+        assertEquals(List.of("Emma", "Austen"), csv.next());
+        assertEquals(3, csv.getRecordLine());
+        assertNull(csv.next());
+    }
+
+    @Test
+    void next_QuotedFieldsKeepCommasQuotesAndLineBreaks() throws IOException {
+        // Given
+        CsvReader csv = new CsvReader(new StringReader(
+                "\"Hitchhiker's Guide, The\",\"Says \"\"Don't Panic\"\"\",\"two\nlines\"\nnext,row,here\n"));
+
+        // When
+        List<String> first = csv.next();
+        List<String> second = csv.next();
+
+        // Then
+        assertEquals(List.of("Hitchhiker's Guide, The", "Says \"Don't Panic\"", "two\nlines"), first);
+        assertEquals(List.of("next", "row", "here"), second);
+        assertEquals(3, csv.getRecordLine());
+    }
+
+    @Test
+    void next_SkipsBlankLinesAndKeepsEmptyFields() throws IOException {
+        // Given
+        CsvReader csv = new CsvReader(new StringReader("\n\na,,c,\n\n"));
+
+        // When & Then
+        assertEquals(List.of("a", "", "c", ""), csv.next());
+        assertEquals(3, csv.getRecordLine());
+        assertNull(csv.next());
+    }
+
+    @Test
+    void next_UnterminatedQuoteFails() throws IOException {
+        // Given
+        CsvReader csv = new CsvReader(new StringReader("ok,fine\n\"never closed,x\n"));
+        csv.next();
+
+        // When & Then
+        IOException exception = assertThrows(IOException.class, csv::next);
+        assertTrue(exception.getMessage().contains("line 2"));
+    }
+}
@@ -0,0 +1,48 @@
+package com.bookbuddy.bookbuddy.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistanceCursorTest {
+
+    @Test
+    void encodeDecode_RoundTrips() {
+        // Given
+        DistanceCursor cursor = new DistanceCursor(3.141592653589793, 42L);
+
+        // When
+        DistanceCursor decoded = DistanceCursor.decode(cursor.encode());
+
+        // Then
+        assertEquals(cursor, decoded);
+        assertFalse(cursor.encode().contains("="), "token should be URL safe without padding");
+    }
+
+    @Test
+    void decode_BlankMeansFirstPage() {
+        assertNull(DistanceCursor.decode(null));
+        assertNull(DistanceCursor.decode("  "));
+    }
+
+    @Test
+    void decode_GarbageThrows() {
+        assertThrows(IllegalArgumentException.class, () -> DistanceCursor.decode("not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> DistanceCursor.decode("bm8tc2VwYXJhdG9y"));
+        assertThrows(IllegalArgumentException.class,
+                () -> DistanceCursor.decode(new DistanceCursor(Double.NaN, 1L).encode()));
+    }
+
+    @Test
+    void isAfterInClosestFirst_BreaksTiesById() {
+        // Given
+        DistanceCursor cursor = new DistanceCursor(2.5, 10L);
+
+        // Then
+        assertTrue(cursor.isAfterInClosestFirst(2.6, 1L));
+        assertTrue(cursor.isAfterInClosestFirst(2.5, 11L));
+        assertFalse(cursor.isAfterInClosestFirst(2.5, 10L));
+        assertFalse(cursor.isAfterInClosestFirst(2.5, 9L));
+        assertFalse(cursor.isAfterInClosestFirst(2.4, 99L));
+    }
+}
@@ -0,0 +1,62 @@
+package com.bookbuddy.bookbuddy.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeoHashTest {
+
+    @Test
+    void encode_KnownValues() {
+        assertEquals("ezs42", GeoHash.encode(42.605, -5.603, 5));
+        assertEquals("u4pruydqq", GeoHash.encode(57.64911, 10.40744, 9));
+    }
+
+    @Test
+    void encode_LongerHashExtendsShorterOne() {
+        String coarse = GeoHash.encode(51.5074, -0.1278, 5);
+        String fine = GeoHash.encode(51.5074, -0.1278, 9);
+
+        assertTrue(fine.startsWith(coarse));
+    }
+
+    @Test
+    void covering_ContainsEveryPointWithinRadius() {
+        Random random = new Random(7);
+        double[][] centres = {{51.5074, -0.1278}, {-33.8688, 151.2093}, {0.0, 179.99}, {89.5, 10.0}, {64.1, -21.9}};
+        double[] radii = {0.5, 5, 25, 150};
+
+        for (double[] centre : centres) {
+            for (double radius : radii) {
+                Set<String> cells = GeoHash.covering(centre[0], centre[1], radius);
+                assertTrue(cells.size() <= 16);
+
+                for (int i = 0; i < 500; i++) {
+                    // Random point within the radius
+                    double bearing = random.nextDouble() * 2 * Math.PI;
+                    double distance = radius * Math.sqrt(random.nextDouble()) * 0.999;
+                    double[] point = destination(centre[0], centre[1], bearing, distance);
+                    String hash = GeoHash.encode(point[0], point[1], GeoHash.MAX_PRECISION);
+
+                    assertTrue(cells.stream().anyMatch(hash::startsWith),
+                            "Point " + point[0] + "," + point[1] + " not covered for radius " + radius);
+                }
+            }
+        }
+    }
+
+    private static double[] destination(double lat, double lng, double bearing, double distanceKm) {
+        double angular = distanceKm / 6371;
+        double lat1 = Math.toRadians(lat);
+        double lng1 = Math.toRadians(lng);
+        double lat2 = Math.asin(Math.sin(lat1) * Math.cos(angular)
+                + Math.cos(lat1) * Math.sin(angular) * Math.cos(bearing));
+        double lng2 = lng1 + Math.atan2(Math.sin(bearing) * Math.sin(angular) * Math.cos(lat1),
+                Math.cos(angular) - Math.sin(lat1) * Math.sin(lat2));
+        double wrapped = ((Math.toDegrees(lng2) + 540) % 360) - 180;
+        return new double[]{Math.toDegrees(lat2), wrapped};
+    }
+}
@@ -0,0 +1,76 @@
+package com.bookbuddy.bookbuddy.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetCursorTest {
+
+    private static final LocalDateTime NOON = LocalDateTime.of(2025, 3, 1, 12, 0, 0, 123456000);
+
+    @Test
+    void encodeDecode_RoundTrips() {
+        // Given
+        KeysetCursor cursor = new KeysetCursor(NOON, 42L);
+
+        // When
+        KeysetCursor decoded = KeysetCursor.decode(cursor.encode());
+
+        // Then
+        assertEquals(cursor, decoded);
+        assertFalse(cursor.encode().contains("="), "token should be URL safe without padding");
+    }
+
+    @Test
+    void decode_BlankMeansFirstPage() {
+        assertNull(KeysetCursor.decode(null));
+        assertNull(KeysetCursor.decode("  "));
+    }
+
+    @Test
+    void decode_GarbageThrows() {
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("bm8tc2VwYXJhdG9y"));
+    }
+
+    @Test
+    void isAfterInNewestFirst_BreaksTiesById() {
+        // Given
+        KeysetCursor cursor = new KeysetCursor(NOON, 10L);
+
+        // Then
+        assertTrue(cursor.isAfterInNewestFirst(NOON.minusSeconds(1), 99L));
+        assertTrue(cursor.isAfterInNewestFirst(NOON, 9L));
+        assertFalse(cursor.isAfterInNewestFirst(NOON, 10L));
+        assertFalse(cursor.isAfterInNewestFirst(NOON, 11L));
+        assertFalse(cursor.isAfterInNewestFirst(NOON.plusSeconds(1), 1L));
+    }
+
+    @Test
+    void fromLookahead_ExtraRowProducesNextCursor() {
+        // Given
+        List<KeysetCursor> rows = List.of(
+                new KeysetCursor(NOON, 3L), new KeysetCursor(NOON, 2L), new KeysetCursor(NOON, 1L));
+
+        // When
+        CursorPage<KeysetCursor> page = CursorPage.fromLookahead(rows, 2, row -> row);
+        CursorPage<KeysetCursor> last = CursorPage.fromLookahead(rows.subList(2, 3), 2, row -> row);
+
+        // Then
+        assertEquals(2, page.getItems().size());
+        assertEquals(new KeysetCursor(NOON, 2L), page.getNextCursor());
+        assertFalse(last.hasNext());
+        assertNull(last.getNextCursorToken());
+    }
+
+    @Test
+    void clampLimit_AppliesDefaultAndMaximum() {
+        assertEquals(CursorPage.DEFAULT_LIMIT, CursorPage.clampLimit(null));
+        assertEquals(CursorPage.DEFAULT_LIMIT, CursorPage.clampLimit(0));
+        assertEquals(10, CursorPage.clampLimit(10));
+        assertEquals(CursorPage.MAX_LIMIT, CursorPage.clampLimit(10_000));
+    }
+}
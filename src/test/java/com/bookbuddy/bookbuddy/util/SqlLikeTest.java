@@ -0,0 +1,19 @@
+package com.bookbuddy.bookbuddy.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlLikeTest {
+
+    @Test
+    void escape_EscapesWildcardsAndTheEscapeCharacter() {
+        assertEquals("100!% off!_now!!", SqlLike.escape("100% off_now!"));
+    }
+
+    @Test
+    void escape_LeavesPlainTextAlone() {
+        assertEquals("The Hobbit", SqlLike.escape("The Hobbit"));
+        assertNull(SqlLike.escape(null));
+    }
+}